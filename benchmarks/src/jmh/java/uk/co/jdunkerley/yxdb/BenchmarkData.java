@@ -0,0 +1,133 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Deterministic datasets for the benchmarks.
+// Each file is generated from a fixed seed the first time it is needed and reused by later forks and runs.
+final class BenchmarkData {
+    static final int ID = 0;
+    static final int AMOUNT = 1;
+    static final int PRICE = 2;
+    static final int CODE = 3;
+    static final int NAME = 4;
+    static final int DATE = 5;
+    static final int STAMP = 6;
+    static final int FLAG = 7;
+    static final int COUNT = 8;
+    static final int PAYLOAD = 9;
+
+    private BenchmarkData() {
+    }
+
+    static Path directory() throws IOException {
+        var directory = Path.of(System.getProperty("yxdb.benchmark.dir", System.getProperty("java.io.tmpdir") + "/yxdb-benchmarks"));
+        Files.createDirectories(directory);
+        return directory;
+    }
+
+    // A file from the root project's test resources, found through yxdb.resources.dir.
+    static Path resource(String name) {
+        return Path.of(System.getProperty("yxdb.resources.dir", "../src/test/resources")).resolve(name);
+    }
+
+    // The non-null SpatialObj blobs of a file, in record and field order.
+    static List<byte[]> spatialObjects(Path path) throws IOException {
+        var blobs = new ArrayList<byte[]>();
+        try (var reader = new YxdbReader(path.toString())) {
+            while (reader.next()) {
+                for (var field : reader.fields()) {
+                    if (field.yxdbType().equals(YxdbType.SPATIAL_OBJ) && !reader.isNull(field.index())) {
+                        blobs.add(reader.readBlob(field.index()));
+                    }
+                }
+            }
+        }
+        if (blobs.isEmpty()) {
+            throw new IllegalArgumentException(path + " has no SpatialObj values.");
+        }
+        return blobs;
+    }
+
+    // One column of each commonly used type, in the order of the constants above, with about 1 in 8 values null and
+    // half of the values drawn from a small vocabulary.
+    static Path mixed(int rows) throws IOException {
+        var path = directory().resolve("mixed-" + rows + ".yxdb");
+        if (Files.exists(path)) {
+            return path;
+        }
+
+        var temp = path.resolveSibling(path.getFileName() + ".tmp");
+        new YxdbGenerator()
+                .rows(rows)
+                .seed(rows)
+                .columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.DOUBLE, YxdbGenerator.Column.DECIMAL,
+                        YxdbGenerator.Column.STRING, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.DATE,
+                        YxdbGenerator.Column.DATETIME, YxdbGenerator.Column.BOOL, YxdbGenerator.Column.INT64,
+                        YxdbGenerator.Column.BLOB)
+                .stringLengths(4, 32)
+                .blobLengths(16, 128)
+                .nullRatio(0.125)
+                .compressibility(0.5)
+                .write(temp);
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        return path;
+    }
+
+    // The compressed LZF blocks of a file, each copied into an array sized for Lzf's input buffer.
+    static List<byte[]> compressedBlocks(Path path, List<Integer> lengths) throws IOException {
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        var position = YxdbReader.dataStart(bytes);
+        var end = bytes.getLong(96);
+        var blocks = new ArrayList<byte[]>();
+        while (position < end) {
+            var length = bytes.getInt((int) position);
+            if (length < 0) {
+                position += 4 + (length & 0x7fffffff);
+                continue;
+            }
+
+            var block = new byte[BufferedRecordReader.lzfBufferSize];
+            bytes.get((int) position + 4, block, 0, length);
+            blocks.add(block);
+            lengths.add(length);
+            position += 4 + length;
+        }
+        return blocks;
+    }
+
+    // A SpatialObj polygon made of rings, each a circle of points around its own centre.
+    static byte[] polygon(int rings, int pointsPerRing) {
+        var totalPoints = rings * pointsPerRing;
+        var pointsStart = 48 + (rings - 1) * 4;
+        var buffer = ByteBuffer.allocate(pointsStart + totalPoints * 16).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, 5);
+        buffer.putDouble(4, -rings);
+        buffer.putDouble(12, -1);
+        buffer.putDouble(20, rings);
+        buffer.putDouble(28, 1);
+        buffer.putInt(36, rings);
+        buffer.putLong(40, totalPoints);
+        for (var ring = 1; ring < rings; ring++) {
+            buffer.putInt(48 + (ring - 1) * 4, ring * pointsPerRing);
+        }
+
+        var position = pointsStart;
+        for (var ring = 0; ring < rings; ring++) {
+            for (var point = 0; point < pointsPerRing; point++) {
+                var angle = 2 * Math.PI * point / (pointsPerRing - 1);
+                buffer.putDouble(position, 2 * ring - rings + 1 + Math.cos(angle));
+                buffer.putDouble(position + 8, Math.sin(angle));
+                position += 16;
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,79 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV and NDJSON export of a whole file to a discarding stream. The primary score is files per second; the megabytes counter
+ * reports output MB per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CsvBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private String path;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        path = BenchmarkData.mixed(rows).toString();
+    }
+
+    @Benchmark
+    public long export(Output counter) throws IOException {
+        var output = new CountingStream();
+        var records = CsvExporter.csv().threads(threads).export(path, output);
+        counter.megabytes += output.bytes / 1e6;
+        return records;
+    }
+
+    @Benchmark
+    public long exportJson(Output counter) throws IOException {
+        var output = new CountingStream();
+        var records = new JsonExporter().threads(threads).export(path, output);
+        counter.megabytes += output.bytes / 1e6;
+        return records;
+    }
+
+    private static final class CountingStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
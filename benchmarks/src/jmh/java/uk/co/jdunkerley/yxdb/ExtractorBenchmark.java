@@ -0,0 +1,106 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single extractor call on a record already in memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExtractorBenchmark {
+    private ByteBuffer buffer;
+    private YxdbField[] fields;
+
+    @Setup
+    public void setup() throws IOException {
+        try (var file = YxdbFile.open(BenchmarkData.mixed(1000))) {
+            fields = file.fields;
+            var reader = file.newRecordReader();
+            while (reader.nextRecord()) {
+                if (hasNoNulls(file.record, reader.recordBuffer)) {
+                    buffer = ByteBuffer.wrap(reader.recordBuffer.array().clone()).order(reader.recordBuffer.order());
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("dataset has no record without nulls");
+    }
+
+    private static boolean hasNoNulls(YxdbRecord record, ByteBuffer buffer) {
+        for (var field : record.fields) {
+            var index = field.index();
+            Object value = switch (field.dataType()) {
+                case BOOLEAN -> record.extractBooleanFrom(index, buffer);
+                case BYTE -> record.extractByteFrom(index, buffer);
+                case LONG -> record.extractLongFrom(index, buffer);
+                case DOUBLE -> record.extractDoubleFrom(index, buffer);
+                case DECIMAL -> record.extractDecimalFrom(index, buffer);
+                case STRING -> record.extractStringFrom(index, buffer);
+                case DATE -> record.extractDateFrom(index, buffer);
+                case TIME -> record.extractTimeFrom(index, buffer);
+                case DATETIME -> record.extractDateTimeFrom(index, buffer);
+                case BLOB -> record.extractBlobFrom(index, buffer);
+            };
+            if (value == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Benchmark
+    public long extractInt32() {
+        return Extractors.extractInt32(buffer, fields[BenchmarkData.ID].startPosition());
+    }
+
+    @Benchmark
+    public Double extractDouble() {
+        return Extractors.extractDouble(buffer, fields[BenchmarkData.AMOUNT].startPosition());
+    }
+
+    @Benchmark
+    public BigDecimal extractFixedDecimal() {
+        var field = fields[BenchmarkData.PRICE];
+        return Extractors.extractFixedDecimal(buffer, field.startPosition(), field.size());
+    }
+
+    @Benchmark
+    public String extractString() {
+        var field = fields[BenchmarkData.CODE];
+        return Extractors.extractString(buffer, field.startPosition(), field.size());
+    }
+
+    @Benchmark
+    public String extractVWString() {
+        return Extractors.extractVWString(buffer, fields[BenchmarkData.NAME].startPosition());
+    }
+
+    @Benchmark
+    public LocalDate extractDate() {
+        return Extractors.extractDate(buffer, fields[BenchmarkData.DATE].startPosition());
+    }
+
+    @Benchmark
+    public LocalDateTime extractDateTime() {
+        return Extractors.extractDateTime(buffer, fields[BenchmarkData.STAMP].startPosition());
+    }
+
+    @Benchmark
+    public byte[] extractBlob() {
+        return Extractors.extractBlob(buffer, fields[BenchmarkData.PAYLOAD].startPosition());
+    }
+}
@@ -0,0 +1,50 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw LZF decompression, one 256 KB block per operation, cycling through every compressed block of the dataset.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LzfBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    private Lzf[] blocks;
+    private int[] lengths;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        var blockLengths = new ArrayList<Integer>();
+        var compressed = BenchmarkData.compressedBlocks(BenchmarkData.mixed(rows), blockLengths);
+        var out = new byte[BufferedRecordReader.lzfBufferSize];
+
+        blocks = new Lzf[compressed.size()];
+        lengths = new int[compressed.size()];
+        for (var i = 0; i < blocks.length; i++) {
+            blocks[i] = new Lzf(compressed.get(i), out);
+            lengths[i] = blockLengths.get(i);
+        }
+    }
+
+    @Benchmark
+    public int decompressBlock() {
+        var block = next;
+        next = (block + 1) % blocks.length;
+        return blocks[block].decompress(lengths[block]);
+    }
+}
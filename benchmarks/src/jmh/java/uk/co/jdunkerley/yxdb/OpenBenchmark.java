@@ -0,0 +1,46 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of opening a file: parsing the header and field metadata, and reaching the first record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OpenBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    private String path;
+
+    @Setup
+    public void setup() throws IOException {
+        path = BenchmarkData.mixed(rows).toString();
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        try (var reader = new YxdbReader(path)) {
+            return reader.fields().length;
+        }
+    }
+
+    @Benchmark
+    public Long openAndReadFirstRecord() throws IOException {
+        try (var reader = new YxdbReader(path)) {
+            reader.next();
+            return reader.readLong(BenchmarkData.ID);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-file scans. The primary score is files per second; the rows counter reports rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScanBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    private String path;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        path = BenchmarkData.mixed(rows).toString();
+    }
+
+    @Benchmark
+    public void nextOnly(Rows counter) throws IOException {
+        try (var reader = new YxdbReader(path)) {
+            while (reader.next()) {
+                counter.rows++;
+            }
+        }
+    }
+
+    @Benchmark
+    public ReaderStats nextOnlyWithStats(Rows counter) throws IOException {
+        try (var reader = new YxdbReader(path)) {
+            reader.enableStats();
+            while (reader.next()) {
+                counter.rows++;
+            }
+            return reader.stats();
+        }
+    }
+
+    @Benchmark
+    public void readAllFields(Rows counter, Blackhole blackhole) throws IOException {
+        try (var reader = new YxdbReader(path)) {
+            var fields = reader.fields().length;
+            while (reader.next()) {
+                for (var i = 0; i < fields; i++) {
+                    blackhole.consume(reader.read(i));
+                }
+                counter.rows++;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting SpatialObj blobs to GeoJSON, WKB and WKT.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpatialBenchmark {
+    @Param({"1", "10"})
+    public int rings;
+
+    @Param({"5", "1000"})
+    public int pointsPerRing;
+
+    private byte[] polygon;
+    private ByteBuffer wkb;
+
+    @Setup
+    public void setup() {
+        polygon = BenchmarkData.polygon(rings, pointsPerRing);
+        wkb = ByteBuffer.allocate(Spatial.wkbLength(polygon));
+    }
+
+    @Benchmark
+    public String toGeoJson() {
+        return Spatial.toGeoJson(polygon);
+    }
+
+    @Benchmark
+    public byte[] toWkb() {
+        return Spatial.toWkb(polygon);
+    }
+
+    @Benchmark
+    public int toWkbReusedBuffer() {
+        wkb.clear();
+        return Spatial.toWkb(polygon, wkb);
+    }
+
+    @Benchmark
+    public String toWkt() {
+        return Spatial.toWkt(polygon);
+    }
+
+    @Benchmark
+    public Spatial.BoundingBox boundingBox() {
+        return Spatial.boundingBox(polygon);
+    }
+}
@@ -0,0 +1,69 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting the SpatialObj blobs of the multi-polygon test files to GeoJSON, WKB and WKT.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpatialFileBenchmark {
+    @Param({"multi-poly.yxdb", "multi-poly-holes.yxdb"})
+    public String file;
+
+    private List<byte[]> blobs;
+    private ByteBuffer wkb;
+
+    @Setup
+    public void setup() throws IOException {
+        blobs = BenchmarkData.spatialObjects(BenchmarkData.resource(file));
+        var length = 0;
+        for (var blob : blobs) {
+            length = Math.max(length, Spatial.wkbLength(blob));
+        }
+        wkb = ByteBuffer.allocate(length);
+    }
+
+    @Benchmark
+    public void toGeoJson(Blackhole blackhole) {
+        for (var blob : blobs) {
+            blackhole.consume(Spatial.toGeoJson(blob));
+        }
+    }
+
+    @Benchmark
+    public void toWkb(Blackhole blackhole) {
+        for (var blob : blobs) {
+            blackhole.consume(Spatial.toWkb(blob));
+        }
+    }
+
+    @Benchmark
+    public void toWkbReusedBuffer(Blackhole blackhole) {
+        for (var blob : blobs) {
+            wkb.clear();
+            blackhole.consume(Spatial.toWkb(blob, wkb));
+        }
+    }
+
+    @Benchmark
+    public void toWkt(Blackhole blackhole) {
+        for (var blob : blobs) {
+            blackhole.consume(Spatial.toWkt(blob));
+        }
+    }
+}
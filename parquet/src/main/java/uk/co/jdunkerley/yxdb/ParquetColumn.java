@@ -0,0 +1,392 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// How a YXDB field maps onto a Parquet column, and how its values are read from the record buffer.
+// Every column is OPTIONAL, so each value carries a definition level (1 for a value, 0 for null).
+final class ParquetColumn {
+    // Parquet physical types
+    static final int TYPE_BOOLEAN = 0;
+    static final int TYPE_INT32 = 1;
+    static final int TYPE_INT64 = 2;
+    static final int TYPE_FLOAT = 4;
+    static final int TYPE_DOUBLE = 5;
+    static final int TYPE_BYTE_ARRAY = 6;
+    static final int TYPE_FIXED_LEN_BYTE_ARRAY = 7;
+
+    // Parquet converted types, written alongside the logical types for older readers
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_DECIMAL = 5;
+    private static final int CONVERTED_DATE = 6;
+    private static final int CONVERTED_INT_8 = 15;
+    private static final int CONVERTED_INT_16 = 16;
+    private static final int CONVERTED_INT_32 = 17;
+    private static final int CONVERTED_INT_64 = 18;
+
+    enum Kind {
+        BOOLEAN, INT8, INT16, INT32, INT64, FLOAT, DOUBLE, DECIMAL_INT64, DECIMAL_FIXED, STRING, DATE, TIME, TIMESTAMP, BLOB, SPATIAL
+    }
+
+    final String name;
+    final YxdbField field;
+    final Kind kind;
+    final int physicalType;
+    final int typeLength;
+    final int precision;
+    final int scale;
+
+    ParquetColumn(String name, YxdbField field) throws IllegalArgumentException {
+        this.name = name;
+        this.field = field;
+        this.kind = switch (field.yxdbType()) {
+            case YxdbType.BOOLEAN -> Kind.BOOLEAN;
+            case YxdbType.BYTE -> Kind.INT8;
+            case YxdbType.INT16 -> Kind.INT16;
+            case YxdbType.INT32 -> Kind.INT32;
+            case YxdbType.INT64 -> Kind.INT64;
+            case YxdbType.FLOAT -> Kind.FLOAT;
+            case YxdbType.DOUBLE -> Kind.DOUBLE;
+            case YxdbType.DECIMAL -> field.size() <= 18 ? Kind.DECIMAL_INT64 : Kind.DECIMAL_FIXED;
+            case YxdbType.STRING, YxdbType.WSTRING, YxdbType.V_STRING, YxdbType.V_WSTRING -> Kind.STRING;
+            case YxdbType.DATE -> Kind.DATE;
+            case YxdbType.TIME -> Kind.TIME;
+            case YxdbType.DATETIME -> Kind.TIMESTAMP;
+            case YxdbType.BLOB -> Kind.BLOB;
+            case YxdbType.SPATIAL_OBJ -> Kind.SPATIAL;
+            default -> throw new IllegalArgumentException("Unknown field YXDB type: " + field.yxdbType());
+        };
+        this.physicalType = switch (kind) {
+            case BOOLEAN -> TYPE_BOOLEAN;
+            case INT8, INT16, INT32, DATE, TIME -> TYPE_INT32;
+            case INT64, DECIMAL_INT64, TIMESTAMP -> TYPE_INT64;
+            case FLOAT -> TYPE_FLOAT;
+            case DOUBLE -> TYPE_DOUBLE;
+            case DECIMAL_FIXED -> TYPE_FIXED_LEN_BYTE_ARRAY;
+            case STRING, BLOB, SPATIAL -> TYPE_BYTE_ARRAY;
+        };
+        // the FixedDecimal size is the width of its text, so it bounds the number of digits
+        this.precision = field.size();
+        this.scale = field.scale();
+        this.typeLength = kind == Kind.DECIMAL_FIXED ? decimalBytes(precision) : 0;
+    }
+
+    // The smallest two's complement width that holds every unscaled value of the precision.
+    private static int decimalBytes(int precision) {
+        var max = BigInteger.TEN.pow(precision);
+        return (max.bitLength() + 1 + 7) / 8;
+    }
+
+    // Writes the SchemaElement for the column.
+    void writeSchema(ThriftWriter thrift) {
+        thrift.structBegin();
+        thrift.i32(1, physicalType);
+        if (typeLength > 0) {
+            thrift.i32(2, typeLength);
+        }
+        thrift.i32(3, 1);
+        thrift.string(4, name);
+        switch (kind) {
+            case INT8 -> thrift.i32(6, CONVERTED_INT_8);
+            case INT16 -> thrift.i32(6, CONVERTED_INT_16);
+            case INT32 -> thrift.i32(6, CONVERTED_INT_32);
+            case INT64 -> thrift.i32(6, CONVERTED_INT_64);
+            case STRING -> thrift.i32(6, CONVERTED_UTF8);
+            case DATE -> thrift.i32(6, CONVERTED_DATE);
+            case DECIMAL_INT64, DECIMAL_FIXED -> {
+                thrift.i32(6, CONVERTED_DECIMAL);
+                thrift.i32(7, scale);
+                thrift.i32(8, precision);
+            }
+            default -> {
+            }
+        }
+        writeLogicalType(thrift);
+        thrift.structEnd();
+    }
+
+    private void writeLogicalType(ThriftWriter thrift) {
+        switch (kind) {
+            case INT8, INT16, INT32, INT64 -> {
+                thrift.structBegin(10);
+                thrift.structBegin(10);
+                thrift.i8(1, switch (kind) {
+                    case INT8 -> 8;
+                    case INT16 -> 16;
+                    case INT32 -> 32;
+                    default -> 64;
+                });
+                thrift.bool(2, true);
+                thrift.structEnd();
+                thrift.structEnd();
+            }
+            case STRING -> {
+                thrift.structBegin(10);
+                thrift.structBegin(1);
+                thrift.structEnd();
+                thrift.structEnd();
+            }
+            case DECIMAL_INT64, DECIMAL_FIXED -> {
+                thrift.structBegin(10);
+                thrift.structBegin(5);
+                thrift.i32(1, scale);
+                thrift.i32(2, precision);
+                thrift.structEnd();
+                thrift.structEnd();
+            }
+            case DATE -> {
+                thrift.structBegin(10);
+                thrift.structBegin(6);
+                thrift.structEnd();
+                thrift.structEnd();
+            }
+            case TIME, TIMESTAMP -> {
+                // Alteryx times and datetimes have no time zone, so they are not adjusted to UTC
+                thrift.structBegin(10);
+                thrift.structBegin(kind == Kind.TIME ? 7 : 8);
+                thrift.bool(1, false);
+                thrift.structBegin(2);
+                thrift.structBegin(kind == Kind.TIME ? 1 : 2);
+                thrift.structEnd();
+                thrift.structEnd();
+                thrift.structEnd();
+                thrift.structEnd();
+            }
+            default -> {
+            }
+        }
+    }
+
+    // Whether min and max statistics are kept: only for integer physical types, where signed order is the sort order.
+    boolean hasStatistics() {
+        return physicalType == TYPE_INT32 || physicalType == TYPE_INT64;
+    }
+
+    // Writes the value in PLAIN encoding, returning false (and writing nothing) for null.
+    // Integer values are also returned through value[0] for the statistics; booleans are only returned there (as 0 or 1)
+    // because the caller bit-packs them.
+    boolean writeValue(ByteBuffer buffer, ByteSink values, long[] value) {
+        var start = field.startPosition();
+        var bytes = buffer.array();
+        switch (kind) {
+            case BOOLEAN -> {
+                var bool = buffer.get(start);
+                if (bool == 2) {
+                    return false;
+                }
+                value[0] = bool == 1 ? 1 : 0;
+            }
+            case INT8 -> {
+                if (buffer.get(start + 1) == 1) {
+                    return false;
+                }
+                value[0] = buffer.get(start);
+                values.putInt((int) value[0]);
+            }
+            case INT16 -> {
+                if (buffer.get(start + 2) == 1) {
+                    return false;
+                }
+                value[0] = buffer.getShort(start);
+                values.putInt((int) value[0]);
+            }
+            case INT32 -> {
+                if (buffer.get(start + 4) == 1) {
+                    return false;
+                }
+                value[0] = buffer.getInt(start);
+                values.putInt((int) value[0]);
+            }
+            case INT64 -> {
+                if (buffer.get(start + 8) == 1) {
+                    return false;
+                }
+                value[0] = buffer.getLong(start);
+                values.putLong(value[0]);
+            }
+            case FLOAT -> {
+                if (buffer.get(start + 4) == 1) {
+                    return false;
+                }
+                values.write(bytes, start, 4);
+            }
+            case DOUBLE -> {
+                if (buffer.get(start + 8) == 1) {
+                    return false;
+                }
+                values.write(bytes, start, 8);
+            }
+            case DECIMAL_INT64 -> {
+                if (buffer.get(start + field.size()) == 1) {
+                    return false;
+                }
+                value[0] = parseUnscaled(bytes, start, field.size());
+                values.putLong(value[0]);
+            }
+            case DECIMAL_FIXED -> {
+                if (buffer.get(start + field.size()) == 1) {
+                    return false;
+                }
+                writeFixedDecimal(bytes, start, values);
+            }
+            case STRING -> {
+                return writeString(buffer, start, values);
+            }
+            case DATE -> {
+                if (buffer.get(start + 10) == 1) {
+                    return false;
+                }
+                value[0] = epochDay(bytes, start);
+                values.putInt((int) value[0]);
+            }
+            case TIME -> {
+                if (buffer.get(start + 8) == 1) {
+                    return false;
+                }
+                value[0] = secondOfDay(bytes, start) * 1000L;
+                values.putInt((int) value[0]);
+            }
+            case TIMESTAMP -> {
+                if (buffer.get(start + 19) == 1) {
+                    return false;
+                }
+                value[0] = (epochDay(bytes, start) * 86400L + secondOfDay(bytes, start + 11)) * 1_000_000L;
+                values.putLong(value[0]);
+            }
+            case BLOB, SPATIAL -> {
+                var location = Extractors.locateBlob(buffer, start);
+                if (location == -1) {
+                    return false;
+                }
+                var blobStart = Extractors.blobStart(location);
+                var blobLength = Extractors.blobLength(location);
+                if (kind == Kind.BLOB) {
+                    values.putInt(blobLength);
+                    values.write(bytes, blobStart, blobLength);
+                } else {
+                    var wkb = Spatial.toWkb(Arrays.copyOfRange(bytes, blobStart, blobStart + blobLength));
+                    values.putInt(wkb.length);
+                    values.write(wkb);
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean writeString(ByteBuffer buffer, int start, ByteSink values) {
+        var bytes = buffer.array();
+        var lengthPosition = values.length;
+        switch (field.yxdbType()) {
+            case YxdbType.STRING -> {
+                if (buffer.get(start + field.size()) == 1) {
+                    return false;
+                }
+                values.putInt(0);
+                values.writeLatin1(bytes, start, field.size());
+            }
+            case YxdbType.WSTRING -> {
+                if (buffer.get(start + field.size() * 2) == 1) {
+                    return false;
+                }
+                values.putInt(0);
+                values.writeUtf16(bytes, start, field.size() * 2);
+            }
+            default -> {
+                var location = Extractors.locateBlob(buffer, start);
+                if (location == -1) {
+                    return false;
+                }
+                values.putInt(0);
+                if (field.yxdbType().equals(YxdbType.V_STRING)) {
+                    values.writeLatin1(bytes, Extractors.blobStart(location), Extractors.blobLength(location));
+                } else {
+                    values.writeUtf16(bytes, Extractors.blobStart(location), Extractors.blobLength(location));
+                }
+            }
+        }
+        values.putInt(lengthPosition, values.length - lengthPosition - 4);
+        return true;
+    }
+
+    // Parses the ASCII decimal text into its unscaled value at the field's scale.
+    private long parseUnscaled(byte[] bytes, int start, int size) throws IllegalArgumentException {
+        var negative = false;
+        var unscaled = 0L;
+        var fractionDigits = -1;
+        for (var i = start; i < start + size && bytes[i] != 0; i++) {
+            var c = bytes[i];
+            if (c == '-' && i == start) {
+                negative = true;
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                unscaled = unscaled * 10 + (c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c != ' ' && c != '+') {
+                throw new IllegalArgumentException("Field " + field.name() + " holds an invalid decimal value.");
+            }
+        }
+        for (var i = Math.max(fractionDigits, 0); i < scale; i++) {
+            unscaled *= 10;
+        }
+        if (fractionDigits > scale) {
+            throw new IllegalArgumentException("Field " + field.name() + " holds more decimal places than its scale.");
+        }
+        return negative ? -unscaled : unscaled;
+    }
+
+    private void writeFixedDecimal(byte[] bytes, int start, ByteSink values) throws IllegalArgumentException {
+        var end = start;
+        while (end < start + field.size() && bytes[end] != 0) {
+            end++;
+        }
+        BigInteger unscaled;
+        try {
+            unscaled = new BigDecimal(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1).trim())
+                    .setScale(scale).unscaledValue();
+        } catch (ArithmeticException | NumberFormatException ex) {
+            throw new IllegalArgumentException("Field " + field.name() + " holds an invalid decimal value.");
+        }
+        var twosComplement = unscaled.toByteArray();
+        if (twosComplement.length > typeLength) {
+            throw new IllegalArgumentException("Field " + field.name() + " holds a value wider than its precision.");
+        }
+        var pad = (byte) (unscaled.signum() < 0 ? -1 : 0);
+        for (var i = twosComplement.length; i < typeLength; i++) {
+            values.write(pad);
+        }
+        values.write(twosComplement);
+    }
+
+    // Days since 1970-01-01 of the ASCII date yyyy-MM-dd.
+    private static long epochDay(byte[] bytes, int start) {
+        var year = digits(bytes, start, 4);
+        var month = digits(bytes, start + 5, 2);
+        var day = digits(bytes, start + 8, 2);
+        // days from civil, shifting the year to start in March so leap days fall at its end
+        var y = month <= 2 ? year - 1 : year;
+        var era = Math.floorDiv(y, 400);
+        var yearOfEra = y - era * 400;
+        var dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        var dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    // Seconds since midnight of the ASCII time HH:mm:ss.
+    private static int secondOfDay(byte[] bytes, int start) {
+        return digits(bytes, start, 2) * 3600 + digits(bytes, start + 3, 2) * 60 + digits(bytes, start + 6, 2);
+    }
+
+    private static int digits(byte[] bytes, int start, int count) {
+        var value = 0;
+        for (var i = start; i < start + count; i++) {
+            value = value * 10 + (bytes[i] - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,439 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ParquetExporter writes the records of a .yxdb file as a Parquet file, without Hadoop or any other dependency.
+ * <p>
+ * Each block of records in the .yxdb file becomes a row group. Row groups are encoded on several threads, decoding
+ * values straight from the record bytes into PLAIN encoded column pages, and written in their original order.
+ * <p>
+ * Every column is optional. Fields map onto Parquet types as follows:
+ * <ul>
+ * <li>Bool: BOOLEAN</li>
+ * <li>Byte, Int16, Int32: INT32 annotated as 8, 16 or 32 bit integers; Int64: INT64</li>
+ * <li>Float: FLOAT; Double: DOUBLE</li>
+ * <li>FixedDecimal: DECIMAL with the field's size as precision and its scale, stored as INT64 up to a precision of 18 and as FIXED_LEN_BYTE_ARRAY above</li>
+ * <li>String, WString, V_String, V_WString: BYTE_ARRAY as UTF-8 STRING</li>
+ * <li>Date: INT32 DATE; Time: INT32 TIME in milliseconds; DateTime: INT64 TIMESTAMP in microseconds, neither adjusted to UTC</li>
+ * <li>Blob: BYTE_ARRAY</li>
+ * <li>SpatialObj: BYTE_ARRAY holding Well-Known Binary, described by GeoParquet "geo" metadata</li>
+ * </ul>
+ */
+public final class ParquetExporter {
+    /**
+     * The compression codec applied to each page.
+     */
+    public enum Compression {
+        /** Pages are stored as they are. */
+        UNCOMPRESSED,
+        /** Pages are compressed with Snappy, the usual default for Parquet. */
+        SNAPPY,
+        /** Pages are compressed with gzip, which is smaller and slower than Snappy. */
+        GZIP
+    }
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final int PAGE_SIZE = 1 << 20;
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_RLE = 3;
+
+    private Compression compression = Compression.SNAPPY;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Sets the page compression. The default is Snappy.
+     *
+     * @param compression the compression codec
+     * @return this exporter
+     */
+    public ParquetExporter compression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads encoding row groups. The default is the number of available processors;
+     * 1 encodes everything on the calling thread.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this exporter
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public ParquetExporter threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Exports a .yxdb file to a Parquet file, replacing the file if it exists.
+     *
+     * @param path       the path to a .yxdb file
+     * @param outputPath the path of the Parquet file to write
+     * @return the number of records written
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file or holds a value that cannot be converted
+     * @throws IOException              thrown when there are issues reading the file or writing the output
+     */
+    public long export(String path, String outputPath) throws IOException, IllegalArgumentException {
+        try (var output = new BufferedOutputStream(Files.newOutputStream(Path.of(outputPath)), PAGE_SIZE)) {
+            return export(path, output);
+        }
+    }
+
+    /**
+     * Exports a .yxdb file to a stream in Parquet format. The stream is flushed but not closed.
+     *
+     * @param path   the path to a .yxdb file
+     * @param output the stream to write to
+     * @return the number of records written
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file or holds a value that cannot be converted
+     * @throws IOException              thrown when there are issues reading the file or writing the output
+     */
+    public long export(String path, OutputStream output) throws IOException, IllegalArgumentException {
+        try (var source = BlockSource.open(path)) {
+            var declared = source.fields();
+            var layout = source.record().fields;
+            var columns = new ParquetColumn[declared.length];
+            for (var i = 0; i < columns.length; i++) {
+                columns[i] = new ParquetColumn(declared[i].name(), layout[i]);
+            }
+
+            output.write(MAGIC);
+            var position = new long[]{MAGIC.length};
+            var rowGroups = new ArrayList<RowGroup>();
+            ParallelBlocks.run(source, threads, (block, reader) -> encodeRowGroup(columns, reader), rowGroup -> {
+                if (rowGroup.rows == 0) {
+                    return;
+                }
+                rowGroup.offset = position[0];
+                for (var chunk : rowGroup.chunks) {
+                    chunk.offset = position[0];
+                    position[0] += chunk.data.length;
+                    chunk.data.writeTo(output);
+                    chunk.data = null;
+                }
+                rowGroups.add(rowGroup);
+            });
+
+            var footer = new ByteSink(4096);
+            writeFileMetaData(new ThriftWriter(footer), columns, rowGroups);
+            footer.putInt(footer.length);
+            footer.write(MAGIC);
+            footer.writeTo(output);
+            output.flush();
+            return rowGroups.stream().mapToLong(g -> g.rows).sum();
+        }
+    }
+
+    private RowGroup encodeRowGroup(ParquetColumn[] columns, RecordReader reader) throws IOException {
+        var encoders = new ColumnEncoder[columns.length];
+        for (var i = 0; i < columns.length; i++) {
+            encoders[i] = new ColumnEncoder(columns[i], compression);
+        }
+
+        var rows = 0L;
+        while (reader.nextRecord()) {
+            for (var encoder : encoders) {
+                encoder.add(reader.recordBuffer);
+            }
+            rows++;
+        }
+
+        var chunks = new ColumnChunk[columns.length];
+        for (var i = 0; i < columns.length; i++) {
+            chunks[i] = encoders[i].finish();
+        }
+        return new RowGroup(rows, chunks);
+    }
+
+    private void writeFileMetaData(ThriftWriter thrift, ParquetColumn[] columns, List<RowGroup> rowGroups) {
+        thrift.structBegin();
+        thrift.i32(1, 1);
+
+        thrift.listBegin(2, ThriftWriter.STRUCT, columns.length + 1);
+        thrift.structBegin();
+        thrift.string(4, "schema");
+        thrift.i32(5, columns.length);
+        thrift.structEnd();
+        for (var column : columns) {
+            column.writeSchema(thrift);
+        }
+
+        thrift.i64(3, rowGroups.stream().mapToLong(g -> g.rows).sum());
+
+        thrift.listBegin(4, ThriftWriter.STRUCT, rowGroups.size());
+        for (var rowGroup : rowGroups) {
+            writeRowGroup(thrift, columns, rowGroup);
+        }
+
+        var geo = geoMetadata(columns);
+        if (geo != null) {
+            thrift.listBegin(5, ThriftWriter.STRUCT, 1);
+            thrift.structBegin();
+            thrift.string(1, "geo");
+            thrift.string(2, geo);
+            thrift.structEnd();
+        }
+
+        thrift.string(6, "yxdb-java");
+        thrift.structEnd();
+    }
+
+    private void writeRowGroup(ThriftWriter thrift, ParquetColumn[] columns, RowGroup rowGroup) {
+        var uncompressed = 0L;
+        var compressed = 0L;
+        thrift.structBegin();
+        thrift.listBegin(1, ThriftWriter.STRUCT, columns.length);
+        for (var i = 0; i < columns.length; i++) {
+            var column = columns[i];
+            var chunk = rowGroup.chunks[i];
+            uncompressed += chunk.uncompressedSize;
+            compressed += chunk.compressedSize;
+
+            thrift.structBegin();
+            thrift.i64(2, chunk.offset);
+            thrift.structBegin(3);
+            thrift.i32(1, column.physicalType);
+            thrift.listBegin(2, ThriftWriter.I32, 2);
+            thrift.element(ENCODING_PLAIN);
+            thrift.element(ENCODING_RLE);
+            thrift.listBegin(3, ThriftWriter.BINARY, 1);
+            thrift.element(column.name);
+            thrift.i32(4, compression.ordinal());
+            thrift.i64(5, chunk.values);
+            thrift.i64(6, chunk.uncompressedSize);
+            thrift.i64(7, chunk.compressedSize);
+            thrift.i64(9, chunk.offset);
+            thrift.structBegin(12);
+            thrift.i64(3, chunk.nulls);
+            if (column.hasStatistics() && chunk.values > chunk.nulls) {
+                thrift.binary(5, plain(column, chunk.max));
+                thrift.binary(6, plain(column, chunk.min));
+            }
+            thrift.structEnd();
+            thrift.structEnd();
+            thrift.structEnd();
+        }
+        thrift.i64(2, uncompressed);
+        thrift.i64(3, rowGroup.rows);
+        thrift.i64(5, rowGroup.offset);
+        thrift.i64(6, compressed);
+        thrift.structEnd();
+    }
+
+    private static byte[] plain(ParquetColumn column, long value) {
+        var sink = new ByteSink(8);
+        if (column.physicalType == ParquetColumn.TYPE_INT32) {
+            sink.putInt((int) value);
+        } else {
+            sink.putLong(value);
+        }
+        return sink.length == sink.bytes.length ? sink.bytes : Arrays.copyOf(sink.bytes, sink.length);
+    }
+
+    // GeoParquet metadata naming the SpatialObj columns as WKB geometries in longitude/latitude.
+    private static String geoMetadata(ParquetColumn[] columns) {
+        var geometries = new StringBuilder();
+        String primary = null;
+        for (var column : columns) {
+            if (column.kind != ParquetColumn.Kind.SPATIAL) {
+                continue;
+            }
+            if (primary == null) {
+                primary = column.name;
+            } else {
+                geometries.append(',');
+            }
+            geometries.append(json(column.name)).append(":{\"encoding\":\"WKB\",\"geometry_types\":[]}");
+        }
+        if (primary == null) {
+            return null;
+        }
+        return "{\"version\":\"1.0.0\",\"primary_column\":" + json(primary) + ",\"columns\":{" + geometries + "}}";
+    }
+
+    private static String json(String value) {
+        var builder = new StringBuilder("\"");
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static final class RowGroup {
+        final long rows;
+        final ColumnChunk[] chunks;
+        long offset;
+
+        RowGroup(long rows, ColumnChunk[] chunks) {
+            this.rows = rows;
+            this.chunks = chunks;
+        }
+    }
+
+    private static final class ColumnChunk {
+        ByteSink data;
+        long offset;
+        long values;
+        long nulls;
+        long uncompressedSize;
+        long compressedSize;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+    }
+
+    // Builds the pages of one column chunk. A page is closed once its values reach PAGE_SIZE.
+    private static final class ColumnEncoder {
+        private final ParquetColumn column;
+        private final Compression compression;
+        private final ColumnChunk chunk = new ColumnChunk();
+        private final ByteSink values = new ByteSink(1024);
+        private final ByteSink page = new ByteSink(1024);
+        private final long[] value = new long[1];
+        private byte[] levels = new byte[128];
+        private byte[] booleans = new byte[128];
+        private int pageValues;
+        private int pageNonNull;
+        private SnappyCompressor snappy;
+
+        ColumnEncoder(ParquetColumn column, Compression compression) {
+            this.column = column;
+            this.compression = compression;
+            this.chunk.data = new ByteSink(1024);
+        }
+
+        void add(ByteBuffer buffer) throws IOException {
+            if (pageValues / 8 == levels.length) {
+                levels = Arrays.copyOf(levels, levels.length * 2);
+            }
+
+            if (column.writeValue(buffer, values, value)) {
+                levels[pageValues / 8] |= (byte) (1 << (pageValues % 8));
+                if (column.kind == ParquetColumn.Kind.BOOLEAN) {
+                    if (pageNonNull / 8 == booleans.length) {
+                        booleans = Arrays.copyOf(booleans, booleans.length * 2);
+                    }
+                    if (value[0] != 0) {
+                        booleans[pageNonNull / 8] |= (byte) (1 << (pageNonNull % 8));
+                    }
+                } else if (column.hasStatistics()) {
+                    chunk.min = Math.min(chunk.min, value[0]);
+                    chunk.max = Math.max(chunk.max, value[0]);
+                }
+                pageNonNull++;
+            } else {
+                chunk.nulls++;
+            }
+            pageValues++;
+
+            if (values.length >= PAGE_SIZE) {
+                flushPage();
+            }
+        }
+
+        ColumnChunk finish() throws IOException {
+            if (pageValues > 0 || chunk.values == 0) {
+                flushPage();
+            }
+            return chunk;
+        }
+
+        // Writes a data page: the page header, then the definition levels as one bit-packed run and the PLAIN values.
+        private void flushPage() throws IOException {
+            var levelBytes = (pageValues + 7) / 8;
+            page.length = 0;
+            var runHeader = new ByteSink(5);
+            var groups = levelBytes << 1 | 1;
+            while ((groups & ~0x7f) != 0) {
+                runHeader.write((byte) ((groups & 0x7f) | 0x80));
+                groups >>>= 7;
+            }
+            runHeader.write((byte) groups);
+            page.putInt(runHeader.length + levelBytes);
+            page.write(runHeader.bytes, 0, runHeader.length);
+            page.write(levels, 0, levelBytes);
+            if (column.kind == ParquetColumn.Kind.BOOLEAN) {
+                page.write(booleans, 0, (pageNonNull + 7) / 8);
+            } else {
+                page.write(values.bytes, 0, values.length);
+            }
+
+            var compressed = compress(page);
+            var header = new ByteSink(32);
+            var thrift = new ThriftWriter(header);
+            thrift.structBegin();
+            thrift.i32(1, 0);
+            thrift.i32(2, page.length);
+            thrift.i32(3, compressed.length);
+            thrift.structBegin(5);
+            thrift.i32(1, pageValues);
+            thrift.i32(2, ENCODING_PLAIN);
+            thrift.i32(3, ENCODING_RLE);
+            thrift.i32(4, ENCODING_RLE);
+            thrift.structEnd();
+            thrift.structEnd();
+
+            chunk.data.write(header.bytes, 0, header.length);
+            chunk.data.write(compressed.bytes, 0, compressed.length);
+            chunk.values += pageValues;
+            chunk.uncompressedSize += header.length + page.length;
+            chunk.compressedSize += header.length + compressed.length;
+
+            Arrays.fill(levels, 0, levelBytes, (byte) 0);
+            if (column.kind == ParquetColumn.Kind.BOOLEAN) {
+                Arrays.fill(booleans, 0, (pageNonNull + 7) / 8, (byte) 0);
+            }
+            values.length = 0;
+            pageValues = 0;
+            pageNonNull = 0;
+        }
+
+        private ByteSink compress(ByteSink data) throws IOException {
+            switch (compression) {
+                case SNAPPY -> {
+                    if (snappy == null) {
+                        snappy = new SnappyCompressor();
+                    }
+                    var out = new ByteSink(data.length / 2 + 16);
+                    snappy.compress(data.bytes, data.length, out);
+                    return out;
+                }
+                case GZIP -> {
+                    var bytes = new ByteArrayOutputStream(data.length / 2 + 16);
+                    try (var gzip = new GZIPOutputStream(bytes)) {
+                        gzip.write(data.bytes, 0, data.length);
+                    }
+                    var out = new ByteSink(0);
+                    out.bytes = bytes.toByteArray();
+                    out.length = out.bytes.length;
+                    return out;
+                }
+                default -> {
+                    return data;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.util.Arrays;
+
+// Compresses pages in the raw Snappy format (the Parquet SNAPPY codec).
+// Input is split into 64 KB fragments so every copy offset fits the two byte form, and matches are found through a
+// hash of the next four bytes, as in the reference implementation.
+final class SnappyCompressor {
+    private static final int FRAGMENT_SIZE = 1 << 16;
+    private static final int HASH_BITS = 14;
+
+    private final int[] table = new int[1 << HASH_BITS];
+
+    void compress(byte[] in, int length, ByteSink out) {
+        var value = length;
+        while ((value & ~0x7f) != 0) {
+            out.write((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((byte) value);
+
+        for (var fragment = 0; fragment < length; fragment += FRAGMENT_SIZE) {
+            compressFragment(in, fragment, Math.min(length, fragment + FRAGMENT_SIZE), out);
+        }
+    }
+
+    private void compressFragment(byte[] in, int start, int end, ByteSink out) {
+        Arrays.fill(table, -1);
+        var literalStart = start;
+        var position = start;
+        while (position + 4 <= end) {
+            var hash = (readInt(in, position) * 0x1e35a7bd) >>> (32 - HASH_BITS);
+            var candidate = table[hash];
+            table[hash] = position;
+            if (candidate < 0 || readInt(in, candidate) != readInt(in, position)) {
+                position++;
+                continue;
+            }
+
+            literal(in, literalStart, position - literalStart, out);
+            var matchLength = 4;
+            while (position + matchLength < end && in[candidate + matchLength] == in[position + matchLength]) {
+                matchLength++;
+            }
+            copy(position - candidate, matchLength, out);
+            position += matchLength;
+            literalStart = position;
+        }
+        literal(in, literalStart, end - literalStart, out);
+    }
+
+    private static void literal(byte[] in, int start, int length, ByteSink out) {
+        if (length == 0) {
+            return;
+        }
+
+        var n = length - 1;
+        if (n < 60) {
+            out.write((byte) (n << 2));
+        } else if (n < 1 << 8) {
+            out.write((byte) (60 << 2));
+            out.write((byte) n);
+        } else {
+            out.write((byte) (61 << 2));
+            out.write((byte) n);
+            out.write((byte) (n >>> 8));
+        }
+        out.write(in, start, length);
+    }
+
+    private static void copy(int offset, int length, ByteSink out) {
+        while (length > 0) {
+            var size = Math.min(length, 64);
+            out.write((byte) ((size - 1) << 2 | 2));
+            out.write((byte) offset);
+            out.write((byte) (offset >>> 8));
+            length -= size;
+        }
+    }
+
+    private static int readInt(byte[] in, int position) {
+        return (in[position] & 0xff) | (in[position + 1] & 0xff) << 8 | (in[position + 2] & 0xff) << 16 | (in[position + 3] & 0xff) << 24;
+    }
+}
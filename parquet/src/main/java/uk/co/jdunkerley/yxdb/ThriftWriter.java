@@ -0,0 +1,123 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Writes Thrift structs in the compact protocol, which Parquet uses for page headers and the file footer.
+// Fields must be written in increasing id order within a struct; each struct is closed with structEnd().
+final class ThriftWriter {
+    static final int BOOLEAN_TRUE = 1;
+    static final int BOOLEAN_FALSE = 2;
+    static final int BYTE = 3;
+    static final int I32 = 5;
+    static final int I64 = 6;
+    static final int BINARY = 8;
+    static final int LIST = 9;
+    static final int STRUCT = 12;
+
+    private final ByteSink out;
+    private int[] lastIds = new int[8];
+    private int depth;
+
+    ThriftWriter(ByteSink out) {
+        this.out = out;
+    }
+
+    void i32(int id, int value) {
+        field(id, I32);
+        varint(zigzag(value));
+    }
+
+    void i64(int id, long value) {
+        field(id, I64);
+        varint(zigzag(value));
+    }
+
+    void i8(int id, int value) {
+        field(id, BYTE);
+        out.write((byte) value);
+    }
+
+    void bool(int id, boolean value) {
+        field(id, value ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+    }
+
+    void binary(int id, byte[] value) {
+        field(id, BINARY);
+        varint(value.length);
+        out.write(value);
+    }
+
+    void string(int id, String value) {
+        binary(id, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void structBegin(int id) {
+        field(id, STRUCT);
+        push();
+    }
+
+    // Starts a struct that is an element of a list.
+    void structBegin() {
+        push();
+    }
+
+    void structEnd() {
+        out.write((byte) 0);
+        depth--;
+    }
+
+    void listBegin(int id, int elementType, int size) {
+        field(id, LIST);
+        if (size < 15) {
+            out.write((byte) (size << 4 | elementType));
+        } else {
+            out.write((byte) (0xf0 | elementType));
+            varint(size);
+        }
+    }
+
+    void element(int value) {
+        varint(zigzag(value));
+    }
+
+    void element(String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void push() {
+        if (++depth == lastIds.length) {
+            lastIds = Arrays.copyOf(lastIds, depth * 2);
+        }
+        lastIds[depth] = 0;
+    }
+
+    private void field(int id, int type) {
+        var delta = id - lastIds[depth];
+        if (delta > 0 && delta <= 15) {
+            out.write((byte) (delta << 4 | type));
+        } else {
+            out.write((byte) type);
+            varint(zigzag(id));
+        }
+        lastIds[depth] = id;
+    }
+
+    private void varint(long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((byte) value);
+    }
+
+    private static long zigzag(int value) {
+        return (value << 1 ^ value >> 31) & 0xffffffffL;
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+}
@@ -0,0 +1,534 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+public class ParquetExporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void TestAllColumnTypes() throws IOException {
+        var path = directory.resolve("all.yxdb");
+        var generator = new YxdbGenerator().rows(3000).nullRatio(0.2);
+        generator.write(path);
+
+        var file = ParquetFile.read(export(new ParquetExporter(), path));
+        Assertions.assertEquals(3000L, file.numRows());
+        Assertions.assertEquals(1, file.rowGroups().size());
+        assertRows(generator, file, 0, 3000);
+
+        var schema = file.schema();
+        Assertions.assertEquals(generator.columns().length + 1, schema.size());
+        Assertions.assertEquals("DECIMAL_7", string(schema.get(8).get(4)));
+        Assertions.assertEquals(6, schema.get(8).get(7));
+        Assertions.assertEquals(19, schema.get(8).get(8));
+        Assertions.assertEquals(1, schema.get(1).get(3));
+    }
+
+    @Test
+    public void TestStatistics() throws IOException {
+        var path = directory.resolve("stats.yxdb");
+        try (var writer = new YxdbTestWriter(path,
+                YxdbTestWriter.field("Id", YxdbType.INT32),
+                YxdbTestWriter.field("Big", YxdbType.INT64),
+                YxdbTestWriter.field("Text", YxdbType.V_STRING, 10))) {
+            for (var value : new Long[]{5L, null, -12L, 40L}) {
+                if (value == null) {
+                    writer.setNull(0);
+                    writer.setNull(1);
+                } else {
+                    writer.setLong(0, value);
+                    writer.setLong(1, value * 1_000_000_000_000L);
+                }
+                writer.setString(2, "x");
+                writer.writeRecord();
+            }
+        }
+
+        var file = ParquetFile.read(export(new ParquetExporter(), path));
+        var id = file.columnMeta(0, 0);
+        var statistics = struct(id.get(12));
+        Assertions.assertEquals(1L, statistics.get(3));
+        Assertions.assertEquals(-12, ByteBuffer.wrap((byte[]) statistics.get(6)).order(ByteOrder.LITTLE_ENDIAN).getInt());
+        Assertions.assertEquals(40, ByteBuffer.wrap((byte[]) statistics.get(5)).order(ByteOrder.LITTLE_ENDIAN).getInt());
+
+        var big = struct(file.columnMeta(0, 1).get(12));
+        Assertions.assertEquals(-12_000_000_000_000L, ByteBuffer.wrap((byte[]) big.get(6)).order(ByteOrder.LITTLE_ENDIAN).getLong());
+        Assertions.assertEquals(40_000_000_000_000L, ByteBuffer.wrap((byte[]) big.get(5)).order(ByteOrder.LITTLE_ENDIAN).getLong());
+
+        var text = struct(file.columnMeta(0, 2).get(12));
+        Assertions.assertEquals(0L, text.get(3));
+        Assertions.assertFalse(text.containsKey(5));
+        Assertions.assertEquals(List.of(5, "null", -12, 40), display(file.column(0, 0)));
+    }
+
+    @Test
+    public void TestRowGroupPerBlockAndThreads() throws IOException {
+        var path = directory.resolve("blocks.yxdb");
+        var generator = new YxdbGenerator()
+                .rows(150000)
+                .columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.BOOL, YxdbGenerator.Column.DOUBLE);
+        generator.write(path);
+
+        var single = export(new ParquetExporter().threads(1), path);
+        var parallel = export(new ParquetExporter().threads(4), path);
+        Assertions.assertArrayEquals(single, parallel);
+
+        var file = ParquetFile.read(parallel);
+        Assertions.assertEquals(150000L, file.numRows());
+        Assertions.assertEquals(List.of(65536L, 65536L, 18928L), file.rowGroups().stream().map(g -> g.get(3)).toList());
+        assertRows(generator, file, 65530, 65542);
+        assertRows(generator, file, 149990, 150000);
+    }
+
+    @Test
+    public void TestLargeColumnSpansPages() throws IOException {
+        var path = directory.resolve("pages.yxdb");
+        var generator = new YxdbGenerator()
+                .rows(5000)
+                .columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_STRING)
+                .stringLengths(400, 800)
+                .compressibility(0);
+        generator.write(path);
+
+        var file = ParquetFile.read(export(new ParquetExporter(), path));
+        Assertions.assertTrue(file.pageCount(0, 1) > 1);
+        Assertions.assertEquals(1, file.pageCount(0, 0));
+        assertRows(generator, file, 0, 5000);
+    }
+
+    @Test
+    public void TestCompressionCodecs() throws IOException {
+        var path = directory.resolve("codecs.yxdb");
+        var generator = new YxdbGenerator().rows(2000);
+        generator.write(path);
+
+        for (var compression : ParquetExporter.Compression.values()) {
+            var file = ParquetFile.read(export(new ParquetExporter().compression(compression), path));
+            Assertions.assertEquals(compression.ordinal(), file.columnMeta(0, 0).get(4));
+            assertRows(generator, file, 0, 2000);
+        }
+    }
+
+    @Test
+    public void TestGeoMetadata() throws IOException {
+        var path = directory.resolve("geo.yxdb");
+        var generator = new YxdbGenerator().rows(100).columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.SPATIAL);
+        generator.write(path);
+
+        var file = ParquetFile.read(export(new ParquetExporter(), path));
+        var metadata = file.keyValues();
+        Assertions.assertEquals("{\"version\":\"1.0.0\",\"primary_column\":\"SPATIAL_1\",\"columns\":{\"SPATIAL_1\":{\"encoding\":\"WKB\",\"geometry_types\":[]}}}", metadata.get("geo"));
+        assertRows(generator, file, 0, 100);
+
+        var plain = new YxdbGenerator().rows(10).columns(YxdbGenerator.Column.INT32);
+        plain.write(path);
+        Assertions.assertTrue(ParquetFile.read(export(new ParquetExporter(), path)).keyValues().isEmpty());
+    }
+
+    @Test
+    public void TestAmpFile() throws IOException {
+        var file = ParquetFile.read(export(new ParquetExporter(), Path.of("../src/test/resources/ampdata.yxdb")));
+        Assertions.assertEquals(2020L, file.numRows());
+        Assertions.assertEquals("invoice_amount", string(file.schema().get(2).get(4)));
+        Assertions.assertEquals("731304999", string(file.column(0, 0).get(0)));
+        Assertions.assertEquals(8562.35, file.column(0, 1).get(0));
+        Assertions.assertEquals("149-996-9413", string(file.column(0, 5).get(0)));
+    }
+
+    @Test
+    public void TestExportToFile() throws IOException {
+        var output = directory.resolve("out.parquet");
+        var records = new ParquetExporter().export("../src/test/resources/TutorialData.yxdb", output.toString());
+        Assertions.assertEquals(8716, records);
+        var bytes = Files.readAllBytes(output);
+        Assertions.assertArrayEquals(export(new ParquetExporter(), Path.of("../src/test/resources/TutorialData.yxdb")), bytes);
+        Assertions.assertEquals(8716L, ParquetFile.read(bytes).numRows());
+    }
+
+    @Test
+    public void TestReadableByParquetJava() throws IOException {
+        var path = directory.resolve("independent.yxdb");
+        var generator = new YxdbGenerator().rows(70000).nullRatio(0.2);
+        generator.write(path);
+        var columns = generator.columns();
+
+        for (var compression : ParquetExporter.Compression.values()) {
+            var output = directory.resolve("independent-" + compression + ".parquet");
+            new ParquetExporter().compression(compression).export(path.toString(), output.toString());
+
+            try (var reader = ParquetFileReader.open(new LocalInputFile(output))) {
+                var schema = reader.getFooter().getFileMetaData().getSchema();
+                Assertions.assertEquals(columns.length, schema.getFieldCount());
+                Assertions.assertEquals(LogicalTypeAnnotation.intType(8, true), schema.getType("BYTE_1").getLogicalTypeAnnotation());
+                Assertions.assertEquals(LogicalTypeAnnotation.decimalType(6, 19), schema.getType("DECIMAL_7").getLogicalTypeAnnotation());
+                Assertions.assertEquals(LogicalTypeAnnotation.stringType(), schema.getType("V_WSTRING_11").getLogicalTypeAnnotation());
+                Assertions.assertEquals(LogicalTypeAnnotation.dateType(), schema.getType("DATE_12").getLogicalTypeAnnotation());
+                Assertions.assertEquals(LogicalTypeAnnotation.timeType(false, LogicalTypeAnnotation.TimeUnit.MILLIS), schema.getType("TIME_13").getLogicalTypeAnnotation());
+                Assertions.assertEquals(LogicalTypeAnnotation.timestampType(false, LogicalTypeAnnotation.TimeUnit.MICROS), schema.getType("DATETIME_14").getLogicalTypeAnnotation());
+
+                var row = 0L;
+                PageReadStore rowGroup;
+                while ((rowGroup = reader.readNextRowGroup()) != null) {
+                    var records = new ColumnIOFactory().getColumnIO(schema).getRecordReader(rowGroup, new GroupRecordConverter(schema));
+                    for (var i = 0L; i < rowGroup.getRowCount(); i++) {
+                        var group = records.read();
+                        var expected = generator.row(row);
+                        for (var c = 0; c < columns.length; c++) {
+                            var actual = group.getFieldRepetitionCount(c) == 0 ? null : parquetJavaValue(columns[c], group, c);
+                            Assertions.assertEquals(normalise(expected[c]), normalise(actual), compression + " row " + row + " column " + c);
+                        }
+                        row++;
+                    }
+                }
+                Assertions.assertEquals(70000L, row);
+            }
+        }
+    }
+
+    // Decodes a value the way parquet-java reports it, back into the type YxdbGenerator.row returns.
+    private static Object parquetJavaValue(YxdbGenerator.Column column, Group group, int index) {
+        return switch (column) {
+            case BOOL -> group.getBoolean(index, 0);
+            case BYTE -> (byte) group.getInteger(index, 0);
+            case INT16, INT32 -> (long) group.getInteger(index, 0);
+            case INT64 -> group.getLong(index, 0);
+            case FLOAT -> (double) group.getFloat(index, 0);
+            case DOUBLE -> group.getDouble(index, 0);
+            case DECIMAL -> new BigDecimal(new BigInteger(group.getBinary(index, 0).getBytes()), 6);
+            case STRING, WSTRING, V_STRING, V_WSTRING -> group.getString(index, 0);
+            case DATE -> LocalDate.ofEpochDay(group.getInteger(index, 0));
+            case TIME -> LocalTime.ofNanoOfDay(group.getInteger(index, 0) * 1_000_000L);
+            case DATETIME -> LocalDateTime.ofEpochSecond(Math.floorDiv(group.getLong(index, 0), 1_000_000L), 0, ZoneOffset.UTC);
+            case BLOB -> group.getBinary(index, 0).getBytes();
+            case SPATIAL -> {
+                // the generator writes points, which become a little-endian WKB point
+                var wkb = ByteBuffer.wrap(group.getBinary(index, 0).getBytes()).order(ByteOrder.LITTLE_ENDIAN);
+                Assertions.assertEquals(21, wkb.remaining());
+                Assertions.assertEquals(1, wkb.get());
+                Assertions.assertEquals(1, wkb.getInt());
+                yield YxdbGenerator.point(wkb.getDouble(), wkb.getDouble());
+            }
+        };
+    }
+
+    @Test
+    public void TestInvalidOptions() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ParquetExporter().threads(0));
+    }
+
+    private static byte[] export(ParquetExporter exporter, Path path) throws IOException {
+        var output = new ByteArrayOutputStream();
+        exporter.export(path.toString(), output);
+        return output.toByteArray();
+    }
+
+    // Compares rows [from, to) of every column with the values the generator wrote.
+    private static void assertRows(YxdbGenerator generator, ParquetFile file, int from, int to) throws IOException {
+        var columns = generator.columns();
+        for (var i = 0; i < columns.length; i++) {
+            var values = file.column(i);
+            for (var row = from; row < to; row++) {
+                var expected = expected(columns[i], generator.row(row)[i]);
+                Assertions.assertEquals(expected, normalise(values.get(row)), "row " + row + " column " + i);
+            }
+        }
+    }
+
+    private static Object expected(YxdbGenerator.Column column, Object value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (column) {
+            case BYTE -> (int) (byte) value;
+            case INT16, INT32 -> (int) (long) (Long) value;
+            case FLOAT -> (float) (double) (Double) value;
+            case DECIMAL -> HexFormat.of().formatHex(fixed(((BigDecimal) value).unscaledValue(), 9));
+            case STRING, WSTRING, V_STRING, V_WSTRING -> HexFormat.of().formatHex(((String) value).getBytes(StandardCharsets.UTF_8));
+            case DATE -> (int) ((LocalDate) value).toEpochDay();
+            case TIME -> ((LocalTime) value).toSecondOfDay() * 1000;
+            case DATETIME -> ((LocalDateTime) value).toEpochSecond(ZoneOffset.UTC) * 1_000_000L;
+            case BLOB -> HexFormat.of().formatHex((byte[]) value);
+            case SPATIAL -> HexFormat.of().formatHex(Spatial.toWkb((byte[]) value));
+            default -> value;
+        };
+    }
+
+    private static byte[] fixed(BigInteger value, int length) {
+        var bytes = value.toByteArray();
+        var result = new byte[length];
+        var fill = (byte) (value.signum() < 0 ? -1 : 0);
+        for (var i = 0; i < length; i++) {
+            var index = bytes.length - length + i;
+            result[i] = index < 0 ? fill : bytes[index];
+        }
+        return result;
+    }
+
+    private static Object normalise(Object value) {
+        return value instanceof byte[] bytes ? HexFormat.of().formatHex(bytes) : value;
+    }
+
+    private static List<Object> display(List<Object> values) {
+        return values.stream().map(v -> v == null ? "null" : v).toList();
+    }
+
+    private static String string(Object value) {
+        return new String((byte[]) value, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, Object> struct(Object value) {
+        return (Map<Integer, Object>) value;
+    }
+
+    // A minimal Parquet reader for the files the exporter writes: flat optional columns, PLAIN encoded
+    // data pages with a single bit-packed run of definition levels.
+    private record ParquetFile(byte[] bytes, Map<Integer, Object> metadata) {
+        static ParquetFile read(byte[] bytes) {
+            Assertions.assertEquals("PAR1", new String(bytes, 0, 4, StandardCharsets.US_ASCII));
+            Assertions.assertEquals("PAR1", new String(bytes, bytes.length - 4, 4, StandardCharsets.US_ASCII));
+            var length = ByteBuffer.wrap(bytes, bytes.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            var reader = new ThriftReader(bytes, bytes.length - 8 - length);
+            var metadata = reader.struct();
+            Assertions.assertEquals(bytes.length - 8, reader.position);
+            return new ParquetFile(bytes, metadata);
+        }
+
+        long numRows() {
+            return (Long) metadata.get(3);
+        }
+
+        List<Map<Integer, Object>> schema() {
+            return structs(metadata.get(2));
+        }
+
+        List<Map<Integer, Object>> rowGroups() {
+            return structs(metadata.get(4));
+        }
+
+        Map<String, String> keyValues() {
+            var result = new HashMap<String, String>();
+            if (metadata.containsKey(5)) {
+                for (var pair : structs(metadata.get(5))) {
+                    result.put(string(pair.get(1)), string(pair.get(2)));
+                }
+            }
+            return result;
+        }
+
+        Map<Integer, Object> columnMeta(int rowGroup, int column) {
+            var chunk = structs(rowGroups().get(rowGroup).get(1)).get(column);
+            return struct(chunk.get(3));
+        }
+
+        int pageCount(int rowGroup, int column) throws IOException {
+            var pages = new int[1];
+            readChunk(rowGroup, column, (header, page) -> pages[0]++);
+            return pages[0];
+        }
+
+        // Every value of a column across all row groups.
+        List<Object> column(int column) throws IOException {
+            var values = new ArrayList<>();
+            for (var i = 0; i < rowGroups().size(); i++) {
+                values.addAll(column(i, column));
+            }
+            return values;
+        }
+
+        List<Object> column(int rowGroup, int column) throws IOException {
+            var element = schema().get(column + 1);
+            var type = (Integer) element.get(1);
+            var typeLength = (Integer) element.getOrDefault(2, 0);
+            var values = new ArrayList<>();
+            readChunk(rowGroup, column, (header, page) -> {
+                var count = (Integer) struct(header.get(5)).get(1);
+                var buffer = ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN);
+                var levelsLength = buffer.getInt();
+                var levels = new ThriftReader(page, 4);
+                var runHeader = (int) levels.varint();
+                Assertions.assertEquals(1, runHeader & 1);
+                Assertions.assertTrue((runHeader >> 1) * 8 >= count);
+                var levelsStart = levels.position;
+                buffer.position(4 + levelsLength);
+                var booleanIndex = 0;
+                var booleanStart = buffer.position();
+                for (var i = 0; i < count; i++) {
+                    if ((page[levelsStart + i / 8] >> (i % 8) & 1) == 0) {
+                        values.add(null);
+                        continue;
+                    }
+                    values.add(switch (type) {
+                        case 0 -> (page[booleanStart + booleanIndex / 8] >> (booleanIndex++ % 8) & 1) == 1;
+                        case 1 -> buffer.getInt();
+                        case 2 -> buffer.getLong();
+                        case 4 -> buffer.getFloat();
+                        case 5 -> buffer.getDouble();
+                        case 6 -> {
+                            var value = new byte[buffer.getInt()];
+                            buffer.get(value);
+                            yield value;
+                        }
+                        case 7 -> {
+                            var value = new byte[typeLength];
+                            buffer.get(value);
+                            yield value;
+                        }
+                        default -> throw new IllegalArgumentException("Unexpected type " + type);
+                    });
+                }
+                if (type == 0) {
+                    buffer.position(booleanStart + (booleanIndex + 7) / 8);
+                }
+                Assertions.assertEquals(page.length, buffer.position());
+            });
+            Assertions.assertEquals(rowGroups().get(rowGroup).get(3), (long) values.size());
+            return values;
+        }
+
+        private void readChunk(int rowGroup, int column, PageConsumer consumer) throws IOException {
+            var meta = columnMeta(rowGroup, column);
+            var codec = (Integer) meta.get(4);
+            var remaining = (Long) meta.get(5);
+            var reader = new ThriftReader(bytes, (int) (long) (Long) meta.get(9));
+            var start = reader.position;
+            while (remaining > 0) {
+                var header = reader.struct();
+                Assertions.assertEquals(0, header.get(1));
+                var uncompressedSize = (Integer) header.get(2);
+                var compressedSize = (Integer) header.get(3);
+                var page = decompress(codec, reader.position, compressedSize, uncompressedSize);
+                reader.position += compressedSize;
+                consumer.accept(header, page);
+                remaining -= (Integer) struct(header.get(5)).get(1);
+            }
+            Assertions.assertEquals(0L, remaining);
+            Assertions.assertEquals(meta.get(7), (long) (reader.position - start));
+        }
+
+        private byte[] decompress(int codec, int offset, int length, int uncompressedSize) throws IOException {
+            var page = switch (codec) {
+                case 0 -> Arrays.copyOfRange(bytes, offset, offset + length);
+                case 1 -> {
+                    var out = new byte[Snappy.uncompressedLength(bytes, offset, length)];
+                    Snappy.decompress(bytes, offset, length, out);
+                    yield out;
+                }
+                case 2 -> new GZIPInputStream(new ByteArrayInputStream(bytes, offset, length)).readAllBytes();
+                default -> throw new IllegalArgumentException("Unexpected codec " + codec);
+            };
+            Assertions.assertEquals(uncompressedSize, page.length);
+            return page;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<Map<Integer, Object>> structs(Object value) {
+            return (List<Map<Integer, Object>>) value;
+        }
+    }
+
+    private interface PageConsumer {
+        void accept(Map<Integer, Object> header, byte[] page);
+    }
+
+    // Reads compact protocol Thrift into maps of field id to value.
+    private static final class ThriftReader {
+        private final byte[] bytes;
+        int position;
+
+        ThriftReader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        Map<Integer, Object> struct() {
+            var result = new HashMap<Integer, Object>();
+            var id = 0;
+            while (true) {
+                var header = bytes[position++] & 0xff;
+                if (header == 0) {
+                    return result;
+                }
+                var delta = header >> 4;
+                id = delta == 0 ? (int) unzigzag(varint()) : id + delta;
+                result.put(id, value(header & 0x0f));
+            }
+        }
+
+        private Object value(int type) {
+            return switch (type) {
+                case 1 -> true;
+                case 2 -> false;
+                case 3 -> (int) bytes[position++];
+                case 5 -> (int) unzigzag(varint());
+                case 6 -> unzigzag(varint());
+                case 8 -> {
+                    var length = (int) varint();
+                    var value = Arrays.copyOfRange(bytes, position, position + length);
+                    position += length;
+                    yield value;
+                }
+                case 9 -> {
+                    var header = bytes[position++] & 0xff;
+                    var size = header >> 4 == 15 ? (int) varint() : header >> 4;
+                    var list = new ArrayList<>();
+                    for (var i = 0; i < size; i++) {
+                        list.add(value(header & 0x0f));
+                    }
+                    yield list;
+                }
+                case 12 -> struct();
+                default -> throw new IllegalArgumentException("Unexpected Thrift type " + type);
+            };
+        }
+
+        long varint() {
+            var result = 0L;
+            var shift = 0;
+            while (true) {
+                var b = bytes[position++];
+                result |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+
+        private static long unzigzag(long value) {
+            return value >>> 1 ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SnappyCompressorTest {
+    @Test
+    public void TestEmptyInput() {
+        assertRoundTrip(new byte[0]);
+    }
+
+    @Test
+    public void TestShortInput() {
+        assertRoundTrip(new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void TestRepetitiveInputCompresses() {
+        var input = new byte[200000];
+        for (var i = 0; i < input.length; i++) {
+            input[i] = (byte) "the quick brown fox ".charAt(i % 20);
+        }
+        var compressed = assertRoundTrip(input);
+        Assertions.assertTrue(compressed < input.length / 10, "compressed to " + compressed);
+    }
+
+    @Test
+    public void TestRandomInputAcrossFragments() {
+        var random = new Random(7);
+        for (var length : new int[]{60, 70000, 1 << 17, 300001}) {
+            var input = new byte[length];
+            random.nextBytes(input);
+            // half random and half repeated runs, so both literals and copies cross the fragment boundaries
+            for (var i = 0; i < length / 2; i++) {
+                input[i] = (byte) (i / 100 % 7);
+            }
+            assertRoundTrip(input);
+        }
+    }
+
+    @Test
+    public void TestLongLiterals() {
+        var input = new byte[100000];
+        new Random(3).nextBytes(input);
+        Assertions.assertTrue(assertRoundTrip(input) <= input.length + 16);
+    }
+
+    private static int assertRoundTrip(byte[] input) {
+        var sink = new ByteSink(16);
+        new SnappyCompressor().compress(input, input.length, sink);
+        var compressed = Arrays.copyOf(sink.bytes, sink.length);
+        Assertions.assertEquals(input.length, Snappy.uncompressedLength(compressed, 0, compressed.length));
+        var output = new byte[input.length];
+        Assertions.assertEquals(input.length, Snappy.decompress(compressed, 0, compressed.length, output));
+        Assertions.assertArrayEquals(input, output);
+        return compressed.length;
+    }
+}
@@ -0,0 +1,204 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+// The count, sum, minimum and maximum of one numeric field for each group of an aggregation. Byte and integer fields,
+// and fixed decimals as unscaled longs, are summed exactly in longs; float and double fields in doubles. A long sum
+// that overflows wraps around, and its carry counts the wraps, so the exact sum is carry * 2^64 + the long sum.
+final class Accumulator {
+    final YxdbField field;
+    final boolean integral;
+    int groups;
+    long[] counts = new long[0];
+    long[] longSums;
+    long[] carries;
+    long[] longMins;
+    long[] longMaxes;
+    double[] doubleSums;
+    double[] doubleMins;
+    double[] doubleMaxes;
+
+    Accumulator(YxdbField field) {
+        this.field = field;
+        this.integral = switch (field.dataType()) {
+            case BYTE, LONG, DECIMAL -> true;
+            case DOUBLE -> false;
+            default -> throw new IllegalArgumentException("The field " + field.name() + " is not numeric and cannot be aggregated.");
+        };
+        if (integral) {
+            longSums = carries = longMins = longMaxes = new long[0];
+        } else {
+            doubleSums = doubleMins = doubleMaxes = new double[0];
+        }
+    }
+
+    // Makes room for groups up to count, starting each with a count of 0 and an empty minimum and maximum.
+    void ensure(int count) {
+        if (count <= groups) {
+            return;
+        }
+        if (count > counts.length) {
+            var capacity = Math.max(count, counts.length * 2);
+            counts = Arrays.copyOf(counts, capacity);
+            if (integral) {
+                longSums = Arrays.copyOf(longSums, capacity);
+                carries = Arrays.copyOf(carries, capacity);
+                longMins = Arrays.copyOf(longMins, capacity);
+                longMaxes = Arrays.copyOf(longMaxes, capacity);
+            } else {
+                doubleSums = Arrays.copyOf(doubleSums, capacity);
+                doubleMins = Arrays.copyOf(doubleMins, capacity);
+                doubleMaxes = Arrays.copyOf(doubleMaxes, capacity);
+            }
+        }
+        if (integral) {
+            Arrays.fill(longMins, groups, count, Long.MAX_VALUE);
+            Arrays.fill(longMaxes, groups, count, Long.MIN_VALUE);
+        } else {
+            Arrays.fill(doubleMins, groups, count, Double.POSITIVE_INFINITY);
+            Arrays.fill(doubleMaxes, groups, count, Double.NEGATIVE_INFINITY);
+        }
+        groups = count;
+    }
+
+    // Adds the first rows values of a decoded column, where row r belongs to group groups[r] (or to group 0 when
+    // groups is null). The groups must already have been made room for.
+    void add(TableColumn column, int[] groups, int rows) {
+        if (integral) {
+            addLongs(longs(column, rows), column.nulls == null ? null : column, groups, rows);
+        } else {
+            addDoubles(doubles(column, rows), column.nulls == null ? null : column, groups, rows);
+        }
+    }
+
+    private static long[] longs(TableColumn column, int rows) {
+        if (column instanceof TableColumn.LongColumn longs) {
+            return longs.values;
+        }
+        if (column instanceof TableColumn.DecimalColumn decimals) {
+            if (decimals.wide != null) {
+                throw new IllegalArgumentException("A value of " + column.field.name() + " is too large to aggregate.");
+            }
+            return decimals.unscaled;
+        }
+        var ints = ((TableColumn.IntColumn) column).values;
+        var values = new long[rows];
+        for (var r = 0; r < rows; r++) {
+            values[r] = ints[r];
+        }
+        return values;
+    }
+
+    private static double[] doubles(TableColumn column, int rows) {
+        if (column instanceof TableColumn.DoubleColumn doubles) {
+            return doubles.values;
+        }
+        var floats = ((TableColumn.FloatColumn) column).values;
+        var values = new double[rows];
+        for (var r = 0; r < rows; r++) {
+            values[r] = floats[r];
+        }
+        return values;
+    }
+
+    private void addLongs(long[] values, TableColumn nullable, int[] groups, int rows) {
+        if (groups == null && nullable == null) {
+            // the common case of a whole column: a plain reduction the JIT can unroll
+            long sum = 0;
+            long carry = 0;
+            var min = Long.MAX_VALUE;
+            var max = Long.MIN_VALUE;
+            for (var r = 0; r < rows; r++) {
+                var value = values[r];
+                var next = sum + value;
+                carry += carry(sum, value, next);
+                sum = next;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            counts[0] += rows;
+            addSum(0, sum, carry);
+            longMins[0] = Math.min(longMins[0], min);
+            longMaxes[0] = Math.max(longMaxes[0], max);
+            return;
+        }
+
+        for (var r = 0; r < rows; r++) {
+            if (nullable != null && nullable.isNull(r)) {
+                continue;
+            }
+            var g = groups == null ? 0 : groups[r];
+            var value = values[r];
+            counts[g]++;
+            addSum(g, value, 0);
+            longMins[g] = Math.min(longMins[g], value);
+            longMaxes[g] = Math.max(longMaxes[g], value);
+        }
+    }
+
+    private void addSum(int group, long sum, long carry) {
+        var next = longSums[group] + sum;
+        carries[group] += carry + carry(longSums[group], sum, next);
+        longSums[group] = next;
+    }
+
+    // 1 when a + b wrapped past Long.MAX_VALUE to give sum, -1 when it wrapped past Long.MIN_VALUE, otherwise 0.
+    private static long carry(long a, long b, long sum) {
+        return ((a ^ sum) & (b ^ sum)) < 0 ? (b < 0 ? -1 : 1) : 0;
+    }
+
+    // The exact sum of a group of an integral field.
+    BigInteger bigSum(int group) {
+        return BigInteger.valueOf(carries[group]).shiftLeft(64).add(BigInteger.valueOf(longSums[group]));
+    }
+
+    private void addDoubles(double[] values, TableColumn nullable, int[] groups, int rows) {
+        if (groups == null && nullable == null) {
+            double sum = 0;
+            var min = Double.POSITIVE_INFINITY;
+            var max = Double.NEGATIVE_INFINITY;
+            for (var r = 0; r < rows; r++) {
+                var value = values[r];
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            counts[0] += rows;
+            doubleSums[0] += sum;
+            doubleMins[0] = Math.min(doubleMins[0], min);
+            doubleMaxes[0] = Math.max(doubleMaxes[0], max);
+            return;
+        }
+
+        for (var r = 0; r < rows; r++) {
+            if (nullable != null && nullable.isNull(r)) {
+                continue;
+            }
+            var g = groups == null ? 0 : groups[r];
+            var value = values[r];
+            counts[g]++;
+            doubleSums[g] += value;
+            doubleMins[g] = Math.min(doubleMins[g], value);
+            doubleMaxes[g] = Math.max(doubleMaxes[g], value);
+        }
+    }
+
+    // Folds in the groups of another accumulator of the same field, whose group g becomes group remap[g] here.
+    void merge(Accumulator other, int[] remap) {
+        for (var g = 0; g < other.groups; g++) {
+            var target = remap[g];
+            ensure(target + 1);
+            counts[target] += other.counts[g];
+            if (integral) {
+                addSum(target, other.longSums[g], other.carries[g]);
+                longMins[target] = Math.min(longMins[target], other.longMins[g]);
+                longMaxes[target] = Math.max(longMaxes[target], other.longMaxes[g]);
+            } else {
+                doubleSums[target] += other.doubleSums[g];
+                doubleMins[target] = Math.min(doubleMins[target], other.doubleMins[g]);
+                doubleMaxes[target] = Math.max(doubleMaxes[target], other.doubleMaxes[g]);
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// The groups of an aggregation over some records: their keys, row counts and the accumulators of each value field.
+// Each block is aggregated into a partial of its own, which is then merged into the partial for the whole file.
+//
+// Within a block, rows are assigned to groups without boxing: string keys by their code in the block's dictionary,
+// booleans by value, and numeric, date and time keys by their stored long in an open addressing table. Key objects are
+// only built once per group.
+final class AggregatePartial {
+    final ArrayList<Object> keys = new ArrayList<>();
+    long[] rows = new long[16];
+    final Accumulator[] accumulators;
+    private HashMap<Object, Integer> index;
+
+    AggregatePartial(YxdbField[] valueFields) {
+        accumulators = new Accumulator[valueFields.length];
+        for (var i = 0; i < valueFields.length; i++) {
+            accumulators[i] = new Accumulator(valueFields[i]);
+        }
+    }
+
+    int groups() {
+        return keys.size();
+    }
+
+    // The single group of an aggregation without a key, for files with no blocks to aggregate.
+    void addEmptyGroup() {
+        newGroup(null);
+        for (var accumulator : accumulators) {
+            accumulator.ensure(1);
+        }
+    }
+
+    // Aggregates one block: reads the key (if any) and value fields of each record into primitive columns, assigns
+    // each row to a group, then runs each accumulator over its column.
+    static AggregatePartial aggregate(YxdbRecord record, RecordReader reader, YxdbField keyField, YxdbField[] valueFields) throws IOException {
+        var key = keyField == null ? null : TableColumn.create(keyField, 4096);
+        var values = new TableColumn[valueFields.length];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = TableColumn.create(valueFields[i], 4096);
+        }
+
+        var count = 0;
+        while (reader.nextRecord()) {
+            if (key != null) {
+                key.read(record, reader.recordBuffer, count);
+            }
+            for (var value : values) {
+                value.read(record, reader.recordBuffer, count);
+            }
+            count++;
+        }
+
+        var partial = new AggregatePartial(valueFields);
+        var groups = key == null ? null : partial.assign(key, count);
+        if (key == null) {
+            partial.keys.add(null);
+        }
+        if (partial.rows.length < partial.groups()) {
+            partial.rows = Arrays.copyOf(partial.rows, partial.groups());
+        }
+        if (groups == null) {
+            partial.rows[0] = count;
+        } else {
+            for (var r = 0; r < count; r++) {
+                partial.rows[groups[r]]++;
+            }
+        }
+        for (var i = 0; i < values.length; i++) {
+            partial.accumulators[i].ensure(partial.groups());
+            partial.accumulators[i].add(values[i], groups, count);
+        }
+        return partial;
+    }
+
+    private int[] assign(TableColumn key, int count) {
+        var groups = new int[count];
+        var nullGroup = -1;
+        if (key instanceof TableColumn.StringColumn strings) {
+            var byCode = new int[strings.distinct];
+            Arrays.fill(byCode, -1);
+            for (var r = 0; r < count; r++) {
+                if (strings.isNull(r)) {
+                    nullGroup = nullGroup < 0 ? newGroup(null) : nullGroup;
+                    groups[r] = nullGroup;
+                    continue;
+                }
+                var code = strings.codes[r];
+                if (byCode[code] < 0) {
+                    byCode[code] = newGroup(strings.dictionary[code]);
+                }
+                groups[r] = byCode[code];
+            }
+            return groups;
+        }
+
+        if (key instanceof TableColumn.BooleanColumn booleans) {
+            var falseGroup = -1;
+            var trueGroup = -1;
+            for (var r = 0; r < count; r++) {
+                if (booleans.isNull(r)) {
+                    nullGroup = nullGroup < 0 ? newGroup(null) : nullGroup;
+                    groups[r] = nullGroup;
+                } else if (booleans.get(r)) {
+                    trueGroup = trueGroup < 0 ? newGroup(Boolean.TRUE) : trueGroup;
+                    groups[r] = trueGroup;
+                } else {
+                    falseGroup = falseGroup < 0 ? newGroup(Boolean.FALSE) : falseGroup;
+                    groups[r] = falseGroup;
+                }
+            }
+            return groups;
+        }
+
+        if (key instanceof TableColumn.DecimalColumn || key instanceof TableColumn.BlobColumn) {
+            throw new IllegalArgumentException("Cannot group by the " + key.field.yxdbType() + " field " + key.field.name() + ".");
+        }
+
+        var table = new LongTable();
+        for (var r = 0; r < count; r++) {
+            if (key.isNull(r)) {
+                nullGroup = nullGroup < 0 ? newGroup(null) : nullGroup;
+                groups[r] = nullGroup;
+                continue;
+            }
+            var bits = bits(key, r);
+            var group = table.get(bits);
+            if (group < 0) {
+                group = newGroup(keyOf(key.field, bits));
+                table.put(bits, group);
+            }
+            groups[r] = group;
+        }
+        return groups;
+    }
+
+    private int newGroup(Object key) {
+        keys.add(key);
+        return keys.size() - 1;
+    }
+
+    private static long bits(TableColumn key, int row) {
+        if (key instanceof TableColumn.IntColumn ints) {
+            return ints.values[row];
+        }
+        if (key instanceof TableColumn.LongColumn longs) {
+            return longs.values[row];
+        }
+        if (key instanceof TableColumn.FloatColumn floats) {
+            return Double.doubleToLongBits(floats.values[row]);
+        }
+        return Double.doubleToLongBits(((TableColumn.DoubleColumn) key).values[row]);
+    }
+
+    // The key as YxdbReader.read returns values of its type.
+    private static Object keyOf(YxdbField field, long bits) {
+        return switch (field.yxdbType()) {
+            case YxdbType.BYTE -> (byte) bits;
+            case YxdbType.FLOAT, YxdbType.DOUBLE -> Double.longBitsToDouble(bits);
+            case YxdbType.DATE -> LocalDate.ofEpochDay(bits);
+            case YxdbType.TIME -> LocalTime.ofSecondOfDay(bits);
+            case YxdbType.DATETIME -> LocalDateTime.ofEpochSecond(bits, 0, ZoneOffset.UTC);
+            default -> bits;
+        };
+    }
+
+    // Folds the groups of another partial into this one, matching them by key.
+    void merge(AggregatePartial other) {
+        if (index == null) {
+            index = new HashMap<>();
+            for (var g = 0; g < keys.size(); g++) {
+                index.put(keys.get(g), g);
+            }
+        }
+
+        var remap = new int[other.groups()];
+        for (var g = 0; g < remap.length; g++) {
+            var key = other.keys.get(g);
+            var target = index.get(key);
+            if (target == null) {
+                target = newGroup(key);
+                index.put(key, target);
+            }
+            remap[g] = target;
+        }
+
+        if (rows.length < groups()) {
+            rows = Arrays.copyOf(rows, Math.max(groups(), rows.length * 2));
+        }
+        for (var g = 0; g < remap.length; g++) {
+            rows[remap[g]] += other.rows[g];
+        }
+        for (var i = 0; i < accumulators.length; i++) {
+            accumulators[i].merge(other.accumulators[i], remap);
+        }
+    }
+
+    // An open addressing map from long keys to group numbers, for assigning the rows of one block.
+    private static final class LongTable {
+        private long[] keys = new long[64];
+        private int[] groups = new int[64];
+        private int size;
+
+        LongTable() {
+            Arrays.fill(groups, -1);
+        }
+
+        private static int hash(long key) {
+            var h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        int get(long key) {
+            var mask = keys.length - 1;
+            for (var slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (groups[slot] < 0) {
+                    return -1;
+                }
+                if (keys[slot] == key) {
+                    return groups[slot];
+                }
+            }
+        }
+
+        void put(long key, int group) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            var mask = keys.length - 1;
+            var slot = hash(key) & mask;
+            while (groups[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            groups[slot] = group;
+            size++;
+        }
+
+        private void grow() {
+            var oldKeys = keys;
+            var oldGroups = groups;
+            keys = new long[oldKeys.length * 2];
+            groups = new int[oldKeys.length * 2];
+            Arrays.fill(groups, -1);
+            size = 0;
+            for (var slot = 0; slot < oldKeys.length; slot++) {
+                if (oldGroups[slot] >= 0) {
+                    put(oldKeys[slot], oldGroups[slot]);
+                }
+            }
+        }
+    }
+}
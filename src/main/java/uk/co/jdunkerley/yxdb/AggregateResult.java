@@ -0,0 +1,171 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * The groups computed by a YxdbAggregation, in the order their keys were first seen in the file.
+ * <p>
+ * Aggregates are numbered in the order they were added to the aggregation. Without a groupBy field there is exactly
+ * one group, whose key is null.
+ */
+public final class AggregateResult {
+    private final String keyName;
+    private final String[] names;
+    private final Object[] keys;
+    private final long[] rows;
+    private final Object[][] values;
+
+    AggregateResult(String keyName, YxdbAggregation.Aggregate[] aggregates, AggregatePartial total) {
+        this.keyName = keyName;
+        this.names = new String[aggregates.length];
+        for (var i = 0; i < aggregates.length; i++) {
+            names[i] = aggregates[i].name();
+        }
+
+        var groups = total.groups();
+        this.keys = total.keys.toArray();
+        this.rows = Arrays.copyOf(total.rows, groups);
+        this.values = new Object[groups][];
+        for (var g = 0; g < groups; g++) {
+            values[g] = new Object[aggregates.length];
+            for (var i = 0; i < aggregates.length; i++) {
+                var aggregate = aggregates[i];
+                values[g][i] = aggregate.op() == YxdbAggregation.Op.COUNT
+                        ? (Object) rows[g]
+                        : value(aggregate.op(), total.accumulators[aggregate.value()], g);
+            }
+        }
+    }
+
+    private static Object value(YxdbAggregation.Op op, Accumulator accumulator, int group) {
+        var count = accumulator.counts[group];
+        if (op == YxdbAggregation.Op.COUNT_NON_NULL) {
+            return count;
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (!accumulator.integral) {
+            return switch (op) {
+                case SUM -> accumulator.doubleSums[group];
+                case MIN -> accumulator.doubleMins[group];
+                case MAX -> accumulator.doubleMaxes[group];
+                default -> accumulator.doubleSums[group] / count;
+            };
+        }
+
+        var isDecimal = accumulator.field.dataType() == DataType.DECIMAL;
+        var scale = isDecimal ? accumulator.field.scale() : 0;
+        if (op == YxdbAggregation.Op.MIN || op == YxdbAggregation.Op.MAX) {
+            var number = op == YxdbAggregation.Op.MIN ? accumulator.longMins[group] : accumulator.longMaxes[group];
+            return isDecimal ? BigDecimal.valueOf(number, scale) : (Object) number;
+        }
+
+        if (accumulator.carries[group] != 0) {
+            // the sum does not fit in a long
+            var sum = accumulator.bigSum(group);
+            if (op == YxdbAggregation.Op.AVG) {
+                return new BigDecimal(sum, scale).divide(BigDecimal.valueOf(count), MathContext.DECIMAL64).doubleValue();
+            }
+            return isDecimal ? new BigDecimal(sum, scale) : sum;
+        }
+
+        var number = accumulator.longSums[group];
+        if (op == YxdbAggregation.Op.AVG) {
+            return isDecimal
+                    ? BigDecimal.valueOf(number, scale).divide(BigDecimal.valueOf(count), MathContext.DECIMAL64).doubleValue()
+                    : (double) number / count;
+        }
+        return isDecimal ? BigDecimal.valueOf(number, scale) : (Object) number;
+    }
+
+    /**
+     * The name of the field the records were grouped by.
+     * @return the name of the field, or null when the records were not grouped
+     */
+    public String keyName() {
+        return keyName;
+    }
+
+    /**
+     * The names of the aggregates, such as Count or Sum_Amount, in the order they were added.
+     * @return an array of names
+     */
+    public String[] names() {
+        return names.clone();
+    }
+
+    /**
+     * The number of groups.
+     * @return the number of groups
+     */
+    public int numGroups() {
+        return keys.length;
+    }
+
+    private void checkGroup(int group) throws IllegalArgumentException {
+        if (group < 0 || group >= keys.length) {
+            throw new IllegalArgumentException("The group " + group + " is out of range.");
+        }
+    }
+
+    /**
+     * The key of a group, as YxdbReader.read returns values of the groupBy field.
+     *
+     * @param group the index of the group
+     * @return the key, or null for the group of null keys or when the records were not grouped
+     * @throws IllegalArgumentException thrown when the group is out of range
+     */
+    public Object key(int group) throws IllegalArgumentException {
+        checkGroup(group);
+        return keys[group];
+    }
+
+    /**
+     * The number of records in a group.
+     *
+     * @param group the index of the group
+     * @return the number of records
+     * @throws IllegalArgumentException thrown when the group is out of range
+     */
+    public long rows(int group) throws IllegalArgumentException {
+        checkGroup(group);
+        return rows[group];
+    }
+
+    /**
+     * The value of an aggregate for a group.
+     *
+     * @param group     the index of the group
+     * @param aggregate the index of the aggregate
+     * @return a Long, BigInteger, Double or BigDecimal, or null when every value in the group is null
+     * @throws IllegalArgumentException thrown when the group or aggregate is out of range
+     */
+    public Object get(int group, int aggregate) throws IllegalArgumentException {
+        checkGroup(group);
+        if (aggregate < 0 || aggregate >= names.length) {
+            throw new IllegalArgumentException("The aggregate " + aggregate + " is out of range.");
+        }
+        return values[group][aggregate];
+    }
+
+    /**
+     * The value of an aggregate for a group.
+     *
+     * @param group the index of the group
+     * @param name  the name of the aggregate, such as Sum_Amount
+     * @return a Long, BigInteger, Double or BigDecimal, or null when every value in the group is null
+     * @throws IllegalArgumentException thrown when the group is out of range or there is no aggregate with that name
+     */
+    public Object get(int group, String name) throws IllegalArgumentException {
+        for (var i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return get(group, i);
+            }
+        }
+        throw new IllegalArgumentException("The aggregate " + name + " does not exist.");
+    }
+}
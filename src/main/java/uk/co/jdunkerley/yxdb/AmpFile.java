@@ -0,0 +1,219 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+// An open AMP engine (e2) .yxdb file.
+// The layout is a 100 byte header holding the length of the UTF-8 RecordInfo XML, the XML itself, then a run of
+// Snappy compressed blocks each tagged 0x02 and ended by a 0x00 tag, and a 32 byte footer holding the record count.
+// Every block decompresses on its own, and blocks are read with positional reads so they can be decoded in any order.
+// Only the value encodings of ampdata.yxdb are decoded so far: strings of up to 127 UTF-8 bytes and non-null doubles.
+// Any other value is rejected with an IllegalArgumentException when its row is read.
+final class AmpFile implements BlockSource {
+    static final String FILE_TYPE = "Alteryx e2 Database file";
+
+    private static final int HEADER_SIZE = 100;
+    private static final int FOOTER_SIZE = 32;
+    private static final byte BLOCK_TAG = 0x02;
+    private static final byte END_TAG = 0x00;
+    private static final byte SNAPPY_CODEC = 0x0a;
+
+    final Path path;
+    final FileChannel channel;
+    final YxdbField[] fields;
+    final YxdbRecord layout;
+    final long numRecords;
+    final long[] blockPositions;
+    final int[] blockLengths;
+
+    private AmpFile(Path path, FileChannel channel, YxdbField[] fields, long numRecords, long[] blockPositions, int[] blockLengths) {
+        this.path = path;
+        this.channel = channel;
+        this.fields = fields;
+        this.layout = new YxdbRecord(layoutFields(fields));
+        this.numRecords = numRecords;
+        this.blockPositions = blockPositions;
+        this.blockLengths = blockLengths;
+    }
+
+    // Checks the file type in the header, leaving missing files to fail when they are opened.
+    static boolean isAmp(String path) throws IOException {
+        try (var stream = new FileInputStream(path)) {
+            return isFileType(stream.readNBytes(64));
+        }
+    }
+
+    private static boolean isFileType(byte[] fileType) {
+        return FILE_TYPE.equals(new String(fileType, StandardCharsets.ISO_8859_1).trim());
+    }
+
+    static AmpFile open(String path) throws IOException, IllegalArgumentException {
+        return open(Path.of(path));
+    }
+
+    static AmpFile open(Path path) throws IOException, IllegalArgumentException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            var size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IllegalArgumentException("File is not a valid YXDB file - invalid header.");
+            }
+
+            var header = read(channel, 0, HEADER_SIZE);
+            var fileType = new String(header.array(), 0, 64, StandardCharsets.ISO_8859_1).trim();
+            if (!FILE_TYPE.equals(fileType)) {
+                throw new IllegalArgumentException("File is not a valid YXDB file - invalid file type.");
+            }
+
+            var metaInfoLength = header.getInt(96);
+            if (metaInfoLength <= 0 || HEADER_SIZE + (long) metaInfoLength > size - FOOTER_SIZE) {
+                throw new IllegalArgumentException("File is not a valid YXDB file - incomplete metadata.");
+            }
+            var metaInfo = new String(read(channel, HEADER_SIZE, metaInfoLength).array(), StandardCharsets.UTF_8);
+            var fields = YxdbReader.parseFields(metaInfo);
+
+            var footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            if (footer.getInt(28) != 0x32455859) {
+                throw new IllegalArgumentException("File is not a valid YXDB file - invalid footer.");
+            }
+            var numRecords = footer.getLong(20);
+
+            var positions = new ArrayList<Long>();
+            var lengths = new ArrayList<Integer>();
+            var position = HEADER_SIZE + (long) metaInfoLength;
+            while (true) {
+                if (position + 5 > size - FOOTER_SIZE) {
+                    throw new IllegalArgumentException("File is not a valid YXDB file - incomplete block.");
+                }
+                var blockHeader = read(channel, position, 5);
+                var tag = blockHeader.get(0);
+                if (tag == END_TAG) {
+                    break;
+                }
+                var length = blockHeader.getInt(1);
+                if (tag != BLOCK_TAG || length < 1 || position + 5 + length > size - FOOTER_SIZE) {
+                    throw new IllegalArgumentException("File is not a valid YXDB file - invalid block at " + position + ".");
+                }
+                positions.add(position);
+                lengths.add(length);
+                position += 5 + length;
+            }
+
+            return new AmpFile(path, channel, fields, numRecords,
+                    positions.stream().mapToLong(Long::longValue).toArray(),
+                    lengths.stream().mapToInt(Integer::intValue).toArray());
+        } catch (IOException | IllegalArgumentException ex) {
+            try {
+                channel.close();
+            } catch (Exception ignored) {
+            }
+
+            throw ex;
+        }
+    }
+
+    // The record buffer layout AMP rows are transcoded into. AMP stores text as UTF-8, so every text field is held as
+    // a V_WString to keep characters outside Latin-1; Float and Double fields are held as Double. Other field types
+    // have encodings that are not decoded yet, so files holding them are rejected when opened.
+    private static YxdbField[] layoutFields(YxdbField[] fields) throws IllegalArgumentException {
+        var layout = new YxdbField[fields.length];
+        var position = 0;
+        for (var i = 0; i < fields.length; i++) {
+            var type = switch (fields[i].yxdbType()) {
+                case YxdbType.STRING, YxdbType.WSTRING, YxdbType.V_STRING, YxdbType.V_WSTRING -> YxdbType.V_WSTRING;
+                case YxdbType.FLOAT, YxdbType.DOUBLE -> YxdbType.DOUBLE;
+                default -> throw new IllegalArgumentException("Reading " + fields[i].yxdbType() + " fields from AMP YXDB files is not supported - only string, Float and Double fields can be read.");
+            };
+            layout[i] = YxdbField.makeField(i, position, fields[i].name(), type, null, null, () -> 0, () -> 0);
+            position = layout[i].endPosition();
+        }
+        return layout;
+    }
+
+    @Override
+    public YxdbField[] fields() {
+        return fields;
+    }
+
+    @Override
+    public YxdbRecord record() {
+        return layout;
+    }
+
+    @Override
+    public long numRecords() {
+        return numRecords;
+    }
+
+    @Override
+    public int blockCount() {
+        return blockPositions.length;
+    }
+
+    @Override
+    public AmpRecordReader newBlockReader(int block) {
+        return new AmpRecordReader(this, block);
+    }
+
+    @Override
+    public byte[] readStoredBlock(int block) throws IOException, IllegalArgumentException {
+        return readBlock(block, new byte[0]);
+    }
+
+    @Override
+    public AmpRecordReader newBlockReader(int block, byte[] stored) {
+        return new AmpRecordReader(this, block, stored);
+    }
+
+    // Reads a block's codec byte and compressed bytes into the start of the buffer, growing it if needed.
+    // The Snappy data starts at offset 1 and runs for blockLengths[block] - 1 bytes.
+    byte[] readBlock(int block, byte[] buffer) throws IOException, IllegalArgumentException {
+        var length = blockLengths[block];
+        if (buffer.length < length) {
+            buffer = new byte[length];
+        }
+        var target = ByteBuffer.wrap(buffer, 0, length);
+        var position = blockPositions[block] + 5;
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new IllegalArgumentException("File is not a valid YXDB file - unexpected end of file.");
+            }
+        }
+        if (buffer[0] != SNAPPY_CODEC) {
+            throw new IllegalArgumentException("AMP block " + block + " uses unsupported compression " + buffer[0] + ".");
+        }
+        return buffer;
+    }
+
+    AmpRecordReader newRecordReader() {
+        return new AmpRecordReader(this);
+    }
+
+    // A reader over the whole file, closing it at the end.
+    YxdbReader reader() {
+        return new YxdbReader(this, newRecordReader());
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException, IllegalArgumentException {
+        var buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            var read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IllegalArgumentException("File is not a valid YXDB file - unexpected end of file.");
+            }
+        }
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
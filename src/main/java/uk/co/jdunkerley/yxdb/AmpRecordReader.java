@@ -0,0 +1,220 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Reads the rows of an AMP file block by block, transcoding each into the classic record buffer layout of
+// AmpFile.layout so the usual extractors can read it.
+// A decompressed block is an int32 length, an int32 row count, then each row as an int32 length and one tagged value
+// per field: 0x80 | n is a UTF-8 string of n bytes and 0x0c an 8 byte double. These are the only encodings decoded so
+// far; nulls, longer strings and any other tag are rejected rather than guessed at.
+class AmpRecordReader extends RecordReader {
+    private final AmpFile file;
+    private final YxdbRecord layout;
+    private final boolean wholeFile;
+    private final int endBlock;
+
+    private byte[] compressed = new byte[0];
+    private byte[] block = new byte[0];
+    private int blockSize;
+    private int blockIndex;
+    private int blockOffset;
+    private int blockRowsRemaining;
+    // set when the compressed bytes of the first block were read ahead by the caller
+    private boolean storedBlock;
+
+    // Reads the whole file, closing it at the end.
+    AmpRecordReader(AmpFile file) {
+        this(file, 0, file.blockCount(), file.numRecords, true);
+    }
+
+    // Reads the rows of a single block; the row count is only known once the block is decompressed.
+    AmpRecordReader(AmpFile file, int block) {
+        this(file, block, block + 1, Long.MAX_VALUE, false);
+    }
+
+    // Reads the rows of a single block from its already read compressed bytes.
+    AmpRecordReader(AmpFile file, int block, byte[] stored) {
+        this(file, block);
+        this.compressed = stored;
+        this.storedBlock = true;
+    }
+
+    private AmpRecordReader(AmpFile file, int firstBlock, int endBlock, long totalRecords, boolean wholeFile) {
+        super(totalRecords);
+        this.file = file;
+        this.layout = file.layout;
+        this.blockIndex = firstBlock;
+        this.endBlock = endBlock;
+        this.wholeFile = wholeFile;
+        recordBuffer = ByteBuffer.allocate(layout.fixedSize + (layout.hasVar ? 4 + 1000 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    boolean readRecord() throws IOException {
+        currentRecord++;
+        if (currentRecord > totalRecords) {
+            file.close();
+            return false;
+        }
+
+        while (blockRowsRemaining == 0) {
+            if (blockIndex >= endBlock) {
+                if (!wholeFile) {
+                    return false;
+                }
+                throw new IllegalArgumentException("File is not a valid YXDB file - expected " + totalRecords + " records but found " + (currentRecord - 1) + ".");
+            }
+            readBlock(blockIndex++);
+        }
+
+        transcodeRow();
+        blockRowsRemaining--;
+        return true;
+    }
+
+    private void readBlock(int index) throws IOException {
+        var event = new BlockReadEvent();
+        event.begin();
+        var start = System.nanoTime();
+
+        if (storedBlock) {
+            storedBlock = false;
+        } else {
+            compressed = file.readBlock(index, compressed);
+        }
+        var decompressStart = System.nanoTime();
+        var compressedLength = file.blockLengths[index] - 1;
+        var length = Snappy.uncompressedLength(compressed, 1, compressedLength);
+        if (block.length < length) {
+            block = new byte[length];
+        }
+        blockSize = Snappy.decompress(compressed, 1, compressedLength, block);
+        if (blockSize < 8) {
+            throw new IllegalArgumentException("AMP block " + index + " is too short.");
+        }
+        blockRowsRemaining = ByteBuffer.wrap(block, 4, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        blockOffset = 8;
+
+        var ioNanos = decompressStart - start;
+        var decompressNanos = System.nanoTime() - decompressStart;
+        blockRead(event, file.blockPositions[index], 6, compressedLength, blockSize, true, ioNanos, decompressNanos);
+    }
+
+    private void transcodeRow() {
+        var source = ByteBuffer.wrap(block, 0, blockSize).order(ByteOrder.LITTLE_ENDIAN);
+        if (blockOffset + 4 > blockSize) {
+            throw new IllegalArgumentException("AMP row " + currentRecord + " runs past the end of its block.");
+        }
+        var rowLength = source.getInt(blockOffset);
+        var position = blockOffset + 4;
+        var rowEnd = position + rowLength;
+        if (rowLength < 0 || rowEnd > blockSize) {
+            throw new IllegalArgumentException("AMP row " + currentRecord + " runs past the end of its block.");
+        }
+
+        // each UTF-8 byte decodes to at most one UTF-16 unit, so twice the row plus the var headers always fits
+        var fixedSize = layout.fixedSize;
+        if (layout.hasVar) {
+            var needed = fixedSize + 4 + rowLength * 2 + layout.fields.length * 4;
+            if (recordBuffer.capacity() < needed) {
+                recordBuffer = ByteBuffer.allocate(needed * 2).order(ByteOrder.LITTLE_ENDIAN);
+                recordBufferResized(recordBuffer.capacity());
+            }
+        }
+
+        var varLength = 0;
+        for (var field : layout.fields) {
+            if (position >= rowEnd) {
+                throw new IllegalArgumentException("AMP row " + currentRecord + " is missing field " + field.name() + ".");
+            }
+            var tag = block[position++] & 0xff;
+            var start = field.startPosition();
+            if ((tag & 0x80) != 0 && field.yxdbType().equals(YxdbType.V_WSTRING)) {
+                var length = tag & 0x7f;
+                if (position + length > rowEnd) {
+                    throw new IllegalArgumentException("AMP row " + currentRecord + " field " + field.name() + " runs past the end of the row.");
+                }
+                varLength += putUtf8(start, fixedSize + 4 + varLength, position, length);
+                position += length;
+            } else if (tag == 0x0c && field.yxdbType().equals(YxdbType.DOUBLE)) {
+                if (position + 8 > rowEnd) {
+                    throw new IllegalArgumentException("AMP row " + currentRecord + " field " + field.name() + " runs past the end of the row.");
+                }
+                recordBuffer.putDouble(start, source.getDouble(position));
+                recordBuffer.put(start + 8, (byte) 0);
+                position += 8;
+            } else {
+                throw new IllegalArgumentException(String.format("AMP value tag 0x%02x in field %s is not supported - only strings of up to 127 bytes and non-null doubles can be read.", tag, field.name()));
+            }
+        }
+        if (position != rowEnd) {
+            throw new IllegalArgumentException("AMP row " + currentRecord + " has more values than fields.");
+        }
+
+        if (layout.hasVar) {
+            recordBuffer.putInt(fixedSize, varLength);
+            recordBufferIndex = fixedSize + 4 + varLength;
+        } else {
+            recordBufferIndex = fixedSize;
+        }
+        blockOffset = rowEnd;
+    }
+
+    // Transcodes length UTF-8 bytes of the block from offset into a UTF-16LE variable length value at varStart, in the
+    // normal or small block form, returning the bytes used. Each malformed byte becomes U+FFFD, so a value never takes
+    // more than twice its UTF-8 length.
+    private int putUtf8(int fieldStart, int varStart, int offset, int length) {
+        if (length == 0) {
+            recordBuffer.putInt(fieldStart, 0);
+            return 0;
+        }
+
+        // decode past room for the 4 byte header, and move the value down if the 1 byte header fits
+        var valueStart = varStart + 4;
+        var target = valueStart;
+        var end = offset + length;
+        var i = offset;
+        while (i < end) {
+            var b = block[i++] & 0xff;
+            var c = b;
+            if (b >= 0x80) {
+                var count = b < 0xc2 ? 0 : b < 0xe0 ? 1 : b < 0xf0 ? 2 : b < 0xf5 ? 3 : 0;
+                var valid = count > 0 && i + count <= end;
+                c = b & (0x3f >> count);
+                for (var k = 0; valid && k < count; k++) {
+                    var next = block[i + k];
+                    valid = (next & 0xc0) == 0x80;
+                    c = (c << 6) | (next & 0x3f);
+                }
+                // overlong forms, surrogates and code points past U+10FFFF are malformed
+                valid = valid && (count != 2 || (c >= 0x800 && (c < 0xd800 || c > 0xdfff)))
+                        && (count != 3 || (c >= 0x10000 && c <= 0x10ffff));
+                if (valid) {
+                    i += count;
+                } else {
+                    c = 0xfffd;
+                }
+            }
+
+            if (c >= 0x10000) {
+                recordBuffer.putShort(target, (short) (0xd800 + ((c - 0x10000) >> 10)));
+                target += 2;
+                c = 0xdc00 + (c & 0x3ff);
+            }
+            recordBuffer.putShort(target, (short) c);
+            target += 2;
+        }
+
+        recordBuffer.putInt(fieldStart, varStart - fieldStart);
+        var valueLength = target - valueStart;
+        if (valueLength < 128) {
+            recordBuffer.put(varStart, (byte) ((valueLength << 1) | 1));
+            System.arraycopy(recordBuffer.array(), valueStart, recordBuffer.array(), varStart + 1, valueLength);
+            return 1 + valueLength;
+        }
+        recordBuffer.putInt(varStart, valueLength * 2);
+        return 4 + valueLength;
+    }
+}
@@ -0,0 +1,58 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Reads records from a run of already decoded batches, copying each into recordBuffer in turn.
+final class BatchRecordReader extends RecordReader {
+    @FunctionalInterface
+    interface BatchSupplier {
+        // The next batch, or null when there are no more.
+        RecordBatch next() throws IOException;
+    }
+
+    private final BatchSupplier batches;
+    private RecordBatch batch;
+    private int index;
+
+    BatchRecordReader(YxdbRecord record, long totalRecords, BatchSupplier batches) {
+        super(totalRecords);
+        this.batches = batches;
+        recordBuffer = ByteBuffer.allocate(record.fixedSize + (record.hasVar ? 4 + 1000 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // A reader over the records of a single batch. There is nothing to close.
+    static YxdbReader readerOf(RecordBatch batch, YxdbField[] fields, YxdbRecord record) {
+        var single = new RecordBatch[]{batch};
+        var recordReader = new BatchRecordReader(record, batch.count(), () -> {
+            var next = single[0];
+            single[0] = null;
+            return next;
+        });
+        return new YxdbReader(() -> {}, fields, record, batch.count(), recordReader);
+    }
+
+    @Override
+    boolean readRecord() throws IOException {
+        while (batch == null || index >= batch.count()) {
+            batch = batches.next();
+            index = 0;
+            if (batch == null) {
+                return false;
+            }
+        }
+
+        var start = batch.start(index);
+        var length = batch.ends()[index] - start;
+        if (length > recordBuffer.capacity()) {
+            recordBuffer = ByteBuffer.allocate(length * 2).order(ByteOrder.LITTLE_ENDIAN);
+            recordBufferResized(recordBuffer.capacity());
+        }
+        System.arraycopy(batch.bytes(), start, recordBuffer.array(), 0, length);
+        recordBufferIndex = length;
+        index++;
+        currentRecord++;
+        return true;
+    }
+}
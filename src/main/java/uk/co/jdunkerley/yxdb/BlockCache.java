@@ -0,0 +1,102 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A size-bounded cache of decompressed LZF blocks keyed by the file offset of the block, shared by every reader of a
+// CachedYxdbFile. The least recently used blocks are evicted first. The lock is only held to look up, store or evict
+// an entry; entries never change once stored, so copying one out happens outside the lock and is unaffected by eviction.
+final class BlockCache {
+    // A decompressed block and the number of bytes it occupies in the file after its length word.
+    static final class Entry {
+        final int storedLength;
+        final int length;
+        private final byte[] heap;
+        private final ByteBuffer direct;
+
+        private Entry(int storedLength, byte[] data, int length, boolean offHeap) {
+            this.storedLength = storedLength;
+            this.length = length;
+            if (offHeap) {
+                heap = null;
+                direct = ByteBuffer.allocateDirect(length).put(0, data, 0, length);
+            } else {
+                heap = new byte[length];
+                direct = null;
+                System.arraycopy(data, 0, heap, 0, length);
+            }
+        }
+
+        void copyTo(byte[] out) {
+            if (heap != null) {
+                System.arraycopy(heap, 0, out, 0, length);
+            } else {
+                direct.get(0, out, 0, length);
+            }
+        }
+    }
+
+    private final long maxBytes;
+    private final boolean offHeap;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    BlockCache(long maxBytes, boolean offHeap) {
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+    }
+
+    // The block at position, or null (counting a miss) when it is not cached.
+    Entry get(long position) {
+        lock.lock();
+        try {
+            var entry = entries.get(position);
+            if (entry == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(long position, int storedLength, byte[] data, int length) {
+        if (length > maxBytes) {
+            return;
+        }
+        var entry = new Entry(storedLength, data, length, offHeap);
+
+        lock.lock();
+        try {
+            // another reader may have decompressed the same block meanwhile; keep the first
+            if (entries.putIfAbsent(position, entry) != null) {
+                return;
+            }
+            bytes += length;
+            var eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().getValue().length;
+                eldest.remove();
+                evictions++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    BlockCacheStats stats() {
+        lock.lock();
+        try {
+            return new BlockCacheStats(hits, misses, evictions, entries.size(), bytes, maxBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package uk.co.jdunkerley.yxdb;
+
+/**
+ * A snapshot of the decompressed block cache of a CachedYxdbFile.
+ *
+ * @param hits      The number of blocks found in the cache, and so neither read nor decompressed.
+ * @param misses    The number of blocks read from the file because they were not in the cache.
+ * @param evictions The number of blocks dropped to keep the cache within its size.
+ * @param entries   The number of blocks in the cache.
+ * @param bytes     The number of decompressed bytes held by the cache.
+ * @param maxBytes  The size the cache is bounded to, in bytes.
+ */
+public record BlockCacheStats(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {
+    /**
+     * The share of block lookups answered by the cache.
+     * @return the hit rate between 0 and 1, or 0 if no blocks have been looked up
+     */
+    public double hitRate() {
+        var lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,35 @@
+package uk.co.jdunkerley.yxdb;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event recorded for every block read, covering both the read and the decompression, or the copy of a block
+// taken from a shared block cache.
+// Enable uk.co.jdunkerley.yxdb.BlockRead in a recording to see it; when disabled the JIT removes it.
+@Name("uk.co.jdunkerley.yxdb.BlockRead")
+@Label("YXDB Block Read")
+@Category("YXDB")
+@Description("A block read from a .yxdb file and decompressed")
+@StackTrace(false)
+final class BlockReadEvent extends jdk.jfr.Event {
+    @Label("File Offset")
+    long position;
+
+    @Label("Stored Length")
+    @DataAmount
+    int storedLength;
+
+    @Label("Decompressed Length")
+    @DataAmount
+    int decompressedLength;
+
+    @Label("Compressed")
+    boolean compressed;
+
+    @Label("Cached")
+    boolean cached;
+}
@@ -0,0 +1,31 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// An open .yxdb file split into blocks of records that can each be read on their own, in any order and on any thread.
+// Classic files split on their record blocks (65536 records each, listed in the block index), AMP files on their Snappy blocks.
+interface BlockSource extends Closeable {
+    YxdbField[] fields();
+
+    // The layout of the record buffer the block readers fill.
+    YxdbRecord record();
+
+    long numRecords();
+
+    int blockCount();
+
+    // A reader over just the records of one block. Readers are independent of each other and of the source.
+    RecordReader newBlockReader(int block) throws IOException;
+
+    // The stored (compressed) bytes of a block, fetched with positional reads and no decoding, so the wait on the disk
+    // and the decompression can happen on different threads.
+    byte[] readStoredBlock(int block) throws IOException, IllegalArgumentException;
+
+    // A reader over the records of a block whose stored bytes were fetched by readStoredBlock.
+    RecordReader newBlockReader(int block, byte[] stored);
+
+    static BlockSource open(String path) throws IOException, IllegalArgumentException {
+        return AmpFile.isAmp(path) ? AmpFile.open(path) : YxdbFile.open(path);
+    }
+}
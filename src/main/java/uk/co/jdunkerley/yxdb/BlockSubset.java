@@ -0,0 +1,47 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+
+// Some blocks of a source, numbered from 0 in the order given, for running ParallelBlocks over a sample of a file.
+// Closing the subset closes the source.
+record BlockSubset(BlockSource source, int[] blocks) implements BlockSource {
+    @Override
+    public YxdbField[] fields() {
+        return source.fields();
+    }
+
+    @Override
+    public YxdbRecord record() {
+        return source.record();
+    }
+
+    @Override
+    public long numRecords() {
+        return source.numRecords();
+    }
+
+    @Override
+    public int blockCount() {
+        return blocks.length;
+    }
+
+    @Override
+    public RecordReader newBlockReader(int block) throws IOException {
+        return source.newBlockReader(blocks[block]);
+    }
+
+    @Override
+    public byte[] readStoredBlock(int block) throws IOException, IllegalArgumentException {
+        return source.readStoredBlock(blocks[block]);
+    }
+
+    @Override
+    public RecordReader newBlockReader(int block, byte[] stored) {
+        return source.newBlockReader(blocks[block], stored);
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -5,12 +5,17 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
-class BufferedRecordReader {
+class BufferedRecordReader extends RecordReader {
     static int lzfBufferSize = 262144;
 
     public BufferedRecordReader(InputStream stream, int fixedLen, boolean hasVarFields, long totalRecords) {
-        this.totalRecords = totalRecords;
+        this(stream, fixedLen, hasVarFields, totalRecords, 0);
+    }
+
+    public BufferedRecordReader(InputStream stream, int fixedLen, boolean hasVarFields, long totalRecords, long streamPosition) {
+        super(totalRecords);
         this.stream = stream;
+        this.streamPosition = streamPosition;
         this.fixedLen = fixedLen;
         this.hasVarFields = hasVarFields;
         if (hasVarFields) {
@@ -24,10 +29,9 @@ class BufferedRecordReader {
         lzfLengthBuffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
     }
 
-    final InputStream stream;
+    InputStream stream;
     final int fixedLen;
     final boolean hasVarFields;
-    final long totalRecords;
 
     final ByteBuffer lzfIn;
     final ByteBuffer lzfOut;
@@ -35,16 +39,32 @@ class BufferedRecordReader {
     int lzfOutSize;
     final Lzf lzf;
     final ByteBuffer lzfLengthBuffer;
-    ByteBuffer recordBuffer;
-    int recordBufferIndex;
-    long currentRecord;
 
-    public boolean nextRecord() throws IOException {
+    // decompressed blocks shared with other readers of the same file, or null
+    BlockCache cache;
+
+    // file offsets of the next unread byte and of the LZF block currently in lzfOut
+    long streamPosition;
+    long lzfBlockPosition;
+
+    // where the current record starts: the file offset of its LZF block and its offset within the decompressed block
+    long recordBlockPosition;
+    int recordBlockIndex;
+
+    @Override
+    boolean readRecord() throws IOException {
         currentRecord++;
         if (currentRecord > totalRecords) {
             stream.close();
             return false;
         }
+        if (lzfOutIndex < lzfOutSize) {
+            recordBlockPosition = lzfBlockPosition;
+            recordBlockIndex = lzfOutIndex;
+        } else {
+            recordBlockPosition = streamPosition;
+            recordBlockIndex = 0;
+        }
         recordBufferIndex = 0;
         if (hasVarFields) {
             readVariableRecord();
@@ -54,6 +74,16 @@ class BufferedRecordReader {
         return true;
     }
 
+    // Moves to a record whose start was captured from recordBlockPosition and recordBlockIndex.
+    // The stream must be positioned at blockPosition; the next call to nextRecord reads record number recordIndex (0-based).
+    public void seek(InputStream stream, long blockPosition, int blockIndex, long recordIndex) throws IOException {
+        this.stream = stream;
+        streamPosition = blockPosition;
+        lzfOutSize = readNextLzfBlock();
+        lzfOutIndex = blockIndex;
+        currentRecord = recordIndex;
+    }
+
     private void readVariableRecord() throws IOException {
         read(fixedLen + 4);
 
@@ -68,6 +98,7 @@ class BufferedRecordReader {
             var newBuffer = ByteBuffer.allocate(newLength).order(ByteOrder.LITTLE_ENDIAN);
             System.arraycopy(recordBuffer.array(), 0, newBuffer.array(), 0, fixedLen + 4);
             recordBuffer = newBuffer;
+            recordBufferResized(newLength);
         }
         read(varLength);
     }
@@ -100,15 +131,45 @@ class BufferedRecordReader {
     }
 
     private int readNextLzfBlock() throws IOException {
+        var event = new BlockReadEvent();
+        event.begin();
+        var start = System.nanoTime();
+
+        lzfBlockPosition = streamPosition;
+        if (cache != null) {
+            var cached = cache.get(lzfBlockPosition);
+            if (cached != null) {
+                cached.copyTo(lzfOut.array());
+                streamPosition += 4 + cached.storedLength;
+                stream.skipNBytes(4 + cached.storedLength);
+                blockCached(event, lzfBlockPosition, cached.storedLength, cached.length);
+                return cached.length;
+            }
+        }
+
         var lzfBlockLength = readLzfBlockLength();
         var checkbit = (long) lzfBlockLength & 0x80000000L;
+        int blockSize;
+        long decompressStart;
         if (checkbit > 0) {
             lzfBlockLength &= 0x7ffffff;
-            return stream.readNBytes(lzfOut.array(), 0, lzfBlockLength);
+            streamPosition += 4 + lzfBlockLength;
+            blockSize = stream.readNBytes(lzfOut.array(), 0, lzfBlockLength);
+            decompressStart = System.nanoTime();
         } else {
+            streamPosition += 4 + lzfBlockLength;
             var readIn = stream.readNBytes(lzfIn.array(), 0, lzfBlockLength);
-            return lzf.decompress(readIn);
+            decompressStart = System.nanoTime();
+            blockSize = lzf.decompress(readIn);
+        }
+
+        var ioNanos = decompressStart - start;
+        var decompressNanos = System.nanoTime() - decompressStart;
+        blockRead(event, lzfBlockPosition, 4, lzfBlockLength, blockSize, checkbit == 0, ioNanos, decompressNanos);
+        if (cache != null) {
+            cache.put(lzfBlockPosition, lzfBlockLength, lzfOut.array(), blockSize);
         }
+        return blockSize;
     }
 
     private int readLzfBlockLength() throws IOException {
@@ -0,0 +1,179 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// A growable byte array that text output is formatted into before being written out in large chunks.
+// Text from the record buffer (ISO-8859-1 or UTF-16LE) is encoded to UTF-8 straight from its bytes.
+final class ByteSink {
+    private static final byte[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    byte[] bytes;
+    int length;
+
+    ByteSink(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    void write(byte value) {
+        ensure(1);
+        bytes[length++] = value;
+    }
+
+    void write(byte[] source, int offset, int count) {
+        ensure(count);
+        System.arraycopy(source, offset, bytes, length, count);
+        length += count;
+    }
+
+    void write(byte[] source) {
+        write(source, 0, source.length);
+    }
+
+    // little-endian binary values
+    void putInt(int index, int value) {
+        bytes[index] = (byte) value;
+        bytes[index + 1] = (byte) (value >>> 8);
+        bytes[index + 2] = (byte) (value >>> 16);
+        bytes[index + 3] = (byte) (value >>> 24);
+    }
+
+    void putInt(int value) {
+        ensure(4);
+        putInt(length, value);
+        length += 4;
+    }
+
+    void putLong(long value) {
+        ensure(8);
+        putInt(length, (int) value);
+        putInt(length + 4, (int) (value >>> 32));
+        length += 8;
+    }
+
+    void writeAscii(String value) {
+        ensure(value.length());
+        for (var i = 0; i < value.length(); i++) {
+            bytes[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    void writeString(String value) {
+        write(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+
+        ensure(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        var end = length + digits(value);
+        var position = end;
+        do {
+            bytes[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        length = end;
+    }
+
+    private static int digits(long value) {
+        var digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    // ISO-8859-1 bytes, stopping at a null terminator.
+    void writeLatin1(byte[] source, int offset, int count) {
+        ensure(count * 2);
+        var end = offset + count;
+        for (var i = offset; i < end; i++) {
+            var b = source[i];
+            if (b == 0) {
+                break;
+            }
+            if (b > 0) {
+                bytes[length++] = b;
+            } else {
+                bytes[length++] = (byte) (0xc0 | ((b & 0xff) >>> 6));
+                bytes[length++] = (byte) (0x80 | (b & 0x3f));
+            }
+        }
+    }
+
+    // UTF-16LE bytes, stopping at a null terminator. Unpaired surrogates are written as '?'.
+    void writeUtf16(byte[] source, int offset, int byteCount) {
+        ensure(byteCount / 2 * 3);
+        var end = offset + (byteCount & ~1);
+        for (var i = offset; i < end; i += 2) {
+            var c = (char) ((source[i] & 0xff) | (source[i + 1] & 0xff) << 8);
+            if (c == 0) {
+                break;
+            }
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xc0 | (c >>> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 3 < end
+                    && Character.isLowSurrogate((char) ((source[i + 2] & 0xff) | (source[i + 3] & 0xff) << 8))) {
+                var low = (char) ((source[i + 2] & 0xff) | (source[i + 3] & 0xff) << 8);
+                var codePoint = Character.toCodePoint(c, low);
+                // a surrogate pair takes 4 bytes of input and 4 of output, within the 3 per char already reserved
+                bytes[length++] = (byte) (0xf0 | (codePoint >>> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3f));
+                bytes[length++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3f));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3f));
+                i += 2;
+            } else if (Character.isSurrogate(c)) {
+                bytes[length++] = '?';
+            } else {
+                bytes[length++] = (byte) (0xe0 | (c >>> 12));
+                bytes[length++] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+                bytes[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    // Base64 with padding, the same as Base64.getEncoder(), encoded straight from the source bytes.
+    void writeBase64(byte[] source, int offset, int count) {
+        ensure((count + 2) / 3 * 4);
+        var end = offset + count - count % 3;
+        for (var i = offset; i < end; i += 3) {
+            var bits = (source[i] & 0xff) << 16 | (source[i + 1] & 0xff) << 8 | (source[i + 2] & 0xff);
+            bytes[length++] = BASE64[bits >>> 18];
+            bytes[length++] = BASE64[(bits >>> 12) & 0x3f];
+            bytes[length++] = BASE64[(bits >>> 6) & 0x3f];
+            bytes[length++] = BASE64[bits & 0x3f];
+        }
+        if (count % 3 != 0) {
+            var two = count % 3 == 2;
+            var bits = (source[end] & 0xff) << 16 | (two ? (source[end + 1] & 0xff) << 8 : 0);
+            bytes[length++] = BASE64[bits >>> 18];
+            bytes[length++] = BASE64[(bits >>> 12) & 0x3f];
+            bytes[length++] = two ? BASE64[(bits >>> 6) & 0x3f] : (byte) '=';
+            bytes[length++] = '=';
+        }
+    }
+
+    void writeTo(OutputStream stream) throws IOException {
+        stream.write(bytes, 0, length);
+        length = 0;
+    }
+}
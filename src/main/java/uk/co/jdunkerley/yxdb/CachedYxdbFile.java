@@ -0,0 +1,138 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+
+/**
+ * CachedYxdbFile opens a .yxdb file once for many readers that share a cache of decompressed blocks.
+ * <p>
+ * Each reader is independent and is used from one thread at a time, but any number can be open at once on different
+ * threads. Before reading and decompressing an LZF block, a reader looks it up in the cache by its file offset, so a
+ * block is normally decompressed once however many readers pass over it. The cache is bounded by the total size of
+ * the decompressed blocks it holds, evicting the least recently used first, and can hold them outside the Java heap.
+ * stats() reports hits, misses and evictions.
+ * <p>
+ * Closing a reader leaves the file open; closing the CachedYxdbFile closes the file for every reader.
+ * Only classic YXDB files are supported, as AMP engine (e2) files are not LZF compressed.
+ */
+public final class CachedYxdbFile implements AutoCloseable {
+    private final YxdbFile file;
+    private final BlockCache cache;
+
+    private CachedYxdbFile(YxdbFile file, BlockCache cache) {
+        this.file = file;
+        this.cache = cache;
+    }
+
+    /**
+     * Opens a .yxdb file with a cache of decompressed blocks held on the Java heap.
+     *
+     * @param path       the path to a .yxdb file
+     * @param cacheBytes the most decompressed bytes to keep; LZF blocks decompress to at most 256 KB
+     * @return the file
+     * @throws IllegalArgumentException thrown when the file is not a valid classic YXDB file or cacheBytes is negative
+     * @throws IOException              thrown when there are issues reading the file
+     */
+    public static CachedYxdbFile open(String path, long cacheBytes) throws IOException, IllegalArgumentException {
+        return open(path, cacheBytes, false);
+    }
+
+    /**
+     * Opens a .yxdb file with a cache of decompressed blocks.
+     *
+     * @param path       the path to a .yxdb file
+     * @param cacheBytes the most decompressed bytes to keep; LZF blocks decompress to at most 256 KB
+     * @param offHeap    true to keep cached blocks in direct buffers outside the Java heap
+     * @return the file
+     * @throws IllegalArgumentException thrown when the file is not a valid classic YXDB file or cacheBytes is negative
+     * @throws IOException              thrown when there are issues reading the file
+     */
+    public static CachedYxdbFile open(String path, long cacheBytes, boolean offHeap) throws IOException, IllegalArgumentException {
+        if (cacheBytes < 0) {
+            throw new IllegalArgumentException("cacheBytes cannot be negative");
+        }
+        if (AmpFile.isAmp(path)) {
+            throw new IllegalArgumentException("Block caching is not supported for AMP YXDB files.");
+        }
+        return new CachedYxdbFile(YxdbFile.open(path), new BlockCache(cacheBytes, offHeap));
+    }
+
+    /**
+     * The total number of records in the .yxdb file.
+     * @return the total number of records in the .yxdb file.
+     */
+    public long numRecords() {
+        return file.numRecords;
+    }
+
+    /**
+     * An array of fields in the .yxdb file.
+     * @return an array of fields in the .yxdb file.
+     */
+    public YxdbField[] fields() {
+        return file.fields;
+    }
+
+    /**
+     * A snapshot of the cache's hits, misses, evictions and size.
+     * @return the cache statistics so far
+     */
+    public BlockCacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Returns a reader over every record of the file.
+     * @return a new reader
+     */
+    public YxdbReader reader() {
+        return reader(0, file.numRecords);
+    }
+
+    /**
+     * Returns a reader over a range of records.
+     * <p>
+     * The reader starts at the record block holding the first record, using the file's block index, and reads
+     * forward to it. Like other readers, numRecords() returns the number of records in the whole file.
+     *
+     * @param first the number of the first record to read, starting at 0
+     * @param count the most records to read; the reader stops early at the end of the file
+     * @return a new reader
+     * @throws IllegalArgumentException thrown when first or count is negative
+     */
+    public YxdbReader reader(long first, long count) throws IllegalArgumentException {
+        if (first < 0 || count < 0) {
+            throw new IllegalArgumentException("first and count cannot be negative");
+        }
+
+        var block = file.recordBlocks.length == 1 ? 0 : (int) Math.min(first / YxdbFile.RECORDS_PER_BLOCK, file.recordBlocks.length - 1);
+        var position = file.recordBlocks[block];
+        var end = Math.min(file.numRecords, first + Math.min(count, Long.MAX_VALUE - first));
+        var recordReader = new BufferedRecordReader(file.streamAt(position), file.record.fixedSize, file.record.hasVar, end, position);
+        recordReader.cache = cache;
+        recordReader.currentRecord = block * (long) YxdbFile.RECORDS_PER_BLOCK;
+
+        var skipped = new boolean[1];
+        RecordCursor cursor = () -> {
+            if (!skipped[0]) {
+                skipped[0] = true;
+                while (recordReader.currentRecord < first) {
+                    if (!recordReader.nextRecord()) {
+                        return false;
+                    }
+                }
+            }
+            return recordReader.nextRecord();
+        };
+        return new YxdbReader(() -> {}, file.fields, file.record, file.numRecords, recordReader, cursor);
+    }
+
+    /**
+     * Closes the file, ending every reader.
+     *
+     * @throws IOException thrown when the file fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,48 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Reads a FileChannel from a given position using positional reads, so many streams can share one channel.
+// Closing the stream leaves the channel open; the owner of the channel closes it.
+class ChannelInputStream extends InputStream {
+    private final FileChannel channel;
+    private long position;
+
+    ChannelInputStream(FileChannel channel, long position) {
+        this.channel = channel;
+        this.position = position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        var single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        var read = channel.read(ByteBuffer.wrap(b, off, len), position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        var skipped = Math.max(0, Math.min(n, channel.size() - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,107 @@
+package uk.co.jdunkerley.yxdb;
+
+/**
+ * The statistics YxdbProfiler gathered for one field, over the records it read. Minimums and maximums are values of
+ * the field's type, as YxdbReader.read returns them.
+ */
+public final class ColumnProfile {
+    private final YxdbField field;
+    private final long nulls;
+    private final long values;
+    private final long distinct;
+    private final Object min;
+    private final Object max;
+    private final int maxLength;
+    private final long[] lengthHistogram;
+
+    ColumnProfile(YxdbField field, long nulls, long values, long distinct, Object min, Object max, int maxLength, long[] lengthHistogram) {
+        this.field = field;
+        this.nulls = nulls;
+        this.values = values;
+        this.distinct = distinct;
+        this.min = min;
+        this.max = max;
+        this.maxLength = maxLength;
+        this.lengthHistogram = lengthHistogram;
+    }
+
+    /**
+     * The field the statistics are for.
+     * @return the field
+     */
+    public YxdbField field() {
+        return field;
+    }
+
+    /**
+     * The number of null values.
+     * @return the number of nulls
+     */
+    public long nulls() {
+        return nulls;
+    }
+
+    /**
+     * The number of values that are not null.
+     * @return the number of values
+     */
+    public long values() {
+        return values;
+    }
+
+    /**
+     * An estimate of the number of distinct values that are not null, from a HyperLogLog sketch with a standard error
+     * of about 1.6%. Values that are equal but stored differently, such as 1.50 and 1.5, count once.
+     * @return the estimated number of distinct values
+     */
+    public long distinct() {
+        return distinct;
+    }
+
+    /**
+     * The smallest value, with strings compared as String.compareTo does and NaN ignored.
+     * @return the smallest value, or null when there are no values or the field is a blob
+     */
+    public Object min() {
+        return min;
+    }
+
+    /**
+     * The largest value, with strings compared as String.compareTo does and NaN ignored.
+     * @return the largest value, or null when there are no values or the field is a blob
+     */
+    public Object max() {
+        return max;
+    }
+
+    /**
+     * The length of the longest string (in characters) or blob (in bytes).
+     * @return the longest length, or -1 when the field is not a string or blob or has no values
+     */
+    public int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * The number of strings or blobs of each length, in power of two buckets: bucket 0 counts empty values and bucket
+     * n counts lengths from 2^(n-1) to 2^n - 1, so bucket 1 is length 1, bucket 2 lengths 2 and 3, bucket 3 lengths 4
+     * to 7 and so on.
+     * @return a copy of the 32 bucket counts, or null when the field is not a string or blob
+     */
+    public long[] lengthHistogram() {
+        return lengthHistogram == null ? null : lengthHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        var text = new StringBuilder(field.name()).append(" (").append(field.yxdbType()).append("): ")
+                .append(values).append(" values, ").append(nulls).append(" nulls, ~").append(distinct).append(" distinct");
+        if (min != null) {
+            text.append(", min ").append(min).append(", max ").append(max);
+        }
+        if (maxLength >= 0) {
+            text.append(", max length ").append(maxLength);
+        }
+        return text.toString();
+    }
+}
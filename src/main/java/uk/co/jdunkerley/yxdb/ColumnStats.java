@@ -0,0 +1,216 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// The statistics of one field over some records, gathered straight from the record buffer without creating values.
+// Each value is read through JoinKey, whose bytes are the same for equal values whatever the storage type, and whose
+// hash feeds the distinct count. The minimum and maximum are kept as:
+//   Bool, Byte (signed), Int16, Int32, Int64: longs
+//   Float, Double: doubles, ignoring NaN
+//   FixedDecimal: doubles for comparing, with the text of the current minimum and maximum
+//   Date, Time, DateTime: the ISO text, which sorts in date order
+//   strings: UTF-16 code units, compared as Java compares strings
+// Strings and blobs also count their lengths (in characters or bytes) into power of two buckets. Blobs have no
+// minimum or maximum. Each instance must only be used by one thread.
+final class ColumnStats {
+    static final int LENGTH_BUCKETS = 32;
+
+    private final YxdbField field;
+    private final JoinKey key;
+    private final HyperLogLog distinct = new HyperLogLog();
+    private final long[] lengths;
+
+    private long nulls;
+    private long values;
+    private long minLong = Long.MAX_VALUE;
+    private long maxLong = Long.MIN_VALUE;
+    private double minDouble = Double.POSITIVE_INFINITY;
+    private double maxDouble = Double.NEGATIVE_INFINITY;
+    private byte[] minBytes;
+    private byte[] maxBytes;
+    private int maxLength = -1;
+
+    // field must be from the layout of the record buffer the values are read from
+    ColumnStats(YxdbRecord record, YxdbField field) {
+        this.field = field;
+        this.key = new JoinKey(record, field);
+        var type = field.dataType();
+        this.lengths = type == DataType.STRING || type == DataType.BLOB ? new long[LENGTH_BUCKETS] : null;
+    }
+
+    void add(ByteBuffer buffer) {
+        if (!key.read(buffer)) {
+            nulls++;
+            return;
+        }
+
+        values++;
+        distinct.add(key.hash);
+        switch (field.dataType()) {
+            case BOOLEAN, BYTE, LONG -> {
+                // bytes compare as YxdbReader.readByte returns them, signed
+                var value = field.dataType() == DataType.LONG ? longAt(key.bytes) : key.bytes[0];
+                minLong = Math.min(minLong, value);
+                maxLong = Math.max(maxLong, value);
+            }
+            case DOUBLE -> {
+                var value = Double.longBitsToDouble(longAt(key.bytes));
+                if (!Double.isNaN(value)) {
+                    minDouble = Math.min(minDouble, value);
+                    maxDouble = Math.max(maxDouble, value);
+                }
+            }
+            case DECIMAL -> {
+                var value = parseDecimal(key.bytes, key.length);
+                if (minBytes == null || value < minDouble) {
+                    minDouble = value;
+                    minBytes = Arrays.copyOf(key.bytes, key.length);
+                }
+                if (maxBytes == null || value > maxDouble) {
+                    maxDouble = value;
+                    maxBytes = Arrays.copyOf(key.bytes, key.length);
+                }
+            }
+            case DATE, TIME, DATETIME -> {
+                if (minBytes == null || Arrays.compareUnsigned(key.bytes, 0, key.length, minBytes, 0, minBytes.length) < 0) {
+                    minBytes = Arrays.copyOf(key.bytes, key.length);
+                }
+                if (maxBytes == null || Arrays.compareUnsigned(key.bytes, 0, key.length, maxBytes, 0, maxBytes.length) > 0) {
+                    maxBytes = Arrays.copyOf(key.bytes, key.length);
+                }
+            }
+            case STRING -> {
+                count(key.length / 2);
+                if (minBytes == null || compareUtf16(key.bytes, key.length, minBytes, minBytes.length) < 0) {
+                    minBytes = Arrays.copyOf(key.bytes, key.length);
+                }
+                if (maxBytes == null || compareUtf16(key.bytes, key.length, maxBytes, maxBytes.length) > 0) {
+                    maxBytes = Arrays.copyOf(key.bytes, key.length);
+                }
+            }
+            case BLOB -> count(key.length);
+        }
+    }
+
+    private void count(int length) {
+        lengths[length == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(length)]++;
+        maxLength = Math.max(maxLength, length);
+    }
+
+    void merge(ColumnStats other) {
+        nulls += other.nulls;
+        values += other.values;
+        distinct.merge(other.distinct);
+        if (lengths != null) {
+            for (var i = 0; i < LENGTH_BUCKETS; i++) {
+                lengths[i] += other.lengths[i];
+            }
+            maxLength = Math.max(maxLength, other.maxLength);
+        }
+
+        minLong = Math.min(minLong, other.minLong);
+        maxLong = Math.max(maxLong, other.maxLong);
+        switch (field.dataType()) {
+            case DECIMAL -> {
+                if (other.minBytes != null && (minBytes == null || other.minDouble < minDouble)) {
+                    minDouble = other.minDouble;
+                    minBytes = other.minBytes;
+                }
+                if (other.maxBytes != null && (maxBytes == null || other.maxDouble > maxDouble)) {
+                    maxDouble = other.maxDouble;
+                    maxBytes = other.maxBytes;
+                }
+            }
+            case DATE, TIME, DATETIME, STRING -> {
+                if (other.minBytes != null && (minBytes == null || compare(other.minBytes, minBytes) < 0)) {
+                    minBytes = other.minBytes;
+                }
+                if (other.maxBytes != null && (maxBytes == null || compare(other.maxBytes, maxBytes) > 0)) {
+                    maxBytes = other.maxBytes;
+                }
+            }
+            default -> {
+                minDouble = Math.min(minDouble, other.minDouble);
+                maxDouble = Math.max(maxDouble, other.maxDouble);
+            }
+        }
+    }
+
+    private int compare(byte[] a, byte[] b) {
+        return field.dataType() == DataType.STRING ? compareUtf16(a, a.length, b, b.length) : Arrays.compareUnsigned(a, b);
+    }
+
+    // The statistics, reported against the field as the file describes it.
+    ColumnProfile profile(YxdbField publicField) {
+        var histogram = lengths == null ? null : lengths.clone();
+        return new ColumnProfile(publicField, nulls, values, distinct.estimate(), value(true), value(false), maxLength, histogram);
+    }
+
+    // The minimum or maximum as YxdbReader.read returns values of the field's type, or null when there is none.
+    private Object value(boolean minimum) {
+        var type = field.dataType();
+        // doubles can all be NaN, leaving the minimum above the maximum
+        if (values == 0 || type == DataType.BLOB || (type == DataType.DOUBLE && minDouble > maxDouble)) {
+            return null;
+        }
+
+        var longValue = minimum ? minLong : maxLong;
+        var bytes = minimum ? minBytes : maxBytes;
+        return switch (type) {
+            case BOOLEAN -> longValue != 0;
+            case BYTE -> (byte) longValue;
+            case LONG -> longValue;
+            case DOUBLE -> minimum ? minDouble : maxDouble;
+            case DECIMAL -> new BigDecimal(new String(bytes, StandardCharsets.US_ASCII));
+            case DATE -> Extractors.extractDate(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length + 1)), 0);
+            case TIME -> Extractors.extractTime(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length + 1)), 0);
+            case DATETIME -> Extractors.extractDateTime(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length + 1)), 0);
+            case STRING -> new String(bytes, StandardCharsets.UTF_16LE);
+            case BLOB -> null;
+        };
+    }
+
+    private static long longAt(byte[] bytes) {
+        var value = 0L;
+        for (var i = 7; i >= 0; i--) {
+            value = value << 8 | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+
+    // The value of decimal text such as -12.50, close enough to order values.
+    private static double parseDecimal(byte[] bytes, int length) {
+        var negative = length > 0 && bytes[0] == '-';
+        var value = 0.0;
+        var scale = 1.0;
+        var fraction = false;
+        for (var i = negative ? 1 : 0; i < length; i++) {
+            var b = bytes[i];
+            if (b == '.') {
+                fraction = true;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (fraction) {
+                    scale *= 10;
+                }
+            }
+        }
+        return (negative ? -value : value) / scale;
+    }
+
+    // Compares UTF-16LE code units, as String.compareTo compares chars.
+    private static int compareUtf16(byte[] a, int aLength, byte[] b, int bLength) {
+        var units = Math.min(aLength, bLength) / 2;
+        for (var i = 0; i < units; i++) {
+            var x = (a[2 * i] & 0xff) | (a[2 * i + 1] & 0xff) << 8;
+            var y = (b[2 * i] & 0xff) | (b[2 * i + 1] & 0xff) << 8;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return aLength - bLength;
+    }
+}
@@ -0,0 +1,351 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * CsvExporter writes the records of a .yxdb file as CSV or TSV text in UTF-8.
+ * <p>
+ * Values are formatted straight from the record bytes without creating a Java object per value: numbers are written
+ * digit by digit, and FixedDecimal, Date, Time and DateTime fields, which are stored as ASCII text, are copied as they are.
+ * Values are written as the read methods of YxdbReader return them, except that Float fields use the shortest
+ * float representation, Blob fields are Base64 encoded and SpatialObj fields are written as Well-Known Text.
+ * <p>
+ * A value containing the delimiter, the quote character or a line break is quoted, with quote characters doubled.
+ * When nulls are written as an empty value (the default), empty strings are written as a quoted empty value so the two can be told apart.
+ * <p>
+ * Large files are formatted on several threads, one block of records per task, and written in their original order.
+ */
+public final class CsvExporter {
+    private static final int BLOCK_OUTPUT_SIZE = 1 << 20;
+
+    private byte delimiter;
+    private byte quote = '"';
+    private String nullValue = "";
+    private String lineSeparator = "\n";
+    private boolean header = true;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private CsvExporter(char delimiter) {
+        this.delimiter = (byte) delimiter;
+    }
+
+    /**
+     * An exporter for comma separated values.
+     *
+     * @return a new exporter with the default settings
+     */
+    public static CsvExporter csv() {
+        return new CsvExporter(',');
+    }
+
+    /**
+     * An exporter for tab separated values.
+     *
+     * @return a new exporter with the default settings
+     */
+    public static CsvExporter tsv() {
+        return new CsvExporter('\t');
+    }
+
+    /**
+     * Sets the character written between values.
+     *
+     * @param delimiter an ASCII character other than the quote character or a line break
+     * @return this exporter
+     * @throws IllegalArgumentException thrown when the delimiter is not allowed
+     */
+    public CsvExporter delimiter(char delimiter) throws IllegalArgumentException {
+        checkSeparator(delimiter, quote);
+        this.delimiter = (byte) delimiter;
+        return this;
+    }
+
+    /**
+     * Sets the character used to quote values. The default is a double quote.
+     *
+     * @param quote an ASCII character other than the delimiter or a line break
+     * @return this exporter
+     * @throws IllegalArgumentException thrown when the quote character is not allowed
+     */
+    public CsvExporter quote(char quote) throws IllegalArgumentException {
+        checkSeparator(quote, delimiter);
+        this.quote = (byte) quote;
+        return this;
+    }
+
+    /**
+     * Sets the text written for null values. The default is an empty value.
+     *
+     * @param nullValue the text for null values
+     * @return this exporter
+     */
+    public CsvExporter nullValue(String nullValue) {
+        this.nullValue = nullValue;
+        return this;
+    }
+
+    /**
+     * Sets the text written at the end of each line. The default is "\n".
+     *
+     * @param lineSeparator the line separator, such as "\n" or "\r\n"
+     * @return this exporter
+     */
+    public CsvExporter lineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+        return this;
+    }
+
+    /**
+     * Sets whether the first line holds the field names. The default is true.
+     *
+     * @param header true to write a header line
+     * @return this exporter
+     */
+    public CsvExporter header(boolean header) {
+        this.header = header;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads formatting blocks of records. The default is the number of available processors;
+     * 1 formats everything on the calling thread.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this exporter
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public CsvExporter threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Exports a .yxdb file to a CSV file, replacing the file if it exists.
+     *
+     * @param path       the path to a .yxdb file
+     * @param outputPath the path of the file to write
+     * @return the number of records written
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file
+     * @throws IOException              thrown when there are issues reading the file or writing the output
+     */
+    public long export(String path, String outputPath) throws IOException, IllegalArgumentException {
+        try (var output = new BufferedOutputStream(Files.newOutputStream(Path.of(outputPath)), BLOCK_OUTPUT_SIZE)) {
+            return export(path, output);
+        }
+    }
+
+    /**
+     * Exports a .yxdb file to a stream. The stream is flushed but not closed.
+     *
+     * @param path   the path to a .yxdb file
+     * @param output the stream to write to
+     * @return the number of records written
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file
+     * @throws IOException              thrown when there are issues reading the file or writing the output
+     */
+    public long export(String path, OutputStream output) throws IOException, IllegalArgumentException {
+        try (var source = BlockSource.open(path)) {
+            var formatter = new Formatter(source.record(), delimiter, quote, nullValue, lineSeparator);
+            if (header) {
+                var line = new ByteSink(256);
+                formatter.writeHeader(source.fields(), line);
+                line.writeTo(output);
+            }
+
+            var records = new long[1];
+            ParallelBlocks.run(source, threads, (block, reader) -> {
+                var sink = new ByteSink(BLOCK_OUTPUT_SIZE);
+                var count = 0L;
+                while (reader.nextRecord()) {
+                    formatter.writeRecord(reader.recordBuffer, sink);
+                    count++;
+                }
+                return new Chunk(sink, count);
+            }, chunk -> {
+                chunk.sink.writeTo(output);
+                records[0] += chunk.records;
+            });
+            output.flush();
+            return records[0];
+        }
+    }
+
+    private static void checkSeparator(char value, byte other) throws IllegalArgumentException {
+        if (value == 0 || value > 0x7f || value == '\r' || value == '\n' || value == other) {
+            throw new IllegalArgumentException("'" + value + "' cannot be used as a delimiter or quote character.");
+        }
+    }
+
+    private record Chunk(ByteSink sink, long records) {
+    }
+
+    // Formats records from the record buffer. Holds no per-record state, so one formatter serves every thread.
+    private static final class Formatter {
+        private final YxdbField[] fields;
+        private final byte delimiter;
+        private final byte quote;
+        private final byte[] nullValue;
+        private final byte[] lineSeparator;
+        private final boolean quoteEmpty;
+
+        Formatter(YxdbRecord record, byte delimiter, byte quote, String nullValue, String lineSeparator) {
+            this.fields = record.fields;
+            this.delimiter = delimiter;
+            this.quote = quote;
+            this.nullValue = nullValue.getBytes(StandardCharsets.UTF_8);
+            this.lineSeparator = lineSeparator.getBytes(StandardCharsets.UTF_8);
+            this.quoteEmpty = nullValue.isEmpty();
+        }
+
+        void writeHeader(YxdbField[] declared, ByteSink sink) {
+            for (var i = 0; i < declared.length; i++) {
+                if (i > 0) {
+                    sink.write(delimiter);
+                }
+                var start = sink.length;
+                sink.writeString(declared[i].name());
+                quoteFrom(start, sink);
+            }
+            sink.write(lineSeparator);
+        }
+
+        void writeRecord(ByteBuffer buffer, ByteSink sink) {
+            for (var i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    sink.write(delimiter);
+                }
+                var start = sink.length;
+                if (!writeValue(fields[i], buffer, sink)) {
+                    sink.write(nullValue);
+                } else if (quoteEmpty && sink.length == start) {
+                    sink.write(quote);
+                    sink.write(quote);
+                } else {
+                    quoteFrom(start, sink);
+                }
+            }
+            sink.write(lineSeparator);
+        }
+
+        // Writes the value, or returns false for null.
+        private static boolean writeValue(YxdbField field, ByteBuffer buffer, ByteSink sink) {
+            var start = field.startPosition();
+            var bytes = buffer.array();
+            switch (field.yxdbType()) {
+                case YxdbType.BOOLEAN -> {
+                    var value = buffer.get(start);
+                    if (value == 2) {
+                        return false;
+                    }
+                    sink.writeAscii(value == 1 ? "true" : "false");
+                }
+                case YxdbType.BYTE -> {
+                    if (buffer.get(start + 1) == 1) {
+                        return false;
+                    }
+                    sink.writeLong(buffer.get(start));
+                }
+                case YxdbType.INT16 -> {
+                    if (buffer.get(start + 2) == 1) {
+                        return false;
+                    }
+                    sink.writeLong(buffer.getShort(start));
+                }
+                case YxdbType.INT32 -> {
+                    if (buffer.get(start + 4) == 1) {
+                        return false;
+                    }
+                    sink.writeLong(buffer.getInt(start));
+                }
+                case YxdbType.INT64 -> {
+                    if (buffer.get(start + 8) == 1) {
+                        return false;
+                    }
+                    sink.writeLong(buffer.getLong(start));
+                }
+                case YxdbType.FLOAT -> {
+                    if (buffer.get(start + 4) == 1) {
+                        return false;
+                    }
+                    sink.writeAscii(Float.toString(buffer.getFloat(start)));
+                }
+                case YxdbType.DOUBLE -> {
+                    if (buffer.get(start + 8) == 1) {
+                        return false;
+                    }
+                    sink.writeAscii(Double.toString(buffer.getDouble(start)));
+                }
+                case YxdbType.DECIMAL, YxdbType.STRING, YxdbType.DATE, YxdbType.TIME, YxdbType.DATETIME -> {
+                    if (buffer.get(start + field.size()) == 1) {
+                        return false;
+                    }
+                    sink.writeLatin1(bytes, start, field.size());
+                }
+                case YxdbType.WSTRING -> {
+                    if (buffer.get(start + field.size() * 2) == 1) {
+                        return false;
+                    }
+                    sink.writeUtf16(bytes, start, field.size() * 2);
+                }
+                case YxdbType.V_STRING, YxdbType.V_WSTRING, YxdbType.BLOB, YxdbType.SPATIAL_OBJ -> {
+                    var location = Extractors.locateBlob(buffer, start);
+                    if (location == -1) {
+                        return false;
+                    }
+                    var blobStart = Extractors.blobStart(location);
+                    var blobLength = Extractors.blobLength(location);
+                    switch (field.yxdbType()) {
+                        case YxdbType.V_STRING -> sink.writeLatin1(bytes, blobStart, blobLength);
+                        case YxdbType.V_WSTRING -> sink.writeUtf16(bytes, blobStart, blobLength);
+                        case YxdbType.BLOB -> sink.writeBase64(bytes, blobStart, blobLength);
+                        default -> Spatial.writeWkt(bytes, blobStart, blobLength, sink);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown field YXDB type: " + field.yxdbType());
+            }
+            return true;
+        }
+
+        // Quotes the text written since start if it holds the delimiter, the quote character or a line break.
+        // UTF-8 continuation bytes are never ASCII, so a byte scan is enough.
+        private void quoteFrom(int start, ByteSink sink) {
+            var quotes = 0;
+            var needsQuotes = false;
+            for (var i = start; i < sink.length; i++) {
+                var b = sink.bytes[i];
+                if (b == quote) {
+                    quotes++;
+                } else if (b == delimiter || b == '\n' || b == '\r') {
+                    needsQuotes = true;
+                }
+            }
+            if (!needsQuotes && quotes == 0) {
+                return;
+            }
+
+            sink.ensure(quotes + 2);
+            var bytes = sink.bytes;
+            var source = sink.length;
+            var target = sink.length + quotes + 2;
+            sink.length = target;
+            bytes[--target] = quote;
+            while (source > start) {
+                var b = bytes[--source];
+                bytes[--target] = b;
+                if (b == quote) {
+                    bytes[--target] = quote;
+                }
+            }
+            bytes[--target] = quote;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Decodes every block of every shard of a dataset on a pool of threads and hands the batches out one at a time,
+// either in shard and block order or in the order they finish. No more than two batches per thread are in flight.
+// Closing the scan stops new blocks from starting; blocks already being read are left to finish, because interrupting
+// a read would close the shared file channel of the shard.
+final class DatasetScan implements Closeable {
+    private final BlockSource[] sources;
+    private final int[] shards;
+    private final int[] blocks;
+    private final boolean ordered;
+    private final int maxPending;
+    private final ExecutorService pool;
+    private final ExecutorCompletionService<RecordBatch> completion;
+    private final ArrayDeque<Future<RecordBatch>> pending = new ArrayDeque<>();
+    private int next;
+    private boolean closed;
+
+    DatasetScan(BlockSource[] sources, int threads, boolean ordered) {
+        this.sources = sources;
+        this.ordered = ordered;
+
+        var total = 0;
+        for (var source : sources) {
+            total += source.blockCount();
+        }
+        shards = new int[total];
+        blocks = new int[total];
+        var task = 0;
+        for (var shard = 0; shard < sources.length; shard++) {
+            for (var block = 0; block < sources[shard].blockCount(); block++) {
+                shards[task] = shard;
+                blocks[task++] = block;
+            }
+        }
+
+        maxPending = threads * 2;
+        if (threads <= 1 || total <= 1) {
+            pool = null;
+            completion = null;
+        } else {
+            pool = Executors.newFixedThreadPool(Math.min(threads, total), runnable -> {
+                var thread = new Thread(runnable, "yxdb-dataset-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            completion = ordered ? null : new ExecutorCompletionService<>(pool);
+        }
+    }
+
+    // The next batch, or null once every block has been read.
+    RecordBatch next() throws IOException {
+        if (closed) {
+            return null;
+        }
+        if (pool == null) {
+            if (next == shards.length) {
+                close();
+                return null;
+            }
+            var task = next++;
+            return RecordBatch.read(sources[shards[task]], shards[task], blocks[task]);
+        }
+
+        while (next < shards.length && pending.size() < maxPending) {
+            var task = next++;
+            var source = sources[shards[task]];
+            var shard = shards[task];
+            var block = blocks[task];
+            pending.add(ordered
+                    ? pool.submit(() -> RecordBatch.read(source, shard, block))
+                    : completion.submit(() -> RecordBatch.read(source, shard, block)));
+        }
+        if (pending.isEmpty()) {
+            close();
+            return null;
+        }
+
+        try {
+            Future<RecordBatch> done;
+            if (ordered) {
+                done = pending.remove();
+            } else {
+                done = completion.take();
+                pending.remove(done);
+            }
+            return ParallelBlocks.await(done);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a block to be read.");
+        } catch (IOException | RuntimeException | Error ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pool != null) {
+            for (var future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+            pool.shutdown();
+        }
+    }
+}
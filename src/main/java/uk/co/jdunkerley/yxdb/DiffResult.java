@@ -0,0 +1,62 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The differences YxdbDiff found between two files, by key. Keys are values of the key field, as YxdbReader.read
+ * returns them, with null standing for the records whose key is null.
+ */
+public final class DiffResult {
+    private final List<Object> added;
+    private final List<Object> removed;
+    private final List<Object> changed;
+    private final long unchanged;
+
+    DiffResult(List<Object> added, List<Object> removed, List<Object> changed, long unchanged) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * The keys only in the after file, in the order they first appear in it.
+     * @return a list of keys
+     */
+    public List<Object> added() {
+        return added;
+    }
+
+    /**
+     * The keys only in the before file, in the order they first appear in it.
+     * @return a list of keys
+     */
+    public List<Object> removed() {
+        return removed;
+    }
+
+    /**
+     * The keys in both files whose records differ, in the order they first appear in the after file.
+     * @return a list of keys
+     */
+    public List<Object> changed() {
+        return changed;
+    }
+
+    /**
+     * The number of keys in both files whose records are the same.
+     * @return the number of keys
+     */
+    public long unchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Whether the files hold the same records for every key.
+     * @return true when no keys were added, removed or changed
+     */
+    public boolean identical() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+}
@@ -0,0 +1,449 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Sorts the records of a file with a memory budget. Blocks are decoded in parallel and gathered into runs of about
+// memory / (threads + 1) bytes. Each run has its keys encoded, is sorted (stably) and, unless it is the only run, is
+// spilled to a temporary file, on a pool of threads while the next run is gathered. Runs are then merged, at most
+// FAN_IN at a time, into a single sorted stream. Closing the sort deletes its temporary files.
+final class ExternalSort implements Closeable {
+    static final int FAN_IN = 64;
+
+    // bytes of bookkeeping per record besides its key: its batch, start and length, and two sort arrays
+    private static final int RECORD_OVERHEAD = 20;
+
+    private final YxdbRecord record;
+    private final SortKey key;
+    private final long numRecords;
+    private final List<Path> runFiles;
+    private final Run memoryRun;
+    private final List<Closeable> cursors = new ArrayList<>();
+
+    private ExternalSort(YxdbRecord record, SortKey key, long numRecords, List<Path> runFiles, Run memoryRun) {
+        this.record = record;
+        this.key = key;
+        this.numRecords = numRecords;
+        this.runFiles = runFiles;
+        this.memoryRun = memoryRun;
+    }
+
+    static ExternalSort sort(BlockSource source, SortKey key, long memory, int threads, Path tempDirectory) throws IOException {
+        var runBytes = Math.max(1 << 20, memory / (threads + 1));
+        var runFiles = new ArrayList<Path>();
+        var pool = threads <= 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "yxdb-sort-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var spilling = new ArrayDeque<Future<Path>>();
+        var current = new Run[]{new Run(key)};
+        var total = new long[1];
+        try {
+            ParallelBlocks.run(source, threads, (block, reader) -> RecordBatch.read(reader, 0, block), batch -> {
+                current[0].add(batch);
+                total[0] += batch.count();
+                if (current[0].bytes < runBytes) {
+                    return;
+                }
+                var full = current[0];
+                current[0] = new Run(key);
+                if (pool == null) {
+                    runFiles.add(full.sortAndSpill(tempDirectory));
+                    return;
+                }
+                if (spilling.size() >= threads) {
+                    runFiles.add(ParallelBlocks.await(spilling.remove()));
+                }
+                spilling.add(pool.submit(() -> full.sortAndSpill(tempDirectory)));
+            });
+
+            var last = current[0];
+            if (runFiles.isEmpty() && spilling.isEmpty()) {
+                last.sort();
+                return new ExternalSort(source.record(), key, total[0], runFiles, last);
+            }
+            while (!spilling.isEmpty()) {
+                runFiles.add(ParallelBlocks.await(spilling.remove()));
+            }
+            if (last.count > 0) {
+                runFiles.add(last.sortAndSpill(tempDirectory));
+            }
+            while (runFiles.size() > FAN_IN) {
+                var group = new ArrayList<>(runFiles.subList(0, FAN_IN));
+                runFiles.subList(0, FAN_IN).clear();
+                runFiles.add(mergeRuns(key, group, tempDirectory));
+            }
+            return new ExternalSort(source.record(), key, total[0], runFiles, null);
+        } catch (IOException | RuntimeException | Error ex) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            for (var pending : spilling) {
+                try {
+                    runFiles.add(ParallelBlocks.await(pending));
+                } catch (IOException | RuntimeException ignored) {
+                }
+            }
+            deleteAll(runFiles);
+            throw ex;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    long numRecords() {
+        return numRecords;
+    }
+
+    // The sorted records, in the layout of the record buffer. Each call starts a new pass over them.
+    RecordReader newReader() throws IOException {
+        var merge = open();
+        return new RecordReader(numRecords) {
+            private Cursor current;
+
+            {
+                recordBuffer = ByteBuffer.allocate(record.fixedSize + (record.hasVar ? 4 + 1000 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            @Override
+            boolean readRecord() throws IOException {
+                current = merge.next(current);
+                if (current == null) {
+                    return false;
+                }
+                if (current.length > recordBuffer.capacity()) {
+                    recordBuffer = ByteBuffer.allocate(current.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+                    recordBufferResized(recordBuffer.capacity());
+                }
+                System.arraycopy(current.record, 0, recordBuffer.array(), 0, current.length);
+                recordBufferIndex = current.length;
+                currentRecord++;
+                return true;
+            }
+        };
+    }
+
+    // Calls the consumer with the bytes of each record in order, for writing the records out as they are.
+    void forEach(RecordConsumer consumer) throws IOException {
+        var merge = open();
+        for (var current = merge.next(null); current != null; current = merge.next(current)) {
+            consumer.accept(current.record, current.length);
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(byte[] record, int length) throws IOException;
+    }
+
+    private Merge open() throws IOException {
+        var runs = new ArrayList<Cursor>();
+        if (memoryRun != null) {
+            runs.add(memoryRun.cursor(0));
+        } else {
+            for (var i = 0; i < runFiles.size(); i++) {
+                var cursor = new FileCursor(i, runFiles.get(i), key.length);
+                cursors.add(cursor);
+                runs.add(cursor);
+            }
+        }
+        return new Merge(key, runs);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var cursor : cursors) {
+            cursor.close();
+        }
+        cursors.clear();
+        deleteAll(runFiles);
+    }
+
+    private static void deleteAll(List<Path> files) {
+        for (var file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static Path mergeRuns(SortKey key, List<Path> files, Path tempDirectory) throws IOException {
+        var runs = new ArrayList<Cursor>();
+        try {
+            for (var i = 0; i < files.size(); i++) {
+                runs.add(new FileCursor(i, files.get(i), key.length));
+            }
+            var merge = new Merge(key, runs);
+            var output = Files.createTempFile(tempDirectory, "yxdb-sort-", ".run");
+            try (var stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), 1 << 16))) {
+                for (var current = merge.next(null); current != null; current = merge.next(current)) {
+                    stream.write(current.key);
+                    stream.writeInt(current.length);
+                    stream.write(current.record, 0, current.length);
+                }
+            } catch (IOException | RuntimeException ex) {
+                Files.deleteIfExists(output);
+                throw ex;
+            }
+            return output;
+        } finally {
+            for (var run : runs) {
+                run.close();
+            }
+            deleteAll(files);
+        }
+    }
+
+    // The records of one run, held as the decoded batches they arrived in.
+    private static final class Run {
+        private final SortKey key;
+        private final ArrayList<RecordBatch> batches = new ArrayList<>();
+        long bytes;
+        int count;
+        private int[] batchOf;
+        private int[] starts;
+        private int[] lengths;
+        private byte[] keys;
+        private int[] order;
+
+        Run(SortKey key) {
+            this.key = key;
+        }
+
+        void add(RecordBatch batch) {
+            batches.add(batch);
+            count += batch.count();
+            bytes += batch.start(batch.count()) + (long) batch.count() * (key.length + RECORD_OVERHEAD);
+        }
+
+        void sort() {
+            batchOf = new int[count];
+            starts = new int[count];
+            lengths = new int[count];
+            keys = new byte[count * key.length];
+            var buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+            var i = 0;
+            for (var b = 0; b < batches.size(); b++) {
+                var batch = batches.get(b);
+                for (var r = 0; r < batch.count(); r++, i++) {
+                    batchOf[i] = b;
+                    starts[i] = batch.start(r);
+                    lengths[i] = batch.ends()[r] - starts[i];
+                    if (buffer.capacity() < lengths[i]) {
+                        buffer = ByteBuffer.allocate(lengths[i] * 2).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                    System.arraycopy(batch.bytes(), starts[i], buffer.array(), 0, lengths[i]);
+                    key.encode(buffer, keys, i * key.length);
+                }
+            }
+
+            order = new int[count];
+            for (i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            var ties = key.new Ties();
+            mergeSort(order, new int[count], 0, count, (x, y) -> compare(ties, x, y));
+        }
+
+        private int compare(SortKey.Ties ties, int x, int y) {
+            var length = key.length;
+            var compare = Arrays.compareUnsigned(keys, x * length, x * length + length, keys, y * length, y * length + length);
+            if (compare != 0) {
+                return compare;
+            }
+            return ties.compare(batches.get(batchOf[x]).bytes(), starts[x], lengths[x], batches.get(batchOf[y]).bytes(), starts[y], lengths[y]);
+        }
+
+        Path sortAndSpill(Path tempDirectory) throws IOException {
+            sort();
+            var output = Files.createTempFile(tempDirectory, "yxdb-sort-", ".run");
+            try (var stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), 1 << 16))) {
+                for (var i : order) {
+                    stream.write(keys, i * key.length, key.length);
+                    stream.writeInt(lengths[i]);
+                    stream.write(batches.get(batchOf[i]).bytes(), starts[i], lengths[i]);
+                }
+            } catch (IOException | RuntimeException ex) {
+                Files.deleteIfExists(output);
+                throw ex;
+            }
+            return output;
+        }
+
+        Cursor cursor(int run) {
+            return new Cursor(run, key.length) {
+                private int next;
+
+                @Override
+                boolean advance() {
+                    if (next == count) {
+                        return false;
+                    }
+                    var i = order[next++];
+                    System.arraycopy(keys, i * key.length, this.key, 0, key.length);
+                    setRecord(batches.get(batchOf[i]).bytes(), starts[i], lengths[i]);
+                    return true;
+                }
+            };
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntComparator {
+        int compare(int x, int y);
+    }
+
+    // A stable merge sort of a[from, to), using tmp as scratch space.
+    private static void mergeSort(int[] a, int[] tmp, int from, int to, IntComparator comparator) {
+        if (to - from <= 16) {
+            for (var i = from + 1; i < to; i++) {
+                var value = a[i];
+                var j = i;
+                while (j > from && comparator.compare(a[j - 1], value) > 0) {
+                    a[j] = a[j - 1];
+                    j--;
+                }
+                a[j] = value;
+            }
+            return;
+        }
+
+        var middle = (from + to) >>> 1;
+        mergeSort(a, tmp, from, middle, comparator);
+        mergeSort(a, tmp, middle, to, comparator);
+        if (comparator.compare(a[middle - 1], a[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(a, from, tmp, from, to - from);
+        var left = from;
+        var right = middle;
+        for (var i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(tmp[left], tmp[right]) <= 0)) {
+                a[i] = tmp[left++];
+            } else {
+                a[i] = tmp[right++];
+            }
+        }
+    }
+
+    // The current record of a sorted run: its key and bytes.
+    private abstract static class Cursor implements Closeable {
+        final int run;
+        final byte[] key;
+        byte[] record = new byte[1024];
+        int length;
+
+        Cursor(int run, int keyLength) {
+            this.run = run;
+            this.key = new byte[keyLength];
+        }
+
+        // Moves to the next record, returning false at the end of the run.
+        abstract boolean advance() throws IOException;
+
+        void setRecord(byte[] bytes, int offset, int length) {
+            if (record.length < length) {
+                record = new byte[Math.max(length, record.length * 2)];
+            }
+            System.arraycopy(bytes, offset, record, 0, length);
+            this.length = length;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class FileCursor extends Cursor {
+        private final DataInputStream stream;
+
+        FileCursor(int run, Path path, int keyLength) throws IOException {
+            super(run, keyLength);
+            this.stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            var read = stream.readNBytes(key, 0, key.length);
+            if (read == 0) {
+                return false;
+            }
+            if (read < key.length) {
+                throw new IOException("A sort run file is truncated.");
+            }
+            var length = stream.readInt();
+            if (record.length < length) {
+                record = new byte[Math.max(length, record.length * 2)];
+            }
+            stream.readFully(record, 0, length);
+            this.length = length;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+    // A k-way merge of sorted runs. Equal records are taken from the earlier run first, keeping the sort stable.
+    private static final class Merge {
+        private final PriorityQueue<Cursor> queue;
+        private final List<Cursor> runs;
+        private boolean started;
+
+        Merge(SortKey key, List<Cursor> runs) {
+            var ties = key.new Ties();
+            this.runs = runs;
+            this.queue = new PriorityQueue<>(Math.max(1, runs.size()), (x, y) -> {
+                var compare = Arrays.compareUnsigned(x.key, y.key);
+                if (compare == 0) {
+                    compare = ties.compare(x.record, 0, x.length, y.record, 0, y.length);
+                }
+                return compare != 0 ? compare : Integer.compare(x.run, y.run);
+            });
+        }
+
+        // The cursor holding the next record, after advancing the one that held the previous record.
+        Cursor next(Cursor previous) throws IOException {
+            if (!started) {
+                started = true;
+                for (var run : runs) {
+                    if (run.advance()) {
+                        queue.add(run);
+                    } else {
+                        run.close();
+                    }
+                }
+            } else if (previous != null) {
+                if (previous.advance()) {
+                    queue.add(previous);
+                } else {
+                    previous.close();
+                }
+            }
+            return queue.poll();
+        }
+    }
+}
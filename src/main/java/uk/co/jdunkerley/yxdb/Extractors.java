@@ -98,14 +98,25 @@ class Extractors {
     }
 
     static byte[] extractBlob(ByteBuffer buffer, int start) {
+        var location = locateBlob(buffer, start);
+        if (location == -1) {
+            return null;
+        }
+
+        var blobStart = blobStart(location);
+        return Arrays.copyOfRange(buffer.array(), blobStart, blobStart + blobLength(location));
+    }
+
+    // Finds the blob within the buffer without copying it, packed as (start << 32 | length). Null blobs return -1.
+    static long locateBlob(ByteBuffer buffer, int start) {
         var fixedPortion = buffer.getInt(start);
 
         if (fixedPortion == 0) {
-            return new byte[0];
+            return packBlob(start, 0);
         }
 
         if (fixedPortion == 1) {
-            return null;
+            return -1;
         }
 
         if (isTiny(fixedPortion)) {
@@ -119,7 +130,19 @@ class Extractors {
                 : getNormalBlob(buffer, blockStart);
     }
 
-    private static boolean isTiny(int fixedPortion) {
+    static int blobStart(long location) {
+        return (int) (location >>> 32);
+    }
+
+    static int blobLength(long location) {
+        return (int) location;
+    }
+
+    private static long packBlob(int blobStart, int blobLength) {
+        return ((long) blobStart << 32) | (blobLength & 0xffffffffL);
+    }
+
+    static boolean isTiny(int fixedPortion) {
         var bitCheck1 = fixedPortion & 0x80000000;
         var bitCheck2 = fixedPortion & 0x30000000;
         return bitCheck1 == 0 && bitCheck2 != 0;
@@ -129,26 +152,23 @@ class Extractors {
         return (value & 1) == 1;
     }
 
-    private static byte[] getNormalBlob(ByteBuffer buffer, int blockStart) {
+    private static long getNormalBlob(ByteBuffer buffer, int blockStart) {
         var blobLen = buffer.getInt(blockStart) / 2; // why divided by 2? not sure
         var blobStart = blockStart + 4;
-        var blobEnd = blobStart + blobLen;
-        return Arrays.copyOfRange(buffer.array(), blobStart, blobEnd);
+        return packBlob(blobStart, blobLen);
     }
 
-    private static byte[] getSmallBlob(ByteBuffer buffer, int blockStart) {
+    private static long getSmallBlob(ByteBuffer buffer, int blockStart) {
         var blockFirstByte = buffer.get(blockStart);
         var blobLen = unsign(blockFirstByte) >> 1;
         var blobStart = blockStart + 1;
-        var blobEnd = blobStart + blobLen;
-        return Arrays.copyOfRange(buffer.array(), blobStart, blobEnd);
+        return packBlob(blobStart, blobLen);
     }
 
-    private static byte[] getTinyBlob(int start, ByteBuffer buffer) {
+    private static long getTinyBlob(int start, ByteBuffer buffer) {
         var intVal = buffer.getInt(start);
         var length = intVal >> 28;
-        var end = start + length;
-        return Arrays.copyOfRange(buffer.array(), start, end);
+        return packBlob(start, length);
     }
 
     private static int unsign(byte value) {
@@ -0,0 +1,454 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// An inner equi-join of two sources. The build side is decoded in parallel into a JoinTable, keyed by JoinKey bytes
+// read from the record buffer, then the probe side is streamed past it and each match is assembled by JoinLayout.
+//
+// When the table outgrows the memory budget, the join becomes a grace hash join: the table and the rest of the build
+// side are split by the top bits of the key hash into PARTITIONS temporary files, the probe side is split the same
+// way, and each pair of partitions is then joined in memory. A partition still too large is split again on the next
+// bits, up to MAX_LEVEL times, after which it is joined in memory regardless (a single key can't be split).
+//
+// Records with null keys never match and are dropped as they are read.
+final class HashJoin implements Closeable {
+    static final int PARTITIONS = 32;
+    private static final int PARTITION_BITS = 5;
+    private static final int MAX_LEVEL = 3;
+
+    // the table's arrays are indexed by int, so hold well under 2 GB
+    private static final long MAX_TABLE_BYTES = 1L << 30;
+
+    private final BlockSource build;
+    private final BlockSource probe;
+    private final YxdbField buildField;
+    private final YxdbField probeField;
+    private final boolean buildIsLeft;
+    private final JoinLayout layout;
+    private final long memory;
+    private final int threads;
+    private final Path tempDirectory;
+
+    private final List<Path> files = new ArrayList<>();
+    private final ArrayDeque<Pair> pending = new ArrayDeque<>();
+    private JoinTable table;
+    private Cursor cursor;
+
+    private HashJoin(BlockSource build, YxdbField buildField, BlockSource probe, YxdbField probeField, boolean buildIsLeft, JoinLayout layout, long memory, int threads, Path tempDirectory) {
+        this.build = build;
+        this.probe = probe;
+        this.buildField = buildField;
+        this.probeField = probeField;
+        this.buildIsLeft = buildIsLeft;
+        this.layout = layout;
+        this.memory = Math.min(memory, MAX_TABLE_BYTES);
+        this.threads = threads;
+        this.tempDirectory = tempDirectory;
+    }
+
+    // Reads the build side, the smaller of the two by number of records, ready for the probe side to be streamed.
+    static HashJoin open(BlockSource left, YxdbField leftField, BlockSource right, YxdbField rightField, JoinLayout layout, long memory, int threads, Path tempDirectory) throws IOException {
+        var buildIsLeft = left.numRecords() < right.numRecords();
+        var join = buildIsLeft
+                ? new HashJoin(left, leftField, right, rightField, true, layout, memory, threads, tempDirectory)
+                : new HashJoin(right, rightField, left, leftField, false, layout, memory, threads, tempDirectory);
+        try {
+            join.readBuild();
+        } catch (IOException | RuntimeException ex) {
+            join.close();
+            throw ex;
+        }
+        return join;
+    }
+
+    private void readBuild() throws IOException {
+        var record = build.record();
+        table = new JoinTable();
+        var partitions = new Partitions[1];
+        ParallelBlocks.run(build, threads, (block, reader) -> Keyed.read(reader, new JoinKey(record, buildField)), keyed -> {
+            if (partitions[0] == null) {
+                for (var i = 0; i < keyed.count; i++) {
+                    table.add(keyed.keys.bytes, keyed.keyStart(i), keyed.keyLength(i), keyed.hashes[i], keyed.records.bytes, keyed.recordStart(i), keyed.recordLength(i));
+                }
+                if (table.memoryBytes() <= memory) {
+                    return;
+                }
+                partitions[0] = new Partitions(0);
+                table.forEach(partitions[0]::write);
+                table = null;
+                return;
+            }
+            for (var i = 0; i < keyed.count; i++) {
+                partitions[0].write(keyed.keys.bytes, keyed.keyStart(i), keyed.keyLength(i), keyed.hashes[i], keyed.records.bytes, keyed.recordStart(i), keyed.recordLength(i));
+            }
+        });
+
+        if (partitions[0] == null) {
+            cursor = new BlockCursor(probe, probeField, threads);
+            return;
+        }
+
+        partitions[0].close();
+        var probeRecord = probe.record();
+        var probePartitions = new Partitions(0);
+        try (probePartitions) {
+            ParallelBlocks.run(probe, threads, (block, reader) -> Keyed.read(reader, new JoinKey(probeRecord, probeField)), keyed -> {
+                for (var i = 0; i < keyed.count; i++) {
+                    probePartitions.write(keyed.keys.bytes, keyed.keyStart(i), keyed.keyLength(i), keyed.hashes[i], keyed.records.bytes, keyed.recordStart(i), keyed.recordLength(i));
+                }
+            });
+        }
+        queue(partitions[0], probePartitions);
+    }
+
+    private void queue(Partitions buildPartitions, Partitions probePartitions) throws IOException {
+        for (var p = PARTITIONS - 1; p >= 0; p--) {
+            if (buildPartitions.counts[p] == 0 || probePartitions.counts[p] == 0) {
+                delete(buildPartitions.paths[p]);
+                delete(probePartitions.paths[p]);
+                continue;
+            }
+            pending.push(new Pair(buildPartitions.paths[p], probePartitions.paths[p], buildPartitions.level));
+        }
+    }
+
+    // Moves to the next pair of partitions, returning false when there are none left.
+    private boolean nextPartition() throws IOException {
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+        table = null;
+
+        while (!pending.isEmpty()) {
+            var pair = pending.pop();
+            if (Files.size(pair.build) > memory && pair.level + 1 < MAX_LEVEL) {
+                var buildPartitions = split(pair.build, pair.level + 1);
+                var probePartitions = split(pair.probe, pair.level + 1);
+                queue(buildPartitions, probePartitions);
+                continue;
+            }
+
+            table = new JoinTable();
+            try (var buildCursor = new FileCursor(pair.build)) {
+                while (buildCursor.next()) {
+                    table.add(buildCursor.key, 0, buildCursor.keyLength, buildCursor.hash, buildCursor.record, 0, buildCursor.recordLength);
+                }
+            }
+            delete(pair.build);
+            cursor = new FileCursor(pair.probe);
+            return true;
+        }
+        return false;
+    }
+
+    private Partitions split(Path path, int level) throws IOException {
+        var partitions = new Partitions(level);
+        try (partitions; var input = new FileCursor(path)) {
+            while (input.next()) {
+                partitions.write(input.key, 0, input.keyLength, input.hash, input.record, 0, input.recordLength);
+            }
+        }
+        delete(path);
+        return partitions;
+    }
+
+    // The joined records: in probe order, each with its matches in build order, unless the join was partitioned.
+    RecordReader newReader() {
+        return new RecordReader(-1) {
+            private int match = -1;
+
+            {
+                recordBuffer = ByteBuffer.allocate(layout.record.fixedSize + (layout.record.hasVar ? 4 + 1000 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            @Override
+            boolean readRecord() throws IOException {
+                while (true) {
+                    if (match >= 0) {
+                        emit(match);
+                        match = table.next(match);
+                        currentRecord++;
+                        return true;
+                    }
+                    if (cursor != null && cursor.next()) {
+                        match = table.find(cursor.key, cursor.keyOffset, cursor.keyLength, cursor.hash);
+                        continue;
+                    }
+                    if (!nextPartition()) {
+                        return false;
+                    }
+                }
+            }
+
+            private void emit(int entry) {
+                var capacity = recordBuffer.capacity();
+                recordBuffer = buildIsLeft
+                        ? layout.compose(table.records(), table.recordStart(entry), table.recordLength(entry), cursor.record, cursor.recordOffset, cursor.recordLength, recordBuffer)
+                        : layout.compose(cursor.record, cursor.recordOffset, cursor.recordLength, table.records(), table.recordStart(entry), table.recordLength(entry), recordBuffer);
+                if (recordBuffer.capacity() != capacity) {
+                    recordBufferResized(recordBuffer.capacity());
+                }
+                recordBufferIndex = layout.record.fixedSize + (layout.record.hasVar ? 4 + recordBuffer.getInt(layout.record.fixedSize) : 0);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+        table = null;
+        pending.clear();
+        for (var file : files) {
+            delete(file);
+        }
+        files.clear();
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private record Pair(Path build, Path probe, int level) {
+    }
+
+    // The records of one block whose keys are not null, with their keys, laid out back to back.
+    private static final class Keyed {
+        final ByteSink records = new ByteSink(1 << 16);
+        final ByteSink keys = new ByteSink(1 << 12);
+        int[] recordEnds = new int[1024];
+        int[] keyEnds = new int[1024];
+        long[] hashes = new long[1024];
+        int count;
+
+        static Keyed read(RecordReader reader, JoinKey key) throws IOException {
+            var keyed = new Keyed();
+            while (reader.nextRecord()) {
+                if (!key.read(reader.recordBuffer)) {
+                    continue;
+                }
+                if (keyed.count == keyed.hashes.length) {
+                    var capacity = keyed.count * 2;
+                    keyed.recordEnds = Arrays.copyOf(keyed.recordEnds, capacity);
+                    keyed.keyEnds = Arrays.copyOf(keyed.keyEnds, capacity);
+                    keyed.hashes = Arrays.copyOf(keyed.hashes, capacity);
+                }
+                keyed.records.write(reader.recordBuffer.array(), 0, reader.recordBufferIndex);
+                keyed.keys.write(key.bytes, 0, key.length);
+                keyed.recordEnds[keyed.count] = keyed.records.length;
+                keyed.keyEnds[keyed.count] = keyed.keys.length;
+                keyed.hashes[keyed.count++] = key.hash;
+            }
+            return keyed;
+        }
+
+        int recordStart(int i) {
+            return i == 0 ? 0 : recordEnds[i - 1];
+        }
+
+        int recordLength(int i) {
+            return recordEnds[i] - recordStart(i);
+        }
+
+        int keyStart(int i) {
+            return i == 0 ? 0 : keyEnds[i - 1];
+        }
+
+        int keyLength(int i) {
+            return keyEnds[i] - keyStart(i);
+        }
+    }
+
+    // One side of the join split into PARTITIONS files of (hash, key length, key, record length, record).
+    private final class Partitions implements Closeable {
+        final int level;
+        final Path[] paths = new Path[PARTITIONS];
+        final long[] counts = new long[PARTITIONS];
+        private final DataOutputStream[] streams = new DataOutputStream[PARTITIONS];
+
+        Partitions(int level) throws IOException {
+            this.level = level;
+            try {
+                for (var p = 0; p < PARTITIONS; p++) {
+                    paths[p] = Files.createTempFile(tempDirectory, "yxdb-join-", ".part");
+                    files.add(paths[p]);
+                    streams[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(paths[p]), 1 << 16));
+                }
+            } catch (IOException | RuntimeException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        void write(byte[] key, int keyOffset, int keyLength, long hash, byte[] record, int recordOffset, int recordLength) throws IOException {
+            var p = (int) (hash >>> (64 - PARTITION_BITS * (level + 1))) & (PARTITIONS - 1);
+            var stream = streams[p];
+            stream.writeLong(hash);
+            stream.writeInt(keyLength);
+            stream.write(key, keyOffset, keyLength);
+            stream.writeInt(recordLength);
+            stream.write(record, recordOffset, recordLength);
+            counts[p]++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (var stream : streams) {
+                if (stream == null) {
+                    continue;
+                }
+                try {
+                    stream.close();
+                } catch (IOException ex) {
+                    error = ex;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    // A stream of records with their keys.
+    private abstract static class Cursor implements Closeable {
+        byte[] record;
+        int recordOffset;
+        int recordLength;
+        byte[] key;
+        int keyOffset;
+        int keyLength;
+        long hash;
+
+        abstract boolean next() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    // The records of a source, decoded and keyed in parallel a few blocks ahead of the one being read.
+    private static final class BlockCursor extends Cursor {
+        private final BlockSource source;
+        private final YxdbField field;
+        private final int threads;
+        private final ExecutorService pool;
+        private final ArrayDeque<Future<Keyed>> decoding = new ArrayDeque<>();
+        private int nextBlock;
+        private Keyed current;
+        private int index;
+
+        BlockCursor(BlockSource source, YxdbField field, int threads) {
+            this.source = source;
+            this.field = field;
+            this.threads = threads;
+            this.pool = threads <= 1 || source.blockCount() <= 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+                var thread = new Thread(runnable, "yxdb-join-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        boolean next() throws IOException {
+            while (current == null || index == current.count) {
+                current = nextBlock();
+                index = 0;
+                if (current == null) {
+                    return false;
+                }
+            }
+            record = current.records.bytes;
+            recordOffset = current.recordStart(index);
+            recordLength = current.recordLength(index);
+            key = current.keys.bytes;
+            keyOffset = current.keyStart(index);
+            keyLength = current.keyLength(index);
+            hash = current.hashes[index++];
+            return true;
+        }
+
+        private Keyed nextBlock() throws IOException {
+            var blocks = source.blockCount();
+            if (pool == null) {
+                return nextBlock < blocks ? decode(nextBlock++) : null;
+            }
+            while (nextBlock < blocks && decoding.size() < threads * 2) {
+                var block = nextBlock++;
+                decoding.add(pool.submit(() -> decode(block)));
+            }
+            return decoding.isEmpty() ? null : ParallelBlocks.await(decoding.remove());
+        }
+
+        private Keyed decode(int block) throws IOException {
+            return Keyed.read(source.newBlockReader(block), new JoinKey(source.record(), field));
+        }
+
+        @Override
+        public void close() {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static final class FileCursor extends Cursor {
+        private final DataInputStream stream;
+
+        FileCursor(Path path) throws IOException {
+            this.stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+            this.key = new byte[64];
+            this.record = new byte[1024];
+        }
+
+        @Override
+        boolean next() throws IOException {
+            var first = stream.read();
+            if (first < 0) {
+                return false;
+            }
+            hash = first;
+            for (var i = 0; i < 7; i++) {
+                hash = hash << 8 | stream.readUnsignedByte();
+            }
+            keyLength = stream.readInt();
+            if (key.length < keyLength) {
+                key = new byte[Math.max(keyLength, key.length * 2)];
+            }
+            stream.readFully(key, 0, keyLength);
+            recordLength = stream.readInt();
+            if (record.length < recordLength) {
+                record = new byte[Math.max(recordLength, record.length * 2)];
+            }
+            stream.readFully(record, 0, recordLength);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+}
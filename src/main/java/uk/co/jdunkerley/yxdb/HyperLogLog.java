@@ -0,0 +1,47 @@
+package uk.co.jdunkerley.yxdb;
+
+// A HyperLogLog sketch of the number of distinct 64-bit hashes added to it, in 2^12 one-byte registers, giving a
+// standard error of about 1.6%. Sketches of parts of a file merge into a sketch of the whole. Hashes must be well
+// mixed in all their bits, as JoinKey.hash is.
+final class HyperLogLog {
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    void add(long hash) {
+        var register = (int) (hash >>> (64 - PRECISION));
+        // the position of the first set bit after the register bits, with a stop bit so it is at most 64 - PRECISION + 1
+        var rank = (byte) (Long.numberOfLeadingZeros(hash << PRECISION | 1L << (PRECISION - 1)) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    void merge(HyperLogLog other) {
+        for (var i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    long estimate() {
+        var sum = 0.0;
+        var zeros = 0;
+        for (var register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        var alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        var estimate = alpha * REGISTERS * REGISTERS / sum;
+        // small counts are better estimated from the number of empty registers (linear counting)
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
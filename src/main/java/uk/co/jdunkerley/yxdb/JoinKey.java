@@ -0,0 +1,171 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Encodes the join field of a record as bytes that are equal exactly when the values are, read straight from the
+// record buffer without creating the value:
+//   Bool: the stored byte
+//   Byte, Int16, Int32, Int64: the value as a little-endian Int64, so any two can be joined
+//   Float, Double: the bits of the value as a double, with -0.0 taken as 0.0
+//   FixedDecimal: the stored text without trailing zeros after the point, so scales need not match
+//   Date, Time, DateTime: the stored ISO text
+//   strings: UTF-16LE code units, so narrow and wide strings can be joined
+//   Blob, SpatialObj: the stored bytes (these can't be joined on, but RowHash encodes every field this way)
+// Each instance holds the key it last read, so it must only be used by one thread.
+final class JoinKey {
+    private final YxdbRecord record;
+    private final YxdbField field;
+    byte[] bytes = new byte[64];
+    int length;
+    long hash;
+
+    JoinKey(YxdbRecord record, YxdbField field) {
+        this.record = record;
+        this.field = field;
+    }
+
+    // Checks that the fields hold values that can be equal.
+    static void checkJoinable(YxdbField left, YxdbField right) throws IllegalArgumentException {
+        for (var field : new YxdbField[]{left, right}) {
+            if (field.dataType() == DataType.BLOB) {
+                throw new IllegalArgumentException("Cannot join on the " + field.yxdbType() + " field " + field.name() + ".");
+            }
+        }
+        if (keyType(left) != keyType(right)) {
+            throw new IllegalArgumentException("Cannot join the " + left.yxdbType() + " field " + left.name() + " to the " + right.yxdbType() + " field " + right.name() + ".");
+        }
+    }
+
+    private static DataType keyType(YxdbField field) {
+        var type = field.dataType();
+        return type == DataType.BYTE ? DataType.LONG : type;
+    }
+
+    // Reads the key of the record in buffer and its hash, returning false when it is null.
+    boolean read(ByteBuffer buffer) {
+        if (!encode(buffer)) {
+            return false;
+        }
+        hash = hash(bytes, 0, length);
+        return true;
+    }
+
+    // Reads the key of the record in buffer without hashing it, returning false when it is null.
+    boolean encode(ByteBuffer buffer) {
+        if (record.isNullFrom(field.index(), buffer)) {
+            return false;
+        }
+
+        length = 0;
+        var start = field.startPosition();
+        switch (field.yxdbType()) {
+            case YxdbType.BOOLEAN -> put(buffer.get(start));
+            case YxdbType.BYTE -> putLong(buffer.get(start) & 0xff);
+            case YxdbType.INT16 -> putLong(buffer.getShort(start));
+            case YxdbType.INT32 -> putLong(buffer.getInt(start));
+            case YxdbType.INT64 -> putLong(buffer.getLong(start));
+            case YxdbType.FLOAT, YxdbType.DOUBLE -> {
+                double value = field.yxdbType().equals(YxdbType.FLOAT) ? buffer.getFloat(start) : buffer.getDouble(start);
+                putLong(Double.doubleToLongBits(value == 0 ? 0.0 : value));
+            }
+            case YxdbType.DECIMAL -> {
+                var end = start;
+                while (end < start + field.size() && buffer.get(end) != 0) {
+                    end++;
+                }
+                if (indexOf(buffer, start, end, (byte) '.') >= 0) {
+                    while (buffer.get(end - 1) == '0') {
+                        end--;
+                    }
+                    if (buffer.get(end - 1) == '.') {
+                        end--;
+                    }
+                }
+                put(buffer.array(), start, end - start);
+            }
+            case YxdbType.DATE, YxdbType.TIME, YxdbType.DATETIME -> put(buffer.array(), start, field.size());
+            case YxdbType.STRING -> {
+                var end = start;
+                while (end < start + field.size() && buffer.get(end) != 0) {
+                    end++;
+                }
+                putLatin1(buffer.array(), start, end - start);
+            }
+            case YxdbType.WSTRING -> {
+                var end = start;
+                while (end < start + field.size() * 2 && (buffer.get(end) != 0 || buffer.get(end + 1) != 0)) {
+                    end += 2;
+                }
+                put(buffer.array(), start, end - start);
+            }
+            default -> {
+                var location = Extractors.locateBlob(buffer, start);
+                var blobStart = Extractors.blobStart(location);
+                var blobLength = Extractors.blobLength(location);
+                switch (field.yxdbType()) {
+                    case YxdbType.V_STRING -> putLatin1(buffer.array(), blobStart, blobLength);
+                    case YxdbType.V_WSTRING -> put(buffer.array(), blobStart, blobLength & ~1);
+                    default -> put(buffer.array(), blobStart, blobLength);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int start, int end, byte value) {
+        for (var i = start; i < end; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    private void put(byte value) {
+        ensure(1);
+        bytes[length++] = value;
+    }
+
+    private void put(byte[] source, int offset, int count) {
+        ensure(count);
+        System.arraycopy(source, offset, bytes, length, count);
+        length += count;
+    }
+
+    private void putLatin1(byte[] source, int offset, int count) {
+        ensure(count * 2);
+        for (var i = offset; i < offset + count; i++) {
+            bytes[length++] = source[i];
+            bytes[length++] = 0;
+        }
+    }
+
+    private void putLong(long value) {
+        ensure(8);
+        for (var i = 0; i < 8; i++) {
+            bytes[length++] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    // FNV-1a over the bytes, finished with the MurmurHash3 mix so that both the low bits (table slots) and the high
+    // bits (partitions) are well spread.
+    static long hash(byte[] bytes, int offset, int length) {
+        var hash = 0xcbf29ce484222325L;
+        for (var i = offset; i < offset + length; i++) {
+            hash = (hash ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+}
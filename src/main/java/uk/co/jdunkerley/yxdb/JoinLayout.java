@@ -0,0 +1,99 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashSet;
+
+// The layout of a joined record: the fixed fields of the left record then those of the right, followed (when either
+// has variable length fields) by the combined length and the variable data of the left then the right. Joined records
+// are assembled from the raw bytes of the two records, moving the offsets of variable length fields by the data
+// inserted before their values. Right fields whose names are taken by left fields are renamed Right_name.
+final class JoinLayout {
+    final YxdbField[] fields;
+    final YxdbRecord record;
+    private final YxdbRecord left;
+    private final YxdbRecord right;
+    private final int[] leftVar;
+    private final int[] rightVar;
+
+    // leftFields and rightFields are the declared fields, left and right the layouts of the record buffers
+    JoinLayout(YxdbField[] leftFields, YxdbRecord left, YxdbField[] rightFields, YxdbRecord right) {
+        this.left = left;
+        this.right = right;
+        this.leftVar = varPositions(left, 0);
+        this.rightVar = varPositions(right, left.fixedSize);
+
+        var count = left.fields.length + right.fields.length;
+        this.fields = new YxdbField[count];
+        var layout = new YxdbField[count];
+        var names = new HashSet<String>();
+        for (var i = 0; i < left.fields.length; i++) {
+            fields[i] = leftFields[i];
+            layout[i] = left.fields[i];
+            names.add(leftFields[i].name());
+        }
+        for (var i = 0; i < right.fields.length; i++) {
+            var name = rightFields[i].name();
+            while (!names.add(name)) {
+                name = "Right_" + name;
+            }
+            var index = left.fields.length + i;
+            fields[index] = moved(rightFields[i], index, left.fixedSize + right.fields[i].startPosition(), name);
+            layout[index] = moved(right.fields[i], index, left.fixedSize + right.fields[i].startPosition(), name);
+        }
+        this.record = new YxdbRecord(layout);
+    }
+
+    private static YxdbField moved(YxdbField field, int index, int startPosition, String name) {
+        return new YxdbField(index, startPosition, name, field.yxdbType(), field.size(), field.scale(), field.source(), field.description());
+    }
+
+    private static int[] varPositions(YxdbRecord record, int shift) {
+        var positions = new int[record.fields.length];
+        var count = 0;
+        for (var field : record.fields) {
+            if (field.isVariableLength()) {
+                positions[count++] = shift + field.startPosition();
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    // Assembles the joined record into out, growing it when needed, and returns the buffer holding the record.
+    ByteBuffer compose(byte[] leftBytes, int leftOffset, int leftLength, byte[] rightBytes, int rightOffset, int rightLength, ByteBuffer out) {
+        var leftVarLength = left.hasVar ? leftLength - left.fixedSize - 4 : 0;
+        var rightVarLength = right.hasVar ? rightLength - right.fixedSize - 4 : 0;
+        var length = left.fixedSize + right.fixedSize + (record.hasVar ? 4 + leftVarLength + rightVarLength : 0);
+        if (out.capacity() < length) {
+            out = ByteBuffer.allocate(length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        var bytes = out.array();
+        System.arraycopy(leftBytes, leftOffset, bytes, 0, left.fixedSize);
+        System.arraycopy(rightBytes, rightOffset, bytes, left.fixedSize, right.fixedSize);
+        if (record.hasVar) {
+            var at = left.fixedSize + right.fixedSize;
+            out.putInt(at, leftVarLength + rightVarLength);
+            System.arraycopy(leftBytes, leftOffset + left.fixedSize + 4, bytes, at + 4, leftVarLength);
+            System.arraycopy(rightBytes, rightOffset + right.fixedSize + 4, bytes, at + 4 + leftVarLength, rightVarLength);
+            shift(out, leftVar, right.fixedSize);
+            shift(out, rightVar, leftVarLength);
+        }
+        return out;
+    }
+
+    // Moves the offsets of the variable length values stored in the variable data.
+    private static void shift(ByteBuffer out, int[] positions, int by) {
+        if (by == 0) {
+            return;
+        }
+        for (var position : positions) {
+            var fixedPortion = out.getInt(position);
+            if (fixedPortion == 0 || fixedPortion == 1 || Extractors.isTiny(fixedPortion)) {
+                continue;
+            }
+            out.putInt(position, (fixedPortion & 0x80000000) | ((fixedPortion & 0x7fffffff) + by));
+        }
+    }
+}
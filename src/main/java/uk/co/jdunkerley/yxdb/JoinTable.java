@@ -0,0 +1,144 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// The build side of a hash join: an open addressing table over records held as raw bytes back to back in one array
+// and their keys in another, so millions of records are a handful of primitive arrays rather than millions of objects.
+// Each distinct key has one slot; the records sharing it are chained in the order they were added.
+final class JoinTable {
+    // bookkeeping per record: hash, key end, record end, next and tail
+    private static final int ENTRY_BYTES = 24;
+
+    private final ByteSink keys = new ByteSink(1 << 16);
+    private final ByteSink records = new ByteSink(1 << 16);
+
+    // index of the first entry of each key plus one, 0 when the slot is empty
+    private int[] slots = new int[1024];
+    private int distinct;
+
+    private int count;
+    private long[] hashes = new long[1024];
+    private int[] keyEnds = new int[1024];
+    private int[] recordEnds = new int[1024];
+    private int[] next = new int[1024];
+    private int[] tails = new int[1024];
+
+    long memoryBytes() {
+        return (long) keys.bytes.length + records.bytes.length + (long) hashes.length * ENTRY_BYTES + slots.length * 4L;
+    }
+
+    byte[] records() {
+        return records.bytes;
+    }
+
+    int recordStart(int entry) {
+        return entry == 0 ? 0 : recordEnds[entry - 1];
+    }
+
+    int recordLength(int entry) {
+        return recordEnds[entry] - recordStart(entry);
+    }
+
+    private int keyStart(int entry) {
+        return entry == 0 ? 0 : keyEnds[entry - 1];
+    }
+
+    void add(byte[] key, int keyOffset, int keyLength, long hash, byte[] record, int recordOffset, int recordLength) {
+        if (count == hashes.length) {
+            var capacity = count * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keyEnds = Arrays.copyOf(keyEnds, capacity);
+            recordEnds = Arrays.copyOf(recordEnds, capacity);
+            next = Arrays.copyOf(next, capacity);
+            tails = Arrays.copyOf(tails, capacity);
+        }
+
+        var entry = count++;
+        records.write(record, recordOffset, recordLength);
+        recordEnds[entry] = records.length;
+        next[entry] = -1;
+
+        var slot = slotOf(key, keyOffset, keyLength, hash);
+        if (slots[slot] != 0) {
+            // another record with this key: only the first stores the key
+            var head = slots[slot] - 1;
+            next[tails[head]] = entry;
+            tails[head] = entry;
+            hashes[entry] = hash;
+            keyEnds[entry] = keys.length;
+            return;
+        }
+
+        keys.write(key, keyOffset, keyLength);
+        hashes[entry] = hash;
+        keyEnds[entry] = keys.length;
+        tails[entry] = entry;
+        slots[slot] = entry + 1;
+        if (++distinct * 2 > slots.length) {
+            resize();
+        }
+    }
+
+    // The first record with the key, or -1 when there is none.
+    int find(byte[] key, int keyOffset, int keyLength, long hash) {
+        var head = slots[slotOf(key, keyOffset, keyLength, hash)];
+        return head - 1;
+    }
+
+    // The next record with the same key, or -1 after the last.
+    int next(int entry) {
+        return next[entry];
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(byte[] key, int keyOffset, int keyLength, long hash, byte[] record, int recordOffset, int recordLength) throws IOException;
+    }
+
+    // Calls the consumer with every record and its key, key by key, for spilling the table to disk.
+    void forEach(EntryConsumer consumer) throws IOException {
+        for (var slot : slots) {
+            if (slot == 0) {
+                continue;
+            }
+            var head = slot - 1;
+            var keyStart = keyStart(head);
+            for (var entry = head; entry >= 0; entry = next[entry]) {
+                consumer.accept(keys.bytes, keyStart, keyEnds[head] - keyStart, hashes[head], records.bytes, recordStart(entry), recordLength(entry));
+            }
+        }
+    }
+
+    // The slot holding the key, or the empty slot it would go in.
+    private int slotOf(byte[] key, int keyOffset, int keyLength, long hash) {
+        var mask = slots.length - 1;
+        var slot = (int) hash & mask;
+        while (true) {
+            var head = slots[slot] - 1;
+            if (head < 0) {
+                return slot;
+            }
+            if (hashes[head] == hash && Arrays.equals(keys.bytes, keyStart(head), keyEnds[head], key, keyOffset, keyOffset + keyLength)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        var old = slots;
+        slots = new int[old.length * 2];
+        var mask = slots.length - 1;
+        for (var head : old) {
+            if (head == 0) {
+                continue;
+            }
+            var slot = (int) hashes[head - 1] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = head;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * JsonExporter writes the records of a .yxdb file as newline delimited JSON (NDJSON): one JSON object per line in UTF-8,
+ * keyed by field name in field order.
+ * <p>
+ * Values are serialized straight from the record bytes into the output, with field names escaped once up front, so no
+ * maps or boxed values are created per record. Values are written as follows:
+ * <ul>
+ * <li>Bool: true or false</li>
+ * <li>Byte, Int16, Int32, Int64 and FixedDecimal: JSON numbers, written exactly</li>
+ * <li>Float and Double: JSON numbers in their shortest representation; NaN and infinities are written as null</li>
+ * <li>String, WString, V_String and V_WString: JSON strings</li>
+ * <li>Date, Time and DateTime: ISO 8601 strings (yyyy-MM-dd, HH:mm:ss and yyyy-MM-ddTHH:mm:ss)</li>
+ * <li>Blob: Base64 encoded strings</li>
+ * <li>SpatialObj: GeoJSON objects, as returned by {@link Spatial#toGeoJson(byte[])}</li>
+ * </ul>
+ * <p>
+ * Large files are serialized on several threads, one block of records per task, and written in their original order.
+ */
+public final class JsonExporter {
+    private static final int BLOCK_OUTPUT_SIZE = 1 << 20;
+
+    private boolean includeNulls = true;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Sets whether null values are written as a null member or left out of the object. The default is true.
+     *
+     * @param includeNulls true to write null members
+     * @return this exporter
+     */
+    public JsonExporter includeNulls(boolean includeNulls) {
+        this.includeNulls = includeNulls;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads serializing blocks of records. The default is the number of available processors;
+     * 1 serializes everything on the calling thread.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this exporter
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public JsonExporter threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Exports a .yxdb file to an NDJSON file, replacing the file if it exists.
+     *
+     * @param path       the path to a .yxdb file
+     * @param outputPath the path of the file to write
+     * @return the number of records written
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file
+     * @throws IOException              thrown when there are issues reading the file or writing the output
+     */
+    public long export(String path, String outputPath) throws IOException, IllegalArgumentException {
+        try (var output = new BufferedOutputStream(Files.newOutputStream(Path.of(outputPath)), BLOCK_OUTPUT_SIZE)) {
+            return export(path, output);
+        }
+    }
+
+    /**
+     * Exports a .yxdb file to a stream as NDJSON. The stream is flushed but not closed.
+     *
+     * @param path   the path to a .yxdb file
+     * @param output the stream to write to
+     * @return the number of records written
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file
+     * @throws IOException              thrown when there are issues reading the file or writing the output
+     */
+    public long export(String path, OutputStream output) throws IOException, IllegalArgumentException {
+        try (var source = BlockSource.open(path)) {
+            var formatter = new Formatter(source.fields(), source.record(), includeNulls);
+            var records = new long[1];
+            ParallelBlocks.run(source, threads, (block, reader) -> {
+                var sink = new ByteSink(BLOCK_OUTPUT_SIZE);
+                var count = 0L;
+                while (reader.nextRecord()) {
+                    formatter.writeRecord(reader.recordBuffer, sink);
+                    count++;
+                }
+                return new Chunk(sink, count);
+            }, chunk -> {
+                chunk.sink.writeTo(output);
+                records[0] += chunk.records;
+            });
+            output.flush();
+            return records[0];
+        }
+    }
+
+    private record Chunk(ByteSink sink, long records) {
+    }
+
+    // Serializes records from the record buffer. Holds no per-record state, so one formatter serves every thread.
+    private static final class Formatter {
+        private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+        private final YxdbField[] fields;
+        private final boolean includeNulls;
+        // "name": for each field, escaped once
+        private final byte[][] keys;
+
+        Formatter(YxdbField[] declared, YxdbRecord record, boolean includeNulls) {
+            this.fields = record.fields;
+            this.includeNulls = includeNulls;
+            this.keys = new byte[declared.length][];
+            var key = new ByteSink(64);
+            for (var i = 0; i < declared.length; i++) {
+                key.length = 0;
+                key.write((byte) '"');
+                key.writeString(declared[i].name());
+                escapeFrom(1, key);
+                key.write((byte) '"');
+                key.write((byte) ':');
+                keys[i] = Arrays.copyOf(key.bytes, key.length);
+            }
+        }
+
+        void writeRecord(ByteBuffer buffer, ByteSink sink) {
+            sink.write((byte) '{');
+            var first = true;
+            for (var i = 0; i < fields.length; i++) {
+                var start = sink.length;
+                if (!first) {
+                    sink.write((byte) ',');
+                }
+                sink.write(keys[i]);
+                if (!writeValue(fields[i], buffer, sink)) {
+                    if (!includeNulls) {
+                        sink.length = start;
+                        continue;
+                    }
+                    sink.write(NULL);
+                }
+                first = false;
+            }
+            sink.write((byte) '}');
+            sink.write((byte) '\n');
+        }
+
+        // Writes the value, or returns false for null.
+        private static boolean writeValue(YxdbField field, ByteBuffer buffer, ByteSink sink) {
+            var start = field.startPosition();
+            var bytes = buffer.array();
+            switch (field.yxdbType()) {
+                case YxdbType.BOOLEAN -> {
+                    var value = buffer.get(start);
+                    if (value == 2) {
+                        return false;
+                    }
+                    sink.writeAscii(value == 1 ? "true" : "false");
+                }
+                case YxdbType.BYTE -> {
+                    if (buffer.get(start + 1) == 1) {
+                        return false;
+                    }
+                    sink.writeLong(buffer.get(start));
+                }
+                case YxdbType.INT16 -> {
+                    if (buffer.get(start + 2) == 1) {
+                        return false;
+                    }
+                    sink.writeLong(buffer.getShort(start));
+                }
+                case YxdbType.INT32 -> {
+                    if (buffer.get(start + 4) == 1) {
+                        return false;
+                    }
+                    sink.writeLong(buffer.getInt(start));
+                }
+                case YxdbType.INT64 -> {
+                    if (buffer.get(start + 8) == 1) {
+                        return false;
+                    }
+                    sink.writeLong(buffer.getLong(start));
+                }
+                case YxdbType.FLOAT -> {
+                    var value = buffer.getFloat(start);
+                    if (buffer.get(start + 4) == 1 || !Float.isFinite(value)) {
+                        return false;
+                    }
+                    sink.writeAscii(Float.toString(value));
+                }
+                case YxdbType.DOUBLE -> {
+                    var value = buffer.getDouble(start);
+                    if (buffer.get(start + 8) == 1 || !Double.isFinite(value)) {
+                        return false;
+                    }
+                    sink.writeAscii(Double.toString(value));
+                }
+                case YxdbType.DECIMAL -> {
+                    if (buffer.get(start + field.size()) == 1) {
+                        return false;
+                    }
+                    var textStart = sink.length;
+                    sink.writeLatin1(bytes, start, field.size());
+                    if (!isJsonNumber(sink.bytes, textStart, sink.length)) {
+                        quoteFrom(textStart, sink);
+                    }
+                }
+                case YxdbType.DATE, YxdbType.TIME -> {
+                    if (buffer.get(start + field.size()) == 1) {
+                        return false;
+                    }
+                    sink.write((byte) '"');
+                    var textStart = sink.length;
+                    sink.writeLatin1(bytes, start, field.size());
+                    escapeFrom(textStart, sink);
+                    sink.write((byte) '"');
+                }
+                case YxdbType.DATETIME -> {
+                    if (buffer.get(start + field.size()) == 1) {
+                        return false;
+                    }
+                    sink.write((byte) '"');
+                    var textStart = sink.length;
+                    sink.writeLatin1(bytes, start, field.size());
+                    if (sink.length - textStart > 10 && sink.bytes[textStart + 10] == ' ') {
+                        sink.bytes[textStart + 10] = 'T';
+                    }
+                    escapeFrom(textStart, sink);
+                    sink.write((byte) '"');
+                }
+                case YxdbType.STRING -> {
+                    if (buffer.get(start + field.size()) == 1) {
+                        return false;
+                    }
+                    sink.write((byte) '"');
+                    var textStart = sink.length;
+                    sink.writeLatin1(bytes, start, field.size());
+                    escapeFrom(textStart, sink);
+                    sink.write((byte) '"');
+                }
+                case YxdbType.WSTRING -> {
+                    if (buffer.get(start + field.size() * 2) == 1) {
+                        return false;
+                    }
+                    sink.write((byte) '"');
+                    var textStart = sink.length;
+                    sink.writeUtf16(bytes, start, field.size() * 2);
+                    escapeFrom(textStart, sink);
+                    sink.write((byte) '"');
+                }
+                case YxdbType.V_STRING, YxdbType.V_WSTRING, YxdbType.BLOB, YxdbType.SPATIAL_OBJ -> {
+                    var location = Extractors.locateBlob(buffer, start);
+                    if (location == -1) {
+                        return false;
+                    }
+                    var blobStart = Extractors.blobStart(location);
+                    var blobLength = Extractors.blobLength(location);
+                    switch (field.yxdbType()) {
+                        case YxdbType.V_STRING, YxdbType.V_WSTRING -> {
+                            sink.write((byte) '"');
+                            var textStart = sink.length;
+                            if (field.yxdbType().equals(YxdbType.V_STRING)) {
+                                sink.writeLatin1(bytes, blobStart, blobLength);
+                            } else {
+                                sink.writeUtf16(bytes, blobStart, blobLength);
+                            }
+                            escapeFrom(textStart, sink);
+                            sink.write((byte) '"');
+                        }
+                        case YxdbType.BLOB -> {
+                            sink.write((byte) '"');
+                            sink.writeBase64(bytes, blobStart, blobLength);
+                            sink.write((byte) '"');
+                        }
+                        default -> {
+                            if (!Spatial.writeGeoJson(bytes, blobStart, blobLength, sink)) {
+                                return false;
+                            }
+                        }
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown field YXDB type: " + field.yxdbType());
+            }
+            return true;
+        }
+
+        // Checks the JSON number grammar: an optional minus, an integer without leading zeros, an optional fraction.
+        // FixedDecimal text has no exponent.
+        private static boolean isJsonNumber(byte[] bytes, int start, int end) {
+            var i = start;
+            if (i < end && bytes[i] == '-') {
+                i++;
+            }
+            var digits = i;
+            while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+                i++;
+            }
+            if (i == digits || (bytes[digits] == '0' && i - digits > 1)) {
+                return false;
+            }
+            if (i < end && bytes[i] == '.') {
+                var fraction = ++i;
+                while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+                    i++;
+                }
+                if (i == fraction) {
+                    return false;
+                }
+            }
+            return i == end;
+        }
+
+        private static void quoteFrom(int start, ByteSink sink) {
+            escapeFrom(start, sink);
+            sink.ensure(2);
+            System.arraycopy(sink.bytes, start, sink.bytes, start + 1, sink.length - start);
+            sink.bytes[start] = '"';
+            sink.length++;
+            sink.bytes[sink.length++] = '"';
+        }
+
+        // Escapes the UTF-8 text written since start in place. UTF-8 continuation bytes are never ASCII,
+        // so a byte scan is enough.
+        private static void escapeFrom(int start, ByteSink sink) {
+            var extra = 0;
+            for (var i = start; i < sink.length; i++) {
+                var b = sink.bytes[i];
+                if (b == '"' || b == '\\' || b == '\n' || b == '\r' || b == '\t' || b == '\b' || b == '\f') {
+                    extra += 1;
+                } else if (b >= 0 && b < 0x20) {
+                    extra += 5;
+                }
+            }
+            if (extra == 0) {
+                return;
+            }
+
+            sink.ensure(extra);
+            var bytes = sink.bytes;
+            var source = sink.length;
+            var target = sink.length + extra;
+            sink.length = target;
+            while (source > start) {
+                var b = bytes[--source];
+                switch (b) {
+                    case '"', '\\' -> {
+                        bytes[--target] = b;
+                        bytes[--target] = '\\';
+                    }
+                    case '\n' -> target = escape(bytes, target, 'n');
+                    case '\r' -> target = escape(bytes, target, 'r');
+                    case '\t' -> target = escape(bytes, target, 't');
+                    case '\b' -> target = escape(bytes, target, 'b');
+                    case '\f' -> target = escape(bytes, target, 'f');
+                    default -> {
+                        if (b >= 0 && b < 0x20) {
+                            bytes[--target] = HEX[b & 0x0f];
+                            bytes[--target] = HEX[b >> 4];
+                            bytes[--target] = '0';
+                            bytes[--target] = '0';
+                            bytes[--target] = 'u';
+                            bytes[--target] = '\\';
+                        } else {
+                            bytes[--target] = b;
+                        }
+                    }
+                }
+            }
+        }
+
+        private static int escape(byte[] bytes, int target, char letter) {
+            bytes[--target] = (byte) letter;
+            bytes[--target] = '\\';
+            return target;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * KeyIndex maps the values of one field of a .yxdb file to the records holding them, persisted in a sidecar file next to the .yxdb file.
+ * <p>
+ * The sidecar is a table of entries sorted by the hash of the key, each recording the record number and where the record starts: the file offset
+ * of its LZF block and the position within the decompressed block. It is memory-mapped when opened, so a lookup reads only the few index pages of
+ * a binary search and the LZF blocks holding the matching records. As only hashes are stored, each record found is checked against the key.
+ * <p>
+ * Byte, Int16, Int32, Int64, String, WString, V_String, V_WString, Date and DateTime fields can be indexed. Records whose key is null are not indexed.
+ * <p>
+ * The sidecar stores the size and modification time of the .yxdb file. An index whose .yxdb file has since changed is out of date and will not be opened or queried.
+ */
+public final class KeyIndex {
+    private static final int MAGIC = 0x494b5859; // "YXKI"
+    private static final int VERSION = 1;
+    private static final int ENTRY_SIZE = 28;
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** The file extension appended to the .yxdb file path to name the sidecar. */
+    public static final String EXTENSION = ".kidx";
+
+    private final Path yxdbPath;
+    private final SidecarHeader header;
+    private final int fieldIndex;
+    private final String fieldName;
+
+    // the entries: hash, record number and LZF block position as longs, then the position in the block as an int
+    private final ByteBuffer entries;
+    private final int count;
+
+    private KeyIndex(Path yxdbPath, SidecarHeader header, int fieldIndex, String fieldName, ByteBuffer entries, int count) {
+        this.yxdbPath = yxdbPath;
+        this.header = header;
+        this.fieldIndex = fieldIndex;
+        this.fieldName = fieldName;
+        this.entries = entries;
+        this.count = count;
+    }
+
+    /**
+     * Builds a key index over a field and writes it next to the .yxdb file. Record blocks are read in parallel, one thread per processor.
+     *
+     * @param path the path to a .yxdb file
+     * @param name the name of the field to index
+     * @return the key index
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file, the field does not exist or cannot be indexed
+     * @throws IOException              thrown when there are issues reading the file or writing the index
+     */
+    public static KeyIndex build(String path, String name) throws IOException, IllegalArgumentException {
+        var yxdbPath = Path.of(path);
+        var header = SidecarHeader.of(yxdbPath);
+        try (var file = YxdbFile.open(path)) {
+            var field = file.fields[file.record.mapName(name)];
+            checkIndexable(field);
+
+            var keys = new Keys();
+            ParallelBlocks.run(file, Runtime.getRuntime().availableProcessors(),
+                    (block, reader) -> Keys.of(file.record, field, block * (long) YxdbFile.RECORDS_PER_BLOCK, (BufferedRecordReader) reader),
+                    keys::append);
+
+            var nameBytes = field.name().getBytes(StandardCharsets.UTF_8);
+            var headerLength = SidecarHeader.LENGTH + 12 + nameBytes.length;
+            var length = headerLength + (long) keys.count * ENTRY_SIZE;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Key index exceeds maximum supported size (2 GB).");
+            }
+
+            var buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+            header.write(buffer, MAGIC, VERSION);
+            buffer.putInt(field.index());
+            buffer.putInt(nameBytes.length);
+            buffer.put(nameBytes);
+            buffer.putInt(keys.count);
+            for (var entry : sortByHash(keys.hashes, keys.count)) {
+                buffer.putLong(keys.hashes[entry]);
+                buffer.putLong(keys.recordNumbers[entry]);
+                buffer.putLong(keys.blockPositions[entry]);
+                buffer.putInt(keys.blockIndices[entry]);
+            }
+            Files.write(sidecarPath(yxdbPath), buffer.array());
+
+            var entries = buffer.position(headerLength).slice().order(ByteOrder.LITTLE_ENDIAN);
+            return new KeyIndex(yxdbPath, header, field.index(), field.name(), entries, keys.count);
+        }
+    }
+
+    /**
+     * Opens the key index stored next to a .yxdb file. The entries are memory-mapped rather than read.
+     *
+     * @param path the path to a .yxdb file
+     * @return the key index
+     * @throws IllegalArgumentException thrown when the sidecar is not a valid key index
+     * @throws IOException              thrown when the sidecar does not exist, is out of date or cannot be read
+     */
+    public static KeyIndex open(String path) throws IOException, IllegalArgumentException {
+        var yxdbPath = Path.of(path);
+        return SidecarHeader.open(yxdbPath, sidecarPath(yxdbPath), MAGIC, VERSION, "key index", (header, buffer) -> {
+            var fieldIndex = buffer.getInt();
+            var nameBytes = new byte[buffer.getInt()];
+            buffer.get(nameBytes);
+            var count = buffer.getInt();
+            if (count < 0 || buffer.remaining() != (long) count * ENTRY_SIZE) {
+                throw new IllegalArgumentException("File is not a valid key index.");
+            }
+
+            var entries = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            return new KeyIndex(yxdbPath, header, fieldIndex, new String(nameBytes, StandardCharsets.UTF_8), entries, count);
+        });
+    }
+
+    /**
+     * Opens the key index stored next to a .yxdb file, building it first if it is missing, out of date or for a different field.
+     *
+     * @param path the path to a .yxdb file
+     * @param name the name of the field to index
+     * @return the key index
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file, the field does not exist or cannot be indexed
+     * @throws IOException              thrown when there are issues reading the file or reading or writing the index
+     */
+    public static KeyIndex openOrBuild(String path, String name) throws IOException, IllegalArgumentException {
+        if (Files.exists(sidecarPath(Path.of(path)))) {
+            try {
+                var index = open(path);
+                if (index.fieldName.equals(name)) {
+                    return index;
+                }
+            } catch (IOException | IllegalArgumentException ignored) {
+            }
+        }
+        return build(path, name);
+    }
+
+    /**
+     * The path of the sidecar file holding the key index for a .yxdb file.
+     *
+     * @param path the path to a .yxdb file
+     * @return the path of the key index
+     */
+    public static Path sidecarPath(Path path) {
+        return path.resolveSibling(path.getFileName() + EXTENSION);
+    }
+
+    /**
+     * The index of the field that is indexed.
+     * @return the index of the field, starting at 0
+     */
+    public int fieldIndex() {
+        return fieldIndex;
+    }
+
+    /**
+     * The name of the field that is indexed.
+     * @return the name of the field
+     */
+    public String fieldName() {
+        return fieldName;
+    }
+
+    /**
+     * The number of records in the index. Records whose key is null are not indexed.
+     * @return the number of indexed records
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Opens a reader over the records whose key equals a value.
+     * <p>
+     * The key is a Number with an integer value for Byte and Int fields, a CharSequence for string fields, a LocalDate for Date fields and a
+     * LocalDateTime for DateTime fields. The reader's next() method moves through the matching records in file order, decompressing only the
+     * LZF blocks that hold them. All other methods behave as they do on a reader over the whole file.
+     *
+     * @param key the value to look up
+     * @return a reader over the matching records
+     * @throws IllegalArgumentException thrown when the key is null or not of the field's type
+     * @throws IOException              thrown when the .yxdb file has changed since the index was built or there are issues opening it
+     */
+    public YxdbReader lookup(Object key) throws IOException, IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("Null keys are not indexed.");
+        }
+        header.check(yxdbPath, "key index");
+
+        var file = YxdbFile.open(yxdbPath);
+        try {
+            var field = file.fields[fieldIndex];
+            var bytes = encode(field, key);
+
+            // the entries of a key are together, in record order
+            var first = count;
+            var end = count;
+            if (bytes != null) {
+                var hash = JoinKey.hash(bytes, 0, bytes.length);
+                first = lowerBound(hash);
+                end = first;
+                while (end < count && entries.getLong(end * ENTRY_SIZE) == hash) {
+                    end++;
+                }
+            }
+            var recordNumbers = new long[end - first];
+            var blockPositions = new long[end - first];
+            var blockIndices = new int[end - first];
+            for (var i = 0; i < recordNumbers.length; i++) {
+                var offset = (first + i) * ENTRY_SIZE;
+                recordNumbers[i] = entries.getLong(offset + 8);
+                blockPositions[i] = entries.getLong(offset + 16);
+                blockIndices[i] = entries.getInt(offset + 24);
+            }
+
+            var reader = file.newRecordReader();
+            var positions = new RecordPositionCursor(file, reader, recordNumbers, blockPositions, blockIndices);
+            var recordKey = new JoinKey(file.record, field);
+            return new YxdbReader(file, reader, () -> {
+                // different keys can share a hash, so check the key of each record found
+                while (positions.next()) {
+                    if (recordKey.encode(reader.recordBuffer) && Arrays.equals(recordKey.bytes, 0, recordKey.length, bytes, 0, bytes.length)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        } catch (RuntimeException ex) {
+            file.close();
+            throw ex;
+        }
+    }
+
+    // The first entry whose hash is not below the given hash, comparing hashes unsigned as they are sorted.
+    private int lowerBound(long hash) {
+        var low = 0;
+        var high = count;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(mid * ENTRY_SIZE), hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Gathers the keys of the records of each record block, in record order, so the keys of each block can be
+    // appended in block order.
+    private static final class Keys {
+        int count;
+        long[] hashes = new long[16];
+        long[] recordNumbers = new long[16];
+        long[] blockPositions = new long[16];
+        int[] blockIndices = new int[16];
+
+        static Keys of(YxdbRecord record, YxdbField field, long firstRecord, BufferedRecordReader reader) throws IOException {
+            var keys = new Keys();
+            var key = new JoinKey(record, field);
+            var recordNumber = firstRecord;
+            while (reader.nextRecord()) {
+                if (key.read(reader.recordBuffer)) {
+                    keys.ensure(keys.count + 1);
+                    keys.hashes[keys.count] = key.hash;
+                    keys.recordNumbers[keys.count] = recordNumber;
+                    keys.blockPositions[keys.count] = reader.recordBlockPosition;
+                    keys.blockIndices[keys.count] = reader.recordBlockIndex;
+                    keys.count++;
+                }
+                recordNumber++;
+            }
+            return keys;
+        }
+
+        void append(Keys other) {
+            ensure(count + other.count);
+            System.arraycopy(other.hashes, 0, hashes, count, other.count);
+            System.arraycopy(other.recordNumbers, 0, recordNumbers, count, other.count);
+            System.arraycopy(other.blockPositions, 0, blockPositions, count, other.count);
+            System.arraycopy(other.blockIndices, 0, blockIndices, count, other.count);
+            count += other.count;
+        }
+
+        private void ensure(int capacity) {
+            if (capacity <= hashes.length) {
+                return;
+            }
+            var length = Math.max(capacity, hashes.length * 2);
+            hashes = Arrays.copyOf(hashes, length);
+            recordNumbers = Arrays.copyOf(recordNumbers, length);
+            blockPositions = Arrays.copyOf(blockPositions, length);
+            blockIndices = Arrays.copyOf(blockIndices, length);
+        }
+    }
+
+    // The order of the entries sorted by unsigned hash, by a least significant digit radix sort on 16 bits at a
+    // time. It is stable, so entries with the same hash stay in record order.
+    private static int[] sortByHash(long[] hashes, int count) {
+        var order = new int[count];
+        for (var i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        var scratch = new int[count];
+        var offsets = new int[65537];
+        for (var shift = 0; shift < 64; shift += 16) {
+            Arrays.fill(offsets, 0);
+            for (var i = 0; i < count; i++) {
+                offsets[(int) ((hashes[order[i]] >>> shift) & 0xffff) + 1]++;
+            }
+            for (var digit = 0; digit < 65536; digit++) {
+                offsets[digit + 1] += offsets[digit];
+            }
+            for (var i = 0; i < count; i++) {
+                var entry = order[i];
+                scratch[offsets[(int) ((hashes[entry] >>> shift) & 0xffff)]++] = entry;
+            }
+            var swap = order;
+            order = scratch;
+            scratch = swap;
+        }
+        return order;
+    }
+
+    private static void checkIndexable(YxdbField field) throws IllegalArgumentException {
+        switch (field.dataType()) {
+            case BYTE, LONG, STRING, DATE, DATETIME -> {
+            }
+            default -> throw new IllegalArgumentException("Cannot index the " + field.yxdbType() + " field " + field.name() + ".");
+        }
+    }
+
+    // Encodes a key as JoinKey encodes the values of the field, or returns null when no value of the field can equal it.
+    private static byte[] encode(YxdbField field, Object key) throws IllegalArgumentException {
+        switch (field.dataType()) {
+            case BYTE, LONG -> {
+                long value;
+                if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+                    value = ((Number) key).longValue();
+                } else if (key instanceof BigInteger integer && integer.bitLength() < 64) {
+                    value = integer.longValue();
+                } else if (key instanceof BigInteger) {
+                    return null;
+                } else {
+                    break;
+                }
+
+                // bytes are read as signed values but stored, and so encoded, unsigned
+                if (field.dataType() == DataType.BYTE) {
+                    if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+                        return null;
+                    }
+                    value &= 0xff;
+                }
+                return ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array();
+            }
+            case STRING -> {
+                if (key instanceof CharSequence text) {
+                    return text.toString().getBytes(StandardCharsets.UTF_16LE);
+                }
+            }
+            case DATE -> {
+                if (key instanceof LocalDate date) {
+                    return date.toString().getBytes(StandardCharsets.US_ASCII);
+                }
+            }
+            case DATETIME -> {
+                if (key instanceof LocalDateTime dateTime) {
+                    return dateTime.getNano() != 0 ? null : dateTime.format(DATE_TIME).getBytes(StandardCharsets.US_ASCII);
+                }
+            }
+            default -> {
+            }
+        }
+        throw new IllegalArgumentException("The key " + key + " is not a valid " + field.dataType() + " value for the field " + field.name() + ".");
+    }
+}
@@ -1,5 +1,7 @@
 package uk.co.jdunkerley.yxdb;
 
+import java.util.Arrays;
+
 class Lzf {
     Lzf(byte[] inBuffer, byte[] outBuffer) {
         this.inBuffer = inBuffer;
@@ -44,6 +46,9 @@ class Lzf {
         if (outIndex + len > outBuffer.length) {
             throw new IllegalArgumentException("output array is too small");
         }
+        if (inIndex + len > inLen) {
+            throw new IllegalArgumentException("literal run at input offset " + (inIndex - 1) + " passes the end of the input");
+        }
         System.arraycopy(inBuffer, inIndex, outBuffer, outIndex, len);
         outIndex += len;
         inIndex += len;
@@ -53,6 +58,10 @@ class Lzf {
         int length = ctrl >> 5;
         int reference = outIndex - ((ctrl & 0x1f) << 8) - 1; // magic
 
+        if (inIndex + (length == 7 ? 2 : 1) > inLen) {
+            throw new IllegalArgumentException("back reference at input offset " + (inIndex - 1) + " passes the end of the input");
+        }
+
         if (length == 7) { // when length is 7, the next byte has additional length
             length += unsign(inBuffer[inIndex]);
             inIndex++;
@@ -64,6 +73,9 @@ class Lzf {
 
         reference -= unsign(inBuffer[inIndex]); // the next byte tells how far back the repeated bytes begin
         inIndex++;
+        if (reference < 0) {
+            throw new IllegalArgumentException("back reference at input offset " + (inIndex - 2) + " points before the start of the output");
+        }
 
         length += 2;
 
@@ -83,4 +95,65 @@ class Lzf {
     private static int unsign(byte value) {
         return value & 0xff; // Java's bytes are signed while the original algorithm is written for unsigned bytes
     }
+
+    // LZF compression in the format decompress reads. Returns 0 when the output would not be smaller than the input.
+    static int compress(byte[] in, int inLen, byte[] out) {
+        var table = new int[1 << 14];
+        Arrays.fill(table, -1);
+
+        var ip = 0;
+        var op = 0;
+        var literalStart = 0;
+        while (ip + 2 < inLen) {
+            var hash = (((in[ip] & 0xff) << 16 | (in[ip + 1] & 0xff) << 8 | (in[ip + 2] & 0xff)) * 0x9E3779B1) >>> 18;
+            var ref = table[hash];
+            table[hash] = ip;
+
+            var off = ip - ref - 1;
+            if (ref < 0 || off >= 8192 || in[ref] != in[ip] || in[ref + 1] != in[ip + 1] || in[ref + 2] != in[ip + 2]) {
+                ip++;
+                continue;
+            }
+
+            var len = 3;
+            var max = Math.min(264, inLen - ip);
+            while (len < max && in[ref + len] == in[ip + len]) {
+                len++;
+            }
+
+            op = writeLiterals(in, literalStart, ip, out, op);
+            if (op < 0 || op + 3 > out.length) {
+                return 0;
+            }
+
+            var encoded = len - 2;
+            if (encoded < 7) {
+                out[op++] = (byte) ((encoded << 5) | (off >> 8));
+            } else {
+                out[op++] = (byte) ((7 << 5) | (off >> 8));
+                out[op++] = (byte) (encoded - 7);
+            }
+            out[op++] = (byte) off;
+
+            ip += len;
+            literalStart = ip;
+        }
+
+        op = writeLiterals(in, literalStart, inLen, out, op);
+        return op < 0 || op >= inLen ? 0 : op;
+    }
+
+    private static int writeLiterals(byte[] in, int start, int end, byte[] out, int op) {
+        while (start < end) {
+            var length = Math.min(32, end - start);
+            if (op < 0 || op + 1 + length > out.length) {
+                return -1;
+            }
+            out[op++] = (byte) (length - 1);
+            System.arraycopy(in, start, out, op, length);
+            op += length;
+            start += length;
+        }
+        return op;
+    }
 }
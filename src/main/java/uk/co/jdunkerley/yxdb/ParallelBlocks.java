@@ -0,0 +1,79 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs a task over every block of a source on a pool of threads and hands the results to a sink in block order.
+// No more than two results per thread are in flight at once, so memory stays bounded however large the file is.
+final class ParallelBlocks {
+    @FunctionalInterface
+    interface BlockTask<T> {
+        T run(int block, RecordReader reader) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface ResultSink<T> {
+        void accept(T result) throws IOException;
+    }
+
+    private ParallelBlocks() {
+    }
+
+    static <T> void run(BlockSource source, int threads, BlockTask<T> task, ResultSink<T> sink) throws IOException {
+        var blocks = source.blockCount();
+        if (threads <= 1 || blocks <= 1) {
+            for (var block = 0; block < blocks; block++) {
+                sink.accept(task.run(block, source.newBlockReader(block)));
+            }
+            return;
+        }
+
+        var pool = Executors.newFixedThreadPool(Math.min(threads, blocks), runnable -> {
+            var thread = new Thread(runnable, "yxdb-block-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            var pending = new ArrayDeque<Future<T>>();
+            var next = 0;
+            while (next < blocks || !pending.isEmpty()) {
+                while (next < blocks && pending.size() < threads * 2) {
+                    pending.add(submit(pool, source, task, next++));
+                }
+                sink.accept(await(pending.remove()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static <T> Future<T> submit(ExecutorService pool, BlockSource source, BlockTask<T> task, int block) {
+        return pool.submit(() -> task.run(block, source.newBlockReader(block)));
+    }
+
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a block to be read.");
+        } catch (ExecutionException ex) {
+            var cause = ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
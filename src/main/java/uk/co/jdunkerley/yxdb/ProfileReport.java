@@ -0,0 +1,98 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The statistics YxdbProfiler gathered for each field of a file. When only some blocks were sampled, counts cover the
+ * records read, which records() gives; scale them by totalRecords() / records() to estimate the whole file.
+ */
+public final class ProfileReport {
+    private final List<ColumnProfile> columns;
+    private final long records;
+    private final long totalRecords;
+    private final int blocksRead;
+    private final int blocks;
+
+    ProfileReport(List<ColumnProfile> columns, long records, long totalRecords, int blocksRead, int blocks) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.records = records;
+        this.totalRecords = totalRecords;
+        this.blocksRead = blocksRead;
+        this.blocks = blocks;
+    }
+
+    /**
+     * The statistics of each field, in the order of the fields in the file.
+     * @return a list of column profiles
+     */
+    public List<ColumnProfile> columns() {
+        return columns;
+    }
+
+    /**
+     * The statistics of a field.
+     *
+     * @param name the name of the field
+     * @return the column profile
+     * @throws IllegalArgumentException thrown when the field does not exist
+     */
+    public ColumnProfile column(String name) throws IllegalArgumentException {
+        for (var column : columns) {
+            if (column.field().name().equals(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("The field " + name + " does not exist.");
+    }
+
+    /**
+     * The number of records read.
+     * @return the number of records
+     */
+    public long records() {
+        return records;
+    }
+
+    /**
+     * The number of records in the file.
+     * @return the number of records
+     */
+    public long totalRecords() {
+        return totalRecords;
+    }
+
+    /**
+     * Whether only some blocks of the file were read.
+     * @return true when the statistics come from a sample
+     */
+    public boolean sampled() {
+        return blocksRead < blocks;
+    }
+
+    /**
+     * The number of blocks read.
+     * @return the number of blocks
+     */
+    public int blocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * The number of blocks in the file.
+     * @return the number of blocks
+     */
+    public int blocks() {
+        return blocks;
+    }
+
+    @Override
+    public String toString() {
+        var text = new StringBuilder().append(records).append(" of ").append(totalRecords).append(" records from ")
+                .append(blocksRead).append(" of ").append(blocks).append(" blocks");
+        for (var column : columns) {
+            text.append(System.lineSeparator()).append("  ").append(column);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package uk.co.jdunkerley.yxdb;
+
+/**
+ * Receives notifications as a YxdbReader works through a file.
+ * <p>
+ * Callbacks run on the thread calling next(), once per block or buffer resize rather than once per record,
+ * so they should return quickly.
+ */
+public interface ReaderListener {
+    /**
+     * Called after each block is read from the file.
+     *
+     * @param position           the file offset of the block
+     * @param storedLength       the number of bytes the block occupies in the file, excluding its length word
+     * @param decompressedLength the number of bytes in the decompressed block
+     * @param compressed         true if the block was LZF compressed, false if it was stored as is
+     * @param ioNanos            the time spent reading the block, in nanoseconds
+     * @param decompressNanos    the time spent decompressing the block, in nanoseconds
+     */
+    default void blockRead(long position, int storedLength, int decompressedLength, boolean compressed, long ioNanos, long decompressNanos) {
+    }
+
+    /**
+     * Called when a block is taken already decompressed from the block cache of a CachedYxdbFile, instead of being
+     * read from the file. blockRead is not called for these blocks.
+     *
+     * @param position           the file offset of the block
+     * @param storedLength       the number of bytes the block occupies in the file, excluding its length word
+     * @param decompressedLength the number of bytes in the decompressed block
+     */
+    default void blockCached(long position, int storedLength, int decompressedLength) {
+    }
+
+    /**
+     * Called when the record buffer grows to fit a record.
+     *
+     * @param capacity the new size of the record buffer, in bytes
+     */
+    default void recordBufferResized(int capacity) {
+    }
+}
@@ -0,0 +1,26 @@
+package uk.co.jdunkerley.yxdb;
+
+// Running totals kept by a BufferedRecordReader once stats are enabled.
+final class ReaderMetrics {
+    long recordsRead;
+    long compressedBytesRead;
+    long decompressedBytes;
+    long blocksDecompressed;
+    long uncompressedBlocks;
+    long cachedBlocks;
+    long ioNanos;
+    long decompressNanos;
+    long assemblyNanos;
+    long recordBufferResizes;
+    int peakRecordBufferSize;
+    int peakRecordLength;
+
+    ReaderMetrics(int recordBufferSize) {
+        this.peakRecordBufferSize = recordBufferSize;
+    }
+
+    ReaderStats snapshot() {
+        return new ReaderStats(recordsRead, compressedBytesRead, decompressedBytes, blocksDecompressed, uncompressedBlocks, cachedBlocks,
+                ioNanos, decompressNanos, assemblyNanos, recordBufferResizes, peakRecordBufferSize, peakRecordLength);
+    }
+}
@@ -0,0 +1,32 @@
+package uk.co.jdunkerley.yxdb;
+
+/**
+ * A snapshot of the work a YxdbReader has done since stats were enabled.
+ * <p>
+ * The three timings split the time spent in next(): reading blocks from the file, decompressing them, and copying
+ * the decompressed bytes into the record buffer.
+ *
+ * @param recordsRead          The number of records read.
+ * @param compressedBytesRead  The number of block bytes read from the file in their stored form, including each block's length word.
+ * @param decompressedBytes    The number of bytes produced by the blocks read, whether compressed, stored or taken from a cache.
+ * @param blocksDecompressed   The number of LZF compressed blocks decompressed.
+ * @param uncompressedBlocks   The number of blocks stored without compression.
+ * @param cachedBlocks         The number of blocks taken already decompressed from the block cache of a CachedYxdbFile, without reading the file.
+ * @param ioNanos              The time spent reading blocks from the file, in nanoseconds.
+ * @param decompressNanos      The time spent in LZF decompression, in nanoseconds.
+ * @param assemblyNanos        The time spent assembling records from decompressed blocks, in nanoseconds.
+ * @param recordBufferResizes  The number of times the record buffer grew to fit a record.
+ * @param peakRecordBufferSize The largest size of the record buffer, in bytes.
+ * @param peakRecordLength     The length of the largest record read, in bytes.
+ */
+public record ReaderStats(long recordsRead, long compressedBytesRead, long decompressedBytes, long blocksDecompressed,
+                          long uncompressedBlocks, long cachedBlocks, long ioNanos, long decompressNanos, long assemblyNanos,
+                          long recordBufferResizes, int peakRecordBufferSize, int peakRecordLength) {
+    /**
+     * The ratio of decompressed bytes to bytes read from the file.
+     * @return the compression ratio, or 0 if no blocks have been read
+     */
+    public double compressionRatio() {
+        return compressedBytesRead == 0 ? 0 : (double) decompressedBytes / compressedBytesRead;
+    }
+}
@@ -0,0 +1,32 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// The records of one block, decoded and laid out back to back as the record buffer holds them.
+// ends[i] is the offset just past record i, so record i spans [ends[i - 1], ends[i]) with ends[-1] taken as 0.
+record RecordBatch(int shard, int block, byte[] bytes, int[] ends, int count) {
+    // Reads every record of a block. Blocks hold at most 65536 records, so a batch is a few megabytes at most for
+    // typical records; a classic file without a block index is read as one block and so as one batch.
+    static RecordBatch read(BlockSource source, int shard, int block) throws IOException {
+        return read(source.newBlockReader(block), shard, block);
+    }
+
+    static RecordBatch read(RecordReader reader, int shard, int block) throws IOException {
+        var bytes = new ByteSink(1 << 16);
+        var ends = new int[1024];
+        var count = 0;
+        while (reader.nextRecord()) {
+            bytes.write(reader.recordBuffer.array(), 0, reader.recordBufferIndex);
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ends[count++] = bytes.length;
+        }
+        return new RecordBatch(shard, block, bytes.bytes, ends, count);
+    }
+
+    int start(int record) {
+        return record == 0 ? 0 : ends[record - 1];
+    }
+}
@@ -0,0 +1,9 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+
+// Moves a reader to the next record it should expose, returning false once there are no more records.
+@FunctionalInterface
+interface RecordCursor {
+    boolean next() throws IOException;
+}
@@ -0,0 +1,46 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+
+// Visits a sorted list of records, using their known LZF block positions to skip the rest of the file.
+// Records in the LZF block that is already decompressed are reached by reading forward; anything else is a seek,
+// so no LZF block is decompressed unless it holds (the start of) a wanted record.
+final class RecordPositionCursor implements RecordCursor {
+    private final YxdbFile file;
+    private final BufferedRecordReader reader;
+    private final long[] recordNumbers;
+    private final long[] blockPositions;
+    private final int[] blockIndices;
+    private int next;
+
+    RecordPositionCursor(YxdbFile file, BufferedRecordReader reader, long[] recordNumbers, long[] blockPositions, int[] blockIndices) {
+        this.file = file;
+        this.reader = reader;
+        this.recordNumbers = recordNumbers;
+        this.blockPositions = blockPositions;
+        this.blockIndices = blockIndices;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (next >= recordNumbers.length) {
+            return false;
+        }
+
+        var target = recordNumbers[next];
+        var blockPosition = blockPositions[next];
+        var readForward = reader.currentRecord > 0 && reader.currentRecord <= target && reader.lzfBlockPosition == blockPosition;
+        if (!readForward) {
+            reader.seek(file.streamAt(blockPosition), blockPosition, blockIndices[next], target);
+        }
+
+        while (reader.currentRecord <= target) {
+            if (!reader.nextRecord()) {
+                return false;
+            }
+        }
+
+        next++;
+        return true;
+    }
+}
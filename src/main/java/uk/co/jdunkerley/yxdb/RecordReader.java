@@ -0,0 +1,92 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Reads records one at a time into recordBuffer, laid out as the fixed length fields followed (when there are
+// variable length fields) by the length and bytes of the variable data. The extractors read from this layout.
+abstract class RecordReader {
+    final long totalRecords;
+    ByteBuffer recordBuffer;
+    int recordBufferIndex;
+    long currentRecord;
+
+    // instrumentation: metrics are only collected once enabled, the listener is optional
+    ReaderMetrics metrics;
+    ReaderListener listener;
+
+    RecordReader(long totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public final boolean nextRecord() throws IOException {
+        if (metrics == null) {
+            return readRecord();
+        }
+
+        var start = System.nanoTime();
+        var blockNanos = metrics.ioNanos + metrics.decompressNanos;
+        var read = readRecord();
+        if (read) {
+            metrics.recordsRead++;
+            metrics.assemblyNanos += System.nanoTime() - start - (metrics.ioNanos + metrics.decompressNanos - blockNanos);
+            metrics.peakRecordLength = Math.max(metrics.peakRecordLength, recordBufferIndex);
+        }
+        return read;
+    }
+
+    // Loads the next record into recordBuffer, leaving recordBufferIndex at its length. Returns false at the end of the file.
+    abstract boolean readRecord() throws IOException;
+
+    void blockRead(BlockReadEvent event, long position, int headerLength, int storedLength, int blockSize, boolean compressed, long ioNanos, long decompressNanos) {
+        if (metrics != null) {
+            metrics.compressedBytesRead += headerLength + storedLength;
+            metrics.decompressedBytes += blockSize;
+            if (compressed) {
+                metrics.blocksDecompressed++;
+            } else {
+                metrics.uncompressedBlocks++;
+            }
+            metrics.ioNanos += ioNanos;
+            metrics.decompressNanos += decompressNanos;
+        }
+        if (listener != null) {
+            listener.blockRead(position, storedLength, blockSize, compressed, ioNanos, decompressNanos);
+        }
+        if (event.shouldCommit()) {
+            event.position = position;
+            event.storedLength = storedLength;
+            event.decompressedLength = blockSize;
+            event.compressed = compressed;
+            event.commit();
+        }
+    }
+
+    // A block taken from a shared cache: there is no file read or decompression to time.
+    void blockCached(BlockReadEvent event, long position, int storedLength, int blockSize) {
+        if (metrics != null) {
+            metrics.decompressedBytes += blockSize;
+            metrics.cachedBlocks++;
+        }
+        if (listener != null) {
+            listener.blockCached(position, storedLength, blockSize);
+        }
+        if (event.shouldCommit()) {
+            event.position = position;
+            event.storedLength = storedLength;
+            event.decompressedLength = blockSize;
+            event.cached = true;
+            event.commit();
+        }
+    }
+
+    void recordBufferResized(int capacity) {
+        if (metrics != null) {
+            metrics.recordBufferResizes++;
+            metrics.peakRecordBufferSize = Math.max(metrics.peakRecordBufferSize, capacity);
+        }
+        if (listener != null) {
+            listener.recordBufferResized(capacity);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Hashes the values of a record rather than its stored bytes, so the bytes after a string's terminator, the offsets
+// of variable length data and the storage type of a value (Int16 or Int32, String or V_WString, AMP or classic) do
+// not change the hash. Each field contributes a null flag and, when not null, the length and bytes of its value as
+// JoinKey encodes it, and the result is hashed with XXH64. Each instance holds scratch space, so it must only be
+// used by one thread.
+final class RowHash {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private final JoinKey[] values;
+    private ByteBuffer bytes = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+    RowHash(YxdbRecord record) {
+        values = new JoinKey[record.fields.length];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = new JoinKey(record, record.fields[i]);
+        }
+    }
+
+    long hash(ByteBuffer buffer) {
+        var length = 0;
+        for (var value : values) {
+            var present = value.encode(buffer);
+            var needed = length + 5 + (present ? value.length : 0);
+            if (needed > bytes.capacity()) {
+                var grown = ByteBuffer.allocate(Math.max(needed, bytes.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+                System.arraycopy(bytes.array(), 0, grown.array(), 0, length);
+                bytes = grown;
+            }
+            if (!present) {
+                bytes.put(length++, (byte) 0);
+                continue;
+            }
+            bytes.put(length, (byte) 1);
+            bytes.putInt(length + 1, value.length);
+            System.arraycopy(value.bytes, 0, bytes.array(), length + 5, value.length);
+            length += 5 + value.length;
+        }
+        return xxh64(bytes, 0, length, 0);
+    }
+
+    // XXH64 of buffer[offset, offset + length), which must be little-endian.
+    static long xxh64(ByteBuffer buffer, int offset, int length, long seed) {
+        var end = offset + length;
+        var position = offset;
+        long hash;
+        if (length >= 32) {
+            var v1 = seed + PRIME1 + PRIME2;
+            var v2 = seed + PRIME2;
+            var v3 = seed;
+            var v4 = seed - PRIME1;
+            for (; position <= end - 32; position += 32) {
+                v1 = round(v1, buffer.getLong(position));
+                v2 = round(v2, buffer.getLong(position + 8));
+                v3 = round(v3, buffer.getLong(position + 16));
+                v4 = round(v4, buffer.getLong(position + 24));
+            }
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+
+        hash += length;
+        for (; position <= end - 8; position += 8) {
+            hash ^= round(0, buffer.getLong(position));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (position <= end - 4) {
+            hash ^= (buffer.getInt(position) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            position += 4;
+        }
+        for (; position < end; position++) {
+            hash ^= (buffer.get(position) & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        return hash ^ hash >>> 32;
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        return (accumulator ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+}
@@ -0,0 +1,48 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+// Reads some blocks of a source in turn, keeping each of their records with a fixed probability. Only the given
+// blocks are read and decompressed. The records of a block have to be walked to be found, so every record of a chosen
+// block is decoded, but kept records are handed on in the block reader's own buffer without being copied.
+final class SampleRecordReader extends RecordReader {
+    private final BlockSource source;
+    private final int[] blocks;
+    private final double rate;
+    private final Random random;
+    private RecordReader reader;
+    private int next;
+
+    SampleRecordReader(BlockSource source, int[] blocks, double rate, Random random) {
+        super(-1);
+        this.source = source;
+        this.blocks = blocks;
+        this.rate = rate;
+        this.random = random;
+        recordBuffer = ByteBuffer.allocate(0);
+    }
+
+    @Override
+    boolean readRecord() throws IOException {
+        while (true) {
+            if (reader == null) {
+                if (next == blocks.length) {
+                    return false;
+                }
+                reader = source.newBlockReader(blocks[next++]);
+            }
+            if (!reader.nextRecord()) {
+                reader = null;
+                continue;
+            }
+            if (rate >= 1 || random.nextDouble() < rate) {
+                recordBuffer = reader.recordBuffer;
+                recordBufferIndex = reader.recordBufferIndex;
+                currentRecord++;
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// The header shared by the sidecar files kept next to a .yxdb file (SpatialIndex, ZoneMap, KeyIndex): a magic number
+// and format version, then the size and modification time of the .yxdb file the sidecar was built from. A sidecar
+// whose .yxdb file no longer matches is out of date. All values are little-endian.
+record SidecarHeader(long size, long modified) {
+    static final int LENGTH = 24;
+
+    @FunctionalInterface
+    interface Body<T> {
+        T read(SidecarHeader header, ByteBuffer buffer) throws IOException;
+    }
+
+    // The size and modification time of a .yxdb file. Builders take this before reading the file, so a file changed
+    // while it is read leaves the sidecar out of date rather than stamped current.
+    static SidecarHeader of(Path yxdbPath) throws IOException {
+        return new SidecarHeader(Files.size(yxdbPath), Files.getLastModifiedTime(yxdbPath).toMillis());
+    }
+
+    // Memory-maps a sidecar, checks its header against the .yxdb file and hands the rest of it to body. Any runtime
+    // exception while reading means the sidecar is damaged, and is reported as not valid.
+    static <T> T open(Path yxdbPath, Path sidecar, int magic, int version, String kind, Body<T> body) throws IOException, IllegalArgumentException {
+        try (var channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < LENGTH || buffer.getInt() != magic) {
+                throw new IllegalArgumentException("File is not a valid " + kind + ".");
+            }
+            if (buffer.getInt() != version) {
+                throw new IllegalArgumentException(capitalize(kind) + " version is not supported.");
+            }
+
+            var header = new SidecarHeader(buffer.getLong(), buffer.getLong());
+            header.check(yxdbPath, kind);
+            return body.read(header, buffer);
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("File is not a valid " + kind + ".");
+        }
+    }
+
+    // Throws when the .yxdb file has changed since the sidecar was built.
+    void check(Path yxdbPath, String kind) throws IOException {
+        if (!equals(of(yxdbPath))) {
+            throw new IOException(capitalize(kind) + " is out of date for " + yxdbPath);
+        }
+    }
+
+    void write(ByteBuffer buffer, int magic, int version) {
+        buffer.putInt(magic);
+        buffer.putInt(version);
+        buffer.putLong(size);
+        buffer.putLong(modified);
+    }
+
+    private static String capitalize(String kind) {
+        return Character.toUpperCase(kind.charAt(0)) + kind.substring(1);
+    }
+}
@@ -0,0 +1,113 @@
+package uk.co.jdunkerley.yxdb;
+
+// Decompresses raw (unframed) Snappy data, the block compression used by AMP engine files.
+// Like Lzf, every length and offset is checked so corrupt input fails with an IllegalArgumentException.
+final class Snappy {
+    private Snappy() {
+    }
+
+    // The uncompressed length stored as a varint at the start of the compressed data.
+    static int uncompressedLength(byte[] in, int offset, int length) throws IllegalArgumentException {
+        var result = 0;
+        var end = offset + length;
+        for (var shift = 0; shift < 32; shift += 7) {
+            if (offset >= end) {
+                break;
+            }
+            var b = in[offset++] & 0xff;
+            result |= (b & 0x7f) << shift;
+            if (b < 0x80) {
+                if (result < 0) {
+                    break;
+                }
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("invalid snappy length");
+    }
+
+    static int decompress(byte[] in, int offset, int length, byte[] out) throws IllegalArgumentException {
+        var expected = uncompressedLength(in, offset, length);
+        if (expected > out.length) {
+            throw new IllegalArgumentException("output array is too small");
+        }
+
+        var inIndex = offset;
+        var end = offset + length;
+        while (in[inIndex++] < 0) {
+            // skip the rest of the length varint
+        }
+
+        var outIndex = 0;
+        while (inIndex < end) {
+            var tag = in[inIndex++] & 0xff;
+            int copyLength;
+            int copyOffset;
+            switch (tag & 3) {
+                case 0 -> {
+                    var literalLength = tag >>> 2;
+                    if (literalLength >= 60) {
+                        var bytes = literalLength - 59;
+                        if (inIndex + bytes > end) {
+                            throw new IllegalArgumentException("snappy literal runs past the end of the input");
+                        }
+                        literalLength = 0;
+                        for (var i = 0; i < bytes; i++) {
+                            literalLength |= (in[inIndex++] & 0xff) << (8 * i);
+                        }
+                    }
+                    literalLength++;
+                    if (literalLength <= 0 || inIndex + literalLength > end || outIndex + literalLength > expected) {
+                        throw new IllegalArgumentException("snappy literal runs past the end of the input or output");
+                    }
+                    System.arraycopy(in, inIndex, out, outIndex, literalLength);
+                    inIndex += literalLength;
+                    outIndex += literalLength;
+                    continue;
+                }
+                case 1 -> {
+                    if (inIndex + 1 > end) {
+                        throw new IllegalArgumentException("snappy copy runs past the end of the input");
+                    }
+                    copyLength = 4 + ((tag >>> 2) & 7);
+                    copyOffset = ((tag >>> 5) << 8) | (in[inIndex++] & 0xff);
+                }
+                case 2 -> {
+                    if (inIndex + 2 > end) {
+                        throw new IllegalArgumentException("snappy copy runs past the end of the input");
+                    }
+                    copyLength = 1 + (tag >>> 2);
+                    copyOffset = (in[inIndex] & 0xff) | (in[inIndex + 1] & 0xff) << 8;
+                    inIndex += 2;
+                }
+                default -> {
+                    if (inIndex + 4 > end) {
+                        throw new IllegalArgumentException("snappy copy runs past the end of the input");
+                    }
+                    copyLength = 1 + (tag >>> 2);
+                    copyOffset = (in[inIndex] & 0xff) | (in[inIndex + 1] & 0xff) << 8 | (in[inIndex + 2] & 0xff) << 16 | (in[inIndex + 3] & 0xff) << 24;
+                    inIndex += 4;
+                }
+            }
+
+            if (copyOffset <= 0 || copyOffset > outIndex || outIndex + copyLength > expected) {
+                throw new IllegalArgumentException("snappy copy refers outside the output");
+            }
+
+            // copies may overlap their own output, so copy in chunks no longer than the offset
+            var reference = outIndex - copyOffset;
+            while (copyLength > 0) {
+                var size = Math.min(copyLength, outIndex - reference);
+                System.arraycopy(out, reference, out, outIndex, size);
+                outIndex += size;
+                reference += size;
+                copyLength -= size;
+            }
+        }
+
+        if (outIndex != expected) {
+            throw new IllegalArgumentException("snappy data is shorter than its stated length");
+        }
+        return outIndex;
+    }
+}
@@ -0,0 +1,155 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Encodes the sort fields of a record as a fixed length key whose unsigned byte order is the order of the records.
+//
+// Each field starts with a byte that is 0 for null and 1 otherwise, so nulls sort first, followed by:
+//   Bool, Byte, Int16, Int32, Int64: big-endian with the sign bit flipped
+//   Float, Double: the bits of the double, all flipped when negative and the sign bit flipped when not
+//   FixedDecimal: the unscaled value at the field's scale as an Int64
+//   Date, Time, DateTime: the stored ISO text, which already orders correctly
+//   strings: the first PREFIX_CHARS UTF-16 code units, big-endian and zero padded
+// A descending field has all of its bytes flipped, which also puts its nulls last.
+//
+// Strings longer than the prefix can tie on the key, so when keys are equal and there are string fields, Ties compares
+// the full strings.
+final class SortKey {
+    static final int PREFIX_CHARS = 16;
+
+    private final YxdbRecord record;
+    private final YxdbField[] fields;
+    private final boolean[] descending;
+    private final int[] offsets;
+    final int length;
+    final boolean hasStrings;
+
+    SortKey(YxdbRecord record, YxdbField[] fields, boolean[] descending) throws IllegalArgumentException {
+        this.record = record;
+        this.fields = fields;
+        this.descending = descending;
+        this.offsets = new int[fields.length + 1];
+        var strings = false;
+        for (var i = 0; i < fields.length; i++) {
+            strings |= fields[i].dataType() == DataType.STRING;
+            offsets[i + 1] = offsets[i] + 1 + width(fields[i]);
+        }
+        this.length = offsets[fields.length];
+        this.hasStrings = strings;
+    }
+
+    private static int width(YxdbField field) throws IllegalArgumentException {
+        return switch (field.yxdbType()) {
+            case YxdbType.BOOLEAN, YxdbType.BYTE -> 1;
+            case YxdbType.INT16 -> 2;
+            case YxdbType.INT32 -> 4;
+            case YxdbType.INT64, YxdbType.FLOAT, YxdbType.DOUBLE, YxdbType.DECIMAL, YxdbType.TIME -> 8;
+            case YxdbType.DATE -> 10;
+            case YxdbType.DATETIME -> 19;
+            case YxdbType.STRING, YxdbType.WSTRING, YxdbType.V_STRING, YxdbType.V_WSTRING -> PREFIX_CHARS * 2;
+            default -> throw new IllegalArgumentException("Cannot sort by the " + field.yxdbType() + " field " + field.name() + ".");
+        };
+    }
+
+    // Writes the key of the record in buffer to out at offset.
+    void encode(ByteBuffer buffer, byte[] out, int offset) throws IllegalArgumentException {
+        Arrays.fill(out, offset, offset + length, (byte) 0);
+        for (var i = 0; i < fields.length; i++) {
+            var field = fields[i];
+            var at = offset + offsets[i];
+            if (!record.isNullFrom(field.index(), buffer)) {
+                out[at] = 1;
+                encodeValue(field, buffer, out, at + 1);
+            }
+            if (descending[i]) {
+                for (var j = at; j < offset + offsets[i + 1]; j++) {
+                    out[j] = (byte) ~out[j];
+                }
+            }
+        }
+    }
+
+    private void encodeValue(YxdbField field, ByteBuffer buffer, byte[] out, int at) {
+        var start = field.startPosition();
+        switch (field.yxdbType()) {
+            case YxdbType.BOOLEAN -> out[at] = buffer.get(start);
+            case YxdbType.BYTE -> out[at] = (byte) (buffer.get(start) ^ 0x80);
+            case YxdbType.INT16 -> putBigEndian(out, at, 2, buffer.getShort(start) ^ 0x8000);
+            case YxdbType.INT32 -> putBigEndian(out, at, 4, buffer.getInt(start) ^ 0x80000000);
+            case YxdbType.INT64 -> putBigEndian(out, at, 8, buffer.getLong(start) ^ Long.MIN_VALUE);
+            case YxdbType.FLOAT, YxdbType.DOUBLE -> {
+                var value = field.yxdbType().equals(YxdbType.FLOAT) ? buffer.getFloat(start) : buffer.getDouble(start);
+                var bits = Double.doubleToLongBits(value);
+                putBigEndian(out, at, 8, bits < 0 ? ~bits : bits ^ Long.MIN_VALUE);
+            }
+            case YxdbType.DECIMAL -> {
+                var value = record.extractDecimalFrom(field.index(), buffer).setScale(field.scale(), RoundingMode.HALF_EVEN);
+                var unscaled = value.unscaledValue();
+                if (unscaled.bitLength() >= 64) {
+                    throw new IllegalArgumentException("A value of " + field.name() + " is too large to sort.");
+                }
+                putBigEndian(out, at, 8, unscaled.longValue() ^ Long.MIN_VALUE);
+            }
+            case YxdbType.DATE, YxdbType.TIME, YxdbType.DATETIME -> buffer.get(start, out, at, width(field));
+            default -> {
+                var value = record.extractStringFrom(field.index(), buffer);
+                var chars = Math.min(PREFIX_CHARS, value.length());
+                for (var c = 0; c < chars; c++) {
+                    var unit = value.charAt(c);
+                    out[at + c * 2] = (byte) (unit >>> 8);
+                    out[at + c * 2 + 1] = (byte) unit;
+                }
+            }
+        }
+    }
+
+    private static void putBigEndian(byte[] out, int at, int bytes, long value) {
+        for (var i = bytes - 1; i >= 0; i--) {
+            out[at + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    // Compares the full strings of two records whose keys are equal. Each instance holds the buffers the records are
+    // copied into, so it must only be used by one thread.
+    final class Ties {
+        private ByteBuffer left = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        private ByteBuffer right = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        int compare(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+            if (!hasStrings) {
+                return 0;
+            }
+            left = copy(left, a, aOffset, aLength);
+            right = copy(right, b, bOffset, bLength);
+            for (var i = 0; i < fields.length; i++) {
+                var field = fields[i];
+                if (field.dataType() != DataType.STRING) {
+                    continue;
+                }
+                var x = record.extractStringFrom(field.index(), left);
+                var y = record.extractStringFrom(field.index(), right);
+                if (x == null || y == null) {
+                    // equal keys mean both are null
+                    continue;
+                }
+                var compare = x.compareTo(y);
+                if (compare != 0) {
+                    return descending[i] ? -compare : compare;
+                }
+            }
+            return 0;
+        }
+
+        private static ByteBuffer copy(ByteBuffer buffer, byte[] bytes, int offset, int length) {
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            System.arraycopy(bytes, offset, buffer.array(), 0, length);
+            return buffer;
+        }
+    }
+}
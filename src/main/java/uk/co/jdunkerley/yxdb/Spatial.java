@@ -1,17 +1,38 @@
 package uk.co.jdunkerley.yxdb;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Spatial contains a static function to translate SpatialObj fields into GeoJSON.
+ * Spatial contains static functions to translate SpatialObj fields into GeoJSON, WKB and WKT, and to read their bounding boxes.
  */
 public final class Spatial {
-    final static private int BytesPerPoint = 16;
+    final static int BytesPerPoint = 16;
 
-    private record Point(double lng, double lat) {}
+    /**
+     * The extent of a spatial object, as stored in the SpatialObj header.
+     *
+     * @param minX The smallest x (longitude) coordinate.
+     * @param minY The smallest y (latitude) coordinate.
+     * @param maxX The largest x (longitude) coordinate.
+     * @param maxY The largest y (latitude) coordinate.
+     */
+    public record BoundingBox(double minX, double minY, double maxX, double maxY) {
+        /**
+         * Checks whether this box overlaps another box. Boxes that only touch at an edge are treated as overlapping.
+         *
+         * @param minX The smallest x coordinate of the other box
+         * @param minY The smallest y coordinate of the other box
+         * @param maxX The largest x coordinate of the other box
+         * @param maxY The largest y coordinate of the other box
+         * @return true if the boxes overlap
+         */
+        public boolean intersects(double minX, double minY, double maxX, double maxY) {
+            return boxesIntersect(this.minX, this.minY, this.maxX, this.maxY, minX, minY, maxX, maxY);
+        }
+    }
 
     private Spatial() {
     }
@@ -30,132 +51,371 @@ public final class Spatial {
             return "";
         }
 
-        if (value.length < 20) {
-            for (var b : value) {
-                if (b != 0) {
-                    throw new IllegalArgumentException("bytes are not a spatial object");
+        var sink = new ByteSink(64 + value.length * 3);
+        if (!writeGeoJson(value, 0, value.length, sink)) {
+            return "";
+        }
+        return new String(sink.bytes, 0, sink.length, StandardCharsets.US_ASCII);
+    }
+
+    // Writes the GeoJSON of a SpatialObj value held at offset in a larger array, such as a record buffer, into the sink.
+    // Returns false, writing nothing, if the value holds no spatial object.
+    static boolean writeGeoJson(byte[] value, int offset, int length, ByteSink sink) throws IllegalArgumentException {
+        var geometry = SpatialGeometry.of(value, offset, length);
+        if (geometry == null) {
+            return false;
+        }
+
+        sink.writeAscii("{\"yxdbType\":\"");
+        switch (geometry.type()) {
+            case POINT -> {
+                if (geometry.numPoints() == 1) {
+                    sink.writeAscii("Point\",\"coordinates\":");
+                    writeGeoJsonPoint(sink, geometry, 0);
+                } else {
+                    sink.writeAscii("MultiPoint\",\"coordinates\":[");
+                    for (var i = 0; i < geometry.numPoints(); i++) {
+                        if (i != 0) {
+                            sink.write((byte) ',');
+                        }
+                        writeGeoJsonPoint(sink, geometry, i);
+                    }
+                    sink.write((byte) ']');
                 }
             }
-            return "";
+            case LINE -> {
+                if (geometry.numParts() == 1) {
+                    sink.writeAscii("LineString\",\"coordinates\":");
+                    writeGeoJsonParts(sink, geometry);
+                } else {
+                    sink.writeAscii("MultiLineString\",\"coordinates\":[");
+                    writeGeoJsonParts(sink, geometry);
+                    sink.write((byte) ']');
+                }
+            }
+            case POLYGON -> {
+                // the rings of a multi-part polygon are written as a single polygon
+                sink.writeAscii(geometry.numParts() == 1 ? "Polygon\",\"coordinates\":[" : "MultiPolygon\",\"coordinates\":[[");
+                writeGeoJsonParts(sink, geometry);
+                sink.writeAscii(geometry.numParts() == 1 ? "]" : "]]");
+            }
         }
+        sink.write((byte) '}');
+        return true;
+    }
 
-        var buffer = ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN);
-        var objType = buffer.getInt(0);
-        return switch (objType) {
-            case 8 -> parsePoints(buffer);
-            case 3 -> parseLines(buffer);
-            case 5 -> parsePoly(buffer);
-            default -> throw new IllegalArgumentException("bytes are not a spatial object");
-        };
+    private static void writeGeoJsonParts(ByteSink sink, SpatialGeometry geometry) {
+        for (var part = 0; part < geometry.numParts(); part++) {
+            sink.writeAscii(part == 0 ? "[" : ",[");
+            for (var i = geometry.partStart(part); i < geometry.partEnd(part); i++) {
+                if (i != geometry.partStart(part)) {
+                    sink.write((byte) ',');
+                }
+                writeGeoJsonPoint(sink, geometry, i);
+            }
+            sink.write((byte) ']');
+        }
     }
 
-    private static String parsePoints(ByteBuffer value) {
-        var totalPoints = value.getInt(36);
-        return totalPoints == 1
-                ? geoJson("Point", getCoordAt(value, 40))
-                : parseMultiPoint(value);
+    private static void writeGeoJsonPoint(ByteSink sink, SpatialGeometry geometry, int index) {
+        sink.write((byte) '[');
+        sink.writeAscii(Double.toString(geometry.x(index)));
+        sink.write((byte) ',');
+        sink.writeAscii(Double.toString(geometry.y(index)));
+        sink.write((byte) ']');
     }
 
-    private static String parseMultiPoint(ByteBuffer value) {
-        var points = new ArrayList<Point>();
-        var i = 40;
-        while (i < value.capacity()) {
-            points.add(getCoordAt(value, i));
-            i += BytesPerPoint;
+    /**
+     * ToWkb translates SpatialObj fields into little-endian Well-Known Binary (WKB).
+     * <p>
+     * The geometry types match those produced by toGeoJson. Coordinates in the Alteryx binary format already have
+     * the WKB layout, so they are copied across in bulk.
+     *
+     * @param value The object read from a SpatialObj field
+     * @return The WKB bytes representing the spatial object, or an empty array if the field holds no spatial object
+     * @throws IllegalArgumentException The blob is not a valid spatial object
+     */
+    public static byte[] toWkb(byte[] value) throws IllegalArgumentException {
+        var geometry = SpatialGeometry.of(value);
+        if (geometry == null) {
+            return new byte[0];
         }
-        return geoJson("MultiPoint", points);
+
+        var output = ByteBuffer.allocate(wkbLength(geometry)).order(ByteOrder.LITTLE_ENDIAN);
+        writeWkb(geometry, output);
+        return output.array();
+    }
+
+    /**
+     * ToWkb translates SpatialObj fields into little-endian Well-Known Binary (WKB), writing into the supplied buffer.
+     * <p>
+     * The WKB is written at the buffer's current position, which is advanced past it. The byte order of the buffer is left unchanged.
+     * Use wkbLength to find out how much space is needed.
+     *
+     * @param value  The object read from a SpatialObj field
+     * @param output The buffer to write the WKB into
+     * @return The number of bytes written, 0 if the field holds no spatial object
+     * @throws IllegalArgumentException The blob is not a valid spatial object
+     * @throws BufferOverflowException  The buffer does not have enough space remaining
+     */
+    public static int toWkb(byte[] value, ByteBuffer output) throws IllegalArgumentException, BufferOverflowException {
+        var geometry = SpatialGeometry.of(value);
+        if (geometry == null) {
+            return 0;
+        }
+
+        var length = wkbLength(geometry);
+        if (output.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+
+        var order = output.order();
+        try {
+            writeWkb(geometry, output.order(ByteOrder.LITTLE_ENDIAN));
+        } finally {
+            output.order(order);
+        }
+        return length;
     }
 
-    private static String parseLines(ByteBuffer value) {
-        var lines = parseMultiPointObjects(value);
-        return lines.size() == 1
-                ? geoJson("LineString", lines.getFirst())
-                : geoJson("MultiLineString", lines);
+    /**
+     * Calculates the number of bytes toWkb will write for a SpatialObj field.
+     *
+     * @param value The object read from a SpatialObj field
+     * @return The length of the WKB, 0 if the field holds no spatial object
+     * @throws IllegalArgumentException The blob is not a valid spatial object
+     */
+    public static int wkbLength(byte[] value) throws IllegalArgumentException {
+        var geometry = SpatialGeometry.of(value);
+        return geometry == null ? 0 : wkbLength(geometry);
     }
 
-    private static String parsePoly(ByteBuffer value) {
-        var poly = parseMultiPointObjects(value);
-        if (poly.size() == 1) {
-            return geoJson("Polygon", poly);
+    /**
+     * ToWkt translates SpatialObj fields into Well-Known Text (WKT).
+     * <p>
+     * The geometry types match those produced by toGeoJson.
+     *
+     * @param value The object read from a SpatialObj field
+     * @return A WKT string representing the spatial object, or an empty string if the field holds no spatial object
+     * @throws IllegalArgumentException The blob is not a valid spatial object
+     */
+    public static String toWkt(byte[] value) throws IllegalArgumentException {
+        if (value == null) {
+            return "";
         }
 
-        var coordinates = new ArrayList<ArrayList<ArrayList<Point>>>();
-        coordinates.add(poly);
-        return geoJson("MultiPolygon", coordinates);
+        var sink = new ByteSink(64 + value.length * 3);
+        writeWkt(value, 0, value.length, sink);
+        return new String(sink.bytes, 0, sink.length, StandardCharsets.US_ASCII);
     }
 
-    private static ArrayList<ArrayList<Point>> parseMultiPointObjects(ByteBuffer value) {
-        var endingIndices = getEndingIndices(value);
+    // Writes the WKT of a SpatialObj value held at offset in a larger array, such as a record buffer, into the sink.
+    // Returns false, writing nothing, if the value holds no spatial object.
+    static boolean writeWkt(byte[] value, int offset, int length, ByteSink sink) throws IllegalArgumentException {
+        var geometry = SpatialGeometry.of(value, offset, length);
+        if (geometry == null) {
+            return false;
+        }
 
-        var i = 48 + (endingIndices.length * 4) - 4;
-        var objects = new ArrayList<ArrayList<Point>>();
-        for (var endingIndex : endingIndices) {
-            var line = new ArrayList<Point>();
-            while (i < endingIndex) {
-                line.add(getCoordAt(value, i));
-                i += BytesPerPoint;
+        switch (geometry.type()) {
+            case POINT -> {
+                if (geometry.numPoints() == 1) {
+                    sink.writeAscii("POINT (");
+                    writeWktPoint(sink, geometry, 0);
+                    sink.write((byte) ')');
+                } else {
+                    sink.writeAscii("MULTIPOINT (");
+                    for (var i = 0; i < geometry.numPoints(); i++) {
+                        sink.writeAscii(i == 0 ? "(" : ", (");
+                        writeWktPoint(sink, geometry, i);
+                        sink.write((byte) ')');
+                    }
+                    sink.write((byte) ')');
+                }
+            }
+            case LINE -> {
+                sink.writeAscii(geometry.numParts() == 1 ? "LINESTRING " : "MULTILINESTRING (");
+                writeWktParts(sink, geometry);
+                if (geometry.numParts() != 1) {
+                    sink.write((byte) ')');
+                }
+            }
+            case POLYGON -> {
+                sink.writeAscii(geometry.numParts() == 1 ? "POLYGON (" : "MULTIPOLYGON ((");
+                writeWktParts(sink, geometry);
+                sink.writeAscii(geometry.numParts() == 1 ? ")" : "))");
             }
-            objects.add(line);
         }
-        return objects;
+        return true;
     }
 
-    private static int[] getEndingIndices(ByteBuffer value) {
-        var totalObjects = value.getInt(36);
-        var totalPoints = (int) value.getLong(40);
-        var endingIndices = new int[totalObjects];
-
-        var i = 48;
-        var startAt = 48 + ((totalObjects - 1) * 4);
-        for (var j = 1; j < totalObjects; j++) {
-            var endingPoint = value.getInt(i);
-            var endingIndex = (endingPoint * BytesPerPoint) + startAt;
-            endingIndices[j - 1] = endingIndex;
-            i += 4;
+    private static void writeWktParts(ByteSink sink, SpatialGeometry geometry) {
+        for (var part = 0; part < geometry.numParts(); part++) {
+            sink.writeAscii(part == 0 ? "(" : ", (");
+            for (var i = geometry.partStart(part); i < geometry.partEnd(part); i++) {
+                if (i != geometry.partStart(part)) {
+                    sink.writeAscii(", ");
+                }
+                writeWktPoint(sink, geometry, i);
+            }
+            sink.write((byte) ')');
         }
-        endingIndices[totalObjects - 1] = (totalPoints * BytesPerPoint) + startAt;
-        return endingIndices;
     }
 
-    private static Point getCoordAt(ByteBuffer value, int at) {
-        var lng = value.getDouble(at);
-        var lat = value.getDouble(at + 8);
-        return new Point(lng, lat);
+    private static void writeWktPoint(ByteSink sink, SpatialGeometry geometry, int index) {
+        sink.writeAscii(Double.toString(geometry.x(index)));
+        sink.write((byte) ' ');
+        sink.writeAscii(Double.toString(geometry.y(index)));
     }
 
-    private static String geoJson(String objType, Object coordinates) {
-        var builder = new StringBuilder();
-        builder.append("{\"yxdbType\":\"");
-        builder.append(objType);
-        builder.append("\",\"coordinates\":");
-        coordinatesToJson(builder, coordinates);
-        builder.append('}');
-        return builder.toString();
+    private static int wkbLength(SpatialGeometry geometry) {
+        var points = geometry.numPoints() * BytesPerPoint;
+        return switch (geometry.type()) {
+            case POINT -> geometry.numPoints() == 1 ? 5 + points : 9 + geometry.numPoints() * 5 + points;
+            case LINE -> geometry.numParts() == 1 ? 9 + points : 9 + geometry.numParts() * 9 + points;
+            case POLYGON -> geometry.numParts() == 1 ? 13 + points : 18 + geometry.numParts() * 4 + points;
+        };
     }
 
-    private static void coordinatesToJson(StringBuilder builder, Object coordinates) {
-        switch (coordinates) {
-            case List<?> list -> {
-                builder.append('[');
-                var first = true;
-                for (var item : list) {
-                    if (!first) {
-                        builder.append(',');
+    private static void writeWkb(SpatialGeometry geometry, ByteBuffer output) {
+        switch (geometry.type()) {
+            case POINT -> {
+                if (geometry.numPoints() == 1) {
+                    writeWkbHeader(output, 1);
+                    writeWkbPoints(geometry, output, 0, 1);
+                } else {
+                    writeWkbHeader(output, 4);
+                    output.putInt(geometry.numPoints());
+                    for (var i = 0; i < geometry.numPoints(); i++) {
+                        writeWkbHeader(output, 1);
+                        writeWkbPoints(geometry, output, i, i + 1);
+                    }
+                }
+            }
+            case LINE -> {
+                if (geometry.numParts() == 1) {
+                    writeWkbHeader(output, 2);
+                    writeWkbRing(geometry, output, 0);
+                } else {
+                    writeWkbHeader(output, 5);
+                    output.putInt(geometry.numParts());
+                    for (var part = 0; part < geometry.numParts(); part++) {
+                        writeWkbHeader(output, 2);
+                        writeWkbRing(geometry, output, part);
                     }
-                    coordinatesToJson(builder, item);
-                    first = false;
                 }
+            }
+            case POLYGON -> {
+                if (geometry.numParts() != 1) {
+                    writeWkbHeader(output, 6);
+                    output.putInt(1);
+                }
+                writeWkbHeader(output, 3);
+                output.putInt(geometry.numParts());
+                for (var part = 0; part < geometry.numParts(); part++) {
+                    writeWkbRing(geometry, output, part);
+                }
+            }
+        }
+    }
+
+    private static void writeWkbHeader(ByteBuffer output, int wkbType) {
+        output.put((byte) 1); // little-endian
+        output.putInt(wkbType);
+    }
+
+    private static void writeWkbRing(SpatialGeometry geometry, ByteBuffer output, int part) {
+        var start = geometry.partStart(part);
+        var end = geometry.partEnd(part);
+        output.putInt(end - start);
+        writeWkbPoints(geometry, output, start, end);
+    }
 
-                builder.append(']');
+    private static void writeWkbPoints(SpatialGeometry geometry, ByteBuffer output, int start, int end) {
+        if (end > start) {
+            output.put(geometry.bytes(), geometry.arrayOffset(start), (end - start) * BytesPerPoint);
+        }
+    }
+
+    /**
+     * Reads the bounding box of a SpatialObj field.
+     * <p>
+     * The bounding box is stored in the header of the binary format, so none of the coordinates are parsed.
+     *
+     * @param value The object read from a SpatialObj field
+     * @return The bounding box of the spatial object, or null if the field holds no spatial object
+     * @throws IllegalArgumentException The blob is not a valid spatial object
+     */
+    public static BoundingBox boundingBox(byte[] value) throws IllegalArgumentException {
+        if (value == null) {
+            return null;
+        }
+
+        var buffer = ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN);
+        if (!hasBoundingBox(buffer, 0, value.length)) {
+            return null;
+        }
+
+        return new BoundingBox(buffer.getDouble(4), buffer.getDouble(12), buffer.getDouble(20), buffer.getDouble(28));
+    }
+
+    static boolean intersectsBox(ByteBuffer buffer, int start, int length, double minX, double minY, double maxX, double maxY) {
+        if (!hasBoundingBox(buffer, start, length)) {
+            return false;
+        }
+
+        return boxesIntersect(
+                buffer.getDouble(start + 4), buffer.getDouble(start + 12), buffer.getDouble(start + 20), buffer.getDouble(start + 28),
+                minX, minY, maxX, maxY);
+    }
+
+    static boolean hasBoundingBox(ByteBuffer buffer, int start, int length) {
+        if (length < 20) {
+            for (var i = 0; i < length; i++) {
+                if (buffer.get(start + i) != 0) {
+                    throw new IllegalArgumentException("bytes are not a spatial object");
+                }
             }
-            case Point(double lng, double lat) -> {
-                builder.append('[');
-                builder.append(lng);
-                builder.append(',');
-                builder.append(lat);
-                builder.append(']');
+            return false;
+        }
+
+        var objType = buffer.getInt(start);
+        if ((objType != 8 && objType != 3 && objType != 5) || length < 36) {
+            throw new IllegalArgumentException("bytes are not a spatial object");
+        }
+        return true;
+    }
+
+    private static boolean boxesIntersect(double minX1, double minY1, double maxX1, double maxY1,
+                                          double minX2, double minY2, double maxX2, double maxY2) {
+        return minX1 <= maxX2 && minX2 <= maxX1 && minY1 <= maxY2 && minY2 <= maxY1;
+    }
+
+    // Works out the byte offset each part of a line or polygon ends at. Each part ends at a point number read from the
+    // blob, except the last, which ends with the points. Sizes are worked out in longs, so corrupt counts are rejected
+    // rather than overflowing past the checks.
+    static int[] getEndingIndices(ByteBuffer value) throws IllegalArgumentException {
+        if (value.capacity() < 48) {
+            throw new IllegalArgumentException("bytes are not a spatial object");
+        }
+
+        var totalParts = value.getInt(36);
+        var pointsStart = 48 + (totalParts - 1) * 4L;
+        var totalPoints = value.getLong(40);
+        if (totalParts < 1 || pointsStart > value.capacity() || totalPoints < 0 || totalPoints > (value.capacity() - pointsStart) / BytesPerPoint) {
+            throw new IllegalArgumentException("bytes are not a spatial object");
+        }
+
+        var endingIndices = new int[totalParts];
+        var previous = 0L;
+        for (var part = 0; part < totalParts; part++) {
+            var endingPoint = part + 1 < totalParts ? Integer.toUnsignedLong(value.getInt(48 + part * 4)) : totalPoints;
+            if (endingPoint < previous || endingPoint > totalPoints) {
+                throw new IllegalArgumentException("bytes are not a spatial object");
             }
-            default -> builder.append(coordinates);
+            endingIndices[part] = (int) (pointsStart + endingPoint * BytesPerPoint);
+            previous = endingPoint;
         }
+        return endingIndices;
     }
 }
@@ -0,0 +1,185 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * SpatialGeometry is a read-only view over the bytes of a SpatialObj field.
+ * <p>
+ * Coordinates are read directly from the little-endian blob, so no points are copied or materialized.
+ * Points are addressed by a zero-based index across the whole geometry; each part (a line or a polygon ring)
+ * covers the points from partStart(part) up to, but not including, partEnd(part).
+ */
+public final class SpatialGeometry {
+    /**
+     * The kind of geometry stored in a SpatialObj field.
+     */
+    public enum Type {
+        /** POINT: one or more points */
+        POINT,
+
+        /** LINE: one or more lines */
+        LINE,
+
+        /** POLYGON: one or more polygon rings */
+        POLYGON
+    }
+
+    private final ByteBuffer buffer;
+    private final Type type;
+    private final int numPoints;
+    private final int pointsStart;
+    private final int[] endingIndices;
+
+    private SpatialGeometry(ByteBuffer buffer, Type type, int numPoints, int pointsStart, int[] endingIndices) {
+        this.buffer = buffer;
+        this.type = type;
+        this.numPoints = numPoints;
+        this.pointsStart = pointsStart;
+        this.endingIndices = endingIndices;
+    }
+
+    /**
+     * Wraps the bytes read from a SpatialObj field without copying them.
+     *
+     * @param value The object read from a SpatialObj field
+     * @return A view over the spatial object, or null if the field holds no spatial object
+     * @throws IllegalArgumentException The blob is not a valid spatial object
+     */
+    public static SpatialGeometry of(byte[] value) throws IllegalArgumentException {
+        return value == null ? null : of(value, 0, value.length);
+    }
+
+    // Wraps a SpatialObj value held at offset in a larger array, such as a record buffer, without copying it.
+    static SpatialGeometry of(byte[] value, int offset, int length) throws IllegalArgumentException {
+        if (length < 20) {
+            for (var i = offset; i < offset + length; i++) {
+                if (value[i] != 0) {
+                    throw new IllegalArgumentException("bytes are not a spatial object");
+                }
+            }
+            return null;
+        }
+
+        var buffer = ByteBuffer.wrap(value, offset, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+        return switch (buffer.getInt(0)) {
+            case 8 -> parsePoints(buffer);
+            case 3 -> parseParts(buffer, Type.LINE);
+            case 5 -> parseParts(buffer, Type.POLYGON);
+            default -> throw new IllegalArgumentException("bytes are not a spatial object");
+        };
+    }
+
+    // The size is worked out in a long, so a corrupt count is rejected rather than overflowing past the check.
+    private static SpatialGeometry parsePoints(ByteBuffer buffer) {
+        if (buffer.capacity() < 40) {
+            throw new IllegalArgumentException("bytes are not a spatial object");
+        }
+
+        var totalPoints = buffer.getInt(36);
+        var end = 40 + (long) totalPoints * Spatial.BytesPerPoint;
+        if (totalPoints < 0 || end > buffer.capacity()) {
+            throw new IllegalArgumentException("bytes are not a spatial object");
+        }
+        return new SpatialGeometry(buffer, Type.POINT, totalPoints, 40, new int[]{(int) end});
+    }
+
+    private static SpatialGeometry parseParts(ByteBuffer buffer, Type type) {
+        var endingIndices = Spatial.getEndingIndices(buffer);
+        var pointsStart = 48 + (endingIndices.length - 1) * 4;
+        var numPoints = (endingIndices[endingIndices.length - 1] - pointsStart) / Spatial.BytesPerPoint;
+        return new SpatialGeometry(buffer, type, numPoints, pointsStart, endingIndices);
+    }
+
+    /**
+     * The kind of geometry.
+     * @return the kind of geometry
+     */
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * The number of parts (lines or polygon rings) in the geometry. Point geometries have a single part.
+     * @return the number of parts
+     */
+    public int numParts() {
+        return endingIndices.length;
+    }
+
+    /**
+     * The total number of points across all parts.
+     * @return the total number of points
+     */
+    public int numPoints() {
+        return numPoints;
+    }
+
+    /**
+     * The index of the first point of a part.
+     *
+     * @param part the index of the part, starting at 0
+     * @return the index of the first point in the part
+     * @throws IllegalArgumentException thrown when the part is out of range
+     */
+    public int partStart(int part) throws IllegalArgumentException {
+        checkPart(part);
+        return part == 0 ? 0 : partEnd(part - 1);
+    }
+
+    /**
+     * The index after the last point of a part.
+     *
+     * @param part the index of the part, starting at 0
+     * @return the index after the last point in the part
+     * @throws IllegalArgumentException thrown when the part is out of range
+     */
+    public int partEnd(int part) throws IllegalArgumentException {
+        checkPart(part);
+        return (endingIndices[part] - pointsStart) / Spatial.BytesPerPoint;
+    }
+
+    /**
+     * Reads the x (longitude) coordinate of a point.
+     *
+     * @param index the index of the point, starting at 0
+     * @return the x coordinate
+     * @throws IllegalArgumentException thrown when the index is out of range
+     */
+    public double x(int index) throws IllegalArgumentException {
+        return buffer.getDouble(pointOffset(index));
+    }
+
+    /**
+     * Reads the y (latitude) coordinate of a point.
+     *
+     * @param index the index of the point, starting at 0
+     * @return the y coordinate
+     * @throws IllegalArgumentException thrown when the index is out of range
+     */
+    public double y(int index) throws IllegalArgumentException {
+        return buffer.getDouble(pointOffset(index) + 8);
+    }
+
+    byte[] bytes() {
+        return buffer.array();
+    }
+
+    // the offset of a point in bytes()
+    int arrayOffset(int index) {
+        return buffer.arrayOffset() + pointOffset(index);
+    }
+
+    int pointOffset(int index) {
+        if (index < 0 || index >= numPoints) {
+            throw new IllegalArgumentException("The point " + index + " is out of range.");
+        }
+        return pointsStart + index * Spatial.BytesPerPoint;
+    }
+
+    private void checkPart(int part) {
+        if (part < 0 || part >= endingIndices.length) {
+            throw new IllegalArgumentException("The part " + part + " is out of range.");
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * SpatialIndex is a packed Hilbert R-tree over the bounding boxes of a SpatialObj field, persisted in a sidecar file next to the .yxdb file.
+ * <p>
+ * Each entry in the index records where its record starts: the file offset of the LZF block and the position within the decompressed block.
+ * Queries use these positions to jump straight to the blocks holding candidate records, so no other part of the file is read or decompressed.
+ * <p>
+ * The sidecar stores the size and modification time of the .yxdb file. An index whose .yxdb file has since changed is out of date and will not be opened.
+ */
+public final class SpatialIndex {
+    private static final int MAGIC = 0x49535859; // "YXSI"
+    private static final int VERSION = 1;
+    private static final int NODE_SIZE = 16;
+
+    /** The file extension appended to the .yxdb file path to name the sidecar. */
+    public static final String EXTENSION = ".sidx";
+
+    private final Path yxdbPath;
+    private final SidecarHeader header;
+    private final int fieldIndex;
+    private final String fieldName;
+
+    private final long[] recordNumbers;
+    private final long[] blockPositions;
+    private final int[] blockIndices;
+
+    private final double[] boxes;
+    private final int[] indices;
+    private final int[] levelBounds;
+
+    private SpatialIndex(Path yxdbPath, SidecarHeader header, int fieldIndex, String fieldName, long[] recordNumbers, long[] blockPositions, int[] blockIndices,
+                         double[] boxes, int[] indices) {
+        this.yxdbPath = yxdbPath;
+        this.header = header;
+        this.fieldIndex = fieldIndex;
+        this.fieldName = fieldName;
+        this.recordNumbers = recordNumbers;
+        this.blockPositions = blockPositions;
+        this.blockIndices = blockIndices;
+        this.boxes = boxes;
+        this.indices = indices;
+        this.levelBounds = levelBounds(recordNumbers.length);
+    }
+
+    /**
+     * Builds a spatial index over a SpatialObj field and writes it next to the .yxdb file.
+     *
+     * @param path  the path to a .yxdb file
+     * @param index the index of the SpatialObj field to index, starting at 0
+     * @return the spatial index
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file, the index is out of range or the field is not a SpatialObj field
+     * @throws IOException              thrown when there are issues reading the file or writing the index
+     */
+    public static SpatialIndex build(String path, int index) throws IOException, IllegalArgumentException {
+        var header = SidecarHeader.of(Path.of(path));
+        try (var file = YxdbFile.open(path)) {
+            return build(file, index, header);
+        }
+    }
+
+    /**
+     * Builds a spatial index over a SpatialObj field and writes it next to the .yxdb file.
+     *
+     * @param path the path to a .yxdb file
+     * @param name the name of the SpatialObj field to index
+     * @return the spatial index
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file, the field does not exist or is not a SpatialObj field
+     * @throws IOException              thrown when there are issues reading the file or writing the index
+     */
+    public static SpatialIndex build(String path, String name) throws IOException, IllegalArgumentException {
+        var header = SidecarHeader.of(Path.of(path));
+        try (var file = YxdbFile.open(path)) {
+            return build(file, file.record.mapName(name), header);
+        }
+    }
+
+    /**
+     * Opens the spatial index stored next to a .yxdb file.
+     *
+     * @param path the path to a .yxdb file
+     * @return the spatial index
+     * @throws IllegalArgumentException thrown when the sidecar is not a valid spatial index
+     * @throws IOException              thrown when the sidecar does not exist, is out of date or cannot be read
+     */
+    public static SpatialIndex open(String path) throws IOException, IllegalArgumentException {
+        var yxdbPath = Path.of(path);
+        return SidecarHeader.open(yxdbPath, sidecarPath(yxdbPath), MAGIC, VERSION, "spatial index", (header, buffer) -> {
+            var fieldIndex = buffer.getInt();
+            var nameBytes = new byte[buffer.getInt()];
+            buffer.get(nameBytes);
+            var numItems = buffer.getInt();
+            var numNodes = buffer.getInt();
+
+            var boxes = new double[numNodes * 4];
+            buffer.asDoubleBuffer().get(boxes);
+            buffer.position(buffer.position() + boxes.length * 8);
+            var indices = new int[numNodes];
+            buffer.asIntBuffer().get(indices);
+            buffer.position(buffer.position() + indices.length * 4);
+            var recordNumbers = new long[numItems];
+            buffer.asLongBuffer().get(recordNumbers);
+            buffer.position(buffer.position() + recordNumbers.length * 8);
+            var blockPositions = new long[numItems];
+            buffer.asLongBuffer().get(blockPositions);
+            buffer.position(buffer.position() + blockPositions.length * 8);
+            var blockIndices = new int[numItems];
+            buffer.asIntBuffer().get(blockIndices);
+
+            return new SpatialIndex(yxdbPath, header, fieldIndex, new String(nameBytes, StandardCharsets.UTF_8), recordNumbers, blockPositions, blockIndices, boxes, indices);
+        });
+    }
+
+    /**
+     * Opens the spatial index stored next to a .yxdb file, building it first if it is missing, out of date or for a different field.
+     *
+     * @param path the path to a .yxdb file
+     * @param name the name of the SpatialObj field to index
+     * @return the spatial index
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file, the field does not exist or is not a SpatialObj field
+     * @throws IOException              thrown when there are issues reading the file or reading or writing the index
+     */
+    public static SpatialIndex openOrBuild(String path, String name) throws IOException, IllegalArgumentException {
+        if (Files.exists(sidecarPath(Path.of(path)))) {
+            try {
+                var index = open(path);
+                if (index.fieldName.equals(name)) {
+                    return index;
+                }
+            } catch (IOException | IllegalArgumentException ignored) {
+            }
+        }
+        return build(path, name);
+    }
+
+    /**
+     * The path of the sidecar file holding the spatial index for a .yxdb file.
+     *
+     * @param path the path to a .yxdb file
+     * @return the path of the spatial index
+     */
+    public static Path sidecarPath(Path path) {
+        return path.resolveSibling(path.getFileName() + EXTENSION);
+    }
+
+    /**
+     * The index of the SpatialObj field that is indexed.
+     * @return the index of the field, starting at 0
+     */
+    public int fieldIndex() {
+        return fieldIndex;
+    }
+
+    /**
+     * The name of the SpatialObj field that is indexed.
+     * @return the name of the field
+     */
+    public String fieldName() {
+        return fieldName;
+    }
+
+    /**
+     * The number of records in the index. Records whose spatial object is null are not indexed.
+     * @return the number of indexed records
+     */
+    public int size() {
+        return recordNumbers.length;
+    }
+
+    /**
+     * Finds the records whose bounding box overlaps the given box.
+     *
+     * @param minX the smallest x (longitude) coordinate of the box
+     * @param minY the smallest y (latitude) coordinate of the box
+     * @param maxX the largest x (longitude) coordinate of the box
+     * @param maxY the largest y (latitude) coordinate of the box
+     * @return the positions of the matching records in the file (starting at 0), in ascending order
+     */
+    public long[] search(double minX, double minY, double maxX, double maxY) {
+        var hits = searchEntries(minX, minY, maxX, maxY);
+        var result = new long[hits.length];
+        for (var i = 0; i < hits.length; i++) {
+            result[i] = recordNumbers[hits[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Opens a reader over the records whose bounding box overlaps the given box.
+     * <p>
+     * The reader's next() method moves through the matching records in file order, decompressing only the LZF blocks that hold them.
+     * All other methods behave as they do on a reader over the whole file.
+     *
+     * @param minX the smallest x (longitude) coordinate of the box
+     * @param minY the smallest y (latitude) coordinate of the box
+     * @param maxX the largest x (longitude) coordinate of the box
+     * @param maxY the largest y (latitude) coordinate of the box
+     * @return a reader over the matching records
+     * @throws IOException thrown when the .yxdb file has changed since the index was built or there are issues opening it
+     */
+    public YxdbReader query(double minX, double minY, double maxX, double maxY) throws IOException {
+        var hits = searchEntries(minX, minY, maxX, maxY);
+        var hitRecords = new long[hits.length];
+        var hitPositions = new long[hits.length];
+        var hitIndices = new int[hits.length];
+        for (var i = 0; i < hits.length; i++) {
+            hitRecords[i] = recordNumbers[hits[i]];
+            hitPositions[i] = blockPositions[hits[i]];
+            hitIndices[i] = blockIndices[hits[i]];
+        }
+
+        header.check(yxdbPath, "spatial index");
+
+        var file = YxdbFile.open(yxdbPath);
+        var reader = file.newRecordReader();
+        return new YxdbReader(file, reader, new RecordPositionCursor(file, reader, hitRecords, hitPositions, hitIndices));
+    }
+
+    // Returns the entries whose box overlaps the query, sorted by record number.
+    private int[] searchEntries(double minX, double minY, double maxX, double maxY) {
+        if (recordNumbers.length == 0) {
+            return new int[0];
+        }
+
+        var numItems = recordNumbers.length;
+        var results = new int[16];
+        var resultCount = 0;
+        var stack = new int[16];
+        var stackSize = 0;
+
+        var nodeIndex = boxes.length - 4;
+        while (true) {
+            var end = Math.min(nodeIndex + NODE_SIZE * 4, upperBound(nodeIndex));
+            for (var pos = nodeIndex; pos < end; pos += 4) {
+                if (maxX < boxes[pos] || maxY < boxes[pos + 1] || minX > boxes[pos + 2] || minY > boxes[pos + 3]) {
+                    continue;
+                }
+
+                var index = indices[pos >> 2];
+                if (nodeIndex < numItems * 4) {
+                    if (resultCount == results.length) {
+                        results = Arrays.copyOf(results, resultCount * 2);
+                    }
+                    results[resultCount++] = index;
+                } else {
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stackSize * 2);
+                    }
+                    stack[stackSize++] = index;
+                }
+            }
+
+            if (stackSize == 0) {
+                break;
+            }
+            nodeIndex = stack[--stackSize];
+        }
+
+        var sorted = Arrays.copyOf(results, resultCount);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private int upperBound(int nodeIndex) {
+        for (var bound : levelBounds) {
+            if (bound > nodeIndex) {
+                return bound;
+            }
+        }
+        return levelBounds[levelBounds.length - 1];
+    }
+
+    private static SpatialIndex build(YxdbFile file, int index, SidecarHeader header) throws IOException {
+        if (index < 0 || index >= file.fields.length) {
+            throw new IllegalArgumentException("The index " + index + " is out of range.");
+        }
+        var field = file.fields[index];
+        if (!field.yxdbType().equals(YxdbType.SPATIAL_OBJ)) {
+            throw new IllegalArgumentException("index " + index + " is not a valid index or is not a spatial field");
+        }
+
+        var count = 0;
+        var recordNumbers = new long[1024];
+        var blockPositions = new long[1024];
+        var blockIndices = new int[1024];
+        var itemBoxes = new double[4096];
+
+        var reader = file.newRecordReader();
+        var recordNumber = 0L;
+        while (reader.nextRecord()) {
+            var buffer = reader.recordBuffer;
+            var location = Extractors.locateBlob(buffer, field.startPosition());
+            var start = location == -1 ? 0 : Extractors.blobStart(location);
+            if (location != -1 && Spatial.hasBoundingBox(buffer, start, Extractors.blobLength(location))) {
+                if (count == recordNumbers.length) {
+                    recordNumbers = Arrays.copyOf(recordNumbers, count * 2);
+                    blockPositions = Arrays.copyOf(blockPositions, count * 2);
+                    blockIndices = Arrays.copyOf(blockIndices, count * 2);
+                    itemBoxes = Arrays.copyOf(itemBoxes, count * 8);
+                }
+
+                recordNumbers[count] = recordNumber;
+                blockPositions[count] = reader.recordBlockPosition;
+                blockIndices[count] = reader.recordBlockIndex;
+                itemBoxes[count * 4] = buffer.getDouble(start + 4);
+                itemBoxes[count * 4 + 1] = buffer.getDouble(start + 12);
+                itemBoxes[count * 4 + 2] = buffer.getDouble(start + 20);
+                itemBoxes[count * 4 + 3] = buffer.getDouble(start + 28);
+                count++;
+            }
+            recordNumber++;
+        }
+
+        var spatialIndex = pack(field, file.path, header, Arrays.copyOf(recordNumbers, count), Arrays.copyOf(blockPositions, count),
+                Arrays.copyOf(blockIndices, count), itemBoxes);
+        spatialIndex.write();
+        return spatialIndex;
+    }
+
+    private static SpatialIndex pack(YxdbField field, Path path, SidecarHeader header, long[] recordNumbers, long[] blockPositions, int[] blockIndices, double[] itemBoxes) {
+        var numItems = recordNumbers.length;
+        var bounds = levelBounds(numItems);
+        var numNodes = numItems == 0 ? 0 : bounds[bounds.length - 1] / 4;
+        var boxes = new double[numNodes * 4];
+        var indices = new int[numNodes];
+        if (numItems == 0) {
+            return new SpatialIndex(path, header, field.index(), field.name(), recordNumbers, blockPositions, blockIndices, boxes, indices);
+        }
+
+        var extentMinX = Double.POSITIVE_INFINITY;
+        var extentMinY = Double.POSITIVE_INFINITY;
+        var extentMaxX = Double.NEGATIVE_INFINITY;
+        var extentMaxY = Double.NEGATIVE_INFINITY;
+        for (var i = 0; i < numItems; i++) {
+            extentMinX = Math.min(extentMinX, itemBoxes[i * 4]);
+            extentMinY = Math.min(extentMinY, itemBoxes[i * 4 + 1]);
+            extentMaxX = Math.max(extentMaxX, itemBoxes[i * 4 + 2]);
+            extentMaxY = Math.max(extentMaxY, itemBoxes[i * 4 + 3]);
+        }
+
+        // sort the items along a Hilbert curve through the centres of their boxes, keeping the item in the low 31 bits
+        var width = extentMaxX - extentMinX;
+        var height = extentMaxY - extentMinY;
+        var keys = new long[numItems];
+        for (var i = 0; i < numItems; i++) {
+            var x = width == 0 ? 0 : (int) (65535 * ((itemBoxes[i * 4] + itemBoxes[i * 4 + 2]) / 2 - extentMinX) / width);
+            var y = height == 0 ? 0 : (int) (65535 * ((itemBoxes[i * 4 + 1] + itemBoxes[i * 4 + 3]) / 2 - extentMinY) / height);
+            keys[i] = (hilbert(x, y) << 31) | i;
+        }
+        Arrays.parallelSort(keys);
+
+        for (var i = 0; i < numItems; i++) {
+            var item = (int) (keys[i] & 0x7fffffff);
+            System.arraycopy(itemBoxes, item * 4, boxes, i * 4, 4);
+            indices[i] = item;
+        }
+
+        // build each level of parent nodes from the level below it
+        var pos = 0;
+        var next = numItems * 4;
+        for (var level = 0; level < bounds.length - 1; level++) {
+            var end = bounds[level];
+            while (pos < end) {
+                var nodeIndex = pos;
+                var nodeMinX = Double.POSITIVE_INFINITY;
+                var nodeMinY = Double.POSITIVE_INFINITY;
+                var nodeMaxX = Double.NEGATIVE_INFINITY;
+                var nodeMaxY = Double.NEGATIVE_INFINITY;
+                for (var j = 0; j < NODE_SIZE && pos < end; j++, pos += 4) {
+                    nodeMinX = Math.min(nodeMinX, boxes[pos]);
+                    nodeMinY = Math.min(nodeMinY, boxes[pos + 1]);
+                    nodeMaxX = Math.max(nodeMaxX, boxes[pos + 2]);
+                    nodeMaxY = Math.max(nodeMaxY, boxes[pos + 3]);
+                }
+
+                indices[next >> 2] = nodeIndex;
+                boxes[next++] = nodeMinX;
+                boxes[next++] = nodeMinY;
+                boxes[next++] = nodeMaxX;
+                boxes[next++] = nodeMaxY;
+            }
+        }
+
+        return new SpatialIndex(path, header, field.index(), field.name(), recordNumbers, blockPositions, blockIndices, boxes, indices);
+    }
+
+    // The end (in box array offsets) of each level of the tree, starting from the leaves.
+    private static int[] levelBounds(int numItems) {
+        if (numItems == 0) {
+            return new int[]{0};
+        }
+
+        var bounds = new int[32];
+        var levels = 0;
+        var n = numItems;
+        var numNodes = n;
+        bounds[levels++] = n * 4;
+        do {
+            n = (n + NODE_SIZE - 1) / NODE_SIZE;
+            numNodes += n;
+            bounds[levels++] = numNodes * 4;
+        } while (n != 1);
+        return Arrays.copyOf(bounds, levels);
+    }
+
+    // Position of (x, y) along a Hilbert curve filling a 65536 x 65536 grid.
+    private static long hilbert(int x, int y) {
+        var n = 1 << 16;
+        var d = 0L;
+        for (var s = n / 2; s > 0; s /= 2) {
+            var rx = (x & s) > 0 ? 1 : 0;
+            var ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                var t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    private void write() throws IOException {
+        var nameBytes = fieldName.getBytes(StandardCharsets.UTF_8);
+        var numItems = recordNumbers.length;
+        var length = SidecarHeader.LENGTH + 16 + nameBytes.length + boxes.length * 8L + indices.length * 4L + numItems * 20L;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Spatial index exceeds maximum supported size (2 GB).");
+        }
+
+        var buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        header.write(buffer, MAGIC, VERSION);
+        buffer.putInt(fieldIndex);
+        buffer.putInt(nameBytes.length);
+        buffer.put(nameBytes);
+        buffer.putInt(numItems);
+        buffer.putInt(indices.length);
+        for (var box : boxes) {
+            buffer.putDouble(box);
+        }
+        for (var index : indices) {
+            buffer.putInt(index);
+        }
+        for (var recordNumber : recordNumbers) {
+            buffer.putLong(recordNumber);
+        }
+        for (var blockPosition : blockPositions) {
+            buffer.putLong(blockPosition);
+        }
+        for (var blockIndex : blockIndices) {
+            buffer.putInt(blockIndex);
+        }
+
+        Files.write(sidecarPath(yxdbPath), buffer.array());
+    }
+}
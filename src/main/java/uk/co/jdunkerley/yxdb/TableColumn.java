@@ -0,0 +1,481 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// One column of a YxdbTable held in primitive arrays. Nulls are a bitmap, only allocated once a null is seen.
+// While loading, each block is decoded into small growable columns (chunks) which are then appended, in block order,
+// to the full-size columns of the table.
+abstract class TableColumn {
+    final YxdbField field;
+    int capacity;
+    long[] nulls;
+
+    TableColumn(YxdbField field, int capacity) {
+        this.field = field;
+        this.capacity = capacity;
+    }
+
+    static TableColumn create(YxdbField field, int capacity) {
+        return switch (field.dataType()) {
+            case BOOLEAN -> new BooleanColumn(field, capacity);
+            case BYTE, DATE, TIME -> new IntColumn(field, capacity);
+            case LONG -> field.yxdbType().equals(YxdbType.INT64) ? new LongColumn(field, capacity) : new IntColumn(field, capacity);
+            case DATETIME -> new LongColumn(field, capacity);
+            case DOUBLE -> field.yxdbType().equals(YxdbType.FLOAT) ? new FloatColumn(field, capacity) : new DoubleColumn(field, capacity);
+            case DECIMAL -> new DecimalColumn(field, capacity);
+            case STRING -> new StringColumn(field, capacity);
+            case BLOB -> new BlobColumn(field, capacity);
+        };
+    }
+
+    boolean isNull(int row) {
+        return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    void setNull(int row) {
+        if (nulls == null) {
+            nulls = new long[(capacity + 63) >>> 6];
+        }
+        nulls[row >>> 6] |= 1L << row;
+    }
+
+    // Decodes the field of the record in buffer into row, growing the arrays when needed.
+    final void read(YxdbRecord record, ByteBuffer buffer, int row) {
+        if (row == capacity) {
+            capacity *= 2;
+            if (nulls != null) {
+                nulls = Arrays.copyOf(nulls, (capacity + 63) >>> 6);
+            }
+            resize(capacity);
+        }
+        if (record.isNullFrom(field.index(), buffer)) {
+            setNull(row);
+        } else {
+            decode(buffer, field.startPosition(), row);
+        }
+    }
+
+    // Copies the first count rows of a chunk of the same type to rows offset onwards.
+    final void append(TableColumn chunk, int offset, int count) {
+        if (chunk.nulls != null) {
+            for (var row = chunk.nextNull(0, count); row < count; row = chunk.nextNull(row + 1, count)) {
+                setNull(offset + row);
+            }
+        }
+        copy(chunk, offset, count);
+    }
+
+    private int nextNull(int from, int count) {
+        var word = from >>> 6;
+        if (word >= nulls.length) {
+            return count;
+        }
+        var bits = nulls[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == nulls.length) {
+                return count;
+            }
+            bits = nulls[word];
+        }
+        return Math.min(count, (word << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    // Called once every chunk has been appended.
+    void finish() {
+    }
+
+    // An estimate of the heap used by the column.
+    long memoryBytes() {
+        return nulls == null ? 0 : arrayBytes(nulls.length, 8);
+    }
+
+    static long arrayBytes(long length, int elementSize) {
+        return 16 + length * elementSize;
+    }
+
+    abstract void resize(int capacity);
+
+    abstract void decode(ByteBuffer buffer, int start, int row);
+
+    abstract void copy(TableColumn chunk, int offset, int count);
+
+    private static int digits(ByteBuffer buffer, int start, int length) {
+        var value = 0;
+        for (var i = 0; i < length; i++) {
+            var digit = buffer.get(start + i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid digit in date or time value.");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Parses yyyy-MM-dd without building a string.
+    static long epochDay(ByteBuffer buffer, int start) {
+        return LocalDate.of(digits(buffer, start, 4), digits(buffer, start + 5, 2), digits(buffer, start + 8, 2)).toEpochDay();
+    }
+
+    // Parses HH:mm:ss without building a string.
+    static int secondOfDay(ByteBuffer buffer, int start) {
+        return digits(buffer, start, 2) * 3600 + digits(buffer, start + 3, 2) * 60 + digits(buffer, start + 6, 2);
+    }
+
+    // Booleans as a bitmap. Null booleans are stored in the value byte rather than a separate flag.
+    static final class BooleanColumn extends TableColumn {
+        long[] values;
+
+        BooleanColumn(YxdbField field, int capacity) {
+            super(field, capacity);
+            values = new long[(capacity + 63) >>> 6];
+        }
+
+        boolean get(int row) {
+            return (values[row >>> 6] & (1L << row)) != 0;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, (capacity + 63) >>> 6);
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int start, int row) {
+            if (buffer.get(start) == 1) {
+                values[row >>> 6] |= 1L << row;
+            }
+        }
+
+        @Override
+        void copy(TableColumn chunk, int offset, int count) {
+            var source = (BooleanColumn) chunk;
+            for (var row = 0; row < count; row++) {
+                if (source.get(row)) {
+                    values[(offset + row) >>> 6] |= 1L << (offset + row);
+                }
+            }
+        }
+
+        @Override
+        long memoryBytes() {
+            return super.memoryBytes() + arrayBytes(values.length, 8);
+        }
+    }
+
+    // Byte, Int16 and Int32 values, dates as days since 1970-01-01 and times as seconds since midnight.
+    static final class IntColumn extends TableColumn {
+        int[] values;
+
+        IntColumn(YxdbField field, int capacity) {
+            super(field, capacity);
+            values = new int[capacity];
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int start, int row) {
+            values[row] = switch (field.yxdbType()) {
+                case YxdbType.BYTE -> buffer.get(start);
+                case YxdbType.INT16 -> buffer.getShort(start);
+                case YxdbType.DATE -> (int) epochDay(buffer, start);
+                case YxdbType.TIME -> secondOfDay(buffer, start);
+                default -> buffer.getInt(start);
+            };
+        }
+
+        @Override
+        void copy(TableColumn chunk, int offset, int count) {
+            System.arraycopy(((IntColumn) chunk).values, 0, values, offset, count);
+        }
+
+        @Override
+        long memoryBytes() {
+            return super.memoryBytes() + arrayBytes(values.length, 4);
+        }
+    }
+
+    // Int64 values and date times as seconds since 1970-01-01T00:00:00.
+    static final class LongColumn extends TableColumn {
+        long[] values;
+
+        LongColumn(YxdbField field, int capacity) {
+            super(field, capacity);
+            values = new long[capacity];
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int start, int row) {
+            if (field.yxdbType().equals(YxdbType.INT64)) {
+                values[row] = buffer.getLong(start);
+                return;
+            }
+            var date = LocalDate.ofEpochDay(epochDay(buffer, start));
+            values[row] = LocalDateTime.of(date, LocalTime.ofSecondOfDay(secondOfDay(buffer, start + 11))).toEpochSecond(ZoneOffset.UTC);
+        }
+
+        @Override
+        void copy(TableColumn chunk, int offset, int count) {
+            System.arraycopy(((LongColumn) chunk).values, 0, values, offset, count);
+        }
+
+        @Override
+        long memoryBytes() {
+            return super.memoryBytes() + arrayBytes(values.length, 8);
+        }
+    }
+
+    static final class FloatColumn extends TableColumn {
+        float[] values;
+
+        FloatColumn(YxdbField field, int capacity) {
+            super(field, capacity);
+            values = new float[capacity];
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int start, int row) {
+            values[row] = buffer.getFloat(start);
+        }
+
+        @Override
+        void copy(TableColumn chunk, int offset, int count) {
+            System.arraycopy(((FloatColumn) chunk).values, 0, values, offset, count);
+        }
+
+        @Override
+        long memoryBytes() {
+            return super.memoryBytes() + arrayBytes(values.length, 4);
+        }
+    }
+
+    static final class DoubleColumn extends TableColumn {
+        double[] values;
+
+        DoubleColumn(YxdbField field, int capacity) {
+            super(field, capacity);
+            values = new double[capacity];
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int start, int row) {
+            values[row] = buffer.getDouble(start);
+        }
+
+        @Override
+        void copy(TableColumn chunk, int offset, int count) {
+            System.arraycopy(((DoubleColumn) chunk).values, 0, values, offset, count);
+        }
+
+        @Override
+        long memoryBytes() {
+            return super.memoryBytes() + arrayBytes(values.length, 8);
+        }
+    }
+
+    // Fixed decimals as unscaled longs at the scale of the field. The rare value too large for a long is kept as a
+    // BigDecimal in a side array that is only allocated when needed.
+    static final class DecimalColumn extends TableColumn {
+        long[] unscaled;
+        BigDecimal[] wide;
+
+        DecimalColumn(YxdbField field, int capacity) {
+            super(field, capacity);
+            unscaled = new long[capacity];
+        }
+
+        BigDecimal get(int row) {
+            if (wide != null && wide[row] != null) {
+                return wide[row];
+            }
+            return BigDecimal.valueOf(unscaled[row], field.scale());
+        }
+
+        @Override
+        void resize(int capacity) {
+            unscaled = Arrays.copyOf(unscaled, capacity);
+            if (wide != null) {
+                wide = Arrays.copyOf(wide, capacity);
+            }
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int start, int row) {
+            var value = Extractors.extractFixedDecimal(buffer, start, field.size()).setScale(field.scale(), RoundingMode.HALF_EVEN);
+            var digits = value.unscaledValue();
+            if (digits.bitLength() < 64) {
+                unscaled[row] = digits.longValue();
+            } else {
+                setWide(row, value);
+            }
+        }
+
+        private void setWide(int row, BigDecimal value) {
+            if (wide == null) {
+                wide = new BigDecimal[capacity];
+            }
+            wide[row] = value;
+        }
+
+        @Override
+        void copy(TableColumn chunk, int offset, int count) {
+            var source = (DecimalColumn) chunk;
+            System.arraycopy(source.unscaled, 0, unscaled, offset, count);
+            if (source.wide != null) {
+                for (var row = 0; row < count; row++) {
+                    if (source.wide[row] != null) {
+                        setWide(offset + row, source.wide[row]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        long memoryBytes() {
+            var bytes = super.memoryBytes() + arrayBytes(unscaled.length, 8);
+            if (wide != null) {
+                bytes += arrayBytes(wide.length, 8);
+                for (var value : wide) {
+                    bytes += value == null ? 0 : 64;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    // Strings as codes into a dictionary of the distinct values. Each chunk has its own dictionary, which is merged
+    // into the table's as the chunk is appended.
+    static final class StringColumn extends TableColumn {
+        int[] codes;
+        String[] dictionary = new String[16];
+        int distinct;
+        private HashMap<String, Integer> lookup = new HashMap<>();
+
+        StringColumn(YxdbField field, int capacity) {
+            super(field, capacity);
+            codes = new int[capacity];
+        }
+
+        String get(int row) {
+            return dictionary[codes[row]];
+        }
+
+        private int code(String value) {
+            var code = lookup.get(value);
+            if (code == null) {
+                code = distinct;
+                if (distinct == dictionary.length) {
+                    dictionary = Arrays.copyOf(dictionary, distinct * 2);
+                }
+                dictionary[distinct++] = value;
+                lookup.put(value, code);
+            }
+            return code;
+        }
+
+        @Override
+        void resize(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int start, int row) {
+            var value = switch (field.yxdbType()) {
+                case YxdbType.STRING -> Extractors.extractString(buffer, start, field.size());
+                case YxdbType.WSTRING -> Extractors.extractWString(buffer, start, field.size());
+                case YxdbType.V_STRING -> Extractors.extractVString(buffer, start);
+                default -> Extractors.extractVWString(buffer, start);
+            };
+            codes[row] = code(value);
+        }
+
+        @Override
+        void copy(TableColumn chunk, int offset, int count) {
+            var source = (StringColumn) chunk;
+            var remap = new int[source.distinct];
+            for (var code = 0; code < source.distinct; code++) {
+                remap[code] = code(source.dictionary[code]);
+            }
+            for (var row = 0; row < count; row++) {
+                codes[offset + row] = source.isNull(row) ? 0 : remap[source.codes[row]];
+            }
+        }
+
+        @Override
+        void finish() {
+            lookup = null;
+            dictionary = Arrays.copyOf(dictionary, distinct);
+        }
+
+        @Override
+        long memoryBytes() {
+            var bytes = super.memoryBytes() + arrayBytes(codes.length, 4) + arrayBytes(dictionary.length, 8);
+            for (var i = 0; i < distinct; i++) {
+                var value = dictionary[i];
+                var latin1 = value.chars().allMatch(c -> c < 256);
+                bytes += 24 + arrayBytes(value.length(), latin1 ? 1 : 2);
+            }
+            return bytes;
+        }
+    }
+
+    // Blobs and spatial objects, one array per value.
+    static final class BlobColumn extends TableColumn {
+        byte[][] values;
+
+        BlobColumn(YxdbField field, int capacity) {
+            super(field, capacity);
+            values = new byte[capacity][];
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int start, int row) {
+            values[row] = Extractors.extractBlob(buffer, start);
+        }
+
+        @Override
+        void copy(TableColumn chunk, int offset, int count) {
+            System.arraycopy(((BlobColumn) chunk).values, 0, values, offset, count);
+        }
+
+        @Override
+        long memoryBytes() {
+            var bytes = super.memoryBytes() + arrayBytes(values.length, 8);
+            for (var value : values) {
+                bytes += value == null ? 0 : arrayBytes(value.length, 1);
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package uk.co.jdunkerley.yxdb;
+
+/**
+ * The outcome of checking a .yxdb file with YxdbVerifier. When the file is not valid, the result locates the first
+ * problem found, in file order.
+ */
+public final class VerifyResult {
+    private final String problem;
+    private final int block;
+    private final long position;
+    private final long record;
+    private final int badBlocks;
+    private final int blocks;
+    private final long records;
+    private final long checksum;
+
+    VerifyResult(String problem, int block, long position, long record, int badBlocks, int blocks, long records, long checksum) {
+        this.problem = problem;
+        this.block = block;
+        this.position = position;
+        this.record = record;
+        this.badBlocks = badBlocks;
+        this.blocks = blocks;
+        this.records = records;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Whether the header, block index and every block of the file are intact.
+     * @return true when no problems were found
+     */
+    public boolean valid() {
+        return problem == null;
+    }
+
+    /**
+     * A description of the first problem found.
+     * @return the description, or null when the file is valid
+     */
+    public String problem() {
+        return problem;
+    }
+
+    /**
+     * The index of the first bad block.
+     * @return the block index, or -1 when the file is valid or the problem is in the header or block index
+     */
+    public int block() {
+        return block;
+    }
+
+    /**
+     * The file offset of the first problem: the start of the LZF or Snappy block that could not be read, or of the
+     * LZF block holding the start of the bad record.
+     * @return the file offset, or -1 when the file is valid or the offset is not known
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * The number (0-based) of the first record that could not be read.
+     * @return the record number, or -1 when the file is valid or the problem is not in a record
+     */
+    public long record() {
+        return record;
+    }
+
+    /**
+     * The number of blocks with problems.
+     * @return the number of bad blocks
+     */
+    public int badBlocks() {
+        return badBlocks;
+    }
+
+    /**
+     * The number of blocks checked.
+     * @return the number of blocks
+     */
+    public int blocks() {
+        return blocks;
+    }
+
+    /**
+     * The number of records found in the blocks without problems.
+     * @return the number of records
+     */
+    public long records() {
+        return records;
+    }
+
+    /**
+     * A 64-bit checksum of the bytes of the file, which can be stored and compared to detect later changes. It is the
+     * XXH64 of the XXH64 hashes of the header, each block in turn and the block index, so it does not depend on the
+     * number of threads.
+     * @return the checksum, or 0 when the header could not be read
+     */
+    public long checksum() {
+        return checksum;
+    }
+}
@@ -0,0 +1,197 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * YxdbAggregation summarises a .yxdb file: counts, sums, minimums, maximums and averages of numeric fields, optionally
+ * grouped by the value of one field, without holding the records in memory.
+ * <p>
+ * <pre>{@code
+ * AggregateResult result = YxdbAggregation.of("sales.yxdb")
+ *         .groupBy("Region")
+ *         .count()
+ *         .sum("Amount")
+ *         .avg("Amount")
+ *         .run();
+ * }</pre>
+ * <p>
+ * The blocks of the file are aggregated in parallel. Only the fields that are needed are decoded, straight from the
+ * record buffer into primitive arrays, and the aggregates run as loops over those arrays. Each block is aggregated into
+ * groups of its own, which are merged as the blocks complete. Rows are assigned to groups without creating an object
+ * per row: string keys by their code in a dictionary of the block's values, other keys by their stored number.
+ * <p>
+ * Byte, integer and fixed decimal fields are summed exactly as longs (fixed decimals unscaled), carrying into a second
+ * long when a sum overflows, so no sum is ever lost. Float and double fields are summed as doubles, so the last
+ * digits of a sum may vary with the number of threads. Null values are skipped by every aggregate except count().
+ * <p>
+ * Fields can be grouped by unless they are fixed decimals, blobs or spatial objects. Null keys form a group of their own.
+ */
+public final class YxdbAggregation {
+    // The aggregates that can be computed, named as the Summarize tool names its output fields.
+    enum Op {
+        COUNT("Count"), COUNT_NON_NULL("Count"), SUM("Sum"), MIN("Min"), MAX("Max"), AVG("Avg");
+
+        final String prefix;
+
+        Op(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    // One requested aggregate, over the value field at position value (unused for COUNT).
+    record Aggregate(Op op, String field, int value) {
+        String name() {
+            return op == Op.COUNT ? op.prefix : op.prefix + "_" + field;
+        }
+    }
+
+    private final String path;
+    private final ArrayList<Aggregate> aggregates = new ArrayList<>();
+    private final ArrayList<String> valueFields = new ArrayList<>();
+    private String groupBy;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private YxdbAggregation(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Starts an aggregation of a .yxdb file. The file is not read until run is called.
+     *
+     * @param path the path to a .yxdb file
+     * @return the aggregation
+     */
+    public static YxdbAggregation of(String path) {
+        return new YxdbAggregation(path);
+    }
+
+    /**
+     * Groups the records by the value of a field.
+     *
+     * @param field the name of the field
+     * @return this aggregation
+     */
+    public YxdbAggregation groupBy(String field) {
+        this.groupBy = field;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads to aggregate blocks on; by default, one per processor.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this aggregation
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public YxdbAggregation threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Counts the records in each group, as a Long named Count.
+     * @return this aggregation
+     */
+    public YxdbAggregation count() {
+        aggregates.add(new Aggregate(Op.COUNT, null, -1));
+        return this;
+    }
+
+    /**
+     * Counts the non-null values of a field in each group, as a Long named Count_field.
+     *
+     * @param field the name of a numeric field
+     * @return this aggregation
+     */
+    public YxdbAggregation count(String field) {
+        return add(Op.COUNT_NON_NULL, field);
+    }
+
+    /**
+     * Sums a field in each group, named Sum_field. Sums are Longs for byte and integer fields (BigIntegers for a sum
+     * too large for a long), BigDecimals for fixed decimals and Doubles for float and double fields, or null when
+     * every value in the group is null.
+     *
+     * @param field the name of a numeric field
+     * @return this aggregation
+     */
+    public YxdbAggregation sum(String field) {
+        return add(Op.SUM, field);
+    }
+
+    /**
+     * The smallest value of a field in each group, named Min_field: a Long for byte and integer fields, a BigDecimal
+     * for fixed decimals and a Double for float and double fields.
+     *
+     * @param field the name of a numeric field
+     * @return this aggregation
+     */
+    public YxdbAggregation min(String field) {
+        return add(Op.MIN, field);
+    }
+
+    /**
+     * The largest value of a field in each group, named Max_field: a Long for byte and integer fields, a BigDecimal
+     * for fixed decimals and a Double for float and double fields.
+     *
+     * @param field the name of a numeric field
+     * @return this aggregation
+     */
+    public YxdbAggregation max(String field) {
+        return add(Op.MAX, field);
+    }
+
+    /**
+     * The mean of the non-null values of a field in each group, as a Double named Avg_field.
+     *
+     * @param field the name of a numeric field
+     * @return this aggregation
+     */
+    public YxdbAggregation avg(String field) {
+        return add(Op.AVG, field);
+    }
+
+    private YxdbAggregation add(Op op, String field) {
+        var value = valueFields.indexOf(field);
+        if (value < 0) {
+            value = valueFields.size();
+            valueFields.add(field);
+        }
+        aggregates.add(new Aggregate(op, field, value));
+        return this;
+    }
+
+    /**
+     * Reads the file and computes the aggregates.
+     *
+     * @return the groups and their aggregates
+     * @throws IllegalArgumentException thrown when no aggregates were requested, when the file is not a valid YXDB file, or when a field does not exist or cannot be aggregated or grouped by
+     * @throws IOException              thrown when there are issues reading the file
+     */
+    public AggregateResult run() throws IOException, IllegalArgumentException {
+        if (aggregates.isEmpty()) {
+            throw new IllegalArgumentException("No aggregates were requested.");
+        }
+
+        try (var source = BlockSource.open(path)) {
+            // decode from the layout of the record buffer, which for AMP files differs from the fields
+            var record = source.record();
+            var keyField = groupBy == null ? null : record.fields[record.mapName(groupBy)];
+            var values = new YxdbField[valueFields.size()];
+            for (var i = 0; i < values.length; i++) {
+                values[i] = record.fields[record.mapName(valueFields.get(i))];
+            }
+
+            var total = new AggregatePartial(values);
+            ParallelBlocks.run(source, threads, (block, reader) -> AggregatePartial.aggregate(record, reader, keyField, values), total::merge);
+            if (keyField == null && total.groups() == 0) {
+                total.addEmptyGroup();
+            }
+            return new AggregateResult(groupBy, aggregates.toArray(new Aggregate[0]), total);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * YxdbAsyncReader reads the blocks of a .yxdb file as CompletableFutures, for services that scan many files at once.
+ * <p>
+ * Each block is fetched with a single positional FileChannel read of its stored bytes, run on a new virtual thread,
+ * and then decompressed and decoded on the decoding executor (the common ForkJoinPool unless decodeOn is called).
+ * The future completes with a YxdbReader over the block's decoded records, so iterating it does no I/O and no
+ * decompression. No thread is held while a block waits to be read or decoded, so thousands of files can be scanned
+ * at once with a decoding pool sized for the CPUs.
+ * <p>
+ * Both classic and AMP engine (e2) files can be read. Blocks hold up to 65536 records in classic files.
+ * <p>
+ * Behaviour under virtual threads: the reader takes no monitors while reading, so a virtual thread waiting on it
+ * never pins its carrier. Reading a file is a blocking system call on most platforms; on virtual threads the JDK
+ * makes up for it by briefly adding a carrier thread, and reading each block in one call keeps that to one per block.
+ * The same holds for open, which reads the header and block list with ordinary blocking reads.
+ */
+public final class YxdbAsyncReader implements AutoCloseable {
+    /**
+     * Receives the blocks of a file one at a time.
+     */
+    @FunctionalInterface
+    public interface BlockConsumer {
+        /**
+         * Called for each block of records in file order, on a thread of the decoding executor.
+         *
+         * @param block   the index of the block, starting at 0
+         * @param records a reader over the decoded records of the block
+         * @throws IOException thrown to stop the scan, completing its future exceptionally
+         */
+        void accept(int block, YxdbReader records) throws IOException;
+    }
+
+    private static final ThreadFactory IO_THREADS = Thread.ofVirtual().name("yxdb-io-", 0).factory();
+    private static final Executor IO = runnable -> IO_THREADS.newThread(runnable).start();
+
+    private final BlockSource source;
+    private Executor decoder = ForkJoinPool.commonPool();
+
+    private YxdbAsyncReader(BlockSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Opens a .yxdb file for asynchronous reading, reading its header and list of blocks on the calling thread.
+     *
+     * @param path the path to a .yxdb file
+     * @return the reader
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file
+     * @throws IOException              thrown when there are issues reading the file
+     */
+    public static YxdbAsyncReader open(String path) throws IOException, IllegalArgumentException {
+        return new YxdbAsyncReader(BlockSource.open(path));
+    }
+
+    /**
+     * Opens a .yxdb file for asynchronous reading, reading its header on a virtual thread.
+     *
+     * @param path the path to a .yxdb file
+     * @return a future completing with the reader, or exceptionally with the IOException or IllegalArgumentException of open
+     */
+    public static CompletableFuture<YxdbAsyncReader> openAsync(String path) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return open(path);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, IO).handle((reader, ex) -> {
+            if (ex != null) {
+                throw new CompletionException(unwrap(ex));
+            }
+            return reader;
+        });
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex instanceof UncheckedIOException io ? io.getCause() : ex;
+    }
+
+    /**
+     * Sets the executor blocks are decompressed and decoded on, and consumers of forEachBlock are called on.
+     * The default is the common ForkJoinPool.
+     *
+     * @param executor the executor, ideally with about one thread per CPU
+     * @return this reader
+     */
+    public YxdbAsyncReader decodeOn(Executor executor) {
+        this.decoder = executor;
+        return this;
+    }
+
+    /**
+     * The total number of records in the .yxdb file.
+     * @return the total number of records in the .yxdb file.
+     */
+    public long numRecords() {
+        return source.numRecords();
+    }
+
+    /**
+     * An array of fields in the .yxdb file.
+     * @return an array of fields in the .yxdb file.
+     */
+    public YxdbField[] fields() {
+        return source.fields();
+    }
+
+    /**
+     * The number of blocks the records of the file are stored in.
+     * @return the number of blocks
+     */
+    public int blockCount() {
+        return source.blockCount();
+    }
+
+    /**
+     * Reads and decodes one block.
+     * <p>
+     * Blocks can be read in any order, and any number at once.
+     *
+     * @param block the index of the block, starting at 0
+     * @return a future completing with a reader over the records of the block, or exceptionally with an IOException
+     * or IllegalArgumentException when the block cannot be read
+     * @throws IllegalArgumentException thrown when the block is out of range
+     */
+    public CompletableFuture<YxdbReader> readBlock(int block) throws IllegalArgumentException {
+        if (block < 0 || block >= source.blockCount()) {
+            throw new IllegalArgumentException("The block " + block + " is out of range.");
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return source.readStoredBlock(block);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, IO).thenApplyAsync(stored -> {
+            try {
+                var batch = RecordBatch.read(source.newBlockReader(block, stored), 0, block);
+                return BatchRecordReader.readerOf(batch, source.fields(), source.record());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, decoder).handle((reader, ex) -> {
+            if (ex != null) {
+                throw new CompletionException(unwrap(ex));
+            }
+            return reader;
+        });
+    }
+
+    /**
+     * Passes every block to the consumer in file order, reading up to prefetch blocks ahead of it.
+     *
+     * @param prefetch the number of blocks read ahead of the consumer, at least 1
+     * @param consumer called once per block on the decoding executor; calls never overlap
+     * @return a future completing with the number of records read, or exceptionally with the first error
+     * @throws IllegalArgumentException thrown when prefetch is less than 1
+     */
+    public CompletableFuture<Long> forEachBlock(int prefetch, BlockConsumer consumer) throws IllegalArgumentException {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("prefetch must be at least 1");
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<YxdbReader>[] reads = new CompletableFuture[source.blockCount()];
+        for (var block = 0; block < Math.min(prefetch, reads.length); block++) {
+            reads[block] = readBlock(block);
+        }
+        return consumeFrom(0, 0L, reads, prefetch, consumer);
+    }
+
+    // Each step waits for its block, starts the read prefetch blocks ahead, then hands the block to the consumer.
+    // Steps are chained, never nested, so the stack does not grow with the number of blocks.
+    private CompletableFuture<Long> consumeFrom(int block, long records, CompletableFuture<YxdbReader>[] reads, int prefetch, BlockConsumer consumer) {
+        if (block == reads.length) {
+            return CompletableFuture.completedFuture(records);
+        }
+
+        return reads[block].thenComposeAsync(reader -> {
+            reads[block] = null;
+            var ahead = block + prefetch;
+            if (ahead < reads.length) {
+                reads[ahead] = readBlock(ahead);
+            }
+            try {
+                consumer.accept(block, reader);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+            return consumeFrom(block + 1, records + reader.numRecords(), reads, prefetch, consumer);
+        }, decoder);
+    }
+
+    /**
+     * Closes the file. Blocks still being read fail with an IOException.
+     *
+     * @throws IOException thrown when the file fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
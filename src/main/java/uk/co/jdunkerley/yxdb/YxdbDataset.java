@@ -0,0 +1,324 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * YxdbDataset reads a set of .yxdb files that share their fields, such as the shards of a partitioned export, as one.
+ * <p>
+ * A dataset is opened from a directory, taking every .yxdb file in it, or from a glob such as
+ * {@code /exports/sales-*.yxdb}. Shards are taken in path order. Opening a dataset reads only the header of each shard,
+ * on virtual threads so that hundreds of shards open at once, and checks that every shard has the same fields (names,
+ * types, sizes and scales) as the first.
+ * <p>
+ * reader() returns a YxdbReader over the records of every shard. Blocks of records are decoded ahead of the reader on a
+ * pool of threads. By default records come in shard order; with ordered(false) each block is returned as soon as it is
+ * decoded, which keeps every thread busy when some blocks are slower than others. forEachBatch hands out the same
+ * blocks one at a time, each as a reader over its own records.
+ * <p>
+ * The dataset must stay open while its readers are in use.
+ */
+public final class YxdbDataset implements AutoCloseable {
+    /**
+     * Receives the blocks of a dataset one at a time.
+     */
+    @FunctionalInterface
+    public interface BatchConsumer {
+        /**
+         * Called for each block of records, on the thread that called forEachBatch.
+         *
+         * @param shard the file the records come from
+         * @param batch a reader over the records of the block; it is only valid until this call returns
+         * @throws IOException thrown to stop the scan
+         */
+        void accept(Path shard, YxdbReader batch) throws IOException;
+    }
+
+    private final List<Path> shards;
+    private final BlockSource[] sources;
+    private final YxdbField[] fields;
+    private final long numRecords;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean ordered = true;
+
+    private YxdbDataset(List<Path> shards, BlockSource[] sources) {
+        this.shards = shards;
+        this.sources = sources;
+        this.fields = sources[0].fields();
+
+        var total = 0L;
+        for (var source : sources) {
+            total += source.numRecords();
+        }
+        this.numRecords = total;
+    }
+
+    /**
+     * Opens the .yxdb files in a directory, or those matching a glob, as one dataset.
+     * <p>
+     * A directory takes every file in it ending .yxdb, but not those in subdirectories. A glob uses the syntax of
+     * {@link java.nio.file.FileSystem#getPathMatcher(String)}, where {@code *} does not cross directories and
+     * {@code **} does. A path to a single file opens a dataset of that one file.
+     *
+     * @param pathOrGlob a directory, a glob or a file
+     * @return the dataset
+     * @throws IllegalArgumentException thrown when no files match, when a file is not a valid YXDB file or when the fields of the files differ
+     * @throws IOException              thrown when there are issues reading the files
+     */
+    public static YxdbDataset open(String pathOrGlob) throws IOException, IllegalArgumentException {
+        return open(findShards(pathOrGlob));
+    }
+
+    /**
+     * Opens a list of .yxdb files as one dataset, reading them in the order given.
+     *
+     * @param shards the files
+     * @return the dataset
+     * @throws IllegalArgumentException thrown when the list is empty, when a file is not a valid YXDB file or when the fields of the files differ
+     * @throws IOException              thrown when there are issues reading the files
+     */
+    public static YxdbDataset open(List<Path> shards) throws IOException, IllegalArgumentException {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("A dataset needs at least one file.");
+        }
+        shards = List.copyOf(shards);
+
+        var sources = openAll(shards);
+        try {
+            for (var i = 1; i < sources.length; i++) {
+                checkSchema(shards.get(0), sources[0], shards.get(i), sources[i]);
+            }
+        } catch (IllegalArgumentException ex) {
+            closeAll(sources);
+            throw ex;
+        }
+        return new YxdbDataset(shards, sources);
+    }
+
+    static List<Path> findShards(String pathOrGlob) throws IOException, IllegalArgumentException {
+        var globStart = -1;
+        for (var i = 0; i < pathOrGlob.length() && globStart < 0; i++) {
+            if ("*?[{".indexOf(pathOrGlob.charAt(i)) >= 0) {
+                globStart = i;
+            }
+        }
+
+        if (globStart < 0) {
+            var path = Path.of(pathOrGlob);
+            if (Files.isRegularFile(path)) {
+                return List.of(path);
+            }
+            if (!Files.isDirectory(path)) {
+                throw new IllegalArgumentException("The path " + pathOrGlob + " does not exist.");
+            }
+            try (var files = Files.list(path)) {
+                var shards = files.filter(p -> Files.isRegularFile(p) && isYxdb(p)).sorted().toList();
+                if (shards.isEmpty()) {
+                    throw new IllegalArgumentException("The directory " + pathOrGlob + " has no .yxdb files.");
+                }
+                return shards;
+            }
+        }
+
+        // walk from the directory before the first wildcard, only as deep as the glob can match
+        var separator = Math.max(pathOrGlob.lastIndexOf('/', globStart), pathOrGlob.lastIndexOf(File.separatorChar, globStart));
+        var base = separator < 0 ? Path.of("") : Path.of(pathOrGlob.substring(0, separator + 1));
+        var rest = pathOrGlob.substring(separator + 1);
+        var depth = rest.contains("**") ? Integer.MAX_VALUE : 1 + (int) rest.chars().filter(c -> c == '/' || c == File.separatorChar).count();
+        if (!Files.isDirectory(base.toString().isEmpty() ? Path.of(".") : base)) {
+            throw new IllegalArgumentException("No files match " + pathOrGlob + ".");
+        }
+
+        var matcher = FileSystems.getDefault().getPathMatcher("glob:" + pathOrGlob);
+        try (var files = Files.find(base, depth, (p, attributes) -> attributes.isRegularFile() && matcher.matches(p))) {
+            var shards = files.sorted().toList();
+            if (shards.isEmpty()) {
+                throw new IllegalArgumentException("No files match " + pathOrGlob + ".");
+            }
+            return shards;
+        }
+    }
+
+    private static boolean isYxdb(Path path) {
+        var name = path.getFileName().toString();
+        return name.regionMatches(true, name.length() - 5, ".yxdb", 0, 5);
+    }
+
+    // Reads the headers of every shard at once; opening is mostly waiting on the disk, so each shard gets a virtual thread.
+    private static BlockSource[] openAll(List<Path> shards) throws IOException, IllegalArgumentException {
+        var futures = new ArrayList<Future<BlockSource>>(shards.size());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var shard : shards) {
+                futures.add(executor.submit(() -> BlockSource.open(shard.toString())));
+            }
+        }
+
+        var sources = new BlockSource[shards.size()];
+        Exception failure = null;
+        for (var i = 0; i < sources.length; i++) {
+            try {
+                sources[i] = ParallelBlocks.await(futures.get(i));
+            } catch (IOException ex) {
+                failure = failure != null ? failure : new IOException("Failed to open " + shards.get(i) + ": " + ex.getMessage(), ex);
+            } catch (IllegalArgumentException ex) {
+                failure = failure != null ? failure : new IllegalArgumentException("Failed to open " + shards.get(i) + ": " + ex.getMessage(), ex);
+            }
+        }
+        if (failure != null) {
+            closeAll(sources);
+            if (failure instanceof IOException io) {
+                throw io;
+            }
+            throw (IllegalArgumentException) failure;
+        }
+        return sources;
+    }
+
+    private static void checkSchema(Path firstShard, BlockSource first, Path shard, BlockSource source) throws IllegalArgumentException {
+        var expected = first.fields();
+        var actual = source.fields();
+        if (expected.length != actual.length) {
+            throw new IllegalArgumentException("The file " + shard + " has " + actual.length + " fields but " + firstShard + " has " + expected.length + ".");
+        }
+        for (var i = 0; i < expected.length; i++) {
+            var e = expected[i];
+            var a = actual[i];
+            if (!e.name().equals(a.name()) || !e.yxdbType().equals(a.yxdbType()) || e.size() != a.size() || e.scale() != a.scale()) {
+                throw new IllegalArgumentException("Field " + i + " of " + shard + " (" + describe(a) + ") does not match " + firstShard + " (" + describe(e) + ").");
+            }
+        }
+        // AMP records are transcoded to a different layout, so the two kinds of file cannot share a record buffer
+        if ((first instanceof AmpFile) != (source instanceof AmpFile)) {
+            throw new IllegalArgumentException("The files " + firstShard + " and " + shard + " mix AMP and classic YXDB files.");
+        }
+    }
+
+    private static String describe(YxdbField field) {
+        return field.name() + " " + field.yxdbType() + " size " + field.size() + " scale " + field.scale();
+    }
+
+    private static void closeAll(BlockSource[] sources) {
+        for (var source : sources) {
+            if (source != null) {
+                try {
+                    source.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * The files of the dataset, in the order they are read.
+     * @return the files of the dataset
+     */
+    public List<Path> shards() {
+        return shards;
+    }
+
+    /**
+     * The fields shared by every file of the dataset.
+     * @return an array of fields
+     */
+    public YxdbField[] fields() {
+        return fields;
+    }
+
+    /**
+     * The total number of records in all the files, taken from their headers.
+     * @return the total number of records
+     */
+    public long numRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Sets the number of threads decoding blocks of records. The default is the number of available processors;
+     * 1 decodes everything on the reading thread.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this dataset
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public YxdbDataset threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets whether records come in file and block order (the default), or block by block as each is decoded.
+     * Within a block records always keep their order.
+     *
+     * @param ordered true to keep the order of the files
+     * @return this dataset
+     */
+    public YxdbDataset ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Returns a reader over the records of every file, using the current threads and ordered settings.
+     * <p>
+     * Each call starts a new scan. Closing the reader before the end stops decoding further blocks.
+     *
+     * @return a reader over the whole dataset
+     */
+    public YxdbReader reader() {
+        var scan = new DatasetScan(sources, threads, ordered);
+        var record = sources[0].record();
+        return new YxdbReader(scan, fields, record, numRecords, new BatchRecordReader(record, numRecords, scan::next));
+    }
+
+    /**
+     * Passes each block of records to the consumer in turn, as a reader over the records of the block. Blocks are
+     * decoded ahead on the pool of threads, and passed in file order unless ordered(false) was set.
+     *
+     * @param consumer called once per block on the calling thread
+     * @return the number of records read
+     * @throws IOException thrown when there is an error reading a file or the consumer throws
+     */
+    public long forEachBatch(BatchConsumer consumer) throws IOException {
+        var record = sources[0].record();
+        var records = 0L;
+        try (var scan = new DatasetScan(sources, threads, ordered)) {
+            RecordBatch batch;
+            while ((batch = scan.next()) != null) {
+                consumer.accept(shards.get(batch.shard()), BatchRecordReader.readerOf(batch, fields, record));
+                records += batch.count();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Closes every file of the dataset.
+     *
+     * @throws IOException thrown when a file fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (var source : sources) {
+            try {
+                source.close();
+            } catch (IOException ex) {
+                failure = failure != null ? failure : ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
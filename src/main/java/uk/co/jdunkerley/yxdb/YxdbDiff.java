@@ -0,0 +1,250 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * YxdbDiff compares two .yxdb files, such as snapshots of the same table on different days, and reports the keys whose
+ * records were added, removed or changed.
+ * <p>
+ * <pre>{@code
+ * DiffResult diff = YxdbDiff.of("yesterday.yxdb", "today.yxdb").key("CustomerID").run();
+ * System.out.println(diff.added().size() + " added, " + diff.changed().size() + " changed");
+ * }</pre>
+ * <p>
+ * Each file is read once with its blocks hashed in parallel: every record is reduced to the hash of its key and its
+ * YxdbReader.rowHash, without creating its values, and only the hashes are kept. A file is read a second time, for
+ * just the key field, only when it has differences to report. Records are compared by value, so files written with
+ * different storage types (such as a classic and an AMP file) compare as equal if their values are. The files should
+ * have the same fields in the same order.
+ * <p>
+ * When several records share a key, they are compared as a group, in any order. Null keys form a group of their own.
+ */
+public final class YxdbDiff {
+    // the key hash that stands for null keys
+    private static final long NULL_KEY = 0x6E756C6C6B6579L;
+
+    private final String before;
+    private final String after;
+    private String key;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private YxdbDiff(String before, String after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Starts a comparison of two .yxdb files. The files are not read until run is called.
+     *
+     * @param before the path to the earlier .yxdb file
+     * @param after  the path to the later .yxdb file
+     * @return the comparison
+     */
+    public static YxdbDiff of(String before, String after) {
+        return new YxdbDiff(before, after);
+    }
+
+    /**
+     * Sets the field that identifies records in both files.
+     *
+     * @param field the name of the field
+     * @return this comparison
+     */
+    public YxdbDiff key(String field) {
+        this.key = field;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads to hash blocks on; by default, one per processor.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this comparison
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public YxdbDiff threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Reads both files and compares their records by key.
+     *
+     * @return the keys that were added, removed or changed
+     * @throws IllegalArgumentException thrown when no key was set, when a file is not a valid YXDB file, or when the key field does not exist in both files or cannot be a key
+     * @throws IOException              thrown when there are issues reading the files
+     */
+    public DiffResult run() throws IOException, IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("No key field was set.");
+        }
+
+        try (var beforeSource = BlockSource.open(before); var afterSource = BlockSource.open(after)) {
+            // read from the layout of the record buffer, which for AMP files differs from the fields
+            var beforeKey = beforeSource.record().fields[beforeSource.record().mapName(key)];
+            var afterKey = afterSource.record().fields[afterSource.record().mapName(key)];
+            JoinKey.checkJoinable(beforeKey, afterKey);
+
+            var beforeHashes = hash(beforeSource, beforeKey);
+            var afterHashes = hash(afterSource, afterKey);
+
+            var removed = new Fingerprints();
+            var addedOrChanged = new Fingerprints();
+            var unchanged = 0L;
+            for (var slot = 0; slot < beforeHashes.keys.length; slot++) {
+                if (beforeHashes.counts[slot] == 0) {
+                    continue;
+                }
+                var other = afterHashes.slotOf(beforeHashes.keys[slot]);
+                if (afterHashes.counts[other] == 0) {
+                    removed.add(beforeHashes.keys[slot], 0);
+                } else if (afterHashes.counts[other] != beforeHashes.counts[slot] || afterHashes.sums[other] != beforeHashes.sums[slot]) {
+                    addedOrChanged.add(beforeHashes.keys[slot], 0);
+                } else {
+                    unchanged++;
+                }
+            }
+            for (var slot = 0; slot < afterHashes.keys.length; slot++) {
+                if (afterHashes.counts[slot] != 0 && !beforeHashes.contains(afterHashes.keys[slot])) {
+                    addedOrChanged.add(afterHashes.keys[slot], 0);
+                }
+            }
+
+            var added = new ArrayList<>();
+            var changed = new ArrayList<>();
+            for (var entry : keys(afterSource, afterKey, addedOrChanged).entrySet()) {
+                (beforeHashes.contains(entry.getKey()) ? changed : added).add(entry.getValue());
+            }
+            var removedKeys = new ArrayList<>(keys(beforeSource, beforeKey, removed).values());
+            return new DiffResult(added, removedKeys, changed, unchanged);
+        }
+    }
+
+    // The hashes of the key and record of each record in a block.
+    private record BlockHashes(long[] keys, long[] rows, int count) {
+        static BlockHashes read(RecordReader reader, YxdbRecord record, YxdbField keyField) throws IOException {
+            var key = new JoinKey(record, keyField);
+            var rowHash = new RowHash(record);
+            var keys = new long[1024];
+            var rows = new long[1024];
+            var count = 0;
+            while (reader.nextRecord()) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                keys[count] = key.read(reader.recordBuffer) ? key.hash : NULL_KEY;
+                rows[count++] = rowHash.hash(reader.recordBuffer);
+            }
+            return new BlockHashes(keys, rows, count);
+        }
+    }
+
+    private Fingerprints hash(BlockSource source, YxdbField keyField) throws IOException {
+        var record = source.record();
+        var fingerprints = new Fingerprints();
+        ParallelBlocks.run(source, threads, (block, reader) -> BlockHashes.read(reader, record, keyField), hashes -> {
+            for (var i = 0; i < hashes.count; i++) {
+                fingerprints.add(hashes.keys[i], hashes.rows[i]);
+            }
+        });
+        return fingerprints;
+    }
+
+    // The values of the keys in the set, by key hash, in the order they first appear in the source.
+    private LinkedHashMap<Long, Object> keys(BlockSource source, YxdbField keyField, Fingerprints wanted) throws IOException {
+        var found = new LinkedHashMap<Long, Object>();
+        if (wanted.size == 0) {
+            return found;
+        }
+
+        var record = source.record();
+        ParallelBlocks.run(source, threads, (block, reader) -> {
+            var key = new JoinKey(record, keyField);
+            var values = new LinkedHashMap<Long, Object>();
+            while (reader.nextRecord()) {
+                var hash = key.read(reader.recordBuffer) ? key.hash : NULL_KEY;
+                if (wanted.contains(hash) && !values.containsKey(hash)) {
+                    values.put(hash, hash == NULL_KEY ? null : value(record, keyField, reader.recordBuffer));
+                }
+            }
+            return values;
+        }, values -> values.forEach(found::putIfAbsent));
+        return found;
+    }
+
+    private static Object value(YxdbRecord record, YxdbField field, ByteBuffer buffer) {
+        var index = field.index();
+        return switch (field.dataType()) {
+            case BOOLEAN -> record.extractBooleanFrom(index, buffer);
+            case BYTE -> record.extractByteFrom(index, buffer);
+            case LONG -> record.extractLongFrom(index, buffer);
+            case DOUBLE -> record.extractDoubleFrom(index, buffer);
+            case DECIMAL -> record.extractDecimalFrom(index, buffer);
+            case STRING -> record.extractStringFrom(index, buffer);
+            case DATE -> record.extractDateFrom(index, buffer);
+            case TIME -> record.extractTimeFrom(index, buffer);
+            case DATETIME -> record.extractDateTimeFrom(index, buffer);
+            case BLOB -> record.extractBlobFrom(index, buffer);
+        };
+    }
+
+    // An open addressing map from key hash to the number of records with that key and the sum of their row hashes,
+    // which is the same whatever order the records come in.
+    private static final class Fingerprints {
+        long[] keys = new long[1024];
+        long[] sums = new long[1024];
+        int[] counts = new int[1024];
+        int size;
+
+        int slotOf(long key) {
+            var mask = keys.length - 1;
+            var slot = (int) (key ^ key >>> 32) & mask;
+            while (counts[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        boolean contains(long key) {
+            return counts[slotOf(key)] != 0;
+        }
+
+        void add(long key, long rowHash) {
+            var slot = slotOf(key);
+            if (counts[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            counts[slot]++;
+            sums[slot] += rowHash;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            var oldKeys = keys;
+            var oldSums = sums;
+            var oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            sums = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (var i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] != 0) {
+                    var slot = slotOf(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    sums[slot] = oldSums[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+    }
+}
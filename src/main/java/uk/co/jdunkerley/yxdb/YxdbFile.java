@@ -0,0 +1,161 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// An open .yxdb file that supports reading from any position.
+// Streams share the file channel through positional reads, so any number of record readers can be opened at once.
+final class YxdbFile implements BlockSource {
+    // a new record block, starting with a fresh LZF block, begins every 65536 records
+    static final int RECORDS_PER_BLOCK = 65536;
+
+    final Path path;
+    final FileChannel channel;
+    final YxdbField[] fields;
+    final YxdbRecord record;
+    final long numRecords;
+    final long dataStart;
+    final long[] recordBlocks;
+    // where the stored record blocks end: the block index when it is valid, otherwise the end of the file
+    final long dataEnd;
+
+    private YxdbFile(Path path, FileChannel channel, YxdbField[] fields, long numRecords, long dataStart, long[] recordBlocks, long dataEnd) {
+        this.path = path;
+        this.channel = channel;
+        this.fields = fields;
+        this.record = new YxdbRecord(fields);
+        this.numRecords = numRecords;
+        this.dataStart = dataStart;
+        this.recordBlocks = recordBlocks;
+        this.dataEnd = dataEnd;
+    }
+
+    static YxdbFile open(String path) throws IOException, IllegalArgumentException {
+        return open(Path.of(path));
+    }
+
+    static YxdbFile open(Path path) throws IOException, IllegalArgumentException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            var stream = new ChannelInputStream(channel, 0);
+            var header = YxdbReader.getHeader(stream);
+            var fields = YxdbReader.readFields(header, stream);
+            var numRecords = header.getLong(104);
+            var dataStart = YxdbReader.dataStart(header);
+            var indexPosition = header.getLong(96);
+            var recordBlocks = readRecordBlocks(channel, indexPosition, numRecords, dataStart);
+            var dataEnd = recordBlocks.length > 1 ? indexPosition : channel.size();
+            return new YxdbFile(path, channel, fields, numRecords, dataStart, recordBlocks, dataEnd);
+        } catch (IOException | IllegalArgumentException ex) {
+            try {
+                channel.close();
+            } catch (Exception ignored) {
+            }
+
+            throw ex;
+        }
+    }
+
+    // The block index is an int32 count followed by the int64 position of each record block. An index that does not
+    // match the record count is ignored and the file is treated as a single block.
+    private static long[] readRecordBlocks(FileChannel channel, long indexPosition, long numRecords, long dataStart) throws IOException {
+        var expected = (numRecords + RECORDS_PER_BLOCK - 1) / RECORDS_PER_BLOCK;
+        var size = channel.size();
+        if (expected <= 1 || indexPosition < dataStart || indexPosition + 4 + expected * 8 > size) {
+            return new long[]{dataStart};
+        }
+
+        var index = ByteBuffer.allocate(4 + (int) expected * 8).order(ByteOrder.LITTLE_ENDIAN);
+        while (index.hasRemaining()) {
+            if (channel.read(index, indexPosition + index.position()) < 0) {
+                return new long[]{dataStart};
+            }
+        }
+        if (index.getInt(0) != expected) {
+            return new long[]{dataStart};
+        }
+
+        var blocks = new long[(int) expected];
+        for (var i = 0; i < blocks.length; i++) {
+            blocks[i] = index.getLong(4 + i * 8);
+            if (blocks[i] < dataStart || blocks[i] >= indexPosition || (i > 0 && blocks[i] <= blocks[i - 1])) {
+                return new long[]{dataStart};
+            }
+        }
+        return blocks;
+    }
+
+    @Override
+    public YxdbField[] fields() {
+        return fields;
+    }
+
+    @Override
+    public YxdbRecord record() {
+        return record;
+    }
+
+    @Override
+    public long numRecords() {
+        return numRecords;
+    }
+
+    @Override
+    public int blockCount() {
+        return recordBlocks.length;
+    }
+
+    @Override
+    public BufferedRecordReader newBlockReader(int block) {
+        var position = recordBlocks[block];
+        return new BufferedRecordReader(streamAt(position), record.fixedSize, record.hasVar, blockRecords(block), position);
+    }
+
+    long blockRecords(int block) {
+        var first = block * (long) RECORDS_PER_BLOCK;
+        return recordBlocks.length == 1 ? numRecords : Math.min(RECORDS_PER_BLOCK, numRecords - first);
+    }
+
+    // A record block is a run of LZF blocks ending where the next record block (or the block index) starts.
+    @Override
+    public byte[] readStoredBlock(int block) throws IOException, IllegalArgumentException {
+        var start = recordBlocks[block];
+        var end = block + 1 < recordBlocks.length ? recordBlocks[block + 1] : dataEnd;
+        if (end - start > Integer.MAX_VALUE - 8) {
+            throw new IOException("Record block " + block + " exceeds the maximum supported size (2 GB).");
+        }
+
+        var stored = new byte[(int) (end - start)];
+        var target = ByteBuffer.wrap(stored);
+        while (target.hasRemaining()) {
+            if (channel.read(target, start + target.position()) < 0) {
+                throw new IllegalArgumentException("File is not a valid YXDB file - unexpected end of file.");
+            }
+        }
+        return stored;
+    }
+
+    @Override
+    public BufferedRecordReader newBlockReader(int block, byte[] stored) {
+        return new BufferedRecordReader(new ByteArrayInputStream(stored), record.fixedSize, record.hasVar, blockRecords(block), recordBlocks[block]);
+    }
+
+    InputStream streamAt(long position) {
+        return new ChannelInputStream(channel, position);
+    }
+
+    BufferedRecordReader newRecordReader() {
+        return new BufferedRecordReader(streamAt(dataStart), record.fixedSize, record.hasVar, numRecords, dataStart);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
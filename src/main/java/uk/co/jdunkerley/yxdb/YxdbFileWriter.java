@@ -0,0 +1,117 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes a classic .yxdb file from the raw bytes of records laid out as a BufferedRecordReader holds them, using the
+// layout Alteryx writes: LZF compressed blocks of up to 256 KB, a new block every 65536 records and a record block
+// index at the end of the file. The header and field definitions are copied from the file the records came from, with
+// the record count and index position filled in on close.
+final class YxdbFileWriter implements Closeable {
+    private final Path path;
+    private final OutputStream stream;
+    private final byte[] header;
+
+    private final byte[] block = new byte[BufferedRecordReader.lzfBufferSize];
+    private final byte[] compressed = new byte[BufferedRecordReader.lzfBufferSize];
+    private int blockLength;
+
+    private final List<Long> recordBlocks = new ArrayList<>();
+    private long position;
+    private long numRecords;
+
+    YxdbFileWriter(Path path, byte[] header) throws IOException {
+        this.path = path;
+        this.header = header;
+        this.stream = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+        stream.write(header);
+        position = header.length;
+    }
+
+    // The 512 byte header and field definitions of a classic file, up to its first record block.
+    static byte[] headerOf(YxdbFile file) throws IOException {
+        var header = ByteBuffer.allocate((int) file.dataStart);
+        while (header.hasRemaining()) {
+            if (file.channel.read(header, header.position()) < 0) {
+                throw new IOException("Unexpected end of file reading the header.");
+            }
+        }
+        return header.array();
+    }
+
+    void write(byte[] record, int offset, int length) throws IOException {
+        if (numRecords % YxdbFile.RECORDS_PER_BLOCK == 0) {
+            flushBlock();
+            recordBlocks.add(position);
+        }
+
+        while (length > 0) {
+            var toCopy = Math.min(length, block.length - blockLength);
+            System.arraycopy(record, offset, block, blockLength, toCopy);
+            blockLength += toCopy;
+            offset += toCopy;
+            length -= toCopy;
+            if (blockLength == block.length) {
+                flushBlock();
+            }
+        }
+        numRecords++;
+    }
+
+    long numRecords() {
+        return numRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (stream) {
+            flushBlock();
+            if (recordBlocks.isEmpty()) {
+                recordBlocks.add(position);
+            }
+
+            var index = ByteBuffer.allocate(4 + recordBlocks.size() * 8).order(ByteOrder.LITTLE_ENDIAN);
+            index.putInt(recordBlocks.size());
+            for (var recordBlock : recordBlocks) {
+                index.putLong(recordBlock);
+            }
+            stream.write(index.array());
+        }
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            var fixed = ByteBuffer.wrap(header, 0, 512).slice().order(ByteOrder.LITTLE_ENDIAN);
+            fixed.putLong(96, position);
+            fixed.putLong(104, numRecords);
+            channel.write(fixed, 0);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockLength == 0) {
+            return;
+        }
+
+        var compressedLength = Lzf.compress(block, blockLength, compressed);
+        var lengthBytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        if (compressedLength > 0) {
+            stream.write(lengthBytes.putInt(compressedLength).array());
+            stream.write(compressed, 0, compressedLength);
+            position += 4 + compressedLength;
+        } else {
+            stream.write(lengthBytes.putInt(blockLength | 0x80000000).array());
+            stream.write(block, 0, blockLength);
+            position += 4 + blockLength;
+        }
+        blockLength = 0;
+    }
+}
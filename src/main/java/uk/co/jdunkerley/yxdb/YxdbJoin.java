@@ -0,0 +1,164 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * YxdbJoin joins the records of two .yxdb files on equal values of a field in each, as an inner join, without
+ * creating an object per record.
+ * <p>
+ * <pre>{@code
+ * try (YxdbReader reader = YxdbJoin.of("sales.yxdb", "customers.yxdb")
+ *         .on("CustomerID")
+ *         .run()) {
+ *     while (reader.next()) {
+ *         ...
+ *     }
+ * }
+ * }</pre>
+ * <p>
+ * The file with fewer records is read into a hash table holding its records as raw bytes, keyed by bytes read straight
+ * from the record buffer, and the other file is streamed past it. The joined records have the fields of the left file
+ * followed by those of the right; right fields whose names are already taken are renamed Right_name.
+ * <p>
+ * When the table would outgrow the memory budget, both files are split by key hash into partitions in temporary
+ * files, and the partitions are joined one pair at a time. Otherwise the joined records come in the order of the
+ * streamed file, each with its matches in the order of the other.
+ * <p>
+ * Byte and integer fields can be joined to each other, as can float and double fields, fixed decimal fields, and any
+ * two string fields. Dates, times and date times join to fields of the same type. Null values match nothing. Blob and
+ * spatial object fields cannot be joined on.
+ */
+public final class YxdbJoin {
+    private final String left;
+    private final String right;
+    private String leftField;
+    private String rightField;
+    private long memory = 256L << 20;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path tempDirectory;
+
+    private YxdbJoin(String left, String right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Starts a join of two .yxdb files. The files are not read until run is called.
+     *
+     * @param left  the path to the left .yxdb file
+     * @param right the path to the right .yxdb file
+     * @return the join
+     */
+    public static YxdbJoin of(String left, String right) {
+        return new YxdbJoin(left, right);
+    }
+
+    /**
+     * Joins on a field with the same name in both files.
+     *
+     * @param field the name of the field
+     * @return this join
+     */
+    public YxdbJoin on(String field) {
+        return on(field, field);
+    }
+
+    /**
+     * Joins on a field of the left file and a field of the right.
+     *
+     * @param leftField  the name of the field in the left file
+     * @param rightField the name of the field in the right file
+     * @return this join
+     */
+    public YxdbJoin on(String leftField, String rightField) {
+        this.leftField = leftField;
+        this.rightField = rightField;
+        return this;
+    }
+
+    /**
+     * Sets the memory for the hash table; by default, 256 MB, and at most 1 GB. Larger inputs are joined in partitions
+     * through temporary files.
+     *
+     * @param bytes the budget in bytes, at least 1 MB
+     * @return this join
+     * @throws IllegalArgumentException thrown when bytes is less than 1 MB
+     */
+    public YxdbJoin memory(long bytes) throws IllegalArgumentException {
+        if (bytes < 1 << 20) {
+            throw new IllegalArgumentException("memory must be at least 1 MB");
+        }
+        this.memory = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads to decode blocks on; by default, one per processor.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this join
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public YxdbJoin threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the directory for the temporary files of a partitioned join; by default, the system temporary directory.
+     *
+     * @param directory the directory
+     * @return this join
+     */
+    public YxdbJoin tempDirectory(Path directory) {
+        this.tempDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Reads the smaller file into the hash table and returns a reader over the joined records, which streams the other
+     * file as it is read. The number of joined records is not known in advance, so numRecords of the reader is -1.
+     * Closing the reader deletes any temporary files.
+     *
+     * @return a reader over the joined records
+     * @throws IllegalArgumentException thrown when no fields were set with on, when a file is not a valid YXDB file, or when a field does not exist or the fields cannot be joined
+     * @throws IOException              thrown when there are issues reading the files or writing the temporary files
+     */
+    public YxdbReader run() throws IOException, IllegalArgumentException {
+        if (leftField == null) {
+            throw new IllegalArgumentException("No fields to join on were set.");
+        }
+
+        var leftSource = BlockSource.open(left);
+        try {
+            var rightSource = BlockSource.open(right);
+            try {
+                // keys are read from the layout of the record buffer, which for AMP files differs from the fields
+                var leftRecord = leftSource.record();
+                var rightRecord = rightSource.record();
+                var leftKey = leftRecord.fields[leftRecord.mapName(leftField)];
+                var rightKey = rightRecord.fields[rightRecord.mapName(rightField)];
+                JoinKey.checkJoinable(leftKey, rightKey);
+
+                var layout = new JoinLayout(leftSource.fields(), leftRecord, rightSource.fields(), rightRecord);
+                var directory = tempDirectory == null ? Path.of(System.getProperty("java.io.tmpdir")) : tempDirectory;
+                var join = HashJoin.open(leftSource, leftKey, rightSource, rightKey, layout, memory, threads, directory);
+                return new YxdbReader(() -> {
+                    try (leftSource; rightSource) {
+                        join.close();
+                    }
+                }, layout.fields, layout.record, -1, join.newReader());
+            } catch (IOException | RuntimeException ex) {
+                rightSource.close();
+                throw ex;
+            }
+        } catch (IOException | RuntimeException ex) {
+            leftSource.close();
+            throw ex;
+        }
+    }
+}
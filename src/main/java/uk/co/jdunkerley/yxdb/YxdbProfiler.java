@@ -0,0 +1,124 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * YxdbProfiler gathers statistics for every field of a .yxdb file in one pass: null counts, minimums and maximums,
+ * distinct counts and, for strings and blobs, length histograms.
+ * <p>
+ * <pre>{@code
+ * ProfileReport report = YxdbProfiler.of("sales.yxdb").sample(0.1).run();
+ * System.out.println(report.column("CustomerName").distinct() + " customers");
+ * }</pre>
+ * <p>
+ * Blocks are profiled in parallel straight from the record buffer, without creating a value for each field, and the
+ * statistics of the blocks are merged. Distinct counts are HyperLogLog estimates. By default every block is read;
+ * sample reads only a fraction of them, spread evenly through the file. A classic file with no more than 65536
+ * records is a single block, so it is always read in full.
+ */
+public final class YxdbProfiler {
+    private final String path;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double fraction = 1.0;
+
+    private YxdbProfiler(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Starts a profile of a .yxdb file. The file is not read until run is called.
+     *
+     * @param path the path to the .yxdb file
+     * @return the profile
+     */
+    public static YxdbProfiler of(String path) {
+        return new YxdbProfiler(path);
+    }
+
+    /**
+     * Sets the number of threads to profile blocks on; by default, one per processor.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this profile
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public YxdbProfiler threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Reads only a fraction of the blocks of the file, spread evenly through it. At least one block is always read.
+     *
+     * @param fraction the fraction of blocks to read, greater than 0 and at most 1
+     * @return this profile
+     * @throws IllegalArgumentException thrown when fraction is not greater than 0 and at most 1
+     */
+    public YxdbProfiler sample(double fraction) throws IllegalArgumentException {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("fraction must be greater than 0 and at most 1");
+        }
+        this.fraction = fraction;
+        return this;
+    }
+
+    /**
+     * Reads the file, or the sampled blocks of it, and gathers the statistics of each field.
+     *
+     * @return the statistics of each field
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file
+     * @throws IOException              thrown when there are issues reading the file
+     */
+    public ProfileReport run() throws IOException, IllegalArgumentException {
+        try (var source = BlockSource.open(path)) {
+            var blocks = source.blockCount();
+            var sampled = (int) Math.min(blocks, Math.max(1, Math.ceil(blocks * fraction)));
+            var chosen = new int[blocks == 0 ? 0 : sampled];
+            for (var i = 0; i < chosen.length; i++) {
+                chosen[i] = (int) ((long) i * blocks / chosen.length);
+            }
+
+            // read from the layout of the record buffer, which for AMP files differs from the fields
+            var record = source.record();
+            var total = stats(record);
+            var records = new long[1];
+            ParallelBlocks.run(new BlockSubset(source, chosen), threads, (block, reader) -> {
+                var stats = stats(record);
+                var count = 0L;
+                while (reader.nextRecord()) {
+                    for (var column : stats) {
+                        column.add(reader.recordBuffer);
+                    }
+                    count++;
+                }
+                return new BlockStats(stats, count);
+            }, block -> {
+                records[0] += block.records;
+                for (var i = 0; i < total.length; i++) {
+                    total[i].merge(block.stats[i]);
+                }
+            });
+
+            var columns = new ArrayList<ColumnProfile>(total.length);
+            for (var i = 0; i < total.length; i++) {
+                columns.add(total[i].profile(source.fields()[i]));
+            }
+            return new ProfileReport(columns, records[0], source.numRecords(), chosen.length, blocks);
+        }
+    }
+
+    private record BlockStats(ColumnStats[] stats, long records) {
+    }
+
+    private static ColumnStats[] stats(YxdbRecord record) {
+        var stats = new ColumnStats[record.fields.length];
+        for (var i = 0; i < stats.length; i++) {
+            stats[i] = new ColumnStats(record, record.fields[i]);
+        }
+        return stats;
+    }
+}
@@ -6,8 +6,10 @@ import org.xml.sax.InputSource;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
@@ -29,15 +31,18 @@ import static java.lang.Integer.parseInt;
  * takes an InputStream that reads yxdb-formatted bytes.
  */
 public class YxdbReader implements AutoCloseable {
-    private final BufferedInputStream stream;
+    private final Closeable source;
 
     private final YxdbField[] fields;
 
     private final YxdbRecord record;
-    private final BufferedRecordReader recordReader;
+    private final RecordReader recordReader;
+    private final RecordCursor cursor;
 
     private final long numRecords;
 
+    private RowHash rowHash;
+
     /**
      * Returns a reader that will parse the .yxdb file specified by the path argument.
      * <p>
@@ -69,17 +74,16 @@ public class YxdbReader implements AutoCloseable {
      * @throws IOException              thrown when there are issues reading the stream
      */
     public YxdbReader(BufferedInputStream stream) throws IOException, IllegalArgumentException {
-        this.stream = stream;
+        this.source = stream;
 
         try {
             var header = getHeader(stream);
             numRecords = header.getLong(104);
-
-            var recordInfoNodes = getRecordInfoNodes(header, stream);
-            fields = getFields(recordInfoNodes);
+            fields = readFields(header, stream);
 
             record = new YxdbRecord(fields);
-            recordReader = new BufferedRecordReader(stream, record.fixedSize, record.hasVar, numRecords);
+            recordReader = new BufferedRecordReader(stream, record.fixedSize, record.hasVar, numRecords, dataStart(header));
+            cursor = recordReader::nextRecord;
         } catch (IOException | IllegalArgumentException ex) {
             try {
                 stream.close();
@@ -90,6 +94,42 @@ public class YxdbReader implements AutoCloseable {
         }
     }
 
+    // Reader over an already opened file, where the cursor decides which records next() visits.
+    YxdbReader(YxdbFile file, BufferedRecordReader recordReader, RecordCursor cursor) {
+        this.source = file;
+        this.fields = file.fields;
+        this.record = file.record;
+        this.numRecords = file.numRecords;
+        this.recordReader = recordReader;
+        this.cursor = cursor;
+    }
+
+    // Reader over an AMP file. The declared fields are reported as they are, while values are read from the
+    // transcoded layout.
+    YxdbReader(AmpFile file, AmpRecordReader recordReader) {
+        this.source = file;
+        this.fields = file.fields;
+        this.record = file.layout;
+        this.numRecords = file.numRecords;
+        this.recordReader = recordReader;
+        this.cursor = recordReader::nextRecord;
+    }
+
+    // Reader over records decoded elsewhere, such as the shards of a dataset, or over part of a shared file.
+    // Closing the reader closes the source.
+    YxdbReader(Closeable source, YxdbField[] fields, YxdbRecord record, long numRecords, RecordReader recordReader) {
+        this(source, fields, record, numRecords, recordReader, recordReader::nextRecord);
+    }
+
+    YxdbReader(Closeable source, YxdbField[] fields, YxdbRecord record, long numRecords, RecordReader recordReader, RecordCursor cursor) {
+        this.source = source;
+        this.fields = fields;
+        this.record = record;
+        this.numRecords = numRecords;
+        this.recordReader = recordReader;
+        this.cursor = cursor;
+    }
+
     /**
      * The total number of records in the .yxdb file.
      * @return the total number of records in the .yxdb file.
@@ -107,13 +147,64 @@ public class YxdbReader implements AutoCloseable {
         return fields;
     }
 
+    /**
+     * A 64-bit hash of the values of the current record, for checking whether records are the same without reading
+     * every field. The hash is XXH64 over each field's null flag and value, so it depends only on the values: the
+     * padding after a string's terminator and the layout of variable length data don't change it, and neither does
+     * the storage type of a value (an Int16 and an Int32 holding 5, or a String and a V_WString holding "a", hash
+     * alike). Records with equal values in the same order of fields have equal hashes.
+     *
+     * @return the hash of the current record
+     */
+    public long rowHash() {
+        if (rowHash == null) {
+            rowHash = new RowHash(record);
+        }
+        return rowHash.hash(recordReader.recordBuffer);
+    }
+
+    /**
+     * Starts collecting statistics for this reader: bytes and blocks read, time spent in I/O, decompression and
+     * record assembly, and record buffer growth.
+     * <p>
+     * Collection is off by default. When it is off the reader keeps no counters and takes no timings per record.
+     * Calling this again has no effect; earlier totals are kept.
+     */
+    public void enableStats() {
+        if (recordReader.metrics == null) {
+            recordReader.metrics = new ReaderMetrics(recordReader.recordBuffer.capacity());
+        }
+    }
+
+    /**
+     * A snapshot of the statistics collected since enableStats() was called.
+     *
+     * @return the statistics so far
+     * @throws IllegalStateException thrown when statistics have not been enabled
+     */
+    public ReaderStats stats() throws IllegalStateException {
+        if (recordReader.metrics == null) {
+            throw new IllegalStateException("Statistics are not enabled; call enableStats() first.");
+        }
+        return recordReader.metrics.snapshot();
+    }
+
+    /**
+     * Sets a listener to be told about each block read and each record buffer resize.
+     *
+     * @param listener the listener, or null to remove the current listener
+     */
+    public void setListener(ReaderListener listener) {
+        recordReader.listener = listener;
+    }
+
     /**
      * Closes the stream manually if the reader needs to be ended before reaching the end of the file.
      *
      * @throws IOException thrown when the stream fails to close or closes with an error
      */
     public void close() throws IOException {
-        stream.close();
+        source.close();
     }
 
     /**
@@ -131,7 +222,7 @@ public class YxdbReader implements AutoCloseable {
      * @throws IOException thrown when there is an error reading the next record
      */
     public boolean next() throws IOException {
-        return recordReader.nextRecord();
+        return cursor.next();
     }
 
     /**
@@ -173,6 +264,28 @@ public class YxdbReader implements AutoCloseable {
         return read(record.mapName(name));
     }
 
+    /**
+     * Checks whether a field of the current record is null, without decoding its value.
+     *
+     * @param index the index of the field to check, starting at 0
+     * @return true if the field at the specified index is null
+     * @throws IllegalArgumentException thrown when the index is out of range
+     */
+    public boolean isNull(int index) throws IllegalArgumentException {
+        return record.isNullFrom(index, recordReader.recordBuffer);
+    }
+
+    /**
+     * Checks whether a field of the current record is null, without decoding its value.
+     *
+     * @param name the name of the field to check
+     * @return true if the specified field is null
+     * @throws IllegalArgumentException thrown when the field does not exist
+     */
+    public boolean isNull(String name) throws IllegalArgumentException {
+        return isNull(record.mapName(name));
+    }
+
     /**
      * Reads a byte field from the .yxdb file
      *
@@ -239,6 +352,30 @@ public class YxdbReader implements AutoCloseable {
         return readLong(record.mapName(name));
     }
 
+    /**
+     * Reads an integer field from the .yxdb file as a primitive, without boxing
+     *
+     * @param index     the index of the field to read, starting at 0
+     * @param nullValue the value to return when the field is null
+     * @return the value of the long integer field at the specified index, or nullValue if it is null
+     * @throws IllegalArgumentException thrown when the index is out of range or the field at the specified index is not a long integer field
+     */
+    public long readLong(int index, long nullValue) throws IllegalArgumentException {
+        return record.extractLongFrom(index, recordReader.recordBuffer, nullValue);
+    }
+
+    /**
+     * Reads an integer field from the .yxdb file as a primitive, without boxing
+     *
+     * @param name      the name of the field to read
+     * @param nullValue the value to return when the field is null
+     * @return the value of the specified long integer field, or nullValue if it is null
+     * @throws IllegalArgumentException thrown when the field does not exist or is not a long integer field
+     */
+    public long readLong(String name, long nullValue) throws IllegalArgumentException {
+        return readLong(record.mapName(name), nullValue);
+    }
+
     /**
      * Reads a floating point field from the .yxdb file
      *
@@ -261,6 +398,30 @@ public class YxdbReader implements AutoCloseable {
         return readDouble(record.mapName(name));
     }
 
+    /**
+     * Reads a floating point field from the .yxdb file as a primitive, without boxing
+     *
+     * @param index     the index of the field to read, starting at 0
+     * @param nullValue the value to return when the field is null
+     * @return the value of the numeric field at the specified index, or nullValue if it is null
+     * @throws IllegalArgumentException thrown when the index is out of range or the field at the specified index is not a numeric field
+     */
+    public double readDouble(int index, double nullValue) throws IllegalArgumentException {
+        return record.extractDoubleFrom(index, recordReader.recordBuffer, nullValue);
+    }
+
+    /**
+     * Reads a floating point field from the .yxdb file as a primitive, without boxing
+     *
+     * @param name      the name of the field to read
+     * @param nullValue the value to return when the field is null
+     * @return the value of the specified numeric field, or nullValue if it is null
+     * @throws IllegalArgumentException thrown when the field does not exist or is not a numeric field
+     */
+    public double readDouble(String name, double nullValue) throws IllegalArgumentException {
+        return readDouble(record.mapName(name), nullValue);
+    }
+
     /**
      * Reads a fixed decimal field from the .yxdb file
      *
@@ -393,7 +554,40 @@ public class YxdbReader implements AutoCloseable {
         return readBlob(record.mapName(name));
     }
 
-    private static ByteBuffer getHeader(BufferedInputStream stream) throws IOException, IllegalArgumentException {
+    /**
+     * Checks whether the bounding box of a spatial object field overlaps the given box.
+     * <p>
+     * The check only reads the bounding box stored in the header of the SpatialObj, so the blob is neither copied nor parsed.
+     * This makes it a cheap filter to apply before reading the rest of the record.
+     *
+     * @param index the index of the field to check, starting at 0
+     * @param minX  the smallest x (longitude) coordinate of the box
+     * @param minY  the smallest y (latitude) coordinate of the box
+     * @param maxX  the largest x (longitude) coordinate of the box
+     * @param maxY  the largest y (latitude) coordinate of the box
+     * @return true if the spatial object overlaps the box, false if it does not or the field is null
+     * @throws IllegalArgumentException thrown when the index is out of range, the field at the specified index is not a spatial object field or the blob is not a valid spatial object
+     */
+    public boolean intersectsBox(int index, double minX, double minY, double maxX, double maxY) throws IllegalArgumentException {
+        return record.intersectsBoxFrom(index, recordReader.recordBuffer, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Checks whether the bounding box of a spatial object field overlaps the given box.
+     *
+     * @param name the name of the field to check
+     * @param minX the smallest x (longitude) coordinate of the box
+     * @param minY the smallest y (latitude) coordinate of the box
+     * @param maxX the largest x (longitude) coordinate of the box
+     * @param maxY the largest y (latitude) coordinate of the box
+     * @return true if the spatial object overlaps the box, false if it does not or the field is null
+     * @throws IllegalArgumentException thrown when the field does not exist, is not a spatial object field or the blob is not a valid spatial object
+     */
+    public boolean intersectsBox(String name, double minX, double minY, double maxX, double maxY) throws IllegalArgumentException {
+        return intersectsBox(record.mapName(name), minX, minY, maxX, maxY);
+    }
+
+    static ByteBuffer getHeader(InputStream stream) throws IOException, IllegalArgumentException {
         var headerBytes = new byte[512];
 
         var written = stream.readNBytes(headerBytes, 0, 512);
@@ -405,7 +599,7 @@ public class YxdbReader implements AutoCloseable {
 
         // Check file type in header
         var fileType = new String(header.array(), 0, 64, StandardCharsets.ISO_8859_1).trim();
-        if ("Alteryx e2 Database file".equals(fileType)) {
+        if (AmpFile.FILE_TYPE.equals(fileType)) {
             throw new IllegalArgumentException("Reading AMP YXDB files is not supported.");
         }
         if (!fileType.startsWith("Alteryx Database File")) {
@@ -415,7 +609,19 @@ public class YxdbReader implements AutoCloseable {
         return header;
     }
 
-    private static NodeList getRecordInfoNodes(ByteBuffer header, BufferedInputStream stream) throws IOException, IllegalArgumentException {
+    static long dataStart(ByteBuffer header) {
+        return 512 + header.getInt(80) * 2L;
+    }
+
+    static YxdbField[] readFields(ByteBuffer header, InputStream stream) throws IOException, IllegalArgumentException {
+        return getFields(getRecordInfoNodes(header, stream));
+    }
+
+    static YxdbField[] parseFields(String metaInfo) throws IllegalArgumentException {
+        return getFields(getRecordInfoNodes(metaInfo));
+    }
+
+    private static NodeList getRecordInfoNodes(ByteBuffer header, InputStream stream) throws IOException, IllegalArgumentException {
         int metaInfoSize = header.getInt(80);
         int metaInfoByteLength = metaInfoSize * 2 - 2;
 
@@ -430,9 +636,11 @@ public class YxdbReader implements AutoCloseable {
             throw new IllegalArgumentException("File is not a valid YXDB file - incomplete metadata.");
         }
 
-        try {
-            var metaInfoString = new String(metaInfoBytes, StandardCharsets.UTF_16LE);
+        return getRecordInfoNodes(new String(metaInfoBytes, StandardCharsets.UTF_16LE));
+    }
 
+    private static NodeList getRecordInfoNodes(String metaInfoString) throws IllegalArgumentException {
+        try {
             var builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
             var doc = builder.parse(new InputSource(new StringReader(metaInfoString)));
             doc.getDocumentElement().normalize();
@@ -69,6 +69,29 @@ final class YxdbRecord {
         };
     }
 
+    boolean isNullFrom(int index, ByteBuffer buffer) {
+        var yxdbField = getField(index);
+        if (yxdbField.yxdbType().equals(YxdbType.BOOLEAN)) {
+            return buffer.get(yxdbField.startPosition()) == 2;
+        }
+        if (yxdbField.isVariableLength()) {
+            return Extractors.locateBlob(buffer, yxdbField.startPosition()) == -1;
+        }
+        // every other fixed width field ends with its null flag
+        return buffer.get(yxdbField.endPosition() - 1) == 1;
+    }
+
+    long extractLongFrom(int index, ByteBuffer buffer, long nullValue) {
+        var yxdbField = getField(index);
+        var start = yxdbField.startPosition();
+        return switch (yxdbField.yxdbType()) {
+            case YxdbType.INT16 -> buffer.get(start + 2) == 1 ? nullValue : buffer.getShort(start);
+            case YxdbType.INT32 -> buffer.get(start + 4) == 1 ? nullValue : buffer.getInt(start);
+            case YxdbType.INT64 -> buffer.get(start + 8) == 1 ? nullValue : buffer.getLong(start);
+            default -> throw newInvalidIndex(index, "int16 / int32 / int64");
+        };
+    }
+
     Double extractDoubleFrom(int index, ByteBuffer buffer) {
         var yxdbField = getField(index);
         return switch (yxdbField.yxdbType()) {
@@ -78,6 +101,16 @@ final class YxdbRecord {
         };
     }
 
+    double extractDoubleFrom(int index, ByteBuffer buffer, double nullValue) {
+        var yxdbField = getField(index);
+        var start = yxdbField.startPosition();
+        return switch (yxdbField.yxdbType()) {
+            case YxdbType.FLOAT -> buffer.get(start + 4) == 1 ? nullValue : buffer.getFloat(start);
+            case YxdbType.DOUBLE -> buffer.get(start + 8) == 1 ? nullValue : buffer.getDouble(start);
+            default -> throw newInvalidIndex(index, "float / double");
+        };
+    }
+
     BigDecimal extractDecimalFrom(int index, ByteBuffer buffer) {
         var yxdbField = getField(index);
         if (yxdbField.dataType() != DataType.DECIMAL) {
@@ -131,6 +164,16 @@ final class YxdbRecord {
         return Extractors.extractBlob(buffer, yxdbField.startPosition());
     }
 
+    boolean intersectsBoxFrom(int index, ByteBuffer buffer, double minX, double minY, double maxX, double maxY) {
+        var yxdbField = getField(index);
+        if (!yxdbField.yxdbType().equals(YxdbType.SPATIAL_OBJ)) {
+            throw newInvalidIndex(index, "spatial");
+        }
+
+        var location = Extractors.locateBlob(buffer, yxdbField.startPosition());
+        return location != -1 && Spatial.intersectsBox(buffer, Extractors.blobStart(location), Extractors.blobLength(location), minX, minY, maxX, maxY);
+    }
+
     private static IllegalArgumentException newInvalidIndex(int index, String expectedType) throws IllegalArgumentException {
         return new IllegalArgumentException("index " + index + " is not a valid index or is not a " + expectedType + " field");
     }
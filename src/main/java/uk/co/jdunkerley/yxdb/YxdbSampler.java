@@ -0,0 +1,203 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * YxdbSampler reads a random sample of the records of a .yxdb file, reading only the blocks the sample is drawn from.
+ * <p>
+ * <pre>{@code
+ * try (YxdbReader sample = YxdbSampler.of("events.yxdb").fraction(0.001).seed(42).open()) {
+ *     while (sample.next()) {
+ *         System.out.println(sample.readString("EventType"));
+ *     }
+ * }
+ * }</pre>
+ * <p>
+ * The sample is drawn in two stages. First, blocks are chosen at random from the file's blocks (the 65536 record
+ * blocks listed in the block index of a classic file, or the Snappy blocks of an AMP file). Only those blocks are
+ * read and decompressed. Then records are chosen at random from within them. Sampling 0.1% of a large file therefore
+ * reads about 0.1% of it. Records of the same block are sampled together, so the sample is less spread out than one
+ * drawn from every block. A classic file with no more than 65536 records is a single block, and so is read in full.
+ * Records are returned in file order.
+ */
+public final class YxdbSampler {
+    private final String path;
+    private double fraction = -1;
+    private long rows = -1;
+    private Long seed;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private YxdbSampler(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Starts a sample of a .yxdb file. The file is not read until open is called.
+     *
+     * @param path the path to the .yxdb file
+     * @return the sample
+     */
+    public static YxdbSampler of(String path) {
+        return new YxdbSampler(path);
+    }
+
+    /**
+     * Samples about a fraction of the records: enough blocks are chosen to hold that fraction of the file, and each of
+     * their records is kept with the probability that makes up the rest. The records are read as they are sampled.
+     *
+     * @param fraction the fraction of records to sample, greater than 0 and at most 1
+     * @return this sample
+     * @throws IllegalArgumentException thrown when fraction is not greater than 0 and at most 1
+     */
+    public YxdbSampler fraction(double fraction) throws IllegalArgumentException {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("fraction must be greater than 0 and at most 1");
+        }
+        this.fraction = fraction;
+        this.rows = -1;
+        return this;
+    }
+
+    /**
+     * Samples exactly a number of records, or every record when the file has fewer. Blocks are chosen until they hold
+     * enough records, and are decompressed in parallel and held in memory while the records are chosen from them.
+     *
+     * @param rows the number of records to sample, at least 0
+     * @return this sample
+     * @throws IllegalArgumentException thrown when rows is negative
+     */
+    public YxdbSampler rows(long rows) throws IllegalArgumentException {
+        if (rows < 0) {
+            throw new IllegalArgumentException("rows must be at least 0");
+        }
+        this.rows = rows;
+        this.fraction = -1;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random choices, so that the same file and settings give the same sample. Without a seed,
+     * each sample differs.
+     *
+     * @param seed the seed
+     * @return this sample
+     */
+    public YxdbSampler seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads to decompress blocks on when sampling a number of rows; by default, one per
+     * processor.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this sample
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public YxdbSampler threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Opens a reader over the sampled records. For a fraction the number of records is not known in advance, so
+     * numRecords of the reader is -1; for a number of rows it is the number sampled.
+     *
+     * @return a reader over the sample
+     * @throws IllegalArgumentException thrown when neither a fraction nor a number of rows was set, or when the file is not a valid YXDB file
+     * @throws IOException              thrown when there are issues reading the file
+     */
+    public YxdbReader open() throws IOException, IllegalArgumentException {
+        if (fraction < 0 && rows < 0) {
+            throw new IllegalArgumentException("No fraction or number of rows was set.");
+        }
+
+        var random = seed == null ? new Random() : new Random(seed);
+        var source = BlockSource.open(path);
+        try {
+            var order = shuffle(source.blockCount(), random);
+            if (rows >= 0) {
+                try (source) {
+                    return sampleRows(source, order, random);
+                }
+            }
+
+            // choose the blocks that would hold the fraction, and keep each of their records with the probability
+            // that brings the expected sample back to the fraction of the whole file
+            var blocks = order.length;
+            var chosen = blocks == 0 ? 0 : (int) Math.min(blocks, Math.ceil(fraction * blocks));
+            var picked = Arrays.copyOf(order, chosen);
+            Arrays.sort(picked);
+            var rate = chosen == 0 ? 1 : Math.min(1, fraction * blocks / chosen);
+            var reader = new SampleRecordReader(source, picked, rate, random);
+            return new YxdbReader(source, source.fields(), source.record(), -1, reader);
+        } catch (IOException | RuntimeException ex) {
+            source.close();
+            throw ex;
+        }
+    }
+
+    // The block numbers in a random order.
+    private static int[] shuffle(int blocks, Random random) {
+        var order = new int[blocks];
+        for (var i = 0; i < blocks; i++) {
+            var j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        return order;
+    }
+
+    private YxdbReader sampleRows(BlockSource source, int[] order, Random random) throws IOException {
+        var target = Math.min(rows, source.numRecords());
+        var batches = new ArrayList<RecordBatch>();
+        var held = 0L;
+        var next = 0;
+        // blocks hold about numRecords / blocks records each, so start with as many as should be enough and decode
+        // them in parallel, then add more one at a time if they fall short
+        if (target > 0 && order.length > 0) {
+            next = (int) Math.min(order.length, Math.ceil((double) target * order.length / source.numRecords()));
+            var first = new BlockSubset(source, Arrays.copyOf(order, next));
+            ParallelBlocks.run(first, threads, (block, reader) -> RecordBatch.read(reader, 0, first.blocks()[block]), batches::add);
+            for (var batch : batches) {
+                held += batch.count();
+            }
+        }
+        while (held < target && next < order.length) {
+            var batch = RecordBatch.read(source, 0, order[next++]);
+            batches.add(batch);
+            held += batch.count();
+        }
+        batches.sort(Comparator.comparingInt(RecordBatch::block));
+
+        // selection sampling: keep each record with probability (records still needed) / (records left to see),
+        // which keeps exactly target records with every set of them equally likely
+        var bytes = new ByteSink(1 << 16);
+        var ends = new int[(int) Math.min(target, 1 << 20)];
+        var count = 0;
+        var needed = target;
+        var remaining = held;
+        for (var batch : batches) {
+            for (var r = 0; r < batch.count() && needed > 0; r++, remaining--) {
+                if (random.nextDouble() * remaining < needed) {
+                    var start = batch.start(r);
+                    bytes.write(batch.bytes(), start, batch.ends()[r] - start);
+                    if (count == ends.length) {
+                        ends = Arrays.copyOf(ends, count * 2);
+                    }
+                    ends[count++] = bytes.length;
+                    needed--;
+                }
+            }
+        }
+        return BatchRecordReader.readerOf(new RecordBatch(0, 0, bytes.bytes, ends, count), source.fields(), source.record());
+    }
+}
@@ -0,0 +1,194 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * YxdbSorter sorts the records of a .yxdb file by one or more fields, within a memory budget, however large the file.
+ * <p>
+ * <pre>{@code
+ * try (YxdbReader reader = YxdbSorter.of("sales.yxdb")
+ *         .by("Region")
+ *         .byDescending("Amount")
+ *         .memory(512L << 20)
+ *         .sort()) {
+ *     while (reader.next()) {
+ *         ...
+ *     }
+ * }
+ * }</pre>
+ * <p>
+ * The sort fields of each record are encoded as a fixed length binary key whose byte order is the order of the
+ * records, so records are compared without decoding their fields. Blocks are decoded in parallel and gathered into
+ * runs; each run is sorted on a pool of threads and, when the file does not fit in the memory budget, spilled to a
+ * temporary file. The runs are then merged into a single sorted stream.
+ * <p>
+ * Nulls sort before every other value, and after them when descending. Strings are compared by their UTF-16 code
+ * units: by the first 16 characters in the key, then in full when those are equal. Dates, times and date times sort
+ * in time order. Blob and spatial object fields cannot be sorted by. The sort is stable, so records with equal keys
+ * keep the order they have in the file.
+ */
+public final class YxdbSorter {
+    private final String path;
+    private final ArrayList<String> fields = new ArrayList<>();
+    private final ArrayList<Boolean> descending = new ArrayList<>();
+    private long memory = 256L << 20;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path tempDirectory;
+
+    private YxdbSorter(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Starts a sort of a .yxdb file. The file is not read until sort or sortTo is called.
+     *
+     * @param path the path to a .yxdb file
+     * @return the sorter
+     */
+    public static YxdbSorter of(String path) {
+        return new YxdbSorter(path);
+    }
+
+    /**
+     * Sorts by a field in ascending order, after any fields already added.
+     *
+     * @param field the name of the field
+     * @return this sorter
+     */
+    public YxdbSorter by(String field) {
+        fields.add(field);
+        descending.add(false);
+        return this;
+    }
+
+    /**
+     * Sorts by a field in descending order, after any fields already added.
+     *
+     * @param field the name of the field
+     * @return this sorter
+     */
+    public YxdbSorter byDescending(String field) {
+        fields.add(field);
+        descending.add(true);
+        return this;
+    }
+
+    /**
+     * Sets the memory to hold records in while sorting; by default, 256 MB. Files larger than this are sorted in runs
+     * that are spilled to temporary files. Blocks being decoded are held in addition to the budget.
+     *
+     * @param bytes the budget in bytes, at least 1 MB
+     * @return this sorter
+     * @throws IllegalArgumentException thrown when bytes is less than 1 MB
+     */
+    public YxdbSorter memory(long bytes) throws IllegalArgumentException {
+        if (bytes < 1 << 20) {
+            throw new IllegalArgumentException("memory must be at least 1 MB");
+        }
+        this.memory = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads to decode blocks and sort runs on; by default, one per processor.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this sorter
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public YxdbSorter threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the directory for the temporary files of spilled runs; by default, the system temporary directory.
+     *
+     * @param directory the directory
+     * @return this sorter
+     */
+    public YxdbSorter tempDirectory(Path directory) {
+        this.tempDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Sorts the file and returns a reader over the sorted records. Closing the reader deletes any temporary files.
+     *
+     * @return a reader over the sorted records
+     * @throws IllegalArgumentException thrown when no fields were added, when the file is not a valid YXDB file, or when a field does not exist or cannot be sorted by
+     * @throws IOException              thrown when there are issues reading the file or writing the temporary files
+     */
+    public YxdbReader sort() throws IOException, IllegalArgumentException {
+        var source = BlockSource.open(path);
+        try {
+            var sort = sort(source);
+            try {
+                var reader = sort.newReader();
+                return new YxdbReader(() -> {
+                    try (source) {
+                        sort.close();
+                    }
+                }, source.fields(), source.record(), sort.numRecords(), reader);
+            } catch (IOException | RuntimeException ex) {
+                sort.close();
+                throw ex;
+            }
+        } catch (IOException | RuntimeException ex) {
+            source.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Sorts the file into a new .yxdb file with the same fields. Only classic .yxdb files can be written; AMP files can
+     * be sorted with sort.
+     *
+     * @param output the path of the file to write, which is replaced if it exists
+     * @return the number of records written
+     * @throws IllegalArgumentException thrown when no fields were added, when the file is not a valid classic YXDB file, or when a field does not exist or cannot be sorted by
+     * @throws IOException              thrown when there are issues reading the file or writing the output
+     */
+    public long sortTo(String output) throws IOException, IllegalArgumentException {
+        try (var source = BlockSource.open(path)) {
+            if (!(source instanceof YxdbFile file)) {
+                throw new IllegalArgumentException("Only classic .yxdb files can be sorted to a file.");
+            }
+            var header = YxdbFileWriter.headerOf(file);
+            try (var sort = sort(source)) {
+                var target = Path.of(output);
+                try (var writer = new YxdbFileWriter(target, header)) {
+                    sort.forEach((record, length) -> writer.write(record, 0, length));
+                    return writer.numRecords();
+                } catch (IOException | RuntimeException ex) {
+                    Files.deleteIfExists(target);
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private ExternalSort sort(BlockSource source) throws IOException, IllegalArgumentException {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields to sort by were added.");
+        }
+
+        // encode from the layout of the record buffer, which for AMP files differs from the fields
+        var record = source.record();
+        var sortFields = new YxdbField[fields.size()];
+        var flags = new boolean[fields.size()];
+        for (var i = 0; i < sortFields.length; i++) {
+            sortFields[i] = record.fields[record.mapName(fields.get(i))];
+            flags[i] = descending.get(i);
+        }
+        var key = new SortKey(record, sortFields, flags);
+        var directory = tempDirectory == null ? Path.of(System.getProperty("java.io.tmpdir")) : tempDirectory;
+        return ExternalSort.sort(source, key, memory, threads, directory);
+    }
+}
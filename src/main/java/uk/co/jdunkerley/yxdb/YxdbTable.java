@@ -0,0 +1,419 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+/**
+ * YxdbTable is a whole .yxdb file loaded into memory as immutable columns.
+ * <p>
+ * Each column is held in primitive arrays rather than as an object per value, which typically takes less memory than
+ * the file itself, let alone a list of row objects:
+ * <ul>
+ *     <li>Booleans as a bitmap</li>
+ *     <li>Byte, Int16 and Int32 as ints; Int64 as longs; Float as floats; Double as doubles</li>
+ *     <li>FixedDecimal as unscaled longs at the scale of the field</li>
+ *     <li>Date as days since 1970-01-01 in ints; Time as seconds since midnight in ints</li>
+ *     <li>DateTime as seconds since 1970-01-01T00:00:00 in longs</li>
+ *     <li>Strings as int codes into a dictionary of their distinct values</li>
+ *     <li>Blobs and spatial objects as byte arrays</li>
+ * </ul>
+ * Nulls are recorded in a bitmap per column, which is only allocated for columns holding a null. The primitive getters
+ * return 0 (or false) for nulls, so check isNull when a column may hold them.
+ * <p>
+ * load decodes the blocks of the file on a pool of threads and appends them to the columns in file order.
+ * memoryBytes() estimates the heap the columns use, to compare with fileBytes().
+ * <p>
+ * A table is safe to read from any number of threads once loaded.
+ */
+public final class YxdbTable {
+    private final YxdbField[] fields;
+    private final YxdbRecord record;
+    private final TableColumn[] columns;
+    private final int numRows;
+    private final long fileBytes;
+    private final long memoryBytes;
+
+    private YxdbTable(YxdbField[] fields, YxdbRecord record, TableColumn[] columns, int numRows, long fileBytes) {
+        this.fields = fields;
+        this.record = record;
+        this.columns = columns;
+        this.numRows = numRows;
+        this.fileBytes = fileBytes;
+
+        var total = 0L;
+        for (var column : columns) {
+            total += column.memoryBytes();
+        }
+        this.memoryBytes = total;
+    }
+
+    /**
+     * Loads a .yxdb file, decoding its blocks on as many threads as there are processors.
+     *
+     * @param path the path to a .yxdb file
+     * @return the table
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file or has more than Integer.MAX_VALUE - 8 records
+     * @throws IOException              thrown when there are issues reading the file
+     */
+    public static YxdbTable load(String path) throws IOException, IllegalArgumentException {
+        return load(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads a .yxdb file, decoding its blocks on a given number of threads.
+     *
+     * @param path    the path to a .yxdb file
+     * @param threads the number of threads to decode on; 1 decodes on the calling thread
+     * @return the table
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file, has more than Integer.MAX_VALUE - 8 records or threads is less than 1
+     * @throws IOException              thrown when there are issues reading the file
+     */
+    public static YxdbTable load(String path, int threads) throws IOException, IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+
+        try (var source = BlockSource.open(path)) {
+            if (source.numRecords() > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("The file has too many records to load as a table.");
+            }
+
+            var fields = source.fields();
+            var record = source.record();
+            var numRows = (int) source.numRecords();
+            var columns = new TableColumn[fields.length];
+            for (var i = 0; i < fields.length; i++) {
+                // the layout of the record buffer, which differs from the fields for AMP files
+                columns[i] = TableColumn.create(record.fields[i], numRows);
+            }
+
+            var loaded = new int[1];
+            ParallelBlocks.<Chunk>run(source, threads, (block, reader) -> decode(record, reader), chunk -> {
+                if (loaded[0] + chunk.count > numRows) {
+                    throw new IOException("The file holds more records than its header states.");
+                }
+                for (var i = 0; i < columns.length; i++) {
+                    columns[i].append(chunk.columns[i], loaded[0], chunk.count);
+                }
+                loaded[0] += chunk.count;
+            });
+            if (loaded[0] != numRows) {
+                throw new IOException("The file holds " + loaded[0] + " records but its header states " + numRows + ".");
+            }
+
+            for (var column : columns) {
+                column.finish();
+            }
+            return new YxdbTable(fields, record, columns, numRows, Files.size(Path.of(path)));
+        }
+    }
+
+    // The records of one block, decoded into small columns of their own.
+    private record Chunk(TableColumn[] columns, int count) {
+    }
+
+    private static Chunk decode(YxdbRecord record, RecordReader reader) throws IOException {
+        var columns = new TableColumn[record.fields.length];
+        for (var i = 0; i < columns.length; i++) {
+            columns[i] = TableColumn.create(record.fields[i], 1024);
+        }
+        var count = 0;
+        while (reader.nextRecord()) {
+            for (var column : columns) {
+                column.read(record, reader.recordBuffer, count);
+            }
+            count++;
+        }
+        return new Chunk(columns, count);
+    }
+
+    /**
+     * The number of rows in the table.
+     * @return the number of rows in the table.
+     */
+    public int numRows() {
+        return numRows;
+    }
+
+    /**
+     * An array of the fields of the table, one per column.
+     * @return an array of fields.
+     */
+    public YxdbField[] fields() {
+        return fields;
+    }
+
+    /**
+     * The index of the column for a field.
+     *
+     * @param name the name of the field
+     * @return the index of its column
+     * @throws IllegalArgumentException thrown when there is no field with that name
+     */
+    public int columnIndex(String name) throws IllegalArgumentException {
+        return record.mapName(name);
+    }
+
+    /**
+     * The size of the .yxdb file the table was loaded from.
+     * @return the size of the file in bytes.
+     */
+    public long fileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * An estimate of the heap used by the columns of the table, including their null bitmaps and dictionaries.
+     * @return the estimated size of the columns in bytes.
+     */
+    public long memoryBytes() {
+        return memoryBytes;
+    }
+
+    private TableColumn column(int column, int row) {
+        if (column < 0 || column >= columns.length) {
+            throw new IllegalArgumentException("The column " + column + " is out of range.");
+        }
+        if (row < 0 || row >= numRows) {
+            throw new IllegalArgumentException("The row " + row + " is out of range.");
+        }
+        return columns[column];
+    }
+
+    private static IllegalArgumentException newInvalidColumn(int column, String expectedType) {
+        return new IllegalArgumentException("column " + column + " is not a " + expectedType + " field");
+    }
+
+    /**
+     * Checks whether a value is null.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return true if the value is null
+     * @throws IllegalArgumentException thrown when the column or row is out of range
+     */
+    public boolean isNull(int column, int row) throws IllegalArgumentException {
+        return column(column, row).isNull(row);
+    }
+
+    /**
+     * Reads a boolean value, returning false for null.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not boolean
+     */
+    public boolean getBoolean(int column, int row) throws IllegalArgumentException {
+        if (column(column, row) instanceof TableColumn.BooleanColumn booleans) {
+            return booleans.get(row);
+        }
+        throw newInvalidColumn(column, "bool");
+    }
+
+    /**
+     * Reads an integer value, returning 0 for null.
+     * <p>
+     * Byte, Int16, Int32 and Int64 columns give their value. Date columns give days since 1970-01-01, Time columns
+     * seconds since midnight, DateTime columns seconds since 1970-01-01T00:00:00 and FixedDecimal columns the unscaled
+     * value.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value
+     * @throws IllegalArgumentException thrown when the column or row is out of range, the column does not hold integers or a decimal does not fit in a long
+     */
+    public long getLong(int column, int row) throws IllegalArgumentException {
+        var data = column(column, row);
+        if (data instanceof TableColumn.IntColumn ints) {
+            return ints.values[row];
+        }
+        if (data instanceof TableColumn.LongColumn longs) {
+            return longs.values[row];
+        }
+        if (data instanceof TableColumn.DecimalColumn decimals) {
+            if (decimals.wide != null && decimals.wide[row] != null) {
+                throw new IllegalArgumentException("The decimal in row " + row + " does not fit in a long.");
+            }
+            return decimals.unscaled[row];
+        }
+        throw newInvalidColumn(column, "byte / int16 / int32 / int64 / date / time / datetime / fixeddecimal");
+    }
+
+    /**
+     * Reads a floating point value, returning 0 for null.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not float or double
+     */
+    public double getDouble(int column, int row) throws IllegalArgumentException {
+        var data = column(column, row);
+        if (data instanceof TableColumn.DoubleColumn doubles) {
+            return doubles.values[row];
+        }
+        if (data instanceof TableColumn.FloatColumn floats) {
+            return floats.values[row];
+        }
+        throw newInvalidColumn(column, "float / double");
+    }
+
+    /**
+     * Reads a fixed decimal value.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value, or null
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not fixeddecimal
+     */
+    public BigDecimal getDecimal(int column, int row) throws IllegalArgumentException {
+        if (column(column, row) instanceof TableColumn.DecimalColumn decimals) {
+            return decimals.isNull(row) ? null : decimals.get(row);
+        }
+        throw newInvalidColumn(column, "fixeddecimal");
+    }
+
+    /**
+     * Reads a string value.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value, or null
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not a string
+     */
+    public String getString(int column, int row) throws IllegalArgumentException {
+        if (column(column, row) instanceof TableColumn.StringColumn strings) {
+            return strings.isNull(row) ? null : strings.get(row);
+        }
+        throw newInvalidColumn(column, "string / wstring / v_string / v_wstring");
+    }
+
+    /**
+     * Reads the dictionary code of a string value. Equal strings in a column have equal codes.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the index of the value in dictionary(column), or -1 for null
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not a string
+     */
+    public int getCode(int column, int row) throws IllegalArgumentException {
+        if (column(column, row) instanceof TableColumn.StringColumn strings) {
+            return strings.isNull(row) ? -1 : strings.codes[row];
+        }
+        throw newInvalidColumn(column, "string / wstring / v_string / v_wstring");
+    }
+
+    /**
+     * The distinct values of a string column, in the order first seen.
+     *
+     * @param column the index of the column
+     * @return a copy of the dictionary
+     * @throws IllegalArgumentException thrown when the column is out of range or is not a string
+     */
+    public String[] dictionary(int column) throws IllegalArgumentException {
+        if (column < 0 || column >= columns.length) {
+            throw new IllegalArgumentException("The column " + column + " is out of range.");
+        }
+        if (columns[column] instanceof TableColumn.StringColumn strings) {
+            return strings.dictionary.clone();
+        }
+        throw newInvalidColumn(column, "string / wstring / v_string / v_wstring");
+    }
+
+    /**
+     * Reads a date value.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value, or null
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not a date
+     */
+    public LocalDate getDate(int column, int row) throws IllegalArgumentException {
+        var data = column(column, row);
+        if (data.field.dataType() != DataType.DATE) {
+            throw newInvalidColumn(column, "date");
+        }
+        return data.isNull(row) ? null : LocalDate.ofEpochDay(((TableColumn.IntColumn) data).values[row]);
+    }
+
+    /**
+     * Reads a time value.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value, or null
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not a time
+     */
+    public LocalTime getTime(int column, int row) throws IllegalArgumentException {
+        var data = column(column, row);
+        if (data.field.dataType() != DataType.TIME) {
+            throw newInvalidColumn(column, "time");
+        }
+        return data.isNull(row) ? null : LocalTime.ofSecondOfDay(((TableColumn.IntColumn) data).values[row]);
+    }
+
+    /**
+     * Reads a date time value.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value, or null
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not a datetime
+     */
+    public LocalDateTime getDateTime(int column, int row) throws IllegalArgumentException {
+        var data = column(column, row);
+        if (data.field.dataType() != DataType.DATETIME) {
+            throw newInvalidColumn(column, "datetime");
+        }
+        return data.isNull(row) ? null : LocalDateTime.ofEpochSecond(((TableColumn.LongColumn) data).values[row], 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Reads a blob or spatial object value.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value, or null
+     * @throws IllegalArgumentException thrown when the column or row is out of range or the column is not a blob or spatial object
+     */
+    public byte[] getBlob(int column, int row) throws IllegalArgumentException {
+        if (column(column, row) instanceof TableColumn.BlobColumn blobs) {
+            return blobs.values[row];
+        }
+        throw newInvalidColumn(column, "blob / spatial");
+    }
+
+    /**
+     * Reads a value as the object YxdbReader.read would return.
+     *
+     * @param column the index of the column
+     * @param row    the index of the row
+     * @return the value, or null
+     * @throws IllegalArgumentException thrown when the column or row is out of range
+     */
+    public Object get(int column, int row) throws IllegalArgumentException {
+        var data = column(column, row);
+        if (data.isNull(row)) {
+            return null;
+        }
+        return switch (data.field.dataType()) {
+            case BOOLEAN -> getBoolean(column, row);
+            case BYTE -> (byte) getLong(column, row);
+            case LONG -> getLong(column, row);
+            case DOUBLE -> getDouble(column, row);
+            case DECIMAL -> getDecimal(column, row);
+            case STRING -> getString(column, row);
+            case DATE -> getDate(column, row);
+            case TIME -> getTime(column, row);
+            case DATETIME -> getDateTime(column, row);
+            case BLOB -> data.field.yxdbType().equals(YxdbType.SPATIAL_OBJ) ? Spatial.toGeoJson(getBlob(column, row)) : getBlob(column, row);
+        };
+    }
+}
@@ -0,0 +1,353 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * YxdbVerifier checks that a .yxdb file is intact without extracting any values, so that damaged files can be caught
+ * when they arrive rather than when they are read.
+ * <p>
+ * <pre>{@code
+ * VerifyResult result = YxdbVerifier.of("landing/input.yxdb").run();
+ * if (!result.valid()) {
+ *     System.out.println(result.problem() + " in block " + result.block() + " at offset " + result.position());
+ * }
+ * }</pre>
+ * <p>
+ * For classic files the block index is checked against the record count, and every record block is checked in
+ * parallel: each LZF block must fit in the record block and decompress to at most 256 KB, the records must end where
+ * an LZF block ends, and the variable length data of each field must lie within its record. AMP files have
+ * each Snappy block decompressed and its rows walked. A checksum of the file is computed on the way.
+ */
+public final class YxdbVerifier {
+    private final String path;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private YxdbVerifier(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Starts a check of a .yxdb file. The file is not read until run is called.
+     *
+     * @param path the path to the .yxdb file
+     * @return the check
+     */
+    public static YxdbVerifier of(String path) {
+        return new YxdbVerifier(path);
+    }
+
+    /**
+     * Sets the number of threads to check blocks on; by default, one per processor.
+     *
+     * @param threads the number of threads, at least 1
+     * @return this check
+     * @throws IllegalArgumentException thrown when threads is less than 1
+     */
+    public YxdbVerifier threads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Reads and checks the whole file. Problems with the file's contents are reported in the result, not thrown.
+     *
+     * @return the result of the check
+     * @throws IOException thrown when the file cannot be opened or read
+     */
+    public VerifyResult run() throws IOException {
+        BlockSource source;
+        try {
+            source = BlockSource.open(path);
+        } catch (IllegalArgumentException ex) {
+            return new VerifyResult(ex.getMessage(), -1, 0, -1, 0, 0, 0, 0);
+        }
+
+        try (source) {
+            return source instanceof YxdbFile file ? verify(file) : verify((AmpFile) source);
+        }
+    }
+
+    // The outcome for one block: the hash of its stored bytes, the records found and the first problem, if any.
+    private record BlockCheck(long hash, long records, String problem, long position, long record) {
+        static BlockCheck good(long hash, long records) {
+            return new BlockCheck(hash, records, null, -1, -1);
+        }
+    }
+
+    // Collects block checks in block order.
+    private static final class Summary {
+        final ByteBuffer hashes;
+        String problem;
+        int block = -1;
+        long position = -1;
+        long record = -1;
+        int badBlocks;
+        long records;
+        int next;
+
+        Summary(int blocks) {
+            // the header hash goes first, once it is known
+            hashes = ByteBuffer.allocate((blocks + 2) * 8).order(ByteOrder.LITTLE_ENDIAN).position(8);
+        }
+
+        void problem(String problem, int block, long position) {
+            if (this.problem == null) {
+                this.problem = problem;
+                this.block = block;
+                this.position = position;
+            }
+        }
+
+        void add(BlockCheck check) {
+            var block = next++;
+            hashes.putLong(check.hash);
+            if (check.problem == null) {
+                records += check.records;
+                return;
+            }
+            badBlocks++;
+            if (problem == null) {
+                problem(check.problem, block, check.position);
+                record = check.record;
+            }
+        }
+
+        VerifyResult result(int blocks, long head, long tail) {
+            hashes.putLong(0, head);
+            hashes.putLong(tail);
+            var checksum = RowHash.xxh64(hashes, 0, hashes.position(), 0);
+            return new VerifyResult(problem, block, position, record, badBlocks, blocks, records, checksum);
+        }
+    }
+
+    private VerifyResult verify(YxdbFile file) throws IOException {
+        var blocks = file.blockCount();
+        var summary = new Summary(blocks);
+
+        var size = file.channel.size();
+        var header = ByteBuffer.wrap(YxdbFileWriter.headerOf(file)).order(ByteOrder.LITTLE_ENDIAN);
+        var indexPosition = header.getLong(96);
+        var expected = (file.numRecords + YxdbFile.RECORDS_PER_BLOCK - 1) / YxdbFile.RECORDS_PER_BLOCK;
+        if (file.numRecords < 0) {
+            summary.problem("The header gives a negative record count.", -1, 96);
+        } else if (expected > 1 && blocks == 1) {
+            summary.problem("The block index does not match the record count of " + file.numRecords + ".", -1, indexPosition);
+        }
+
+        // a file of one record block stores its index after it too, when the header points at it
+        var dataEnd = blocks == 1 && indexPosition >= file.dataStart && indexPosition <= size ? indexPosition : file.dataEnd;
+        var record = file.record;
+        ParallelBlocks.run(file, threads, (block, reader) -> {
+            var stored = file.readStoredBlock(block);
+            var length = block + 1 == blocks ? (int) Math.min(stored.length, dataEnd - file.recordBlocks[block]) : stored.length;
+            return new ClassicBlock(record, file.recordBlocks[block], block * (long) YxdbFile.RECORDS_PER_BLOCK)
+                    .check(stored, length, file.blockRecords(block));
+        }, summary::add);
+
+        return summary.result(blocks, hash(header.array(), header.capacity()), hash(file.channel, dataEnd, size));
+    }
+
+    private VerifyResult verify(AmpFile file) throws IOException {
+        var blocks = file.blockCount();
+        var summary = new Summary(blocks);
+
+        var size = file.channel.size();
+        var firstBlock = blocks == 0 ? size : file.blockPositions[0] + 5;
+        var lastBlockEnd = blocks == 0 ? size : file.blockPositions[blocks - 1] + 5 + file.blockLengths[blocks - 1];
+        ParallelBlocks.run(file, threads, (block, reader) -> {
+            byte[] stored;
+            try {
+                stored = file.readStoredBlock(block);
+            } catch (IllegalArgumentException ex) {
+                return new BlockCheck(0, 0, ex.getMessage(), file.blockPositions[block], -1);
+            }
+            var hash = hash(stored, file.blockLengths[block]);
+            var blockReader = file.newBlockReader(block, stored);
+            var records = 0L;
+            try {
+                while (blockReader.nextRecord()) {
+                    records++;
+                }
+            } catch (RuntimeException ex) {
+                return new BlockCheck(hash, records, "The Snappy block is corrupt: " + ex.getMessage(), file.blockPositions[block], -1);
+            }
+            return BlockCheck.good(hash, records);
+        }, summary::add);
+
+        if (summary.badBlocks == 0 && summary.records != file.numRecords) {
+            summary.problem("The blocks hold " + summary.records + " records but the header gives " + file.numRecords + ".", -1, -1);
+        }
+        return summary.result(blocks, hash(file.channel, 0, firstBlock), hash(file.channel, lastBlockEnd, size));
+    }
+
+    private static long hash(byte[] bytes, int length) {
+        return RowHash.xxh64(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), 0, length, 0);
+    }
+
+    private static long hash(FileChannel channel, long start, long end) throws IOException {
+        var bytes = ByteBuffer.allocate((int) Math.max(0, Math.min(end - start, Integer.MAX_VALUE - 8)));
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) < 0) {
+                break;
+            }
+        }
+        return hash(bytes.array(), bytes.position());
+    }
+
+    // Checks one classic record block: splits it into LZF blocks, decompresses them end to end and walks the records.
+    private static final class ClassicBlock {
+        private final YxdbRecord record;
+        private final YxdbField[] varFields;
+        private final long blockPosition;
+        private final long firstRecord;
+
+        // the stored offset and decompressed offset of each LZF block
+        private int[] storedOffsets = new int[16];
+        private int[] dataOffsets = new int[16];
+        private int lzfBlocks;
+
+        ClassicBlock(YxdbRecord record, long blockPosition, long firstRecord) {
+            this.record = record;
+            this.varFields = Arrays.stream(record.fields).filter(YxdbField::isVariableLength).toArray(YxdbField[]::new);
+            this.blockPosition = blockPosition;
+            this.firstRecord = firstRecord;
+        }
+
+        BlockCheck check(byte[] stored, int length, long records) {
+            var hash = hash(stored, length);
+            var source = ByteBuffer.wrap(stored).order(ByteOrder.LITTLE_ENDIAN);
+            var lzfSize = BufferedRecordReader.lzfBufferSize;
+            var in = new byte[lzfSize];
+            var out = new byte[lzfSize];
+            var lzf = new Lzf(in, out);
+            var data = new byte[Math.max(lzfSize, Math.min(length * 4, 64 << 20))];
+            var size = 0;
+            var offset = 0;
+            while (offset < length) {
+                if (length - offset < 4) {
+                    return bad(hash, "The record block ends inside an LZF block length.", blockPosition + offset, -1);
+                }
+                var word = source.getInt(offset);
+                var raw = word < 0;
+                var chunk = word & 0x7fffffff;
+                if (chunk == 0 || chunk > lzfSize) {
+                    return bad(hash, "The LZF block length " + chunk + " is not between 1 and " + lzfSize + ".", blockPosition + offset, -1);
+                }
+                if (chunk > length - offset - 4) {
+                    return bad(hash, "The LZF block of " + chunk + " bytes runs " + (chunk - (length - offset - 4)) + " bytes past the end of the record block.", blockPosition + offset, -1);
+                }
+
+                var decompressed = chunk;
+                if (raw) {
+                    System.arraycopy(stored, offset + 4, out, 0, chunk);
+                } else {
+                    System.arraycopy(stored, offset + 4, in, 0, chunk);
+                    try {
+                        decompressed = lzf.decompress(chunk);
+                    } catch (IllegalArgumentException ex) {
+                        return bad(hash, "The LZF block is corrupt: " + ex.getMessage() + ".", blockPosition + offset, -1);
+                    }
+                }
+
+                if (size + decompressed > data.length) {
+                    data = Arrays.copyOf(data, Math.max(data.length * 2, size + decompressed));
+                }
+                System.arraycopy(out, 0, data, size, decompressed);
+                addLzfBlock(offset, size);
+                size += decompressed;
+                offset += 4 + chunk;
+            }
+
+            return walk(hash, ByteBuffer.wrap(data, 0, size).order(ByteOrder.LITTLE_ENDIAN), size, records);
+        }
+
+        private BlockCheck walk(long hash, ByteBuffer data, int size, long records) {
+            var headLength = record.fixedSize + (record.hasVar ? 4 : 0);
+            var at = 0;
+            for (var r = 0L; r < records; r++) {
+                var start = at;
+                if (size - at < headLength) {
+                    return bad(hash, "The record block ends after " + r + " of its " + records + " records.", positionOf(start), firstRecord + r);
+                }
+                at += headLength;
+                if (!record.hasVar) {
+                    continue;
+                }
+
+                var varLength = data.getInt(at - 4) & 0xffffffffL;
+                if (varLength > size - at) {
+                    return bad(hash, "The variable length data of " + varLength + " bytes runs past the end of the record block.", positionOf(start), firstRecord + r);
+                }
+                var end = at + (int) varLength;
+                for (var field : varFields) {
+                    var problem = checkVarField(data, start + field.startPosition(), at, end);
+                    if (problem != null) {
+                        return bad(hash, "The variable length data of field " + field.name() + " " + problem + ".", positionOf(start), firstRecord + r);
+                    }
+                }
+                at = end;
+            }
+
+            // Alteryx can write further LZF blocks after the last record, which readers never reach; bytes after the
+            // last record that don't start a new LZF block mean the records and the LZF blocks disagree
+            if (at != size && Arrays.binarySearch(dataOffsets, 0, lzfBlocks, at) < 0) {
+                return bad(hash, "The record block has " + (size - at) + " bytes after its last record.", positionOf(at), -1);
+            }
+            return BlockCheck.good(hash, records);
+        }
+
+        // Checks the fixed portion of a variable length field and the data it points to.
+        private static String checkVarField(ByteBuffer data, int fieldStart, int varStart, int recordEnd) {
+            var fixedPortion = data.getInt(fieldStart);
+            if (fixedPortion == 0 || fixedPortion == 1 || Extractors.isTiny(fixedPortion)) {
+                return null;
+            }
+
+            var blockStart = (long) fieldStart + (fixedPortion & 0x7fffffff);
+            if (blockStart < varStart || blockStart >= recordEnd) {
+                return "starts outside its record";
+            }
+            var first = data.get((int) blockStart);
+            long blockEnd;
+            if ((first & 1) == 1) {
+                blockEnd = blockStart + 1 + ((first & 0xff) >> 1);
+            } else {
+                if (blockStart + 4 > recordEnd) {
+                    return "runs past the end of its record";
+                }
+                blockEnd = blockStart + 4 + (data.getInt((int) blockStart) & 0xffffffffL) / 2;
+            }
+            return blockEnd > recordEnd ? "runs past the end of its record" : null;
+        }
+
+        private void addLzfBlock(int storedOffset, int dataOffset) {
+            if (lzfBlocks == storedOffsets.length) {
+                storedOffsets = Arrays.copyOf(storedOffsets, lzfBlocks * 2);
+                dataOffsets = Arrays.copyOf(dataOffsets, lzfBlocks * 2);
+            }
+            storedOffsets[lzfBlocks] = storedOffset;
+            dataOffsets[lzfBlocks++] = dataOffset;
+        }
+
+        // The file offset of the LZF block holding a decompressed offset.
+        private long positionOf(int dataOffset) {
+            if (lzfBlocks == 0) {
+                return blockPosition;
+            }
+            var found = Arrays.binarySearch(dataOffsets, 0, lzfBlocks, dataOffset);
+            var index = found >= 0 ? found : Math.max(0, -found - 2);
+            return blockPosition + storedOffsets[index];
+        }
+
+        private static BlockCheck bad(long hash, String problem, long position, long record) {
+            return new BlockCheck(hash, 0, problem, position, record);
+        }
+    }
+}
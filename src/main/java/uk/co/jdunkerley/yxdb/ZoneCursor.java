@@ -0,0 +1,56 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Predicate;
+
+// Visits the records of a sorted list of zones, runs of records whose starts are known, and exposes those that pass
+// the filter. A zone that follows straight on from the one before is reached by reading forward; anything else is a
+// seek, so no LZF block is decompressed unless it holds part of a wanted zone.
+final class ZoneCursor implements RecordCursor {
+    private final YxdbFile file;
+    private final BufferedRecordReader reader;
+    private final long[] firstRecords;
+    private final long[] endRecords;
+    private final long[] blockPositions;
+    private final int[] blockIndices;
+    private final Predicate<ByteBuffer> filter;
+    private int next;
+    private long end;
+
+    ZoneCursor(YxdbFile file, BufferedRecordReader reader, long[] firstRecords, long[] endRecords, long[] blockPositions, int[] blockIndices,
+               Predicate<ByteBuffer> filter) {
+        this.file = file;
+        this.reader = reader;
+        this.firstRecords = firstRecords;
+        this.endRecords = endRecords;
+        this.blockPositions = blockPositions;
+        this.blockIndices = blockIndices;
+        this.filter = filter;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            if (reader.currentRecord >= end) {
+                if (next >= firstRecords.length) {
+                    return false;
+                }
+
+                var first = firstRecords[next];
+                if (reader.currentRecord != first) {
+                    reader.seek(file.streamAt(blockPositions[next]), blockPositions[next], blockIndices[next], first);
+                }
+                end = endRecords[next];
+                next++;
+            }
+
+            if (!reader.nextRecord()) {
+                return false;
+            }
+            if (filter.test(reader.recordBuffer)) {
+                return true;
+            }
+        }
+    }
+}
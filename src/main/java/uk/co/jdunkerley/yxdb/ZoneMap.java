@@ -0,0 +1,588 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ZoneMap holds the minimum, maximum and null count of some fields for each LZF block of a .yxdb file, persisted in a sidecar file next to the .yxdb file.
+ * <p>
+ * Each zone is the run of records that start in one LZF block, and records where its first record starts: the file offset of the LZF block and the
+ * position within the decompressed block. A range query reads only the zones whose minimum and maximum overlap the range, jumping straight to them,
+ * so the LZF blocks of every other zone are neither read nor decompressed. The records of the zones read are then checked against the range one by one.
+ * Zones skip the most when the file is sorted, or roughly sorted, by the field queried.
+ * <p>
+ * Int16, Int32, Int64, Byte, Float, Double, Date, Time and DateTime fields can be mapped. Float and Double NaN values are neither null nor in any range.
+ * <p>
+ * The sidecar stores the size and modification time of the .yxdb file. A zone map whose .yxdb file has since changed is out of date and will not be opened or queried.
+ */
+public final class ZoneMap {
+    private static final int MAGIC = 0x4d5a5859; // "YXZM"
+    private static final int VERSION = 1;
+
+    /** The file extension appended to the .yxdb file path to name the sidecar. */
+    public static final String EXTENSION = ".zmap";
+
+    /**
+     * An inclusive range of values of a field.
+     * <p>
+     * Bounds are Numbers for numeric fields, LocalDate for Date fields, LocalTime for Time fields and LocalDateTime for DateTime fields.
+     * A null bound leaves that end of the range open, so a range with no bounds matches every value that is not null.
+     *
+     * @param field the name of the field
+     * @param min   the smallest value in the range, or null for no lower bound
+     * @param max   the largest value in the range, or null for no upper bound
+     */
+    public record Range(String field, Object min, Object max) {
+    }
+
+    private final Path yxdbPath;
+    private final SidecarHeader header;
+    private final int[] fieldIndices;
+    private final String[] fieldNames;
+    private final DataType[] fieldTypes;
+
+    private final long[] firstRecords;
+    private final long[] blockPositions;
+    private final int[] blockIndices;
+
+    // by field, then by zone; the values are sortable longs (see valueOf)
+    private final long[][] mins;
+    private final long[][] maxes;
+    private final int[][] nulls;
+
+    private ZoneMap(Path yxdbPath, SidecarHeader header, int[] fieldIndices, String[] fieldNames, DataType[] fieldTypes, long[] firstRecords,
+                    long[] blockPositions, int[] blockIndices, long[][] mins, long[][] maxes, int[][] nulls) {
+        this.yxdbPath = yxdbPath;
+        this.header = header;
+        this.fieldIndices = fieldIndices;
+        this.fieldNames = fieldNames;
+        this.fieldTypes = fieldTypes;
+        this.firstRecords = firstRecords;
+        this.blockPositions = blockPositions;
+        this.blockIndices = blockIndices;
+        this.mins = mins;
+        this.maxes = maxes;
+        this.nulls = nulls;
+    }
+
+    /**
+     * Builds a zone map over some fields and writes it next to the .yxdb file. Record blocks are read in parallel, one thread per processor.
+     *
+     * @param path  the path to a .yxdb file
+     * @param names the names of the fields to map
+     * @return the zone map
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file, no fields are given, or a field does not exist or cannot be mapped
+     * @throws IOException              thrown when there are issues reading the file or writing the zone map
+     */
+    public static ZoneMap build(String path, String... names) throws IOException, IllegalArgumentException {
+        if (names.length == 0) {
+            throw new IllegalArgumentException("At least one field must be mapped.");
+        }
+
+        var yxdbPath = Path.of(path);
+        var header = SidecarHeader.of(yxdbPath);
+        try (var file = YxdbFile.open(path)) {
+            var fields = new YxdbField[names.length];
+            var fieldIndices = new int[names.length];
+            var fieldTypes = new DataType[names.length];
+            for (var i = 0; i < names.length; i++) {
+                fields[i] = file.fields[file.record.mapName(names[i])];
+                checkMappable(fields[i]);
+                fieldIndices[i] = fields[i].index();
+                fieldTypes[i] = fields[i].dataType();
+            }
+
+            var zones = new Zones(fields.length);
+            ParallelBlocks.run(file, Runtime.getRuntime().availableProcessors(),
+                    (block, reader) -> Zones.of(file.record, fields, block * (long) YxdbFile.RECORDS_PER_BLOCK, (BufferedRecordReader) reader),
+                    zones::append);
+
+            var count = zones.count;
+            var mins = new long[fields.length][];
+            var maxes = new long[fields.length][];
+            var nulls = new int[fields.length][];
+            for (var i = 0; i < fields.length; i++) {
+                mins[i] = Arrays.copyOf(zones.mins[i], count);
+                maxes[i] = Arrays.copyOf(zones.maxes[i], count);
+                nulls[i] = Arrays.copyOf(zones.nulls[i], count);
+            }
+            var zoneMap = new ZoneMap(yxdbPath, header, fieldIndices, names.clone(), fieldTypes, Arrays.copyOf(zones.firstRecords, count),
+                    Arrays.copyOf(zones.blockPositions, count), Arrays.copyOf(zones.blockIndices, count), mins, maxes, nulls);
+            zoneMap.write();
+            return zoneMap;
+        }
+    }
+
+    /**
+     * Opens the zone map stored next to a .yxdb file.
+     *
+     * @param path the path to a .yxdb file
+     * @return the zone map
+     * @throws IllegalArgumentException thrown when the sidecar is not a valid zone map
+     * @throws IOException              thrown when the sidecar does not exist, is out of date or cannot be read
+     */
+    public static ZoneMap open(String path) throws IOException, IllegalArgumentException {
+        var yxdbPath = Path.of(path);
+        return SidecarHeader.open(yxdbPath, sidecarPath(yxdbPath), MAGIC, VERSION, "zone map", (header, buffer) -> {
+            var numFields = buffer.getInt();
+            var fieldIndices = new int[numFields];
+            var fieldNames = new String[numFields];
+            var fieldTypes = new DataType[numFields];
+            for (var i = 0; i < numFields; i++) {
+                fieldIndices[i] = buffer.getInt();
+                fieldTypes[i] = DataType.valueOf(string(buffer));
+                fieldNames[i] = string(buffer);
+            }
+
+            var numZones = buffer.getInt();
+            var firstRecords = longs(buffer, numZones);
+            var blockPositions = longs(buffer, numZones);
+            var blockIndices = ints(buffer, numZones);
+            var mins = new long[numFields][];
+            var maxes = new long[numFields][];
+            var nulls = new int[numFields][];
+            for (var i = 0; i < numFields; i++) {
+                mins[i] = longs(buffer, numZones);
+                maxes[i] = longs(buffer, numZones);
+                nulls[i] = ints(buffer, numZones);
+            }
+
+            return new ZoneMap(yxdbPath, header, fieldIndices, fieldNames, fieldTypes, firstRecords, blockPositions, blockIndices, mins, maxes, nulls);
+        });
+    }
+
+    /**
+     * Opens the zone map stored next to a .yxdb file, building it first if it is missing, out of date or for different fields.
+     *
+     * @param path  the path to a .yxdb file
+     * @param names the names of the fields to map
+     * @return the zone map
+     * @throws IllegalArgumentException thrown when the file is not a valid YXDB file, no fields are given, or a field does not exist or cannot be mapped
+     * @throws IOException              thrown when there are issues reading the file or reading or writing the zone map
+     */
+    public static ZoneMap openOrBuild(String path, String... names) throws IOException, IllegalArgumentException {
+        if (Files.exists(sidecarPath(Path.of(path)))) {
+            try {
+                var zoneMap = open(path);
+                if (Arrays.equals(zoneMap.fieldNames, names)) {
+                    return zoneMap;
+                }
+            } catch (IOException | IllegalArgumentException ignored) {
+            }
+        }
+        return build(path, names);
+    }
+
+    /**
+     * The path of the sidecar file holding the zone map for a .yxdb file.
+     *
+     * @param path the path to a .yxdb file
+     * @return the path of the zone map
+     */
+    public static Path sidecarPath(Path path) {
+        return path.resolveSibling(path.getFileName() + EXTENSION);
+    }
+
+    /**
+     * The names of the fields that are mapped.
+     * @return the names of the fields, in the order they were given
+     */
+    public List<String> fieldNames() {
+        return List.of(fieldNames);
+    }
+
+    /**
+     * The number of zones, one for each LZF block that a record starts in.
+     * @return the number of zones
+     */
+    public int size() {
+        return firstRecords.length;
+    }
+
+    /**
+     * The number of records in which a mapped field is null.
+     *
+     * @param name the name of a mapped field
+     * @return the number of null values
+     * @throws IllegalArgumentException thrown when the field is not mapped
+     */
+    public long nullCount(String name) throws IllegalArgumentException {
+        var total = 0L;
+        for (var count : nulls[column(name)]) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * The number of zones that a query over some ranges would read.
+     *
+     * @param ranges the ranges, all of which a record must fall in
+     * @return the number of zones whose values may fall in every range
+     * @throws IllegalArgumentException thrown when a field is not mapped or a bound is not of the field's type
+     */
+    public int zonesMatching(Range... ranges) throws IllegalArgumentException {
+        return candidates(bounds(ranges)).length;
+    }
+
+    /**
+     * Opens a reader over the records whose value of a field falls in an inclusive range.
+     *
+     * @param name the name of a mapped field
+     * @param min  the smallest value to match, or null for no lower bound
+     * @param max  the largest value to match, or null for no upper bound
+     * @return a reader over the matching records
+     * @throws IllegalArgumentException thrown when the field is not mapped or a bound is not of the field's type
+     * @throws IOException              thrown when the .yxdb file has changed since the zone map was built or there are issues opening it
+     * @see #query(Range...)
+     */
+    public YxdbReader query(String name, Object min, Object max) throws IOException, IllegalArgumentException {
+        return query(new Range(name, min, max));
+    }
+
+    /**
+     * Opens a reader over the records whose values fall in every one of some ranges.
+     * <p>
+     * The reader's next() method moves through the matching records in file order, decompressing only the LZF blocks of the zones whose minimum
+     * and maximum overlap every range. Records with a null value for a ranged field never match. All other methods behave as they do on a
+     * reader over the whole file.
+     *
+     * @param ranges the ranges, all of which a record must fall in
+     * @return a reader over the matching records
+     * @throws IllegalArgumentException thrown when a field is not mapped or a bound is not of the field's type
+     * @throws IOException              thrown when the .yxdb file has changed since the zone map was built or there are issues opening it
+     */
+    public YxdbReader query(Range... ranges) throws IOException, IllegalArgumentException {
+        var bounds = bounds(ranges);
+        header.check(yxdbPath, "zone map");
+
+        var file = YxdbFile.open(yxdbPath);
+        try {
+            var zones = candidates(bounds);
+            var first = new long[zones.length];
+            var ends = new long[zones.length];
+            var positions = new long[zones.length];
+            var indices = new int[zones.length];
+            for (var i = 0; i < zones.length; i++) {
+                var zone = zones[i];
+                first[i] = firstRecords[zone];
+                ends[i] = zone + 1 < firstRecords.length ? firstRecords[zone + 1] : file.numRecords;
+                positions[i] = blockPositions[zone];
+                indices[i] = blockIndices[zone];
+            }
+
+            var fields = new YxdbField[bounds.length];
+            for (var i = 0; i < bounds.length; i++) {
+                fields[i] = file.fields[fieldIndices[bounds[i].column]];
+            }
+            var reader = file.newRecordReader();
+            return new YxdbReader(file, reader, new ZoneCursor(file, reader, first, ends, positions, indices, buffer -> {
+                for (var i = 0; i < bounds.length; i++) {
+                    if (!hasValue(file.record, fields[i], buffer)) {
+                        return false;
+                    }
+                    var value = valueOf(fields[i], buffer);
+                    if (value < bounds[i].min || value > bounds[i].max) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        } catch (RuntimeException ex) {
+            file.close();
+            throw ex;
+        }
+    }
+
+    // A range as inclusive sortable longs.
+    private record Bound(int column, long min, long max) {
+    }
+
+    private Bound[] bounds(Range[] ranges) {
+        var bounds = new Bound[ranges.length];
+        for (var i = 0; i < ranges.length; i++) {
+            var range = ranges[i];
+            var column = column(range.field());
+            var type = fieldTypes[column];
+            var min = range.min() == null ? Long.MIN_VALUE : boundOf(type, range.field(), range.min(), true);
+            var max = range.max() == null ? Long.MAX_VALUE : boundOf(type, range.field(), range.max(), false);
+            bounds[i] = new Bound(column, min, max);
+        }
+        return bounds;
+    }
+
+    // The zones whose minimum and maximum overlap every bound. A zone where a field is all null or NaN has a minimum
+    // above its maximum, so it overlaps nothing.
+    private int[] candidates(Bound[] bounds) {
+        var zones = new int[firstRecords.length];
+        var count = 0;
+        for (var zone = 0; zone < firstRecords.length; zone++) {
+            var overlaps = true;
+            for (var bound : bounds) {
+                if (mins[bound.column][zone] > bound.max || maxes[bound.column][zone] < bound.min || bound.min > bound.max) {
+                    overlaps = false;
+                    break;
+                }
+            }
+            if (overlaps) {
+                zones[count++] = zone;
+            }
+        }
+        return Arrays.copyOf(zones, count);
+    }
+
+    private int column(String name) {
+        for (var i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("The field " + name + " is not in the zone map.");
+    }
+
+    // Gathers zones as the records of each record block are read. A record block starts a new LZF block, so no zone
+    // spans two record blocks, and the zones of each block can be appended in block order.
+    private static final class Zones {
+        int count;
+        long[] firstRecords = new long[16];
+        long[] blockPositions = new long[16];
+        int[] blockIndices = new int[16];
+        final long[][] mins;
+        final long[][] maxes;
+        final int[][] nulls;
+
+        Zones(int numFields) {
+            mins = new long[numFields][16];
+            maxes = new long[numFields][16];
+            nulls = new int[numFields][16];
+        }
+
+        static Zones of(YxdbRecord record, YxdbField[] fields, long firstRecord, BufferedRecordReader reader) throws IOException {
+            var zones = new Zones(fields.length);
+            var recordNumber = firstRecord;
+            var blockPosition = -1L;
+            while (reader.nextRecord()) {
+                if (reader.recordBlockPosition != blockPosition) {
+                    blockPosition = reader.recordBlockPosition;
+                    zones.start(recordNumber, blockPosition, reader.recordBlockIndex);
+                }
+
+                var zone = zones.count - 1;
+                var buffer = reader.recordBuffer;
+                for (var i = 0; i < fields.length; i++) {
+                    if (record.isNullFrom(fields[i].index(), buffer)) {
+                        zones.nulls[i][zone]++;
+                    } else if (hasValue(record, fields[i], buffer)) {
+                        var value = valueOf(fields[i], buffer);
+                        zones.mins[i][zone] = Math.min(zones.mins[i][zone], value);
+                        zones.maxes[i][zone] = Math.max(zones.maxes[i][zone], value);
+                    }
+                }
+                recordNumber++;
+            }
+            return zones;
+        }
+
+        private void start(long firstRecord, long blockPosition, int blockIndex) {
+            ensure(count + 1);
+            firstRecords[count] = firstRecord;
+            blockPositions[count] = blockPosition;
+            blockIndices[count] = blockIndex;
+            for (var i = 0; i < mins.length; i++) {
+                mins[i][count] = Long.MAX_VALUE;
+                maxes[i][count] = Long.MIN_VALUE;
+                nulls[i][count] = 0;
+            }
+            count++;
+        }
+
+        void append(Zones other) {
+            ensure(count + other.count);
+            System.arraycopy(other.firstRecords, 0, firstRecords, count, other.count);
+            System.arraycopy(other.blockPositions, 0, blockPositions, count, other.count);
+            System.arraycopy(other.blockIndices, 0, blockIndices, count, other.count);
+            for (var i = 0; i < mins.length; i++) {
+                System.arraycopy(other.mins[i], 0, mins[i], count, other.count);
+                System.arraycopy(other.maxes[i], 0, maxes[i], count, other.count);
+                System.arraycopy(other.nulls[i], 0, nulls[i], count, other.count);
+            }
+            count += other.count;
+        }
+
+        private void ensure(int capacity) {
+            if (capacity <= firstRecords.length) {
+                return;
+            }
+            var length = Math.max(capacity, firstRecords.length * 2);
+            firstRecords = Arrays.copyOf(firstRecords, length);
+            blockPositions = Arrays.copyOf(blockPositions, length);
+            blockIndices = Arrays.copyOf(blockIndices, length);
+            for (var i = 0; i < mins.length; i++) {
+                mins[i] = Arrays.copyOf(mins[i], length);
+                maxes[i] = Arrays.copyOf(maxes[i], length);
+                nulls[i] = Arrays.copyOf(nulls[i], length);
+            }
+        }
+    }
+
+    private static void checkMappable(YxdbField field) throws IllegalArgumentException {
+        switch (field.dataType()) {
+            case BYTE, LONG, DOUBLE, DATE, TIME, DATETIME -> {
+            }
+            default -> throw new IllegalArgumentException("Cannot map the " + field.yxdbType() + " field " + field.name() + ".");
+        }
+    }
+
+    private static boolean hasValue(YxdbRecord record, YxdbField field, ByteBuffer buffer) {
+        if (record.isNullFrom(field.index(), buffer)) {
+            return false;
+        }
+        return field.dataType() != DataType.DOUBLE || !Double.isNaN(doubleAt(field, buffer));
+    }
+
+    // Reads a value that is not null or NaN as a long that sorts as the values do:
+    //   Byte (signed), Int16, Int32, Int64: the value
+    //   Float, Double: the bits of the value as a double, with the bits below the sign flipped for negative values
+    //   Date: days since 1970-01-01; Time: seconds since midnight; DateTime: seconds since 1970-01-01T00:00:00
+    private static long valueOf(YxdbField field, ByteBuffer buffer) {
+        var start = field.startPosition();
+        return switch (field.yxdbType()) {
+            case YxdbType.BYTE -> buffer.get(start);
+            case YxdbType.INT16 -> buffer.getShort(start);
+            case YxdbType.INT32 -> buffer.getInt(start);
+            case YxdbType.INT64 -> buffer.getLong(start);
+            case YxdbType.FLOAT, YxdbType.DOUBLE -> sortable(doubleAt(field, buffer));
+            case YxdbType.DATE -> TableColumn.epochDay(buffer, start);
+            case YxdbType.TIME -> TableColumn.secondOfDay(buffer, start);
+            default -> TableColumn.epochDay(buffer, start) * 86400 + TableColumn.secondOfDay(buffer, start + 11);
+        };
+    }
+
+    private static double doubleAt(YxdbField field, ByteBuffer buffer) {
+        return field.yxdbType().equals(YxdbType.FLOAT) ? buffer.getFloat(field.startPosition()) : buffer.getDouble(field.startPosition());
+    }
+
+    private static long sortable(double value) {
+        var bits = Double.doubleToLongBits(value == 0 ? 0.0 : value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    // Converts a bound to the sortable long of the field's values, rounding inwards when it falls between two values.
+    private static long boundOf(DataType type, String name, Object value, boolean lower) throws IllegalArgumentException {
+        switch (type) {
+            case BYTE, LONG -> {
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    return ((Number) value).longValue();
+                }
+                if (value instanceof BigInteger integer) {
+                    return integer.max(BigInteger.valueOf(Long.MIN_VALUE)).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+                }
+                if (value instanceof BigDecimal decimal) {
+                    return boundOf(type, name, decimal.setScale(0, lower ? RoundingMode.CEILING : RoundingMode.FLOOR).toBigInteger(), lower);
+                }
+                if (value instanceof Number number && !Double.isNaN(number.doubleValue())) {
+                    var rounded = lower ? Math.ceil(number.doubleValue()) : Math.floor(number.doubleValue());
+                    return (long) rounded;
+                }
+            }
+            case DOUBLE -> {
+                if (value instanceof Number number && !Double.isNaN(number.doubleValue())) {
+                    return sortable(number.doubleValue());
+                }
+            }
+            case DATE -> {
+                if (value instanceof LocalDate date) {
+                    return date.toEpochDay();
+                }
+            }
+            case TIME -> {
+                if (value instanceof LocalTime time) {
+                    return time.toSecondOfDay() + (lower && time.getNano() > 0 ? 1 : 0);
+                }
+            }
+            case DATETIME -> {
+                if (value instanceof LocalDateTime dateTime) {
+                    return dateTime.toEpochSecond(ZoneOffset.UTC) + (lower && dateTime.getNano() > 0 ? 1 : 0);
+                }
+            }
+            default -> {
+            }
+        }
+        throw new IllegalArgumentException("The bound " + value + " is not a valid " + type + " value for the field " + name + ".");
+    }
+
+    private static String string(ByteBuffer buffer) {
+        var bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long[] longs(ByteBuffer buffer, int count) {
+        var values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * 8);
+        return values;
+    }
+
+    private static int[] ints(ByteBuffer buffer, int count) {
+        var values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private void write() throws IOException {
+        var length = SidecarHeader.LENGTH + 8L + firstRecords.length * 20L + fieldNames.length * (8L + firstRecords.length * 20L);
+        var nameBytes = new byte[fieldNames.length][];
+        var typeBytes = new byte[fieldNames.length][];
+        for (var i = 0; i < fieldNames.length; i++) {
+            nameBytes[i] = fieldNames[i].getBytes(StandardCharsets.UTF_8);
+            typeBytes[i] = fieldTypes[i].name().getBytes(StandardCharsets.UTF_8);
+            length += 4 + typeBytes[i].length + nameBytes[i].length;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Zone map exceeds maximum supported size (2 GB).");
+        }
+
+        var buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        header.write(buffer, MAGIC, VERSION);
+        buffer.putInt(fieldNames.length);
+        for (var i = 0; i < fieldNames.length; i++) {
+            buffer.putInt(fieldIndices[i]);
+            buffer.putInt(typeBytes[i].length);
+            buffer.put(typeBytes[i]);
+            buffer.putInt(nameBytes[i].length);
+            buffer.put(nameBytes[i]);
+        }
+        buffer.putInt(firstRecords.length);
+        buffer.asLongBuffer().put(firstRecords);
+        buffer.position(buffer.position() + firstRecords.length * 8);
+        buffer.asLongBuffer().put(blockPositions);
+        buffer.position(buffer.position() + blockPositions.length * 8);
+        buffer.asIntBuffer().put(blockIndices);
+        buffer.position(buffer.position() + blockIndices.length * 4);
+        for (var i = 0; i < fieldNames.length; i++) {
+            buffer.asLongBuffer().put(mins[i]);
+            buffer.position(buffer.position() + mins[i].length * 8);
+            buffer.asLongBuffer().put(maxes[i]);
+            buffer.position(buffer.position() + maxes[i].length * 8);
+            buffer.asIntBuffer().put(nulls[i]);
+            buffer.position(buffer.position() + nulls[i].length * 4);
+        }
+
+        Files.write(sidecarPath(yxdbPath), buffer.array());
+    }
+}
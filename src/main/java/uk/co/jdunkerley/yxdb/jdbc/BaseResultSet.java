@@ -0,0 +1,1260 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.Map;
+
+// A forward-only, read-only result set. Subclasses move between rows with advance() and return column values with
+// value(); the typed getters convert from value() unless a subclass reads a type directly.
+abstract class BaseResultSet implements ResultSet {
+    final Column[] columns;
+    private final Statement statement;
+    private final ResultSetMetaData metaData;
+    private boolean wasNull;
+    private boolean closed;
+    private boolean onRow;
+    private int row;
+
+    BaseResultSet(Column[] columns, Statement statement) {
+        this.columns = columns;
+        this.statement = statement;
+        this.metaData = new YxdbResultSetMetaData(columns);
+    }
+
+    // Moves to the next row, returning false at the end.
+    abstract boolean advance() throws SQLException;
+
+    // The value of a column of the current row as the JDBC type of the column, or null.
+    abstract Object value(int column) throws SQLException;
+
+    // Releases whatever the rows are read from.
+    void release() throws SQLException {
+    }
+
+    void setWasNull(boolean wasNull) {
+        this.wasNull = wasNull;
+    }
+
+    Object object(int column) throws SQLException {
+        var value = value(column);
+        wasNull = value == null;
+        return value;
+    }
+
+    String stringValue(int column) throws SQLException {
+        return switch (object(column)) {
+            case null -> null;
+            case byte[] bytes -> Base64.getEncoder().encodeToString(bytes);
+            case Object value -> value.toString();
+        };
+    }
+
+    long longValue(int column) throws SQLException {
+        return switch (object(column)) {
+            case null -> 0;
+            case Boolean value -> value ? 1 : 0;
+            case BigDecimal value -> value.setScale(0, RoundingMode.DOWN).longValue();
+            case Number value -> value.longValue();
+            case String value -> parseDecimal(value, column).setScale(0, RoundingMode.DOWN).longValue();
+            case Object value -> throw conversion(value, "long", column);
+        };
+    }
+
+    double doubleValue(int column) throws SQLException {
+        return switch (object(column)) {
+            case null -> 0;
+            case Boolean value -> value ? 1 : 0;
+            case Number value -> value.doubleValue();
+            case String value -> parseDecimal(value, column).doubleValue();
+            case Object value -> throw conversion(value, "double", column);
+        };
+    }
+
+    BigDecimal decimalValue(int column) throws SQLException {
+        return switch (object(column)) {
+            case null -> null;
+            case BigDecimal value -> value;
+            case Boolean value -> value ? BigDecimal.ONE : BigDecimal.ZERO;
+            case Long value -> BigDecimal.valueOf(value);
+            case Integer value -> BigDecimal.valueOf(value);
+            case Number value -> new BigDecimal(value.toString());
+            case String value -> parseDecimal(value, column);
+            case Object value -> throw conversion(value, "BigDecimal", column);
+        };
+    }
+
+    private BigDecimal parseDecimal(String value, int column) throws SQLDataException {
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException ex) {
+            throw conversion(value, "number", column);
+        }
+    }
+
+    SQLDataException conversion(Object value, String type, int column) {
+        return new SQLDataException("Cannot convert " + value + " in column " + columns[column - 1].name() + " to " + type + ".", "22018");
+    }
+
+    private static SQLFeatureNotSupportedException readOnly() {
+        return new SQLFeatureNotSupportedException("YXDB result sets are read-only.");
+    }
+
+    private static SQLFeatureNotSupportedException forwardOnly() {
+        return new SQLFeatureNotSupportedException("YXDB result sets are forward only.");
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("The result set is closed.");
+        }
+    }
+
+    // Validates the column index and that there is a current row.
+    private int check(int column) throws SQLException {
+        checkOpen();
+        if (!onRow) {
+            throw new SQLException("There is no current row; call next() first.");
+        }
+        if (column < 1 || column > columns.length) {
+            throw new SQLException("The column index " + column + " is out of range.");
+        }
+        return column;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        checkOpen();
+        onRow = advance();
+        if (onRow) {
+            row++;
+        } else {
+            release();
+        }
+        return onRow;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (!closed) {
+            closed = true;
+            onRow = false;
+            release();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        checkOpen();
+        return wasNull;
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        checkOpen();
+        for (var i = 0; i < columns.length; i++) {
+            if (columns[i].name().equals(columnLabel)) {
+                return i + 1;
+            }
+        }
+        for (var i = 0; i < columns.length; i++) {
+            if (columns[i].name().equalsIgnoreCase(columnLabel)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("The column " + columnLabel + " does not exist.", "42S22");
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        return stringValue(check(columnIndex));
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        return switch (object(check(columnIndex))) {
+            case null -> false;
+            case Boolean value -> value;
+            case Number value -> value.doubleValue() != 0;
+            case String value -> {
+                var text = value.trim();
+                if (text.equalsIgnoreCase("true") || text.equals("1")) {
+                    yield true;
+                }
+                if (text.equalsIgnoreCase("false") || text.equals("0")) {
+                    yield false;
+                }
+                throw conversion(value, "boolean", columnIndex);
+            }
+            case Object value -> throw conversion(value, "boolean", columnIndex);
+        };
+    }
+
+    @Override
+    public byte getByte(int columnIndex) throws SQLException {
+        return (byte) longValue(check(columnIndex));
+    }
+
+    @Override
+    public short getShort(int columnIndex) throws SQLException {
+        return (short) longValue(check(columnIndex));
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        return (int) longValue(check(columnIndex));
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        return longValue(check(columnIndex));
+    }
+
+    @Override
+    public float getFloat(int columnIndex) throws SQLException {
+        return (float) doubleValue(check(columnIndex));
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        return doubleValue(check(columnIndex));
+    }
+
+    @Override
+    @Deprecated
+    public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+        var value = getBigDecimal(columnIndex);
+        return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        return decimalValue(check(columnIndex));
+    }
+
+    @Override
+    public byte[] getBytes(int columnIndex) throws SQLException {
+        return switch (object(check(columnIndex))) {
+            case null -> null;
+            case byte[] value -> value;
+            case String value -> value.getBytes(StandardCharsets.UTF_8);
+            case Object value -> throw conversion(value, "bytes", columnIndex);
+        };
+    }
+
+    @Override
+    public Date getDate(int columnIndex) throws SQLException {
+        return switch (object(check(columnIndex))) {
+            case null -> null;
+            case Date value -> value;
+            case Timestamp value -> Date.valueOf(value.toLocalDateTime().toLocalDate());
+            case String value -> {
+                try {
+                    yield Date.valueOf(value.trim());
+                } catch (IllegalArgumentException ex) {
+                    throw conversion(value, "Date", columnIndex);
+                }
+            }
+            case Object value -> throw conversion(value, "Date", columnIndex);
+        };
+    }
+
+    @Override
+    public Time getTime(int columnIndex) throws SQLException {
+        return switch (object(check(columnIndex))) {
+            case null -> null;
+            case Time value -> value;
+            case Timestamp value -> Time.valueOf(value.toLocalDateTime().toLocalTime());
+            case String value -> {
+                try {
+                    yield Time.valueOf(value.trim());
+                } catch (IllegalArgumentException ex) {
+                    throw conversion(value, "Time", columnIndex);
+                }
+            }
+            case Object value -> throw conversion(value, "Time", columnIndex);
+        };
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex) throws SQLException {
+        return switch (object(check(columnIndex))) {
+            case null -> null;
+            case Timestamp value -> value;
+            case Date value -> Timestamp.valueOf(value.toLocalDate().atStartOfDay());
+            case String value -> {
+                try {
+                    yield Timestamp.valueOf(value.trim());
+                } catch (IllegalArgumentException ex) {
+                    throw conversion(value, "Timestamp", columnIndex);
+                }
+            }
+            case Object value -> throw conversion(value, "Timestamp", columnIndex);
+        };
+    }
+
+    // Dates and times in YXDB files carry no time zone, so the calendar is not applied.
+    @Override
+    public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+        return getDate(columnIndex);
+    }
+
+    @Override
+    public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+        return getTime(columnIndex);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+        return getTimestamp(columnIndex);
+    }
+
+    @Override
+    public InputStream getAsciiStream(int columnIndex) throws SQLException {
+        var value = getString(columnIndex);
+        return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    @Deprecated
+    public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+        var value = getString(columnIndex);
+        return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_16BE));
+    }
+
+    @Override
+    public InputStream getBinaryStream(int columnIndex) throws SQLException {
+        var value = getBytes(columnIndex);
+        return value == null ? null : new ByteArrayInputStream(value);
+    }
+
+    @Override
+    public Reader getCharacterStream(int columnIndex) throws SQLException {
+        var value = getString(columnIndex);
+        return value == null ? null : new StringReader(value);
+    }
+
+    @Override
+    public String getNString(int columnIndex) throws SQLException {
+        return getString(columnIndex);
+    }
+
+    @Override
+    public Reader getNCharacterStream(int columnIndex) throws SQLException {
+        return getCharacterStream(columnIndex);
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        return object(check(columnIndex));
+    }
+
+    @Override
+    public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+        return getObject(columnIndex);
+    }
+
+    @Override
+    public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        var value = getObject(columnIndex);
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+
+        Object converted;
+        if (type == String.class) {
+            converted = getString(columnIndex);
+        } else if (type == Long.class) {
+            converted = getLong(columnIndex);
+        } else if (type == Integer.class) {
+            converted = getInt(columnIndex);
+        } else if (type == Short.class) {
+            converted = getShort(columnIndex);
+        } else if (type == Byte.class) {
+            converted = getByte(columnIndex);
+        } else if (type == Double.class) {
+            converted = getDouble(columnIndex);
+        } else if (type == Float.class) {
+            converted = getFloat(columnIndex);
+        } else if (type == BigDecimal.class) {
+            converted = getBigDecimal(columnIndex);
+        } else if (type == Boolean.class) {
+            converted = getBoolean(columnIndex);
+        } else if (type == byte[].class) {
+            converted = getBytes(columnIndex);
+        } else if (type == LocalDate.class) {
+            converted = getDate(columnIndex).toLocalDate();
+        } else if (type == LocalTime.class) {
+            converted = getTime(columnIndex).toLocalTime();
+        } else if (type == LocalDateTime.class) {
+            converted = getTimestamp(columnIndex).toLocalDateTime();
+        } else if (type == Date.class) {
+            converted = getDate(columnIndex);
+        } else if (type == Time.class) {
+            converted = getTime(columnIndex);
+        } else if (type == Timestamp.class) {
+            converted = getTimestamp(columnIndex);
+        } else {
+            throw conversion(value, type.getName(), columnIndex);
+        }
+        return type.cast(converted);
+    }
+
+    @Override
+    public String getString(String columnLabel) throws SQLException {
+        return getString(findColumn(columnLabel));
+    }
+
+    @Override
+    public boolean getBoolean(String columnLabel) throws SQLException {
+        return getBoolean(findColumn(columnLabel));
+    }
+
+    @Override
+    public byte getByte(String columnLabel) throws SQLException {
+        return getByte(findColumn(columnLabel));
+    }
+
+    @Override
+    public short getShort(String columnLabel) throws SQLException {
+        return getShort(findColumn(columnLabel));
+    }
+
+    @Override
+    public int getInt(String columnLabel) throws SQLException {
+        return getInt(findColumn(columnLabel));
+    }
+
+    @Override
+    public long getLong(String columnLabel) throws SQLException {
+        return getLong(findColumn(columnLabel));
+    }
+
+    @Override
+    public float getFloat(String columnLabel) throws SQLException {
+        return getFloat(findColumn(columnLabel));
+    }
+
+    @Override
+    public double getDouble(String columnLabel) throws SQLException {
+        return getDouble(findColumn(columnLabel));
+    }
+
+    @Override
+    @Deprecated
+    public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel), scale);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel));
+    }
+
+    @Override
+    public byte[] getBytes(String columnLabel) throws SQLException {
+        return getBytes(findColumn(columnLabel));
+    }
+
+    @Override
+    public Date getDate(String columnLabel) throws SQLException {
+        return getDate(findColumn(columnLabel));
+    }
+
+    @Override
+    public Time getTime(String columnLabel) throws SQLException {
+        return getTime(findColumn(columnLabel));
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel) throws SQLException {
+        return getTimestamp(findColumn(columnLabel));
+    }
+
+    @Override
+    public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+        return getDate(findColumn(columnLabel), cal);
+    }
+
+    @Override
+    public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+        return getTime(findColumn(columnLabel), cal);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+        return getTimestamp(findColumn(columnLabel), cal);
+    }
+
+    @Override
+    public InputStream getAsciiStream(String columnLabel) throws SQLException {
+        return getAsciiStream(findColumn(columnLabel));
+    }
+
+    @Override
+    @Deprecated
+    public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+        return getUnicodeStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public InputStream getBinaryStream(String columnLabel) throws SQLException {
+        return getBinaryStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public Reader getCharacterStream(String columnLabel) throws SQLException {
+        return getCharacterStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public String getNString(String columnLabel) throws SQLException {
+        return getNString(findColumn(columnLabel));
+    }
+
+    @Override
+    public Reader getNCharacterStream(String columnLabel) throws SQLException {
+        return getNCharacterStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public Object getObject(String columnLabel) throws SQLException {
+        return getObject(findColumn(columnLabel));
+    }
+
+    @Override
+    public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+        return getObject(findColumn(columnLabel), map);
+    }
+
+    @Override
+    public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+        return getObject(findColumn(columnLabel), type);
+    }
+
+    @Override
+    public Ref getRef(int columnIndex) throws SQLException {
+        throw new SQLFeatureNotSupportedException("REF values are not supported.");
+    }
+
+    @Override
+    public Ref getRef(String columnLabel) throws SQLException {
+        return getRef(findColumn(columnLabel));
+    }
+
+    @Override
+    public Blob getBlob(int columnIndex) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Blob objects are not supported; use getBytes.");
+    }
+
+    @Override
+    public Blob getBlob(String columnLabel) throws SQLException {
+        return getBlob(findColumn(columnLabel));
+    }
+
+    @Override
+    public Clob getClob(int columnIndex) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Clob objects are not supported; use getString.");
+    }
+
+    @Override
+    public Clob getClob(String columnLabel) throws SQLException {
+        return getClob(findColumn(columnLabel));
+    }
+
+    @Override
+    public NClob getNClob(int columnIndex) throws SQLException {
+        throw new SQLFeatureNotSupportedException("NClob objects are not supported; use getString.");
+    }
+
+    @Override
+    public NClob getNClob(String columnLabel) throws SQLException {
+        return getNClob(findColumn(columnLabel));
+    }
+
+    @Override
+    public Array getArray(int columnIndex) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ARRAY values are not supported.");
+    }
+
+    @Override
+    public Array getArray(String columnLabel) throws SQLException {
+        return getArray(findColumn(columnLabel));
+    }
+
+    @Override
+    public URL getURL(int columnIndex) throws SQLException {
+        throw new SQLFeatureNotSupportedException("DATALINK values are not supported.");
+    }
+
+    @Override
+    public URL getURL(String columnLabel) throws SQLException {
+        return getURL(findColumn(columnLabel));
+    }
+
+    @Override
+    public RowId getRowId(int columnIndex) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ROWID values are not supported.");
+    }
+
+    @Override
+    public RowId getRowId(String columnLabel) throws SQLException {
+        return getRowId(findColumn(columnLabel));
+    }
+
+    @Override
+    public SQLXML getSQLXML(int columnIndex) throws SQLException {
+        throw new SQLFeatureNotSupportedException("XML values are not supported.");
+    }
+
+    @Override
+    public SQLXML getSQLXML(String columnLabel) throws SQLException {
+        return getSQLXML(findColumn(columnLabel));
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        checkOpen();
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        checkOpen();
+    }
+
+    @Override
+    public String getCursorName() throws SQLException {
+        throw new SQLFeatureNotSupportedException("Named cursors are not supported.");
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        checkOpen();
+        return metaData;
+    }
+
+    @Override
+    public Statement getStatement() throws SQLException {
+        checkOpen();
+        return statement;
+    }
+
+    @Override
+    public int getRow() throws SQLException {
+        checkOpen();
+        return onRow ? row : 0;
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        checkOpen();
+        return row == 0 && !onRow;
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        checkOpen();
+        return onRow && row == 1;
+    }
+
+    @Override
+    public boolean isLast() throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public boolean relative(int rows) throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public boolean previous() throws SQLException {
+        throw forwardOnly();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        checkOpen();
+        if (direction != FETCH_FORWARD) {
+            throw forwardOnly();
+        }
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        checkOpen();
+        return FETCH_FORWARD;
+    }
+
+    // Rows are read a block at a time whatever the fetch size.
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        checkOpen();
+        if (rows < 0) {
+            throw new SQLException("The fetch size cannot be negative.");
+        }
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        checkOpen();
+        return 0;
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        checkOpen();
+        return TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public int getConcurrency() throws SQLException {
+        checkOpen();
+        return CONCUR_READ_ONLY;
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        checkOpen();
+        return HOLD_CURSORS_OVER_COMMIT;
+    }
+
+    @Override
+    public boolean rowUpdated() throws SQLException {
+        checkOpen();
+        return false;
+    }
+
+    @Override
+    public boolean rowInserted() throws SQLException {
+        checkOpen();
+        return false;
+    }
+
+    @Override
+    public boolean rowDeleted() throws SQLException {
+        checkOpen();
+        return false;
+    }
+
+    @Override
+    public void insertRow() throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateRow() throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteRow() throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void refreshRow() throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void cancelRowUpdates() throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void moveToInsertRow() throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void moveToCurrentRow() throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNull(int columnIndex) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNull(String columnLabel) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateByte(int columnIndex, byte x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateByte(String columnLabel, byte x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateShort(int columnIndex, short x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateShort(String columnLabel, short x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateInt(int columnIndex, int x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateInt(String columnLabel, int x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateLong(int columnIndex, long x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateLong(String columnLabel, long x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateFloat(int columnIndex, float x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateFloat(String columnLabel, float x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateDouble(int columnIndex, double x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateDouble(String columnLabel, double x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateString(int columnIndex, String x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateString(String columnLabel, String x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateDate(int columnIndex, Date x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateDate(String columnLabel, Date x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateTime(int columnIndex, Time x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateTime(String columnLabel, Time x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream x, int length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader x, int length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateRef(int columnIndex, Ref x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateRef(String columnLabel, Ref x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, Blob x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, Blob x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Clob x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Clob x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateArray(int columnIndex, Array x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateArray(String columnLabel, Array x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateRowId(int columnIndex, RowId x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateRowId(String columnLabel, RowId x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNString(int columnIndex, String nString) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNString(String columnLabel, String nString) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, NClob nClob) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, NClob nClob) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateSQLXML(int columnIndex, SQLXML xmlObject) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateSQLXML(String columnLabel, SQLXML xmlObject) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, InputStream inputStream, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, InputStream inputStream, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Reader reader, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Reader reader, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, Reader reader, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, Reader reader, long length) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader x) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, InputStream inputStream) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, InputStream inputStream) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Reader reader) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Reader reader) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, Reader reader) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, Reader reader) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName() + ".");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,102 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import uk.co.jdunkerley.yxdb.YxdbField;
+import uk.co.jdunkerley.yxdb.YxdbType;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+// A result set column: its name, the table it comes from and its SQL type.
+// For YXDB fields the type name is the Alteryx type, and SpatialObj fields are reported as GeoJSON text.
+record Column(String name, String table, int sqlType, String typeName, int precision, int scale, String className) {
+    // the precision reported for variable length text and binary fields, which have no declared size in the file
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    static Column of(YxdbField field, String table) {
+        return new Column(field.name(), table, sqlType(field.yxdbType()), field.yxdbType(), precision(field), field.scale(), className(field.yxdbType()));
+    }
+
+    static Column text(String name) {
+        return new Column(name, "", Types.VARCHAR, "VARCHAR", UNBOUNDED, 0, String.class.getName());
+    }
+
+    static Column integer(String name) {
+        return new Column(name, "", Types.INTEGER, "INTEGER", 10, 0, Integer.class.getName());
+    }
+
+    static Column smallint(String name) {
+        return new Column(name, "", Types.SMALLINT, "SMALLINT", 5, 0, Integer.class.getName());
+    }
+
+    static Column bool(String name) {
+        return new Column(name, "", Types.BOOLEAN, "BOOLEAN", 1, 0, Boolean.class.getName());
+    }
+
+    boolean isNumeric() {
+        return switch (sqlType) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT, Types.REAL, Types.DOUBLE, Types.DECIMAL -> true;
+            default -> false;
+        };
+    }
+
+    boolean isText() {
+        return switch (sqlType) {
+            case Types.VARCHAR, Types.NVARCHAR, Types.LONGVARCHAR -> true;
+            default -> false;
+        };
+    }
+
+    static int sqlType(String yxdbType) {
+        return switch (yxdbType) {
+            case YxdbType.BOOLEAN -> Types.BOOLEAN;
+            case YxdbType.BYTE -> Types.TINYINT;
+            case YxdbType.INT16 -> Types.SMALLINT;
+            case YxdbType.INT32 -> Types.INTEGER;
+            case YxdbType.INT64 -> Types.BIGINT;
+            case YxdbType.FLOAT -> Types.REAL;
+            case YxdbType.DOUBLE -> Types.DOUBLE;
+            case YxdbType.DECIMAL -> Types.DECIMAL;
+            case YxdbType.STRING, YxdbType.V_STRING -> Types.VARCHAR;
+            case YxdbType.WSTRING, YxdbType.V_WSTRING -> Types.NVARCHAR;
+            case YxdbType.DATE -> Types.DATE;
+            case YxdbType.TIME -> Types.TIME;
+            case YxdbType.DATETIME -> Types.TIMESTAMP;
+            case YxdbType.BLOB -> Types.LONGVARBINARY;
+            case YxdbType.SPATIAL_OBJ -> Types.LONGVARCHAR;
+            default -> throw new IllegalArgumentException("Unknown field YXDB type: " + yxdbType);
+        };
+    }
+
+    private static int precision(YxdbField field) {
+        return switch (field.yxdbType()) {
+            case YxdbType.BOOLEAN -> 1;
+            case YxdbType.BYTE -> 3;
+            case YxdbType.INT16 -> 5;
+            case YxdbType.INT32 -> 10;
+            case YxdbType.INT64 -> 19;
+            case YxdbType.FLOAT -> 7;
+            case YxdbType.DOUBLE -> 15;
+            case YxdbType.DECIMAL, YxdbType.STRING, YxdbType.WSTRING, YxdbType.DATE, YxdbType.TIME, YxdbType.DATETIME -> field.size();
+            default -> UNBOUNDED;
+        };
+    }
+
+    private static String className(String yxdbType) {
+        return switch (yxdbType) {
+            case YxdbType.BOOLEAN -> Boolean.class.getName();
+            case YxdbType.BYTE, YxdbType.INT16, YxdbType.INT32 -> Integer.class.getName();
+            case YxdbType.INT64 -> Long.class.getName();
+            case YxdbType.FLOAT -> Float.class.getName();
+            case YxdbType.DOUBLE -> Double.class.getName();
+            case YxdbType.DECIMAL -> BigDecimal.class.getName();
+            case YxdbType.DATE -> Date.class.getName();
+            case YxdbType.TIME -> Time.class.getName();
+            case YxdbType.DATETIME -> Timestamp.class.getName();
+            case YxdbType.BLOB -> byte[].class.getName();
+            default -> String.class.getName();
+        };
+    }
+}
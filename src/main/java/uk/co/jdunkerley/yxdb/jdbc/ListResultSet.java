@@ -0,0 +1,37 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import java.sql.Statement;
+import java.util.List;
+
+// A result set over rows held in memory, used for the answers of DatabaseMetaData.
+final class ListResultSet extends BaseResultSet {
+    private final List<Object[]> rows;
+    private int index = -1;
+
+    ListResultSet(Column[] columns, List<Object[]> rows, Statement statement) {
+        super(columns, statement);
+        this.rows = rows;
+    }
+
+    // An empty result with the given text columns.
+    static ListResultSet empty(String... names) {
+        var columns = new Column[names.length];
+        for (var i = 0; i < names.length; i++) {
+            columns[i] = Column.text(names[i]);
+        }
+        return new ListResultSet(columns, List.of(), null);
+    }
+
+    @Override
+    boolean advance() {
+        if (index < rows.size()) {
+            index++;
+        }
+        return index < rows.size();
+    }
+
+    @Override
+    Object value(int column) {
+        return rows.get(index)[column - 1];
+    }
+}
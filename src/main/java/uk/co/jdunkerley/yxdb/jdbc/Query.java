@@ -0,0 +1,271 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// A parsed query of the one form the driver supports:
+//   SELECT * | column [, column ...] FROM table [WHERE condition [AND condition ...]] [LIMIT n] [;]
+// where each condition is `column op literal` (op one of = <> != < <= > >=) or `column IS [NOT] NULL`.
+// Identifiers may be double quoted; literals are numbers, 'strings' (with '' for a quote), TRUE or FALSE.
+final class Query {
+    enum Operator {
+        EQ, NE, LT, LE, GT, GE, IS_NULL, IS_NOT_NULL;
+
+        // Applies the operator to the sign of a comparison between the value and the literal.
+        boolean test(int comparison) {
+            return switch (this) {
+                case EQ -> comparison == 0;
+                case NE -> comparison != 0;
+                case LT -> comparison < 0;
+                case LE -> comparison <= 0;
+                case GT -> comparison > 0;
+                case GE -> comparison >= 0;
+                default -> throw new IllegalStateException("Null checks do not compare values.");
+            };
+        }
+    }
+
+    // A condition on one column; literal is a BigDecimal, String or Boolean, or null for IS [NOT] NULL.
+    record Condition(String column, Operator operator, Object literal) {
+    }
+
+    // the selected column names, or null for *
+    final List<String> columns;
+    final String table;
+    final List<Condition> conditions;
+    final long limit;
+
+    private Query(List<String> columns, String table, List<Condition> conditions, long limit) {
+        this.columns = columns;
+        this.table = table;
+        this.conditions = conditions;
+        this.limit = limit;
+    }
+
+    static Query parse(String sql) throws SQLSyntaxErrorException {
+        return new Parser(sql).query();
+    }
+
+    private record Token(Kind kind, String text) {
+        enum Kind { WORD, QUOTED, STRING, NUMBER, SYMBOL, END }
+
+        boolean isKeyword(String keyword) {
+            return kind == Kind.WORD && text.equalsIgnoreCase(keyword);
+        }
+
+        boolean isSymbol(String symbol) {
+            return kind == Kind.SYMBOL && text.equals(symbol);
+        }
+    }
+
+    private static final class Parser {
+        private final String sql;
+        private final List<Token> tokens;
+        private int index;
+
+        Parser(String sql) throws SQLSyntaxErrorException {
+            this.sql = sql;
+            this.tokens = tokenize(sql);
+        }
+
+        Query query() throws SQLSyntaxErrorException {
+            expectKeyword("SELECT");
+            List<String> columns = null;
+            if (peek().isSymbol("*")) {
+                index++;
+            } else {
+                columns = new ArrayList<>();
+                do {
+                    columns.add(identifier("a column name"));
+                } while (accept(","));
+            }
+
+            expectKeyword("FROM");
+            var table = identifier("a table name");
+
+            var conditions = new ArrayList<Condition>();
+            if (acceptKeyword("WHERE")) {
+                do {
+                    conditions.add(condition());
+                } while (acceptKeyword("AND"));
+            }
+
+            var limit = -1L;
+            if (acceptKeyword("LIMIT")) {
+                var token = next();
+                if (token.kind != Token.Kind.NUMBER) {
+                    throw error("Expected a row count after LIMIT");
+                }
+                try {
+                    limit = Long.parseLong(token.text);
+                } catch (NumberFormatException ex) {
+                    throw error("Expected a whole number after LIMIT");
+                }
+            }
+
+            accept(";");
+            if (peek().kind != Token.Kind.END) {
+                throw error("Unexpected '" + peek().text + "'");
+            }
+            return new Query(columns, table, conditions, limit);
+        }
+
+        private Condition condition() throws SQLSyntaxErrorException {
+            var column = identifier("a column name");
+            if (acceptKeyword("IS")) {
+                var not = acceptKeyword("NOT");
+                expectKeyword("NULL");
+                return new Condition(column, not ? Operator.IS_NOT_NULL : Operator.IS_NULL, null);
+            }
+
+            var token = next();
+            var operator = token.kind != Token.Kind.SYMBOL ? null : switch (token.text) {
+                case "=" -> Operator.EQ;
+                case "<>", "!=" -> Operator.NE;
+                case "<" -> Operator.LT;
+                case "<=" -> Operator.LE;
+                case ">" -> Operator.GT;
+                case ">=" -> Operator.GE;
+                default -> null;
+            };
+            if (operator == null) {
+                throw error("Expected a comparison operator after " + column);
+            }
+
+            var literal = next();
+            return switch (literal.kind) {
+                case NUMBER -> new Condition(column, operator, new BigDecimal(literal.text));
+                case STRING -> new Condition(column, operator, literal.text);
+                case WORD -> {
+                    if (literal.isKeyword("TRUE") || literal.isKeyword("FALSE")) {
+                        yield new Condition(column, operator, Boolean.parseBoolean(literal.text.toLowerCase(Locale.ROOT)));
+                    }
+                    if (literal.isKeyword("NULL")) {
+                        throw error("Use IS NULL or IS NOT NULL to compare with NULL");
+                    }
+                    throw error("Expected a literal value after " + column + " but found " + literal.text);
+                }
+                default -> throw error("Expected a literal value after " + column);
+            };
+        }
+
+        private String identifier(String description) throws SQLSyntaxErrorException {
+            var token = next();
+            if (token.kind == Token.Kind.QUOTED || (token.kind == Token.Kind.WORD && !isReserved(token.text))) {
+                return token.text;
+            }
+            throw error("Expected " + description + (token.kind == Token.Kind.END ? "" : " but found '" + token.text + "'"));
+        }
+
+        private static boolean isReserved(String word) {
+            return switch (word.toUpperCase(Locale.ROOT)) {
+                case "SELECT", "FROM", "WHERE", "AND", "LIMIT", "IS", "NOT", "NULL" -> true;
+                default -> false;
+            };
+        }
+
+        private Token peek() {
+            return tokens.get(index);
+        }
+
+        private Token next() {
+            var token = tokens.get(index);
+            if (token.kind != Token.Kind.END) {
+                index++;
+            }
+            return token;
+        }
+
+        private boolean accept(String symbol) {
+            if (peek().isSymbol(symbol)) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            if (peek().isKeyword(keyword)) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expectKeyword(String keyword) throws SQLSyntaxErrorException {
+            if (!acceptKeyword(keyword)) {
+                throw error("Expected " + keyword);
+            }
+        }
+
+        private SQLSyntaxErrorException error(String message) {
+            return new SQLSyntaxErrorException(message + " in: " + sql + ". Only SELECT columns FROM file [WHERE conditions] [LIMIT n] is supported.", "42000");
+        }
+
+        private List<Token> tokenize(String sql) throws SQLSyntaxErrorException {
+            var result = new ArrayList<Token>();
+            var i = 0;
+            while (i < sql.length()) {
+                var c = sql.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '\'' || c == '"') {
+                    var text = new StringBuilder();
+                    var j = i + 1;
+                    while (true) {
+                        if (j >= sql.length()) {
+                            throw error("Unterminated " + (c == '"' ? "identifier" : "string"));
+                        }
+                        var d = sql.charAt(j++);
+                        if (d == c) {
+                            if (j < sql.length() && sql.charAt(j) == c) {
+                                text.append(c);
+                                j++;
+                                continue;
+                            }
+                            break;
+                        }
+                        text.append(d);
+                    }
+                    result.add(new Token(c == '"' ? Token.Kind.QUOTED : Token.Kind.STRING, text.toString()));
+                    i = j;
+                } else if (Character.isDigit(c) || ((c == '-' || c == '.') && i + 1 < sql.length() && Character.isDigit(sql.charAt(i + 1)))) {
+                    var j = i + 1;
+                    while (j < sql.length() && (Character.isDigit(sql.charAt(j)) || sql.charAt(j) == '.'
+                            || sql.charAt(j) == 'e' || sql.charAt(j) == 'E'
+                            || ((sql.charAt(j) == '-' || sql.charAt(j) == '+') && (sql.charAt(j - 1) == 'e' || sql.charAt(j - 1) == 'E')))) {
+                        j++;
+                    }
+                    var text = sql.substring(i, j);
+                    try {
+                        new BigDecimal(text);
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid number " + text);
+                    }
+                    result.add(new Token(Token.Kind.NUMBER, text));
+                    i = j;
+                } else if (Character.isLetter(c) || c == '_') {
+                    var j = i + 1;
+                    while (j < sql.length() && (Character.isLetterOrDigit(sql.charAt(j)) || sql.charAt(j) == '_')) {
+                        j++;
+                    }
+                    result.add(new Token(Token.Kind.WORD, sql.substring(i, j)));
+                    i = j;
+                } else if (sql.startsWith("<=", i) || sql.startsWith(">=", i) || sql.startsWith("<>", i) || sql.startsWith("!=", i)) {
+                    result.add(new Token(Token.Kind.SYMBOL, sql.substring(i, i + 2)));
+                    i += 2;
+                } else if ("*,=<>;".indexOf(c) >= 0) {
+                    result.add(new Token(Token.Kind.SYMBOL, String.valueOf(c)));
+                    i++;
+                } else {
+                    throw error("Unexpected character '" + c + "'");
+                }
+            }
+            result.add(new Token(Token.Kind.END, ""));
+            return result;
+        }
+    }
+}
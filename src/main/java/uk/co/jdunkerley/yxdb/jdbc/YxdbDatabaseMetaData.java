@@ -0,0 +1,1102 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import uk.co.jdunkerley.yxdb.YxdbReader;
+import uk.co.jdunkerley.yxdb.YxdbType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.RowIdLifetime;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Describes the files of a connection. Each .yxdb file is a table, and its columns come from the fields in the file
+// header. There are no catalogs, schemas, keys, indexes or procedures.
+final class YxdbDatabaseMetaData implements DatabaseMetaData {
+    private static final String TABLE = "TABLE";
+
+    // the Alteryx types, in the order of their SQL types as required by getTypeInfo
+    private static final String[] TYPES = {
+            YxdbType.BYTE, YxdbType.INT64, YxdbType.BLOB, YxdbType.SPATIAL_OBJ, YxdbType.DECIMAL, YxdbType.INT32,
+            YxdbType.INT16, YxdbType.FLOAT, YxdbType.DOUBLE, YxdbType.STRING, YxdbType.V_STRING, YxdbType.BOOLEAN,
+            YxdbType.DATE, YxdbType.TIME, YxdbType.DATETIME, YxdbType.WSTRING, YxdbType.V_WSTRING
+    };
+
+    private final YxdbConnection connection;
+
+    YxdbDatabaseMetaData(YxdbConnection connection) {
+        this.connection = connection;
+    }
+
+    // Tests a name against a LIKE pattern, where % matches any text, _ matches one character and \ escapes them.
+    static boolean like(String pattern, String name) {
+        if (pattern == null) {
+            return true;
+        }
+        var regex = new StringBuilder();
+        for (var i = 0; i < pattern.length(); i++) {
+            var c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL).matcher(name).matches();
+    }
+
+    private List<Path> tables(String tableNamePattern) throws SQLException {
+        connection.checkOpen();
+        try (var files = Files.list(connection.directory())) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(p -> {
+                        var name = p.getFileName().toString();
+                        return name.regionMatches(true, name.length() - YxdbConnection.EXTENSION.length(), YxdbConnection.EXTENSION, 0, YxdbConnection.EXTENSION.length());
+                    })
+                    .filter(p -> like(tableNamePattern, YxdbConnection.tableName(p)))
+                    .sorted((a, b) -> YxdbConnection.tableName(a).compareTo(YxdbConnection.tableName(b)))
+                    .toList();
+        } catch (IOException ex) {
+            throw new SQLException("Failed to list " + connection.directory() + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private static Column[] columns(Object... namesAndTypes) {
+        var columns = new Column[namesAndTypes.length / 2];
+        for (var i = 0; i < columns.length; i++) {
+            var name = (String) namesAndTypes[2 * i];
+            columns[i] = switch ((int) namesAndTypes[2 * i + 1]) {
+                case Types.INTEGER -> Column.integer(name);
+                case Types.SMALLINT -> Column.smallint(name);
+                case Types.BOOLEAN -> Column.bool(name);
+                default -> Column.text(name);
+            };
+        }
+        return columns;
+    }
+
+    @Override
+    public ResultSet getTables(String catalog, String schemaPattern, String tableNamePattern, String[] types) throws SQLException {
+        var rows = new ArrayList<Object[]>();
+        if (types == null || List.of(types).contains(TABLE)) {
+            for (var path : tables(tableNamePattern)) {
+                rows.add(new Object[]{null, null, YxdbConnection.tableName(path), TABLE, null, null, null, null, null, null});
+            }
+        }
+        return new ListResultSet(columns(
+                "TABLE_CAT", Types.VARCHAR, "TABLE_SCHEM", Types.VARCHAR, "TABLE_NAME", Types.VARCHAR,
+                "TABLE_TYPE", Types.VARCHAR, "REMARKS", Types.VARCHAR, "TYPE_CAT", Types.VARCHAR,
+                "TYPE_SCHEM", Types.VARCHAR, "TYPE_NAME", Types.VARCHAR, "SELF_REFERENCING_COL_NAME", Types.VARCHAR,
+                "REF_GENERATION", Types.VARCHAR), rows, null);
+    }
+
+    @Override
+    public ResultSet getColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
+        var rows = new ArrayList<Object[]>();
+        for (var path : tables(tableNamePattern)) {
+            var table = YxdbConnection.tableName(path);
+            try (var reader = new YxdbReader(path.toString())) {
+                for (var field : reader.fields()) {
+                    if (!like(columnNamePattern, field.name())) {
+                        continue;
+                    }
+                    var column = Column.of(field, table);
+                    rows.add(new Object[]{
+                            null, null, table, column.name(), column.sqlType(), column.typeName(), column.precision(),
+                            null, column.isNumeric() ? column.scale() : null, column.isNumeric() ? 10 : null,
+                            columnNullable, null, null, null, null,
+                            column.isText() ? column.precision() : null, field.index() + 1, "YES",
+                            null, null, null, null, "NO", "NO"
+                    });
+                }
+            } catch (IOException | IllegalArgumentException ex) {
+                throw new SQLException("Failed to read the fields of " + path + ": " + ex.getMessage(), ex);
+            }
+        }
+        return new ListResultSet(columns(
+                "TABLE_CAT", Types.VARCHAR, "TABLE_SCHEM", Types.VARCHAR, "TABLE_NAME", Types.VARCHAR,
+                "COLUMN_NAME", Types.VARCHAR, "DATA_TYPE", Types.INTEGER, "TYPE_NAME", Types.VARCHAR,
+                "COLUMN_SIZE", Types.INTEGER, "BUFFER_LENGTH", Types.INTEGER, "DECIMAL_DIGITS", Types.INTEGER,
+                "NUM_PREC_RADIX", Types.INTEGER, "NULLABLE", Types.INTEGER, "REMARKS", Types.VARCHAR,
+                "COLUMN_DEF", Types.VARCHAR, "SQL_DATA_TYPE", Types.INTEGER, "SQL_DATETIME_SUB", Types.INTEGER,
+                "CHAR_OCTET_LENGTH", Types.INTEGER, "ORDINAL_POSITION", Types.INTEGER, "IS_NULLABLE", Types.VARCHAR,
+                "SCOPE_CATALOG", Types.VARCHAR, "SCOPE_SCHEMA", Types.VARCHAR, "SCOPE_TABLE", Types.VARCHAR,
+                "SOURCE_DATA_TYPE", Types.SMALLINT, "IS_AUTOINCREMENT", Types.VARCHAR,
+                "IS_GENERATEDCOLUMN", Types.VARCHAR), rows, null);
+    }
+
+    @Override
+    public ResultSet getTableTypes() throws SQLException {
+        connection.checkOpen();
+        return new ListResultSet(columns("TABLE_TYPE", Types.VARCHAR), List.<Object[]>of(new Object[]{TABLE}), null);
+    }
+
+    @Override
+    public ResultSet getCatalogs() throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TABLE_CAT");
+    }
+
+    @Override
+    public ResultSet getSchemas() throws SQLException {
+        return getSchemas(null, null);
+    }
+
+    @Override
+    public ResultSet getSchemas(String catalog, String schemaPattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TABLE_SCHEM", "TABLE_CATALOG");
+    }
+
+    @Override
+    public ResultSet getTypeInfo() throws SQLException {
+        connection.checkOpen();
+        var rows = new ArrayList<Object[]>();
+        for (var type : TYPES) {
+            var sqlType = Column.sqlType(type);
+            var numeric = switch (sqlType) {
+                case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT, Types.REAL, Types.DOUBLE, Types.DECIMAL -> true;
+                default -> false;
+            };
+            var text = sqlType == Types.VARCHAR || sqlType == Types.NVARCHAR || sqlType == Types.LONGVARCHAR;
+            var quoted = text || sqlType == Types.DATE || sqlType == Types.TIME || sqlType == Types.TIMESTAMP;
+            rows.add(new Object[]{
+                    type, sqlType, precision(type), quoted ? "'" : null, quoted ? "'" : null,
+                    type.equals(YxdbType.DECIMAL) ? "precision,scale" : type.equals(YxdbType.STRING) || type.equals(YxdbType.WSTRING) ? "length" : null,
+                    typeNullable, text,
+                    sqlType == Types.LONGVARBINARY || sqlType == Types.LONGVARCHAR ? typePredNone : typeSearchable,
+                    numeric ? type.equals(YxdbType.BYTE) : null, false, false, type, 0,
+                    type.equals(YxdbType.DECIMAL) ? 50 : 0, null, null, numeric ? 10 : null
+            });
+        }
+        return new ListResultSet(columns(
+                "TYPE_NAME", Types.VARCHAR, "DATA_TYPE", Types.INTEGER, "PRECISION", Types.INTEGER,
+                "LITERAL_PREFIX", Types.VARCHAR, "LITERAL_SUFFIX", Types.VARCHAR, "CREATE_PARAMS", Types.VARCHAR,
+                "NULLABLE", Types.SMALLINT, "CASE_SENSITIVE", Types.BOOLEAN, "SEARCHABLE", Types.SMALLINT,
+                "UNSIGNED_ATTRIBUTE", Types.BOOLEAN, "FIXED_PREC_SCALE", Types.BOOLEAN, "AUTO_INCREMENT", Types.BOOLEAN,
+                "LOCAL_TYPE_NAME", Types.VARCHAR, "MINIMUM_SCALE", Types.SMALLINT, "MAXIMUM_SCALE", Types.SMALLINT,
+                "SQL_DATA_TYPE", Types.INTEGER, "SQL_DATETIME_SUB", Types.INTEGER, "NUM_PREC_RADIX", Types.INTEGER),
+                rows, null);
+    }
+
+    private static int precision(String type) {
+        return switch (type) {
+            case YxdbType.BOOLEAN -> 1;
+            case YxdbType.BYTE -> 3;
+            case YxdbType.INT16 -> 5;
+            case YxdbType.INT32 -> 10;
+            case YxdbType.INT64 -> 19;
+            case YxdbType.FLOAT -> 7;
+            case YxdbType.DOUBLE -> 15;
+            case YxdbType.DECIMAL -> 50;
+            case YxdbType.DATE -> 10;
+            case YxdbType.TIME -> 8;
+            case YxdbType.DATETIME -> 19;
+            default -> Column.UNBOUNDED;
+        };
+    }
+
+    @Override
+    public ResultSet getProcedures(String catalog, String schemaPattern, String procedureNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("PROCEDURE_CAT", "PROCEDURE_SCHEM", "PROCEDURE_NAME", "reserved1", "reserved2",
+                "reserved3", "REMARKS", "PROCEDURE_TYPE", "SPECIFIC_NAME");
+    }
+
+    @Override
+    public ResultSet getProcedureColumns(String catalog, String schemaPattern, String procedureNamePattern, String columnNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("PROCEDURE_CAT", "PROCEDURE_SCHEM", "PROCEDURE_NAME", "COLUMN_NAME", "COLUMN_TYPE",
+                "DATA_TYPE", "TYPE_NAME", "PRECISION", "LENGTH", "SCALE", "RADIX", "NULLABLE", "REMARKS", "COLUMN_DEF",
+                "SQL_DATA_TYPE", "SQL_DATETIME_SUB", "CHAR_OCTET_LENGTH", "ORDINAL_POSITION", "IS_NULLABLE",
+                "SPECIFIC_NAME");
+    }
+
+    @Override
+    public ResultSet getColumnPrivileges(String catalog, String schema, String table, String columnNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "GRANTOR", "GRANTEE",
+                "PRIVILEGE", "IS_GRANTABLE");
+    }
+
+    @Override
+    public ResultSet getTablePrivileges(String catalog, String schemaPattern, String tableNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "GRANTOR", "GRANTEE", "PRIVILEGE",
+                "IS_GRANTABLE");
+    }
+
+    @Override
+    public ResultSet getBestRowIdentifier(String catalog, String schema, String table, int scope, boolean nullable) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("SCOPE", "COLUMN_NAME", "DATA_TYPE", "TYPE_NAME", "COLUMN_SIZE", "BUFFER_LENGTH",
+                "DECIMAL_DIGITS", "PSEUDO_COLUMN");
+    }
+
+    @Override
+    public ResultSet getVersionColumns(String catalog, String schema, String table) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("SCOPE", "COLUMN_NAME", "DATA_TYPE", "TYPE_NAME", "COLUMN_SIZE", "BUFFER_LENGTH",
+                "DECIMAL_DIGITS", "PSEUDO_COLUMN");
+    }
+
+    @Override
+    public ResultSet getPrimaryKeys(String catalog, String schema, String table) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "KEY_SEQ", "PK_NAME");
+    }
+
+    private static ResultSet keys() {
+        return ListResultSet.empty("PKTABLE_CAT", "PKTABLE_SCHEM", "PKTABLE_NAME", "PKCOLUMN_NAME", "FKTABLE_CAT",
+                "FKTABLE_SCHEM", "FKTABLE_NAME", "FKCOLUMN_NAME", "KEY_SEQ", "UPDATE_RULE", "DELETE_RULE", "FK_NAME",
+                "PK_NAME", "DEFERRABILITY");
+    }
+
+    @Override
+    public ResultSet getImportedKeys(String catalog, String schema, String table) throws SQLException {
+        connection.checkOpen();
+        return keys();
+    }
+
+    @Override
+    public ResultSet getExportedKeys(String catalog, String schema, String table) throws SQLException {
+        connection.checkOpen();
+        return keys();
+    }
+
+    @Override
+    public ResultSet getCrossReference(String parentCatalog, String parentSchema, String parentTable, String foreignCatalog, String foreignSchema, String foreignTable) throws SQLException {
+        connection.checkOpen();
+        return keys();
+    }
+
+    @Override
+    public ResultSet getIndexInfo(String catalog, String schema, String table, boolean unique, boolean approximate) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "NON_UNIQUE", "INDEX_QUALIFIER",
+                "INDEX_NAME", "TYPE", "ORDINAL_POSITION", "COLUMN_NAME", "ASC_OR_DESC", "CARDINALITY", "PAGES",
+                "FILTER_CONDITION");
+    }
+
+    @Override
+    public ResultSet getUDTs(String catalog, String schemaPattern, String typeNamePattern, int[] types) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TYPE_CAT", "TYPE_SCHEM", "TYPE_NAME", "CLASS_NAME", "DATA_TYPE", "REMARKS",
+                "BASE_TYPE");
+    }
+
+    @Override
+    public ResultSet getSuperTypes(String catalog, String schemaPattern, String typeNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TYPE_CAT", "TYPE_SCHEM", "TYPE_NAME", "SUPERTYPE_CAT", "SUPERTYPE_SCHEM",
+                "SUPERTYPE_NAME");
+    }
+
+    @Override
+    public ResultSet getSuperTables(String catalog, String schemaPattern, String tableNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "SUPERTABLE_NAME");
+    }
+
+    @Override
+    public ResultSet getAttributes(String catalog, String schemaPattern, String typeNamePattern, String attributeNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TYPE_CAT", "TYPE_SCHEM", "TYPE_NAME", "ATTR_NAME", "DATA_TYPE", "ATTR_TYPE_NAME",
+                "ATTR_SIZE", "DECIMAL_DIGITS", "NUM_PREC_RADIX", "NULLABLE", "REMARKS", "ATTR_DEF", "SQL_DATA_TYPE",
+                "SQL_DATETIME_SUB", "CHAR_OCTET_LENGTH", "ORDINAL_POSITION", "IS_NULLABLE", "SCOPE_CATALOG",
+                "SCOPE_SCHEMA", "SCOPE_TABLE", "SOURCE_DATA_TYPE");
+    }
+
+    @Override
+    public ResultSet getClientInfoProperties() throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("NAME", "MAX_LEN", "DEFAULT_VALUE", "DESCRIPTION");
+    }
+
+    @Override
+    public ResultSet getFunctions(String catalog, String schemaPattern, String functionNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("FUNCTION_CAT", "FUNCTION_SCHEM", "FUNCTION_NAME", "REMARKS", "FUNCTION_TYPE",
+                "SPECIFIC_NAME");
+    }
+
+    @Override
+    public ResultSet getFunctionColumns(String catalog, String schemaPattern, String functionNamePattern, String columnNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("FUNCTION_CAT", "FUNCTION_SCHEM", "FUNCTION_NAME", "COLUMN_NAME", "COLUMN_TYPE",
+                "DATA_TYPE", "TYPE_NAME", "PRECISION", "LENGTH", "SCALE", "RADIX", "NULLABLE", "REMARKS",
+                "CHAR_OCTET_LENGTH", "ORDINAL_POSITION", "IS_NULLABLE", "SPECIFIC_NAME");
+    }
+
+    @Override
+    public ResultSet getPseudoColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
+        connection.checkOpen();
+        return ListResultSet.empty("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "DATA_TYPE",
+                "COLUMN_SIZE", "DECIMAL_DIGITS", "NUM_PREC_RADIX", "COLUMN_USAGE", "REMARKS", "CHAR_OCTET_LENGTH",
+                "IS_NULLABLE");
+    }
+
+    @Override
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public String getURL() {
+        return connection.url();
+    }
+
+    @Override
+    public String getUserName() {
+        return null;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public String getDatabaseProductName() {
+        return "YXDB";
+    }
+
+    @Override
+    public String getDatabaseProductVersion() {
+        return YxdbDriver.MAJOR_VERSION + "." + YxdbDriver.MINOR_VERSION;
+    }
+
+    @Override
+    public int getDatabaseMajorVersion() {
+        return YxdbDriver.MAJOR_VERSION;
+    }
+
+    @Override
+    public int getDatabaseMinorVersion() {
+        return YxdbDriver.MINOR_VERSION;
+    }
+
+    @Override
+    public String getDriverName() {
+        return "YXDB JDBC Driver";
+    }
+
+    @Override
+    public String getDriverVersion() {
+        return YxdbDriver.MAJOR_VERSION + "." + YxdbDriver.MINOR_VERSION;
+    }
+
+    @Override
+    public int getDriverMajorVersion() {
+        return YxdbDriver.MAJOR_VERSION;
+    }
+
+    @Override
+    public int getDriverMinorVersion() {
+        return YxdbDriver.MINOR_VERSION;
+    }
+
+    @Override
+    public int getJDBCMajorVersion() {
+        return 4;
+    }
+
+    @Override
+    public int getJDBCMinorVersion() {
+        return 3;
+    }
+
+    @Override
+    public boolean usesLocalFiles() {
+        return true;
+    }
+
+    @Override
+    public boolean usesLocalFilePerTable() {
+        return true;
+    }
+
+    @Override
+    public boolean allProceduresAreCallable() {
+        return false;
+    }
+
+    @Override
+    public boolean allTablesAreSelectable() {
+        return true;
+    }
+
+    @Override
+    public boolean nullsAreSortedHigh() {
+        return false;
+    }
+
+    @Override
+    public boolean nullsAreSortedLow() {
+        return false;
+    }
+
+    @Override
+    public boolean nullsAreSortedAtStart() {
+        return false;
+    }
+
+    @Override
+    public boolean nullsAreSortedAtEnd() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsMixedCaseIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public boolean storesUpperCaseIdentifiers() {
+        return false;
+    }
+
+    @Override
+    public boolean storesLowerCaseIdentifiers() {
+        return false;
+    }
+
+    @Override
+    public boolean storesMixedCaseIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsMixedCaseQuotedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public boolean storesUpperCaseQuotedIdentifiers() {
+        return false;
+    }
+
+    @Override
+    public boolean storesLowerCaseQuotedIdentifiers() {
+        return false;
+    }
+
+    @Override
+    public boolean storesMixedCaseQuotedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public String getIdentifierQuoteString() {
+        return "\"";
+    }
+
+    @Override
+    public String getSQLKeywords() {
+        return "LIMIT";
+    }
+
+    @Override
+    public String getNumericFunctions() {
+        return "";
+    }
+
+    @Override
+    public String getStringFunctions() {
+        return "";
+    }
+
+    @Override
+    public String getSystemFunctions() {
+        return "";
+    }
+
+    @Override
+    public String getTimeDateFunctions() {
+        return "";
+    }
+
+    @Override
+    public String getSearchStringEscape() {
+        return "\\";
+    }
+
+    @Override
+    public String getExtraNameCharacters() {
+        return "";
+    }
+
+    @Override
+    public boolean supportsAlterTableWithAddColumn() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsAlterTableWithDropColumn() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsColumnAliasing() {
+        return false;
+    }
+
+    @Override
+    public boolean nullPlusNonNullIsNull() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsConvert() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsConvert(int fromType, int toType) {
+        return false;
+    }
+
+    @Override
+    public boolean supportsTableCorrelationNames() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsDifferentTableCorrelationNames() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsExpressionsInOrderBy() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsOrderByUnrelated() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsGroupBy() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsGroupByUnrelated() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsGroupByBeyondSelect() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsLikeEscapeClause() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsMultipleResultSets() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsMultipleTransactions() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsNonNullableColumns() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsMinimumSQLGrammar() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsCoreSQLGrammar() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsExtendedSQLGrammar() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsANSI92EntryLevelSQL() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsANSI92IntermediateSQL() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsANSI92FullSQL() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsIntegrityEnhancementFacility() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsOuterJoins() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsFullOuterJoins() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsLimitedOuterJoins() {
+        return false;
+    }
+
+    @Override
+    public String getSchemaTerm() {
+        return "schema";
+    }
+
+    @Override
+    public String getProcedureTerm() {
+        return "procedure";
+    }
+
+    @Override
+    public String getCatalogTerm() {
+        return "catalog";
+    }
+
+    @Override
+    public boolean isCatalogAtStart() {
+        return false;
+    }
+
+    @Override
+    public String getCatalogSeparator() {
+        return "";
+    }
+
+    @Override
+    public boolean supportsSchemasInDataManipulation() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSchemasInProcedureCalls() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSchemasInTableDefinitions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSchemasInIndexDefinitions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSchemasInPrivilegeDefinitions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsCatalogsInDataManipulation() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsCatalogsInProcedureCalls() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsCatalogsInTableDefinitions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsCatalogsInIndexDefinitions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsCatalogsInPrivilegeDefinitions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsPositionedDelete() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsPositionedUpdate() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSelectForUpdate() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsStoredProcedures() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSubqueriesInComparisons() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSubqueriesInExists() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSubqueriesInIns() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSubqueriesInQuantifieds() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsCorrelatedSubqueries() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsUnion() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsUnionAll() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsOpenCursorsAcrossCommit() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsOpenCursorsAcrossRollback() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsOpenStatementsAcrossCommit() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsOpenStatementsAcrossRollback() {
+        return true;
+    }
+
+    @Override
+    public int getMaxBinaryLiteralLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxCharLiteralLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxColumnNameLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxColumnsInGroupBy() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxColumnsInIndex() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxColumnsInOrderBy() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxColumnsInSelect() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxColumnsInTable() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxCursorNameLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxIndexLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxSchemaNameLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxProcedureNameLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxCatalogNameLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxRowSize() {
+        return 0;
+    }
+
+    @Override
+    public boolean doesMaxRowSizeIncludeBlobs() {
+        return false;
+    }
+
+    @Override
+    public int getMaxStatementLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxStatements() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxTableNameLength() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxTablesInSelect() {
+        return 1;
+    }
+
+    @Override
+    public int getMaxUserNameLength() {
+        return 0;
+    }
+
+    @Override
+    public int getDefaultTransactionIsolation() {
+        return Connection.TRANSACTION_NONE;
+    }
+
+    @Override
+    public boolean supportsTransactions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsTransactionIsolationLevel(int level) {
+        return level == Connection.TRANSACTION_NONE;
+    }
+
+    @Override
+    public boolean supportsDataDefinitionAndDataManipulationTransactions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsDataManipulationTransactionsOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean dataDefinitionCausesTransactionCommit() {
+        return false;
+    }
+
+    @Override
+    public boolean dataDefinitionIgnoredInTransactions() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsResultSetType(int type) {
+        return type == ResultSet.TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public boolean supportsResultSetConcurrency(int type, int concurrency) {
+        return type == ResultSet.TYPE_FORWARD_ONLY && concurrency == ResultSet.CONCUR_READ_ONLY;
+    }
+
+    @Override
+    public boolean ownUpdatesAreVisible(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean ownDeletesAreVisible(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean ownInsertsAreVisible(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean othersUpdatesAreVisible(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean othersDeletesAreVisible(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean othersInsertsAreVisible(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean updatesAreDetected(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean deletesAreDetected(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean insertsAreDetected(int type) {
+        return false;
+    }
+
+    @Override
+    public boolean supportsBatchUpdates() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsSavepoints() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsNamedParameters() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsMultipleOpenResults() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsGetGeneratedKeys() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsResultSetHoldability(int holdability) {
+        return holdability == ResultSet.HOLD_CURSORS_OVER_COMMIT;
+    }
+
+    @Override
+    public int getResultSetHoldability() {
+        return ResultSet.HOLD_CURSORS_OVER_COMMIT;
+    }
+
+    @Override
+    public int getSQLStateType() {
+        return sqlStateSQL;
+    }
+
+    @Override
+    public boolean locatorsUpdateCopy() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsStatementPooling() {
+        return false;
+    }
+
+    @Override
+    public RowIdLifetime getRowIdLifetime() {
+        return RowIdLifetime.ROWID_UNSUPPORTED;
+    }
+
+    @Override
+    public boolean supportsStoredFunctionsUsingCallSyntax() {
+        return false;
+    }
+
+    @Override
+    public boolean autoCommitFailureClosesAllResultSets() {
+        return false;
+    }
+
+    @Override
+    public boolean generatedKeyAlwaysReturned() {
+        return false;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName() + ".");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,91 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * A read-only JDBC driver over a directory of YXDB files.
+ * <p>
+ * The URL is {@code jdbc:yxdb:} followed by the path of the directory, for example {@code jdbc:yxdb:/data/alteryx}.
+ * Each {@code .yxdb} file in the directory is a table, named after the file without its extension. Queries are
+ * limited to {@code SELECT * | columns FROM table [WHERE condition [AND condition ...]] [LIMIT n]}, where each
+ * condition compares a column with a literal using {@code = <> != < <= > >=} or is {@code IS [NOT] NULL}.
+ * <p>
+ * The driver registers itself with {@link DriverManager} when the class is loaded, and is listed as a
+ * {@code java.sql.Driver} service so that {@link DriverManager} finds it on the class path.
+ */
+public final class YxdbDriver implements Driver {
+    /**
+     * The prefix of the URLs handled by this driver.
+     */
+    public static final String URL_PREFIX = "jdbc:yxdb:";
+
+    static final int MAJOR_VERSION = 0;
+    static final int MINOR_VERSION = 1;
+
+    static {
+        try {
+            DriverManager.registerDriver(new YxdbDriver());
+        } catch (SQLException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    /**
+     * Opens a connection to a directory of YXDB files.
+     * @param url the URL of the directory, starting {@code jdbc:yxdb:}
+     * @param info connection properties, which are not used
+     * @return the connection, or null if the URL is not for this driver
+     * @throws SQLException the path is not a directory
+     */
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+
+        var directory = Path.of(url.substring(URL_PREFIX.length()));
+        if (!Files.isDirectory(directory)) {
+            throw new SQLException("The directory " + directory + " does not exist.", "08001");
+        }
+        return new YxdbConnection(url, directory);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return MAJOR_VERSION;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return MINOR_VERSION;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("The driver does not log.");
+    }
+}
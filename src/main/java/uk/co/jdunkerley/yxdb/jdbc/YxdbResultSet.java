@@ -0,0 +1,320 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import uk.co.jdunkerley.yxdb.YxdbField;
+import uk.co.jdunkerley.yxdb.YxdbReader;
+import uk.co.jdunkerley.yxdb.YxdbType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+
+// The rows of a query, read straight from a YxdbReader. Conditions are tested against the record buffer before a row
+// is returned, and a column is only decoded when one of its getters is called, so unused columns are never read.
+// getLong, getInt and getDouble on numeric fields decode primitives without boxing.
+final class YxdbResultSet extends BaseResultSet {
+    // Tests a condition against the current record of the reader.
+    private interface Filter {
+        boolean test(YxdbReader reader);
+    }
+
+    private final YxdbReader reader;
+    private final YxdbField[] fields;
+    private final Filter[] filters;
+    private final long limit;
+    private long returned;
+    private boolean done;
+
+    YxdbResultSet(YxdbReader reader, Query query, String table, long maxRows, Statement statement) throws SQLException {
+        this(reader, selectFields(reader.fields(), query), table, filters(reader.fields(), query), limit(query.limit, maxRows), statement);
+    }
+
+    private YxdbResultSet(YxdbReader reader, YxdbField[] fields, String table, Filter[] filters, long limit, Statement statement) {
+        super(columns(fields, table), statement);
+        this.reader = reader;
+        this.fields = fields;
+        this.filters = filters;
+        this.limit = limit;
+    }
+
+    private static long limit(long limit, long maxRows) {
+        if (maxRows <= 0) {
+            return limit;
+        }
+        return limit < 0 ? maxRows : Math.min(limit, maxRows);
+    }
+
+    private static Column[] columns(YxdbField[] fields, String table) {
+        var columns = new Column[fields.length];
+        for (var i = 0; i < fields.length; i++) {
+            columns[i] = Column.of(fields[i], table);
+        }
+        return columns;
+    }
+
+    private static YxdbField[] selectFields(YxdbField[] fields, Query query) throws SQLSyntaxErrorException {
+        if (query.columns == null) {
+            return fields;
+        }
+        var selected = new YxdbField[query.columns.size()];
+        for (var i = 0; i < selected.length; i++) {
+            selected[i] = field(fields, query.columns.get(i));
+        }
+        return selected;
+    }
+
+    private static YxdbField field(YxdbField[] fields, String name) throws SQLSyntaxErrorException {
+        for (var field : fields) {
+            if (field.name().equals(name)) {
+                return field;
+            }
+        }
+        for (var field : fields) {
+            if (field.name().equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new SQLSyntaxErrorException("The column " + name + " does not exist.", "42S22");
+    }
+
+    private static Filter[] filters(YxdbField[] fields, Query query) throws SQLSyntaxErrorException {
+        var filters = new ArrayList<Filter>();
+        for (var condition : query.conditions) {
+            filters.add(filter(field(fields, condition.column()), condition));
+        }
+        return filters.toArray(new Filter[0]);
+    }
+
+    // Compiles a condition for the type of its field. Comparisons with a null value are false, as in SQL.
+    private static Filter filter(YxdbField field, Query.Condition condition) throws SQLSyntaxErrorException {
+        var index = field.index();
+        var operator = condition.operator();
+        switch (operator) {
+            case IS_NULL -> {
+                return reader -> reader.isNull(index);
+            }
+            case IS_NOT_NULL -> {
+                return reader -> !reader.isNull(index);
+            }
+        }
+
+        var literal = condition.literal();
+        switch (field.yxdbType()) {
+            case YxdbType.BOOLEAN -> {
+                if (literal instanceof Boolean expected && (operator == Query.Operator.EQ || operator == Query.Operator.NE)) {
+                    var equal = operator == Query.Operator.EQ;
+                    return reader -> {
+                        var value = reader.readBoolean(index);
+                        return value != null && (value == expected) == equal;
+                    };
+                }
+            }
+            case YxdbType.BYTE, YxdbType.INT16, YxdbType.INT32, YxdbType.INT64 -> {
+                if (literal instanceof BigDecimal number) {
+                    var isByte = field.yxdbType().equals(YxdbType.BYTE);
+                    var exact = exactLong(number);
+                    var approximate = number.doubleValue();
+                    return reader -> {
+                        long value;
+                        if (isByte) {
+                            var b = reader.readByte(index);
+                            if (b == null) {
+                                return false;
+                            }
+                            value = b;
+                        } else {
+                            value = reader.readLong(index, Long.MIN_VALUE);
+                            if (value == Long.MIN_VALUE && reader.isNull(index)) {
+                                return false;
+                            }
+                        }
+                        return operator.test(exact != null ? Long.compare(value, exact) : Double.compare(value, approximate));
+                    };
+                }
+            }
+            case YxdbType.FLOAT, YxdbType.DOUBLE -> {
+                if (literal instanceof BigDecimal number) {
+                    var expected = number.doubleValue();
+                    return reader -> {
+                        var value = reader.readDouble(index, Double.NaN);
+                        return !Double.isNaN(value) && operator.test(Double.compare(value, expected));
+                    };
+                }
+            }
+            case YxdbType.DECIMAL -> {
+                if (literal instanceof BigDecimal number) {
+                    return reader -> {
+                        var value = reader.readDecimal(index);
+                        return value != null && operator.test(value.compareTo(number));
+                    };
+                }
+            }
+            case YxdbType.STRING, YxdbType.WSTRING, YxdbType.V_STRING, YxdbType.V_WSTRING, YxdbType.DATE, YxdbType.TIME, YxdbType.DATETIME -> {
+                if (literal instanceof String text) {
+                    // dates and times are stored as ISO text, so comparing the text orders them correctly
+                    var expected = field.yxdbType().equals(YxdbType.DATETIME) && text.length() > 10 && text.charAt(10) == 'T'
+                            ? text.substring(0, 10) + ' ' + text.substring(11)
+                            : text;
+                    return reader -> {
+                        var value = reader.readString(index);
+                        return value != null && operator.test(value.compareTo(expected));
+                    };
+                }
+            }
+            default -> throw new SQLSyntaxErrorException("The column " + field.name() + " can only be tested with IS NULL or IS NOT NULL.", "42000");
+        }
+        throw new SQLSyntaxErrorException("Cannot compare the " + field.yxdbType() + " column " + field.name() + " with " + literal + " using " + operator + ".", "42000");
+    }
+
+    private static Long exactLong(BigDecimal number) {
+        try {
+            return number.longValueExact();
+        } catch (ArithmeticException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    boolean advance() throws SQLException {
+        if (done || (limit >= 0 && returned >= limit)) {
+            return false;
+        }
+        try {
+            while (reader.next()) {
+                if (matches()) {
+                    returned++;
+                    return true;
+                }
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new SQLException("Failed to read the next record: " + ex.getMessage(), ex);
+        }
+        done = true;
+        return false;
+    }
+
+    private boolean matches() {
+        for (var filter : filters) {
+            if (!filter.test(reader)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    void release() throws SQLException {
+        done = true;
+        try {
+            reader.close();
+        } catch (IOException ex) {
+            throw new SQLException("Failed to close the file: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    Object value(int column) throws SQLException {
+        var field = fields[column - 1];
+        var index = field.index();
+        try {
+            return switch (field.yxdbType()) {
+                case YxdbType.BOOLEAN -> reader.readBoolean(index);
+                case YxdbType.BYTE -> {
+                    var value = reader.readByte(index);
+                    yield value == null ? null : Integer.valueOf(value);
+                }
+                case YxdbType.INT16, YxdbType.INT32 -> {
+                    var value = reader.readLong(index, Long.MIN_VALUE);
+                    yield value == Long.MIN_VALUE && reader.isNull(index) ? null : Integer.valueOf((int) value);
+                }
+                case YxdbType.INT64 -> reader.readLong(index);
+                case YxdbType.FLOAT -> {
+                    var value = reader.readDouble(index);
+                    yield value == null ? null : Float.valueOf(value.floatValue());
+                }
+                case YxdbType.DOUBLE -> reader.readDouble(index);
+                case YxdbType.DECIMAL -> reader.readDecimal(index);
+                case YxdbType.DATE -> {
+                    var value = reader.readDate(index);
+                    yield value == null ? null : Date.valueOf(value);
+                }
+                case YxdbType.TIME -> {
+                    var value = reader.readTime(index);
+                    yield value == null ? null : Time.valueOf(value);
+                }
+                case YxdbType.DATETIME -> {
+                    var value = reader.readDateTime(index);
+                    yield value == null ? null : Timestamp.valueOf(value);
+                }
+                case YxdbType.BLOB -> reader.readBlob(index);
+                case YxdbType.SPATIAL_OBJ -> reader.isNull(index) ? null : reader.read(index);
+                default -> reader.readString(index);
+            };
+        } catch (IllegalArgumentException ex) {
+            throw new SQLDataException("Failed to read column " + field.name() + ": " + ex.getMessage(), "22000", ex);
+        }
+    }
+
+    @Override
+    long longValue(int column) throws SQLException {
+        var field = fields[column - 1];
+        var index = field.index();
+        switch (field.yxdbType()) {
+            case YxdbType.INT16, YxdbType.INT32, YxdbType.INT64 -> {
+                var value = reader.readLong(index, Long.MIN_VALUE);
+                var isNull = value == Long.MIN_VALUE && reader.isNull(index);
+                setWasNull(isNull);
+                return isNull ? 0 : value;
+            }
+            case YxdbType.FLOAT, YxdbType.DOUBLE -> {
+                return (long) doubleValue(column);
+            }
+            default -> {
+                return super.longValue(column);
+            }
+        }
+    }
+
+    @Override
+    double doubleValue(int column) throws SQLException {
+        var field = fields[column - 1];
+        var index = field.index();
+        switch (field.yxdbType()) {
+            case YxdbType.FLOAT, YxdbType.DOUBLE -> {
+                var value = reader.readDouble(index, Double.NaN);
+                var isNull = Double.isNaN(value) && reader.isNull(index);
+                setWasNull(isNull);
+                return isNull ? 0 : value;
+            }
+            case YxdbType.INT16, YxdbType.INT32, YxdbType.INT64 -> {
+                return longValue(column);
+            }
+            default -> {
+                return super.doubleValue(column);
+            }
+        }
+    }
+
+    @Override
+    String stringValue(int column) throws SQLException {
+        var field = fields[column - 1];
+        switch (field.yxdbType()) {
+            case YxdbType.STRING, YxdbType.WSTRING, YxdbType.V_STRING, YxdbType.V_WSTRING,
+                 YxdbType.DECIMAL, YxdbType.DATE, YxdbType.TIME, YxdbType.DATETIME -> {
+                // the text as stored, without parsing it into a number or date first
+                var value = reader.readString(field.index());
+                setWasNull(value == null);
+                return value;
+            }
+            default -> {
+                return super.stringValue(column);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+// Describes the columns of a result set. Every YXDB field may hold nulls and nothing is writable.
+final class YxdbResultSetMetaData implements ResultSetMetaData {
+    private final Column[] columns;
+
+    YxdbResultSetMetaData(Column[] columns) {
+        this.columns = columns;
+    }
+
+    private Column column(int column) throws SQLException {
+        if (column < 1 || column > columns.length) {
+            throw new SQLException("The column index " + column + " is out of range.");
+        }
+        return columns[column - 1];
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) throws SQLException {
+        return column(column).isText();
+    }
+
+    @Override
+    public boolean isSearchable(int column) throws SQLException {
+        var sqlType = column(column).sqlType();
+        return sqlType != Types.LONGVARBINARY && sqlType != Types.LONGVARCHAR;
+    }
+
+    @Override
+    public boolean isCurrency(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public int isNullable(int column) throws SQLException {
+        column(column);
+        return columnNullable;
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+        return column(column).isNumeric();
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) throws SQLException {
+        var info = column(column);
+        return switch (info.sqlType()) {
+            case Types.BOOLEAN -> 5;
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> info.precision() + 1;
+            case Types.REAL -> 15;
+            case Types.DOUBLE -> 24;
+            default -> info.precision();
+        };
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+        return column(column).name();
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+        return column(column).name();
+    }
+
+    @Override
+    public String getSchemaName(int column) throws SQLException {
+        column(column);
+        return "";
+    }
+
+    @Override
+    public int getPrecision(int column) throws SQLException {
+        return column(column).precision();
+    }
+
+    @Override
+    public int getScale(int column) throws SQLException {
+        return column(column).scale();
+    }
+
+    @Override
+    public String getTableName(int column) throws SQLException {
+        return column(column).table();
+    }
+
+    @Override
+    public String getCatalogName(int column) throws SQLException {
+        column(column);
+        return "";
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+        return column(column).sqlType();
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+        return column(column).typeName();
+    }
+
+    @Override
+    public boolean isReadOnly(int column) throws SQLException {
+        column(column);
+        return true;
+    }
+
+    @Override
+    public boolean isWritable(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        return column(column).className();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName() + ".");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
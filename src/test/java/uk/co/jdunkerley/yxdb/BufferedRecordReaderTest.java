@@ -3,6 +3,7 @@ package uk.co.jdunkerley.yxdb;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -33,6 +34,19 @@ public class BufferedRecordReaderTest {
         Assertions.assertEquals(3, recordsRead);
     }
 
+    @Test
+    public void TestRecordLengthLimit() {
+        // a single uncompressed block holding a record whose variable data claims to be over 2 GB
+        var block = ByteBuffer.allocate(13).order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(9 | 0x80000000);
+        block.put(new byte[5]);
+        block.putInt(0xfffffff0);
+
+        var reader = new BufferedRecordReader(new ByteArrayInputStream(block.array()), 5, true, 1);
+        var ex = Assertions.assertThrows(IOException.class, reader::nextRecord);
+        Assertions.assertEquals("Record length exceeds maximum supported size (2 GB).", ex.getMessage());
+    }
+
     private BufferedRecordReader generateReader(String path, int fixedLen, boolean hasVarFields) throws IOException {
         var stream = new FileInputStream(path);
         var header = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
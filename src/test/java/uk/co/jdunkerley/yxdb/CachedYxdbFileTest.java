@@ -0,0 +1,182 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+public class CachedYxdbFileTest {
+    @TempDir
+    Path directory;
+
+    private YxdbGenerator generate(Path path, int rows) throws IOException {
+        var generator = new YxdbGenerator().rows(rows).columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.DOUBLE);
+        generator.write(path);
+        return generator;
+    }
+
+    private static long assertRows(YxdbGenerator generator, YxdbReader reader, long first) throws IOException {
+        var row = first;
+        while (reader.next()) {
+            var expected = generator.row(row++);
+            Assertions.assertEquals(expected[0], reader.readLong(0));
+            Assertions.assertEquals(expected[1], reader.readString(1));
+            Assertions.assertEquals(expected[2], reader.readDouble(2));
+        }
+        return row - first;
+    }
+
+    @Test
+    public void ConcurrentRangeReadersShareDecompressedBlocks() throws Exception {
+        var path = directory.resolve("shared.yxdb");
+        var generator = generate(path, 150000);
+
+        try (var file = CachedYxdbFile.open(path.toString(), 64L * 1024 * 1024)) {
+            Assertions.assertEquals(150000, file.numRecords());
+            Assertions.assertEquals(3, file.fields().length);
+
+            var pool = Executors.newFixedThreadPool(4);
+            try {
+                var tasks = new ArrayList<Callable<Long>>();
+                for (var i = 0; i < 8; i++) {
+                    var first = i * 17000L;
+                    tasks.add(() -> {
+                        try (var reader = file.reader(first, 30000)) {
+                            return assertRows(generator, reader, first);
+                        }
+                    });
+                }
+                for (var result : pool.invokeAll(tasks)) {
+                    Assertions.assertEquals(30000L, result.get());
+                }
+            } finally {
+                pool.shutdown();
+            }
+
+            var afterRanges = file.stats();
+            try (var reader = file.reader()) {
+                Assertions.assertEquals(150000L, assertRows(generator, reader, 0));
+            }
+            var stats = file.stats();
+            Assertions.assertEquals(0, stats.evictions());
+            Assertions.assertEquals(afterRanges.misses(), stats.misses());
+            Assertions.assertTrue(stats.hits() > afterRanges.hits());
+            Assertions.assertTrue(stats.hitRate() > 0.5);
+            Assertions.assertTrue(stats.entries() > 0);
+            Assertions.assertTrue(stats.bytes() <= stats.maxBytes());
+        }
+    }
+
+    @Test
+    public void RangesStopAtTheEndOfTheFile() throws IOException {
+        var path = directory.resolve("range.yxdb");
+        var generator = generate(path, 70000);
+
+        try (var file = CachedYxdbFile.open(path.toString(), 1024 * 1024)) {
+            try (var reader = file.reader(69990, 100)) {
+                Assertions.assertEquals(10L, assertRows(generator, reader, 69990));
+            }
+            try (var reader = file.reader(70000, 5)) {
+                Assertions.assertFalse(reader.next());
+            }
+            try (var reader = file.reader(5, 0)) {
+                Assertions.assertFalse(reader.next());
+            }
+            Assertions.assertThrows(IllegalArgumentException.class, () -> file.reader(-1, 5));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> file.reader(0, -5));
+        }
+    }
+
+    @Test
+    public void SmallCachesEvictTheLeastRecentlyUsedBlocks() throws IOException {
+        var path = directory.resolve("evict.yxdb");
+        var generator = generate(path, 100000);
+
+        try (var file = CachedYxdbFile.open(path.toString(), 300 * 1024, true)) {
+            for (var pass = 0; pass < 2; pass++) {
+                try (var reader = file.reader()) {
+                    Assertions.assertEquals(100000L, assertRows(generator, reader, 0));
+                }
+            }
+            var stats = file.stats();
+            Assertions.assertTrue(stats.evictions() > 0);
+            Assertions.assertTrue(stats.bytes() <= 300 * 1024);
+        }
+    }
+
+    @Test
+    public void StatsCountBlocksTakenFromTheCache() throws IOException {
+        var path = directory.resolve("stats.yxdb");
+        var generator = generate(path, 100000);
+
+        try (var file = CachedYxdbFile.open(path.toString(), 64L * 1024 * 1024)) {
+            ReaderStats cold;
+            try (var reader = file.reader()) {
+                reader.enableStats();
+                Assertions.assertEquals(100000L, assertRows(generator, reader, 0));
+                cold = reader.stats();
+            }
+            Assertions.assertEquals(0, cold.cachedBlocks());
+            Assertions.assertTrue(cold.blocksDecompressed() > 1);
+
+            var cachedCalls = new long[2];
+            try (var reader = file.reader()) {
+                reader.enableStats();
+                reader.setListener(new ReaderListener() {
+                    @Override
+                    public void blockRead(long position, int storedLength, int decompressedLength, boolean compressed, long ioNanos, long decompressNanos) {
+                        Assertions.fail("block at " + position + " was read from the file");
+                    }
+
+                    @Override
+                    public void blockCached(long position, int storedLength, int decompressedLength) {
+                        cachedCalls[0]++;
+                        cachedCalls[1] += decompressedLength;
+                    }
+                });
+                Assertions.assertEquals(100000L, assertRows(generator, reader, 0));
+
+                var warm = reader.stats();
+                Assertions.assertEquals(cold.blocksDecompressed() + cold.uncompressedBlocks(), warm.cachedBlocks());
+                Assertions.assertEquals(0, warm.blocksDecompressed());
+                Assertions.assertEquals(0, warm.compressedBytesRead());
+                Assertions.assertEquals(cold.decompressedBytes(), warm.decompressedBytes());
+                Assertions.assertEquals(warm.cachedBlocks(), cachedCalls[0]);
+                Assertions.assertEquals(warm.decompressedBytes(), cachedCalls[1]);
+            }
+        }
+    }
+
+    @Test
+    public void ClosingAReaderLeavesTheFileOpen() throws IOException {
+        try (var file = CachedYxdbFile.open("src/test/resources/TutorialData.yxdb", 4 * 1024 * 1024)) {
+            long first;
+            try (var reader = file.reader()) {
+                first = 0;
+                while (reader.next()) {
+                    first++;
+                }
+            }
+            try (var reader = file.reader()) {
+                var count = 0L;
+                while (reader.next()) {
+                    count++;
+                }
+                Assertions.assertEquals(first, count);
+            }
+            Assertions.assertEquals(first, file.numRecords());
+            Assertions.assertTrue(file.stats().hits() > 0);
+        }
+    }
+
+    @Test
+    public void InvalidArgumentsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CachedYxdbFile.open("src/test/resources/ampdata.yxdb", 1024));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CachedYxdbFile.open("src/test/resources/TutorialData.yxdb", -1));
+    }
+}
@@ -0,0 +1,240 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+public class CsvExporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void TestAllColumnTypes() throws IOException {
+        var path = directory.resolve("all.yxdb");
+        var generator = new YxdbGenerator().rows(3000).nullRatio(0.2);
+        generator.write(path);
+
+        var lines = parse(export(CsvExporter.csv(), path), ',');
+        Assertions.assertEquals(3001, lines.size());
+        Assertions.assertEquals(List.of(names(path)), lines.get(0));
+
+        var columns = generator.columns();
+        for (var row = 0; row < 3000; row++) {
+            var expected = generator.row(row);
+            var actual = lines.get(row + 1);
+            for (var i = 0; i < columns.length; i++) {
+                Assertions.assertEquals(format(columns[i], expected[i]), actual.get(i), "row " + row + " column " + i);
+            }
+        }
+    }
+
+    @Test
+    public void TestThreadsProduceSameOutput() throws IOException {
+        var path = directory.resolve("blocks.yxdb");
+        var generator = new YxdbGenerator()
+                .rows(150000)
+                .columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.STRING, YxdbGenerator.Column.DOUBLE);
+        generator.write(path);
+
+        var single = export(CsvExporter.csv().threads(1), path);
+        var parallel = export(CsvExporter.csv().threads(4), path);
+        Assertions.assertArrayEquals(single, parallel);
+
+        var lines = parse(parallel, ',');
+        Assertions.assertEquals(150001, lines.size());
+        for (var row : new int[]{0, 65535, 65536, 149999}) {
+            var expected = generator.row(row);
+            for (var i = 0; i < expected.length; i++) {
+                Assertions.assertEquals(format(generator.columns()[i], expected[i]), lines.get(row + 1).get(i));
+            }
+        }
+    }
+
+    @Test
+    public void TestExistingFileWithTwoBlocks() throws IOException {
+        var single = export(CsvExporter.csv().threads(1), Path.of("src/test/resources/LotsOfRecords.yxdb"));
+        var parallel = export(CsvExporter.csv().threads(3), Path.of("src/test/resources/LotsOfRecords.yxdb"));
+        Assertions.assertArrayEquals(single, parallel);
+        Assertions.assertEquals(100001, parse(parallel, ',').size());
+    }
+
+    @Test
+    public void TestQuoting() throws IOException {
+        var path = directory.resolve("quotes.yxdb");
+        try (var writer = new YxdbTestWriter(path,
+                YxdbTestWriter.field("Text", YxdbType.V_WSTRING, 100),
+                YxdbTestWriter.field("Name,Other", YxdbType.STRING, 20))) {
+            for (var text : new String[]{"plain", "a,b", "say \"hi\"", "line\nbreak", "", null, "café 😀"}) {
+                if (text == null) {
+                    writer.setNull(0);
+                } else {
+                    writer.setString(0, text);
+                }
+                writer.setString(1, "x");
+                writer.writeRecord();
+            }
+        }
+
+        var text = new String(export(CsvExporter.csv(), path), StandardCharsets.UTF_8);
+        Assertions.assertEquals("Text,\"Name,Other\"\n" +
+                "plain,x\n" +
+                "\"a,b\",x\n" +
+                "\"say \"\"hi\"\"\",x\n" +
+                "\"line\nbreak\",x\n" +
+                "\"\",x\n" +
+                ",x\n" +
+                "café 😀,x\n", text);
+    }
+
+    @Test
+    public void TestTsvOptions() throws IOException {
+        var path = directory.resolve("tsv.yxdb");
+        try (var writer = new YxdbTestWriter(path,
+                YxdbTestWriter.field("Id", YxdbType.INT64),
+                YxdbTestWriter.field("Amount", YxdbType.DECIMAL, 10, 2),
+                YxdbTestWriter.field("Text", YxdbType.V_STRING, 20))) {
+            writer.setLong(0, -42);
+            writer.setString(1, "12.50");
+            writer.setString(2, "a\tb,c");
+            writer.writeRecord();
+            writer.setNull(0);
+            writer.setNull(1);
+            writer.setString(2, "");
+            writer.writeRecord();
+        }
+
+        var exporter = CsvExporter.tsv().header(false).nullValue("NULL").lineSeparator("\r\n").quote('\'');
+        var text = new String(export(exporter, path), StandardCharsets.UTF_8);
+        Assertions.assertEquals("-42\t12.50\t'a\tb,c'\r\nNULL\tNULL\t\r\n", text);
+    }
+
+    @Test
+    public void TestAmpFile() throws IOException {
+        var lines = parse(export(CsvExporter.csv(), Path.of("src/test/resources/ampdata.yxdb")), ',');
+        Assertions.assertEquals(2021, lines.size());
+        Assertions.assertEquals(List.of("EIN", "invoice_amount", "company_name", "bill_contact", "invoice_date", "phone_number"), lines.get(0));
+        Assertions.assertEquals(List.of("731304999", "8562.35", "Jensen Ltd", "Nathaniel Thompson", "05 October, 2023", "149-996-9413"), lines.get(1));
+    }
+
+    @Test
+    public void TestShortBlobs() throws IOException {
+        var path = directory.resolve("blobs.yxdb");
+        var generator = new YxdbGenerator().rows(200).columns(YxdbGenerator.Column.BLOB, YxdbGenerator.Column.INT32).blobLengths(0, 5);
+        generator.write(path);
+
+        var lines = parse(export(CsvExporter.csv(), path), ',');
+        for (var row = 0; row < 200; row++) {
+            Assertions.assertEquals(format(YxdbGenerator.Column.BLOB, generator.row(row)[0]), lines.get(row + 1).get(0), "row " + row);
+        }
+    }
+
+    @Test
+    public void TestSpatialFiles() throws IOException {
+        for (var file : new String[]{"point", "multi-point", "line", "multi-line", "poly", "multi-poly", "multi-poly-holes", "null-spatial"}) {
+            var path = Path.of("src/test/resources/" + file + ".yxdb");
+            var lines = parse(export(CsvExporter.csv(), path), ',');
+            try (var reader = new YxdbReader(path.toString())) {
+                for (var line : lines.subList(1, lines.size())) {
+                    Assertions.assertTrue(reader.next());
+                    Assertions.assertEquals(Spatial.toWkt(reader.readBlob(1)), line.get(1), file);
+                }
+                Assertions.assertFalse(reader.next());
+            }
+        }
+    }
+
+    @Test
+    public void TestExportToFile() throws IOException {
+        var output = directory.resolve("out.csv");
+        var records = CsvExporter.csv().export("src/test/resources/TutorialData.yxdb", output.toString());
+        Assertions.assertEquals(8716, records);
+        Assertions.assertArrayEquals(export(CsvExporter.csv(), Path.of("src/test/resources/TutorialData.yxdb")), Files.readAllBytes(output));
+    }
+
+    @Test
+    public void TestInvalidOptions() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CsvExporter.csv().delimiter('"'));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CsvExporter.csv().quote(','));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CsvExporter.csv().delimiter('\n'));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CsvExporter.csv().threads(0));
+    }
+
+    private static byte[] export(CsvExporter exporter, Path path) throws IOException {
+        var output = new ByteArrayOutputStream();
+        exporter.export(path.toString(), output);
+        return output.toByteArray();
+    }
+
+    private static String[] names(Path path) throws IOException {
+        try (var reader = new YxdbReader(path.toString())) {
+            var names = new String[reader.fields().length];
+            for (var i = 0; i < names.length; i++) {
+                names[i] = reader.fields()[i].name();
+            }
+            return names;
+        }
+    }
+
+    private static String format(YxdbGenerator.Column column, Object value) {
+        if (value == null) {
+            return "";
+        }
+        return switch (column) {
+            case FLOAT -> Float.toString((float) (double) (Double) value);
+            case DECIMAL -> ((BigDecimal) value).toPlainString();
+            case TIME -> DateTimeFormatter.ofPattern("HH:mm:ss").format((LocalTime) value);
+            case DATETIME -> DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").format((LocalDateTime) value);
+            case BLOB -> Base64.getEncoder().encodeToString((byte[]) value);
+            case SPATIAL -> Spatial.toWkt((byte[]) value);
+            default -> value.toString();
+        };
+    }
+
+    // A minimal RFC 4180 parser: quoted values may hold delimiters, doubled quotes and line breaks.
+    private static List<List<String>> parse(byte[] bytes, char delimiter) {
+        var text = new String(bytes, StandardCharsets.UTF_8);
+        var lines = new ArrayList<List<String>>();
+        var line = new ArrayList<String>();
+        var value = new StringBuilder();
+        var quoted = false;
+        for (var i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                line.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n') {
+                line.add(value.toString());
+                value.setLength(0);
+                lines.add(line);
+                line = new ArrayList<>();
+            } else {
+                value.append(c);
+            }
+        }
+        return lines;
+    }
+}
@@ -278,6 +278,20 @@ public class ExtractorsTest {
         Assertions.assertNull(result);
     }
 
+    @Test
+    public void LocateSmallBlob() {
+        var buffer = ByteBuffer.wrap(smallBlob).order(ByteOrder.LITTLE_ENDIAN);
+        var location = Extractors.locateBlob(buffer, 6);
+        Assertions.assertEquals(116, Extractors.blobStart(location));
+        Assertions.assertEquals(100, Extractors.blobLength(location));
+    }
+
+    @Test
+    public void LocateNullBlob() {
+        var buffer = ByteBuffer.wrap(new byte[]{0, 0, 1, 0, 0, 0, 4, 0, 0, 0}).order(ByteOrder.LITTLE_ENDIAN);
+        Assertions.assertEquals(-1, Extractors.locateBlob(buffer, 2));
+    }
+
     @Test
     public void ExtractV_String() {
         ExtractorFunction<String> extract = Extractors::extractVString;
@@ -0,0 +1,335 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JsonExporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void TestAllColumnTypes() throws IOException {
+        var path = directory.resolve("all.yxdb");
+        var generator = new YxdbGenerator().rows(3000).nullRatio(0.2);
+        generator.write(path);
+
+        var lines = lines(export(new JsonExporter(), path));
+        Assertions.assertEquals(3000, lines.size());
+
+        var columns = generator.columns();
+        var names = names(path);
+        for (var row = 0; row < 3000; row++) {
+            var expected = generator.row(row);
+            var actual = lines.get(row);
+            Assertions.assertEquals(List.of(names), List.copyOf(actual.keySet()));
+            for (var i = 0; i < columns.length; i++) {
+                assertValue(columns[i], expected[i], actual.get(names[i]), "row " + row + " column " + i);
+            }
+        }
+    }
+
+    @Test
+    public void TestOmitNulls() throws IOException {
+        var path = directory.resolve("nulls.yxdb");
+        try (var writer = new YxdbTestWriter(path,
+                YxdbTestWriter.field("A", YxdbType.INT32),
+                YxdbTestWriter.field("B", YxdbType.V_STRING, 10),
+                YxdbTestWriter.field("C", YxdbType.DOUBLE))) {
+            writer.setNull(0);
+            writer.setString(1, "x");
+            writer.setNull(2);
+            writer.writeRecord();
+            writer.setNull(0);
+            writer.setNull(1);
+            writer.setNull(2);
+            writer.writeRecord();
+            writer.setLong(0, 1);
+            writer.setNull(1);
+            writer.setDouble(2, Double.NaN);
+            writer.writeRecord();
+        }
+
+        Assertions.assertEquals("{\"A\":null,\"B\":\"x\",\"C\":null}\n{\"A\":null,\"B\":null,\"C\":null}\n{\"A\":1,\"B\":null,\"C\":null}\n",
+                new String(export(new JsonExporter(), path), StandardCharsets.UTF_8));
+        Assertions.assertEquals("{\"B\":\"x\"}\n{}\n{\"A\":1}\n",
+                new String(export(new JsonExporter().includeNulls(false), path), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void TestEscaping() throws IOException {
+        var path = directory.resolve("escapes.yxdb");
+        try (var writer = new YxdbTestWriter(path,
+                YxdbTestWriter.field("Text", YxdbType.V_WSTRING, 100),
+                YxdbTestWriter.field("Name\\Other", YxdbType.STRING, 20),
+                YxdbTestWriter.field("Amount", YxdbType.DECIMAL, 10, 2))) {
+            writer.setString(0, "say \"hi\"\n\ttab \\ back\u0001 café 😀");
+            writer.setString(1, "x");
+            writer.setString(2, "-12.50");
+            writer.writeRecord();
+        }
+
+        var text = new String(export(new JsonExporter(), path), StandardCharsets.UTF_8);
+        Assertions.assertEquals("{\"Text\":\"say \\\"hi\\\"\\n\\ttab \\\\ back\\u0001 café 😀\",\"Name\\\\Other\":\"x\",\"Amount\":-12.50}\n", text);
+        Assertions.assertEquals("say \"hi\"\n\ttab \\ back\u0001 café 😀", lines(text.getBytes(StandardCharsets.UTF_8)).get(0).get("Text"));
+    }
+
+    @Test
+    public void TestThreadsProduceSameOutput() throws IOException {
+        var path = directory.resolve("blocks.yxdb");
+        var generator = new YxdbGenerator()
+                .rows(150000)
+                .columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.DATETIME);
+        generator.write(path);
+
+        var single = export(new JsonExporter().threads(1), path);
+        var parallel = export(new JsonExporter().threads(4), path);
+        Assertions.assertArrayEquals(single, parallel);
+
+        var lines = lines(parallel);
+        Assertions.assertEquals(150000, lines.size());
+        var names = names(path);
+        for (var row : new int[]{0, 65535, 65536, 149999}) {
+            var expected = generator.row(row);
+            for (var i = 0; i < expected.length; i++) {
+                assertValue(generator.columns()[i], expected[i], lines.get(row).get(names[i]), "row " + row);
+            }
+        }
+    }
+
+    @Test
+    public void TestAmpFile() throws IOException {
+        var lines = lines(export(new JsonExporter(), Path.of("src/test/resources/ampdata.yxdb")));
+        Assertions.assertEquals(2020, lines.size());
+        var first = lines.get(0);
+        Assertions.assertEquals("731304999", first.get("EIN"));
+        Assertions.assertEquals(0, new BigDecimal("8562.35").compareTo((BigDecimal) first.get("invoice_amount")));
+        Assertions.assertEquals("149-996-9413", first.get("phone_number"));
+    }
+
+    @Test
+    public void TestShortBlobs() throws IOException {
+        var path = directory.resolve("blobs.yxdb");
+        var generator = new YxdbGenerator().rows(200).columns(YxdbGenerator.Column.BLOB, YxdbGenerator.Column.INT32).blobLengths(0, 5);
+        generator.write(path);
+
+        var lines = lines(export(new JsonExporter(), path));
+        var names = names(path);
+        for (var row = 0; row < 200; row++) {
+            assertValue(YxdbGenerator.Column.BLOB, generator.row(row)[0], lines.get(row).get(names[0]), "row " + row);
+        }
+    }
+
+    @Test
+    public void TestSpatialFiles() throws IOException {
+        for (var file : new String[]{"point", "multi-point", "line", "multi-line", "poly", "multi-poly", "multi-poly-holes", "null-spatial"}) {
+            var path = Path.of("src/test/resources/" + file + ".yxdb");
+            var lines = lines(export(new JsonExporter(), path));
+            try (var reader = new YxdbReader(path.toString())) {
+                var name = reader.fields()[1].name();
+                for (var line : lines) {
+                    Assertions.assertTrue(reader.next());
+                    var geoJson = Spatial.toGeoJson(reader.readBlob(1));
+                    Assertions.assertEquals(geoJson.isEmpty() ? null : parse(geoJson), line.get(name), file);
+                }
+                Assertions.assertFalse(reader.next());
+            }
+        }
+    }
+
+    @Test
+    public void TestExportToFile() throws IOException {
+        var output = directory.resolve("out.ndjson");
+        var records = new JsonExporter().export("src/test/resources/TutorialData.yxdb", output.toString());
+        Assertions.assertEquals(8716, records);
+        Assertions.assertArrayEquals(export(new JsonExporter(), Path.of("src/test/resources/TutorialData.yxdb")), Files.readAllBytes(output));
+    }
+
+    @Test
+    public void TestInvalidOptions() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JsonExporter().threads(0));
+    }
+
+    private static byte[] export(JsonExporter exporter, Path path) throws IOException {
+        var output = new ByteArrayOutputStream();
+        exporter.export(path.toString(), output);
+        return output.toByteArray();
+    }
+
+    private static String[] names(Path path) throws IOException {
+        try (var reader = new YxdbReader(path.toString())) {
+            var names = new String[reader.fields().length];
+            for (var i = 0; i < names.length; i++) {
+                names[i] = reader.fields()[i].name();
+            }
+            return names;
+        }
+    }
+
+    private static void assertValue(YxdbGenerator.Column column, Object expected, Object actual, String message) {
+        if (expected == null) {
+            Assertions.assertNull(actual, message);
+            return;
+        }
+        switch (column) {
+            case BYTE, INT16, INT32, INT64, DOUBLE, DECIMAL ->
+                    Assertions.assertEquals(0, new BigDecimal(expected.toString()).compareTo((BigDecimal) actual), message);
+            case FLOAT -> Assertions.assertEquals((float) (double) (Double) expected, ((BigDecimal) actual).floatValue(), message);
+            case TIME -> Assertions.assertEquals(DateTimeFormatter.ofPattern("HH:mm:ss").format((LocalTime) expected), actual, message);
+            case DATETIME -> Assertions.assertEquals(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").format((LocalDateTime) expected), actual, message);
+            case BLOB -> Assertions.assertEquals(Base64.getEncoder().encodeToString((byte[]) expected), actual, message);
+            case SPATIAL -> Assertions.assertEquals(parse(Spatial.toGeoJson((byte[]) expected)), actual, message);
+            default -> Assertions.assertEquals(expected.toString(), actual.toString(), message);
+        }
+    }
+
+    private static List<Map<String, Object>> lines(byte[] bytes) {
+        var text = new String(bytes, StandardCharsets.UTF_8);
+        Assertions.assertTrue(text.isEmpty() || text.endsWith("\n"));
+        var result = new ArrayList<Map<String, Object>>();
+        for (var line : text.split("\n")) {
+            if (!line.isEmpty()) {
+                @SuppressWarnings("unchecked")
+                var object = (Map<String, Object>) parse(line);
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
+    private static Object parse(String text) {
+        var parser = new JsonParser(text);
+        var value = parser.value();
+        parser.skipWhitespace();
+        Assertions.assertEquals(text.length(), parser.position, "trailing text in " + text);
+        return value;
+    }
+
+    // A minimal JSON parser: objects keep their member order and numbers are read as BigDecimal.
+    private static final class JsonParser {
+        private final String text;
+        int position;
+
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        Object value() {
+            skipWhitespace();
+            var c = text.charAt(position);
+            switch (c) {
+                case '{' -> {
+                    position++;
+                    var object = new LinkedHashMap<String, Object>();
+                    skipWhitespace();
+                    if (text.charAt(position) == '}') {
+                        position++;
+                        return object;
+                    }
+                    while (true) {
+                        skipWhitespace();
+                        var key = string();
+                        skipWhitespace();
+                        expect(':');
+                        Assertions.assertNull(object.put(key, value()), "duplicate key " + key);
+                        skipWhitespace();
+                        if (text.charAt(position++) == '}') {
+                            return object;
+                        }
+                        Assertions.assertEquals(',', text.charAt(position - 1));
+                    }
+                }
+                case '[' -> {
+                    position++;
+                    var list = new ArrayList<>();
+                    skipWhitespace();
+                    if (text.charAt(position) == ']') {
+                        position++;
+                        return list;
+                    }
+                    while (true) {
+                        list.add(value());
+                        skipWhitespace();
+                        if (text.charAt(position++) == ']') {
+                            return list;
+                        }
+                        Assertions.assertEquals(',', text.charAt(position - 1));
+                    }
+                }
+                case '"' -> {
+                    return string();
+                }
+                default -> {
+                    for (var literal : new String[]{"true", "false", "null"}) {
+                        if (text.startsWith(literal, position)) {
+                            position += literal.length();
+                            return literal.equals("null") ? null : Boolean.valueOf(literal);
+                        }
+                    }
+                    var start = position;
+                    while (position < text.length() && "-+.eE0123456789".indexOf(text.charAt(position)) >= 0) {
+                        position++;
+                    }
+                    var number = text.substring(start, position);
+                    Assertions.assertTrue(number.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][-+]?[0-9]+)?"), "invalid number " + number);
+                    return new BigDecimal(number);
+                }
+            }
+        }
+
+        private String string() {
+            expect('"');
+            var builder = new StringBuilder();
+            while (true) {
+                var c = text.charAt(position++);
+                if (c == '"') {
+                    return builder.toString();
+                }
+                Assertions.assertTrue(c >= 0x20, "unescaped control character");
+                if (c != '\\') {
+                    builder.append(c);
+                    continue;
+                }
+                var escape = text.charAt(position++);
+                switch (escape) {
+                    case '"', '\\', '/' -> builder.append(escape);
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'u' -> {
+                        builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> Assertions.fail("invalid escape \\" + escape);
+                }
+            }
+        }
+
+        private void expect(char c) {
+            Assertions.assertEquals(c, text.charAt(position++));
+        }
+
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
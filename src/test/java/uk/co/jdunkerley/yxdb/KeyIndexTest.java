@@ -0,0 +1,175 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class KeyIndexTest {
+    private static final int ROWS = 200000;
+    private static final int CUSTOMERS = 50000;
+
+    @TempDir
+    Path directory;
+    private Path orders;
+
+    @BeforeEach
+    public void CreateFile() throws IOException {
+        orders = directory.resolve("orders.yxdb");
+        // each customer has four orders, spread through the file
+        try (var writer = new YxdbTestWriter(orders, YxdbTestWriter.field("Order", YxdbType.INT64),
+                YxdbTestWriter.field("CustomerId", YxdbType.INT32), YxdbTestWriter.field("Customer", YxdbType.V_WSTRING, 100),
+                YxdbTestWriter.field("Code", YxdbType.STRING, 8), YxdbTestWriter.field("Day", YxdbType.DATE),
+                YxdbTestWriter.field("Flag", YxdbType.BYTE), YxdbTestWriter.field("Amount", YxdbType.DOUBLE))) {
+            for (var order = 0; order < ROWS; order++) {
+                var customer = order % CUSTOMERS;
+                writer.setLong(0, order);
+                if (order % 11 == 0) {
+                    writer.setNull(1);
+                } else {
+                    writer.setLong(1, customer);
+                }
+                writer.setString(2, "customer é中 " + customer);
+                writer.setString(3, "C" + (order % 1000));
+                writer.setString(4, LocalDate.of(2020, 1, 1).plusDays(order % 900).toString());
+                writer.setByte(5, (byte) (order % 256));
+                writer.setDouble(6, order * 1.5);
+                writer.writeRecord();
+            }
+        }
+    }
+
+    private static List<Long> orders(YxdbReader reader) throws IOException {
+        var orders = new ArrayList<Long>();
+        try (reader) {
+            while (reader.next()) {
+                orders.add(reader.readLong("Order"));
+            }
+        }
+        return orders;
+    }
+
+    private static List<Long> expected(int customer) {
+        var orders = new ArrayList<Long>();
+        for (long order = customer; order < ROWS; order += CUSTOMERS) {
+            if (order % 11 != 0) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    @Test
+    public void LookupFindsEveryRecordWithTheKey() throws IOException {
+        var index = KeyIndex.build(orders.toString(), "CustomerId");
+        Assertions.assertEquals("CustomerId", index.fieldName());
+        Assertions.assertEquals(1, index.fieldIndex());
+        Assertions.assertEquals(ROWS - (ROWS + 10) / 11, index.size());
+
+        for (var customer : new int[]{0, 1, 123, 12345, CUSTOMERS - 1}) {
+            Assertions.assertEquals(expected(customer), orders(index.lookup(customer)), "customer " + customer);
+        }
+        Assertions.assertEquals(expected(77), orders(index.lookup(77L)));
+        Assertions.assertEquals(List.of(), orders(index.lookup(CUSTOMERS)));
+        Assertions.assertEquals(List.of(), orders(index.lookup(-5)));
+        Assertions.assertEquals(List.of(), orders(index.lookup(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void LookupDecompressesOnlyTheBlocksHoldingTheKey() throws IOException {
+        var index = KeyIndex.build(orders.toString(), "CustomerId");
+        try (var reader = index.lookup(4321)) {
+            reader.enableStats();
+            var count = 0;
+            while (reader.next()) {
+                Assertions.assertEquals(4321, reader.readLong("CustomerId"));
+                Assertions.assertEquals("customer é中 4321", reader.readString("Customer"));
+                count++;
+            }
+            Assertions.assertEquals(4, count);
+            Assertions.assertTrue(reader.stats().blocksDecompressed() <= 8, "decompressed " + reader.stats().blocksDecompressed());
+        }
+    }
+
+    @Test
+    public void LooksUpStringDateAndByteKeys() throws IOException {
+        var customers = KeyIndex.build(orders.toString(), "Customer");
+        Assertions.assertEquals(List.of(5L, 50005L, 100005L, 150005L), orders(customers.lookup("customer é中 5")));
+        Assertions.assertEquals(List.of(), orders(customers.lookup("customer 5")));
+
+        var codes = KeyIndex.build(orders.toString(), "Code");
+        Assertions.assertEquals(200, orders(codes.lookup(new StringBuilder("C42"))).size());
+        Assertions.assertEquals(List.of(), orders(codes.lookup("C1000")));
+
+        var days = KeyIndex.build(orders.toString(), "Day");
+        var found = orders(days.lookup(LocalDate.of(2020, 1, 3)));
+        Assertions.assertEquals(ROWS / 900 + 1, found.size());
+        for (var order : found) {
+            Assertions.assertEquals(2, order % 900);
+        }
+
+        var flags = KeyIndex.build(orders.toString(), "Flag");
+        Assertions.assertEquals(orders(flags.lookup((byte) -1)), orders(flags.lookup(-1)));
+        for (var order : orders(flags.lookup(-1))) {
+            Assertions.assertEquals(255, order % 256);
+        }
+        Assertions.assertEquals(List.of(), orders(flags.lookup(255)));
+    }
+
+    @Test
+    public void OpenMapsTheSavedIndex() throws IOException {
+        var built = KeyIndex.build(orders.toString(), "CustomerId");
+        var opened = KeyIndex.open(orders.toString());
+        Assertions.assertEquals(built.fieldName(), opened.fieldName());
+        Assertions.assertEquals(built.fieldIndex(), opened.fieldIndex());
+        Assertions.assertEquals(built.size(), opened.size());
+        Assertions.assertEquals(expected(999), orders(opened.lookup(999)));
+        Assertions.assertEquals(built.size(), KeyIndex.openOrBuild(orders.toString(), "CustomerId").size());
+    }
+
+    @Test
+    public void StaleIndexIsRejected() throws IOException {
+        var index = KeyIndex.build(orders.toString(), "CustomerId");
+        Files.setLastModifiedTime(orders, FileTime.fromMillis(Files.getLastModifiedTime(orders).toMillis() + 60000));
+
+        Assertions.assertThrows(IOException.class, () -> KeyIndex.open(orders.toString()));
+        Assertions.assertThrows(IOException.class, () -> index.lookup(1));
+
+        var rebuilt = KeyIndex.openOrBuild(orders.toString(), "CustomerId");
+        Assertions.assertEquals(expected(1), orders(rebuilt.lookup(1)));
+        Assertions.assertEquals("Order", KeyIndex.openOrBuild(orders.toString(), "Order").fieldName());
+        Assertions.assertEquals("Order", KeyIndex.open(orders.toString()).fieldName());
+    }
+
+    @Test
+    public void InvalidFieldsKeysAndFilesAreRejected() throws IOException {
+        Assertions.assertThrows(IOException.class, () -> KeyIndex.open(orders.toString()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> KeyIndex.build(orders.toString(), "Amount"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> KeyIndex.build(orders.toString(), "Missing"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> KeyIndex.build("src/test/resources/ampdata.yxdb", "x"));
+
+        var index = KeyIndex.build(orders.toString(), "CustomerId");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> index.lookup(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> index.lookup("1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> index.lookup(1.0));
+
+        var sidecar = KeyIndex.sidecarPath(orders);
+        var bytes = Files.readAllBytes(sidecar);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 99);
+        Files.write(sidecar, bytes);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> KeyIndex.open(orders.toString()));
+
+        Files.write(sidecar, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        Assertions.assertThrows(IllegalArgumentException.class, () -> KeyIndex.open(orders.toString()));
+    }
+}
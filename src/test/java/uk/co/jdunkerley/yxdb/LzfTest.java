@@ -23,6 +23,33 @@ public class LzfTest {
         Assertions.assertThrows(IllegalArgumentException.class, () -> lzf.decompress(2));
     }
 
+    @Test
+    public void LiteralRunPastTheEndOfTheInput() {
+        byte[] in = new byte[]{4, 1, 2};
+        byte[] out = new byte[5];
+        Lzf lzf = new Lzf(in, out);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> lzf.decompress(3));
+    }
+
+    @Test
+    public void BackReferenceWithoutOffsetByte() {
+        byte[] in = new byte[]{2, 1, 2, 3, 32};
+        byte[] out = new byte[10];
+        Lzf lzf = new Lzf(in, out);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> lzf.decompress(5));
+    }
+
+    @Test
+    public void BackReferenceBeforeTheStartOfTheOutput() {
+        byte[] in = new byte[]{2, 1, 2, 3, 32, 5};
+        byte[] out = new byte[10];
+        Lzf lzf = new Lzf(in, out);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> lzf.decompress(6));
+    }
+
     @Test
     public void SmallControlValuesDoSimpleCopies() {
         byte[] in = new byte[]{4, 1, 2, 3, 4, 5};
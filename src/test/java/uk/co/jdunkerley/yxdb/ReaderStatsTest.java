@@ -0,0 +1,163 @@
+package uk.co.jdunkerley.yxdb;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+public class ReaderStatsTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void TestStatsForCompressedFile() throws IOException {
+        var path = directory.resolve("compressed.yxdb");
+        new YxdbGenerator().rows(20000).compressibility(0.9).write(path);
+        var blocks = YxdbTestWriter.blockLengths(path);
+
+        try (var reader = new YxdbReader(path.toString())) {
+            reader.enableStats();
+            while (reader.next()) {
+                reader.read(0);
+            }
+
+            var stats = reader.stats();
+            Assertions.assertEquals(20000, stats.recordsRead());
+            Assertions.assertEquals(blocks.stream().filter(l -> l > 0).count(), stats.blocksDecompressed());
+            Assertions.assertEquals(blocks.stream().filter(l -> l < 0).count(), stats.uncompressedBlocks());
+            Assertions.assertEquals(blocks.stream().mapToLong(l -> 4 + (l & 0x7fffffff)).sum(), stats.compressedBytesRead());
+            Assertions.assertTrue(stats.decompressedBytes() > stats.compressedBytesRead());
+            Assertions.assertTrue(stats.compressionRatio() > 1);
+            Assertions.assertTrue(stats.ioNanos() > 0);
+            Assertions.assertTrue(stats.decompressNanos() > 0);
+            Assertions.assertTrue(stats.assemblyNanos() > 0);
+            Assertions.assertEquals(0, stats.recordBufferResizes());
+        }
+    }
+
+    @Test
+    public void TestStatsForUncompressedFile() throws IOException {
+        var path = directory.resolve("raw.yxdb");
+        new YxdbGenerator().rows(500).columns(YxdbGenerator.Column.BLOB).blobLengths(1000, 2000).compressibility(0).write(path);
+
+        try (var reader = new YxdbReader(path.toString())) {
+            reader.enableStats();
+            while (reader.next()) {
+            }
+
+            var stats = reader.stats();
+            Assertions.assertEquals(0, stats.blocksDecompressed());
+            Assertions.assertEquals(YxdbTestWriter.blockLengths(path).size(), stats.uncompressedBlocks());
+            Assertions.assertEquals(stats.compressedBytesRead() - 4 * stats.uncompressedBlocks(), stats.decompressedBytes());
+        }
+    }
+
+    @Test
+    public void TestStatsForAmpFile() throws IOException {
+        try (var reader = AmpFile.open("src/test/resources/ampdata.yxdb").reader()) {
+            reader.enableStats();
+            while (reader.next()) {
+            }
+
+            var stats = reader.stats();
+            Assertions.assertEquals(2020, stats.recordsRead());
+            Assertions.assertEquals(1, stats.blocksDecompressed());
+            Assertions.assertEquals(5 + 123076, stats.compressedBytesRead());
+            Assertions.assertEquals(171717, stats.decompressedBytes());
+        }
+    }
+
+    @Test
+    public void TestRecordBufferGrowth() throws IOException {
+        var path = directory.resolve("large.yxdb");
+        new YxdbGenerator().rows(4).columns(YxdbGenerator.Column.BLOB).blobLengths(1 << 20, 2 << 20).nullRatio(0).write(path);
+
+        var resizes = new ArrayList<Integer>();
+        try (var reader = new YxdbReader(path.toString())) {
+            reader.enableStats();
+            reader.setListener(new ReaderListener() {
+                @Override
+                public void recordBufferResized(int capacity) {
+                    resizes.add(capacity);
+                }
+            });
+            while (reader.next()) {
+            }
+
+            var stats = reader.stats();
+            Assertions.assertTrue(stats.recordBufferResizes() > 0);
+            Assertions.assertEquals(stats.recordBufferResizes(), resizes.size());
+            Assertions.assertEquals(resizes.get(resizes.size() - 1), stats.peakRecordBufferSize());
+            Assertions.assertTrue(stats.peakRecordLength() > 1 << 20);
+            Assertions.assertTrue(stats.peakRecordBufferSize() >= stats.peakRecordLength());
+        }
+    }
+
+    @Test
+    public void TestStatsMustBeEnabled() throws IOException {
+        try (var reader = new YxdbReader("src/test/resources/AllNormalFields.yxdb")) {
+            Assertions.assertThrows(IllegalStateException.class, reader::stats);
+            reader.enableStats();
+            Assertions.assertEquals(0, reader.stats().recordsRead());
+        }
+    }
+
+    @Test
+    public void TestListenerSeesEveryBlock() throws IOException {
+        var path = directory.resolve("blocks.yxdb");
+        new YxdbGenerator().rows(20000).write(path);
+        var blocks = YxdbTestWriter.blockLengths(path);
+
+        var positions = new ArrayList<Long>();
+        try (var reader = new YxdbReader(path.toString())) {
+            reader.setListener(new ReaderListener() {
+                @Override
+                public void blockRead(long position, int storedLength, int decompressedLength, boolean compressed, long ioNanos, long decompressNanos) {
+                    positions.add(position);
+                    Assertions.assertEquals(compressed, blocks.get(positions.size() - 1) > 0);
+                    Assertions.assertEquals(blocks.get(positions.size() - 1) & 0x7fffffff, storedLength);
+                }
+            });
+            while (reader.next()) {
+            }
+        }
+
+        Assertions.assertEquals(blocks.size(), positions.size());
+        var header = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        Assertions.assertEquals(YxdbReader.dataStart(header), positions.get(0));
+    }
+
+    @Test
+    public void TestFlightRecorderEvents() throws IOException {
+        var path = directory.resolve("jfr.yxdb");
+        new YxdbGenerator().rows(20000).write(path);
+        var blocks = YxdbTestWriter.blockLengths(path);
+
+        var recordingPath = directory.resolve("recording.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("uk.co.jdunkerley.yxdb.BlockRead");
+            recording.start();
+            try (var reader = new YxdbReader(path.toString())) {
+                while (reader.next()) {
+                }
+            }
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        var events = RecordingFile.readAllEvents(recordingPath).stream()
+                .filter(e -> e.getEventType().getName().equals("uk.co.jdunkerley.yxdb.BlockRead"))
+                .toList();
+        Assertions.assertEquals(blocks.size(), events.size());
+        Assertions.assertEquals(blocks.get(0) & 0x7fffffff, events.get(0).getInt("storedLength"));
+        Assertions.assertEquals(blocks.get(0) > 0, events.get(0).getBoolean("compressed"));
+    }
+}
@@ -0,0 +1,81 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SnappyTest {
+    @Test
+    public void LiteralOnly() {
+        byte[] in = new byte[]{5, 4 << 2, 1, 2, 3, 4, 5};
+        byte[] out = new byte[5];
+
+        Assertions.assertEquals(5, Snappy.uncompressedLength(in, 0, in.length));
+        Assertions.assertEquals(5, Snappy.decompress(in, 0, in.length, out));
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, out);
+    }
+
+    @Test
+    public void OverlappingCopyRepeatsOutput() {
+        // "abc" then a 9 byte copy from 3 bytes back
+        byte[] in = new byte[]{12, 2 << 2, 'a', 'b', 'c', (5 << 2) | 1, 3};
+        byte[] out = new byte[12];
+
+        Assertions.assertEquals(12, Snappy.decompress(in, 0, in.length, out));
+        Assertions.assertEquals("abcabcabcabc", new String(out));
+    }
+
+    @Test
+    public void TwoByteOffsetCopyAndOffsetInput() {
+        byte[] in = new byte[]{99, 99, 6, 1 << 2, 'x', 'y', (3 << 2) | 2, 2, 0};
+        byte[] out = new byte[6];
+
+        Assertions.assertEquals(6, Snappy.decompress(in, 2, in.length - 2, out));
+        Assertions.assertEquals("xyxyxy", new String(out));
+    }
+
+    @Test
+    public void LongLiteralLength() {
+        var in = new byte[3 + 200];
+        in[0] = (byte) 200;
+        in[1] = 1;
+        in[2] = (byte) (60 << 2);
+        in[3] = (byte) 199;
+        for (var i = 0; i < 199; i++) {
+            in[4 + i] = (byte) i;
+        }
+        var out = new byte[200];
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Snappy.decompress(in, 0, in.length, out));
+
+        var valid = new byte[4 + 200];
+        System.arraycopy(in, 0, valid, 0, 4);
+        for (var i = 0; i < 200; i++) {
+            valid[4 + i] = (byte) i;
+        }
+        Assertions.assertEquals(200, Snappy.decompress(valid, 0, valid.length, out));
+        Assertions.assertEquals((byte) 199, out[199]);
+    }
+
+    @Test
+    public void OutputArrayIsTooSmall() {
+        byte[] in = new byte[]{5, 4 << 2, 1, 2, 3, 4, 5};
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Snappy.decompress(in, 0, in.length, new byte[4]));
+    }
+
+    @Test
+    public void CorruptInputIsRejected() {
+        // copy before any output
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Snappy.decompress(new byte[]{4, (0 << 2) | 1, 1}, 0, 3, new byte[4]));
+        // literal longer than the input
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Snappy.decompress(new byte[]{5, 4 << 2, 1, 2}, 0, 4, new byte[5]));
+        // stated length longer than the data
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Snappy.decompress(new byte[]{6, 4 << 2, 1, 2, 3, 4, 5}, 0, 7, new byte[6]));
+        // unterminated length
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Snappy.uncompressedLength(new byte[]{(byte) 0x80, (byte) 0x80}, 0, 2));
+    }
+}
@@ -0,0 +1,127 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public class SpatialGeometryTest {
+    @Test
+    public void TestPoint() throws IOException {
+        var geometry = readGeometry("src/test/resources/point.yxdb");
+        Assertions.assertEquals(SpatialGeometry.Type.POINT, geometry.type());
+        Assertions.assertEquals(1, geometry.numParts());
+        Assertions.assertEquals(1, geometry.numPoints());
+        Assertions.assertEquals(-96.679688, geometry.x(0));
+        Assertions.assertEquals(37.230328, geometry.y(0));
+    }
+
+    @Test
+    public void TestPoints() throws IOException {
+        var geometry = readGeometry("src/test/resources/multi-point.yxdb");
+        Assertions.assertEquals(SpatialGeometry.Type.POINT, geometry.type());
+        Assertions.assertEquals(5, geometry.numPoints());
+        Assertions.assertEquals(0, geometry.partStart(0));
+        Assertions.assertEquals(5, geometry.partEnd(0));
+        Assertions.assertEquals(-85.957031, geometry.x(4));
+        Assertions.assertEquals(12.039321, geometry.y(4));
+    }
+
+    @Test
+    public void TestLines() throws IOException {
+        var geometry = readGeometry("src/test/resources/multi-line.yxdb");
+        Assertions.assertEquals(SpatialGeometry.Type.LINE, geometry.type());
+        Assertions.assertEquals(4, geometry.numParts());
+        Assertions.assertEquals(23, geometry.numPoints());
+        Assertions.assertEquals(5, geometry.partStart(1));
+        Assertions.assertEquals(11, geometry.partEnd(1));
+        Assertions.assertEquals(-108.984375, geometry.x(geometry.partStart(1)));
+        Assertions.assertEquals(43.197167, geometry.y(geometry.partStart(1)));
+        Assertions.assertEquals(-123.222656, geometry.x(22));
+    }
+
+    @Test
+    public void TestPolys() throws IOException {
+        var geometry = readGeometry("src/test/resources/multi-poly.yxdb");
+        Assertions.assertEquals(SpatialGeometry.Type.POLYGON, geometry.type());
+        Assertions.assertEquals(4, geometry.numParts());
+
+        var expectedSizes = new int[]{4, 6, 7, 9};
+        for (int part = 0; part < geometry.numParts(); part++) {
+            var start = geometry.partStart(part);
+            var end = geometry.partEnd(part);
+            Assertions.assertEquals(expectedSizes[part], end - start);
+            Assertions.assertEquals(geometry.x(start), geometry.x(end - 1));
+            Assertions.assertEquals(geometry.y(start), geometry.y(end - 1));
+        }
+    }
+
+    @Test
+    public void TestNullSpatial() throws IOException {
+        try (var reader = new YxdbReader("src/test/resources/null-spatial.yxdb")) {
+            Assertions.assertTrue(reader.next());
+            Assertions.assertNull(SpatialGeometry.of(reader.readBlob(1)));
+        }
+    }
+
+    @Test
+    public void TestOutOfRange() throws IOException {
+        var geometry = readGeometry("src/test/resources/line.yxdb");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> geometry.x(geometry.numPoints()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> geometry.partEnd(1));
+    }
+
+    @Test
+    public void TestInvalidObjectType() {
+        var data = new byte[]{1, 0, 0, 0, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34};
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialGeometry.of(data));
+    }
+
+    @Test
+    public void TestTruncatedBlobs() throws IOException {
+        var line = readGeometry("src/test/resources/line.yxdb").bytes();
+        var point = readGeometry("src/test/resources/point.yxdb").bytes();
+        for (var length : new int[]{20, 30, 39, 40, 47, line.length - 1}) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialGeometry.of(Arrays.copyOf(line, length)), "line " + length);
+        }
+        for (var length : new int[]{20, 36, 39, point.length - 1}) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialGeometry.of(Arrays.copyOf(point, length)), "point " + length);
+        }
+    }
+
+    @Test
+    public void TestCorruptCounts() throws IOException {
+        var point = readGeometry("src/test/resources/point.yxdb").bytes();
+        for (var count : new int[]{-1, 0x10000000, Integer.MAX_VALUE}) {
+            var corrupt = point.clone();
+            ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(36, count);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialGeometry.of(corrupt), "points " + count);
+        }
+
+        var poly = readGeometry("src/test/resources/multi-poly-holes.yxdb").bytes();
+        for (var count : new long[]{-1, 0x10000000L, 0x100000001L, Long.MAX_VALUE}) {
+            var corrupt = poly.clone();
+            ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putLong(40, count);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialGeometry.of(corrupt), "points " + count);
+        }
+        for (var count : new int[]{0, -1, 0x40000001, Integer.MAX_VALUE}) {
+            var corrupt = poly.clone();
+            ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(36, count);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialGeometry.of(corrupt), "parts " + count);
+        }
+
+        var corrupt = poly.clone();
+        ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(48, Integer.MAX_VALUE);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialGeometry.of(corrupt));
+    }
+
+    private static SpatialGeometry readGeometry(String path) throws IOException {
+        try (var reader = new YxdbReader(path)) {
+            Assertions.assertTrue(reader.next());
+            return SpatialGeometry.of(reader.readBlob(1));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SpatialIndexTest {
+    private static final int NUM_RECORDS = 70000;
+
+    @TempDir
+    Path directory;
+    private Path points;
+
+    @BeforeEach
+    public void CreateFiles() throws IOException {
+        points = directory.resolve("points.yxdb");
+
+        // a 100 wide grid of points, with every 50th spatial object null
+        try (var writer = new YxdbTestWriter(points,
+                YxdbTestWriter.field("RecordID", "Int32"),
+                YxdbTestWriter.field("Spatial", "SpatialObj"))) {
+            for (var i = 0; i < NUM_RECORDS; i++) {
+                writer.setLong(0, i);
+                if (i % 50 == 49) {
+                    writer.setNull(1);
+                } else {
+                    writer.setBlob(1, YxdbGenerator.point(i % 100, i / 100));
+                }
+                writer.writeRecord();
+            }
+        }
+    }
+
+    @Test
+    public void TestBuildAndSearch() throws IOException {
+        var index = SpatialIndex.build(points.toString(), "Spatial");
+        Assertions.assertEquals(1, index.fieldIndex());
+        Assertions.assertEquals("Spatial", index.fieldName());
+        Assertions.assertEquals(NUM_RECORDS - NUM_RECORDS / 50, index.size());
+        Assertions.assertTrue(Files.exists(SpatialIndex.sidecarPath(points)));
+
+        Assertions.assertArrayEquals(new long[]{2111, 2112, 2211, 2212}, index.search(10.5, 20.5, 12.5, 22.5));
+        Assertions.assertArrayEquals(new long[0], index.search(200, 200, 300, 300));
+        Assertions.assertArrayEquals(new long[]{0}, index.search(-1, -1, 0, 0));
+    }
+
+    @Test
+    public void TestQueryReadsMatchingRecords() throws IOException {
+        var index = SpatialIndex.build(points.toString(), 1);
+
+        var ids = new ArrayList<Long>();
+        try (var reader = index.query(10.5, 20.5, 12.5, 22.5)) {
+            Assertions.assertEquals(NUM_RECORDS, reader.numRecords());
+            while (reader.next()) {
+                ids.add(reader.readLong("RecordID"));
+                var box = Spatial.boundingBox(reader.readBlob("Spatial"));
+                Assertions.assertEquals(reader.readLong(0) % 100, box.minX());
+                Assertions.assertEquals(reader.readLong(0) / 100, box.minY());
+            }
+        }
+        Assertions.assertEquals(List.of(2111L, 2112L, 2211L, 2212L), ids);
+    }
+
+    @Test
+    public void TestQueryMatchesFullScan() throws IOException {
+        var index = SpatialIndex.build(points.toString(), "Spatial");
+
+        // spans the start of the second record block at record 65536
+        double minX = 30, minY = 640, maxX = 60.5, maxY = 670;
+        var expected = new ArrayList<Long>();
+        try (var reader = new YxdbReader(points.toString())) {
+            while (reader.next()) {
+                if (reader.intersectsBox(1, minX, minY, maxX, maxY)) {
+                    expected.add(reader.readLong(0));
+                }
+            }
+        }
+
+        var actual = new ArrayList<Long>();
+        try (var reader = index.query(minX, minY, maxX, maxY)) {
+            while (reader.next()) {
+                actual.add(reader.readLong(0));
+            }
+        }
+
+        Assertions.assertTrue(expected.contains(65536L));
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(expected.size(), index.search(minX, minY, maxX, maxY).length);
+    }
+
+    @Test
+    public void TestOpenExistingIndex() throws IOException {
+        var built = SpatialIndex.build(points.toString(), "Spatial");
+        var opened = SpatialIndex.open(points.toString());
+
+        Assertions.assertEquals(built.fieldIndex(), opened.fieldIndex());
+        Assertions.assertEquals(built.fieldName(), opened.fieldName());
+        Assertions.assertEquals(built.size(), opened.size());
+        Assertions.assertArrayEquals(built.search(0, 0, 50, 50), opened.search(0, 0, 50, 50));
+
+        var count = 0;
+        try (var reader = opened.query(5, 5, 5, 5)) {
+            while (reader.next()) {
+                Assertions.assertEquals(505, reader.readLong(0));
+                count++;
+            }
+        }
+        Assertions.assertEquals(1, count);
+    }
+
+    @Test
+    public void TestStaleIndexIsRejected() throws IOException {
+        var index = SpatialIndex.build(points.toString(), "Spatial");
+        Files.setLastModifiedTime(points, FileTime.fromMillis(Files.getLastModifiedTime(points).toMillis() + 60000));
+
+        Assertions.assertThrows(IOException.class, () -> SpatialIndex.open(points.toString()));
+        Assertions.assertThrows(IOException.class, () -> index.query(0, 0, 50, 50));
+
+        var rebuilt = SpatialIndex.openOrBuild(points.toString(), "Spatial");
+        Assertions.assertEquals(NUM_RECORDS - NUM_RECORDS / 50, rebuilt.size());
+        Assertions.assertEquals(rebuilt.size(), SpatialIndex.open(points.toString()).size());
+    }
+
+    @Test
+    public void TestMissingOrInvalidIndex() throws IOException {
+        Assertions.assertThrows(IOException.class, () -> SpatialIndex.open(points.toString()));
+
+        Files.write(SpatialIndex.sidecarPath(points), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialIndex.open(points.toString()));
+    }
+
+    @Test
+    public void TestNonSpatialField() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialIndex.build(points.toString(), "RecordID"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialIndex.build(points.toString(), 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SpatialIndex.build(points.toString(), "Missing"));
+    }
+
+    @Test
+    public void TestNullSpatialFile() throws IOException {
+        var path = directory.resolve("null-spatial.yxdb");
+        Files.copy(Path.of("src/test/resources/null-spatial.yxdb"), path, StandardCopyOption.REPLACE_EXISTING);
+
+        var index = SpatialIndex.build(path.toString(), "Spatial");
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertArrayEquals(new long[0], index.search(-180, -90, 180, 90));
+        try (var reader = index.query(-180, -90, 180, 90)) {
+            Assertions.assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void TestPolygonFile() throws IOException {
+        var path = directory.resolve("multi-poly.yxdb");
+        Files.copy(Path.of("src/test/resources/multi-poly.yxdb"), path, StandardCopyOption.REPLACE_EXISTING);
+
+        var index = SpatialIndex.build(path.toString(), "Spatial");
+        Assertions.assertEquals(1, index.size());
+
+        byte[] expected;
+        try (var reader = new YxdbReader(path.toString())) {
+            reader.next();
+            expected = reader.readBlob("Spatial");
+        }
+        var box = Spatial.boundingBox(expected);
+
+        try (var reader = index.query(box.minX(), box.minY(), box.minX(), box.minY())) {
+            Assertions.assertTrue(reader.next());
+            Assertions.assertArrayEquals(expected, reader.readBlob("Spatial"));
+            Assertions.assertFalse(reader.next());
+        }
+        Assertions.assertArrayEquals(new long[0], index.search(box.maxX() + 1, box.maxY() + 1, box.maxX() + 2, box.maxY() + 2));
+    }
+}
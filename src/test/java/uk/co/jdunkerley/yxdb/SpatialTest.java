@@ -4,6 +4,9 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class SpatialTest {
     @Test
@@ -74,6 +77,168 @@ public class SpatialTest {
         Assertions.assertThrows(IllegalArgumentException.class, () -> Spatial.toGeoJson(data));
     }
 
+    @Test
+    public void TestCorruptEndingPoints() throws IOException {
+        var poly = readSpatial("src/test/resources/multi-poly-holes.yxdb");
+        for (var endingPoint : new int[]{-1, Integer.MAX_VALUE}) {
+            var corrupt = poly.clone();
+            ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(48, endingPoint);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> Spatial.toGeoJson(corrupt), "ending point " + endingPoint);
+        }
+
+        var descending = poly.clone();
+        var buffer = ByteBuffer.wrap(descending).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(52, buffer.getInt(48) - 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Spatial.toGeoJson(descending));
+    }
+
+    @Test
+    public void TestBoundingBox() throws IOException {
+        try (var reader = new YxdbReader("src/test/resources/poly.yxdb")) {
+            Assertions.assertTrue(reader.next());
+            var box = Spatial.boundingBox(reader.readBlob(1));
+            Assertions.assertEquals(new Spatial.BoundingBox(-119.355469, 32.10119, -84.550781, 52.908902), box);
+            Assertions.assertTrue(box.intersects(-90, 50, -80, 60));
+            Assertions.assertFalse(box.intersects(0, 0, 10, 10));
+        }
+    }
+
+    @Test
+    public void TestBoundingBoxOfPoint() throws IOException {
+        try (var reader = new YxdbReader("src/test/resources/point.yxdb")) {
+            Assertions.assertTrue(reader.next());
+            var box = Spatial.boundingBox(reader.readBlob(1));
+            Assertions.assertEquals(new Spatial.BoundingBox(-96.679688, 37.230328, -96.679688, 37.230328), box);
+        }
+    }
+
+    @Test
+    public void TestNullBoundingBox() throws IOException {
+        Assertions.assertNull(Spatial.boundingBox(null));
+        Assertions.assertNull(Spatial.boundingBox(new byte[4]));
+    }
+
+    @Test
+    public void TestInvalidBoundingBox() {
+        var data = new byte[]{1, 0, 0, 0, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34, 34};
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Spatial.boundingBox(data));
+    }
+
+    @Test
+    public void TestPointWkt() throws IOException {
+        Assertions.assertEquals("POINT (-96.679688 37.230328)", Spatial.toWkt(readSpatial("src/test/resources/point.yxdb")));
+    }
+
+    @Test
+    public void TestPointsWkt() throws IOException {
+        var expected = "MULTIPOINT ((-113.730469 7.885147), (-113.378906 46.679594), (-100.019531 40.178873), (-88.769531 49.61071), (-85.957031 12.039321))";
+        Assertions.assertEquals(expected, Spatial.toWkt(readSpatial("src/test/resources/multi-point.yxdb")));
+    }
+
+    @Test
+    public void TestLineWkt() throws IOException {
+        var expected = "LINESTRING (-106.875 42.293564, -84.375 41.244772, -106.347656 36.738884, -85.253906 35.173808, -110.390625 32.546813, -89.472656 29.22889)";
+        Assertions.assertEquals(expected, Spatial.toWkt(readSpatial("src/test/resources/line.yxdb")));
+    }
+
+    @Test
+    public void TestLinesWkt() throws IOException {
+        var wkt = Spatial.toWkt(readSpatial("src/test/resources/multi-line.yxdb"));
+        Assertions.assertTrue(wkt.startsWith("MULTILINESTRING ((-92.285156 55.875311, -74.355469 53.225768, "));
+        Assertions.assertTrue(wkt.endsWith(", (-121.464844 45.213004, -109.6875 -0.175781), (-114.082031 57.231503, -107.753906 55.677584, -111.972656 51.399206, -120.9375 54.470038, -122.34375 58.995311, -115.136719 62.103883, -104.0625 59.085739, -101.777344 51.944265, -108.28125 47.517201, -123.222656 50.176898))"));
+    }
+
+    @Test
+    public void TestPolyWkt() throws IOException {
+        var expected = "POLYGON ((-84.550781 42.811522, -101.25 34.452218, -96.855469 43.068888, -114.082031 32.10119, -119.355469 42.55308, -104.589844 44.087585, -107.402344 47.279229, -91.230469 52.908902, -84.550781 42.811522))";
+        Assertions.assertEquals(expected, Spatial.toWkt(readSpatial("src/test/resources/poly.yxdb")));
+    }
+
+    @Test
+    public void TestPolyWithHoleWkt() throws IOException {
+        var expected = "MULTIPOLYGON (((-88.417969 41.508577, -89.121094 16.299051, -106.875 15.961329, -106.171875 42.811522, -88.417969 41.508577), (-78.75 47.872144, -114.257813 47.279229, -115.3125 8.581021, -80.15625 9.102097, -78.75 47.872144), (-68.203125 54.673831, -70.664063 1.406109, -124.628906 0.35156, -123.574219 53.014783, -68.203125 54.673831)))";
+        Assertions.assertEquals(expected, Spatial.toWkt(readSpatial("src/test/resources/multi-poly-holes.yxdb")));
+    }
+
+    @Test
+    public void TestNullSpatialWkt() throws IOException {
+        var blob = readSpatial("src/test/resources/null-spatial.yxdb");
+        Assertions.assertEquals("", Spatial.toWkt(blob));
+        Assertions.assertArrayEquals(new byte[0], Spatial.toWkb(blob));
+        Assertions.assertEquals(0, Spatial.toWkb(blob, ByteBuffer.allocate(0)));
+    }
+
+    @Test
+    public void TestPointWkb() throws IOException {
+        var wkb = ByteBuffer.wrap(Spatial.toWkb(readSpatial("src/test/resources/point.yxdb"))).order(ByteOrder.LITTLE_ENDIAN);
+        Assertions.assertEquals(21, wkb.capacity());
+        Assertions.assertEquals(1, wkb.get(0));
+        Assertions.assertEquals(1, wkb.getInt(1));
+        Assertions.assertEquals(-96.679688, wkb.getDouble(5));
+        Assertions.assertEquals(37.230328, wkb.getDouble(13));
+    }
+
+    @Test
+    public void TestPolyWithHoleWkb() throws IOException {
+        var blob = readSpatial("src/test/resources/multi-poly-holes.yxdb");
+        var wkb = ByteBuffer.wrap(Spatial.toWkb(blob)).order(ByteOrder.LITTLE_ENDIAN);
+        Assertions.assertEquals(Spatial.wkbLength(blob), wkb.capacity());
+        Assertions.assertEquals(6, wkb.getInt(1));
+        Assertions.assertEquals(1, wkb.getInt(5));
+        Assertions.assertEquals(3, wkb.getInt(10));
+        Assertions.assertEquals(3, wkb.getInt(14));
+
+        var at = 18;
+        var expectedFirst = new double[][]{{-88.417969, 41.508577}, {-78.75, 47.872144}, {-68.203125, 54.673831}};
+        for (var ring : expectedFirst) {
+            var points = wkb.getInt(at);
+            Assertions.assertEquals(5, points);
+            Assertions.assertEquals(ring[0], wkb.getDouble(at + 4));
+            Assertions.assertEquals(ring[1], wkb.getDouble(at + 12));
+            at += 4 + points * 16;
+        }
+        Assertions.assertEquals(wkb.capacity(), at);
+    }
+
+    @Test
+    public void TestPointsWkbIntoBuffer() throws IOException {
+        var blob = readSpatial("src/test/resources/multi-point.yxdb");
+        var output = ByteBuffer.allocate(200).order(ByteOrder.BIG_ENDIAN);
+        output.put((byte) 42);
+
+        var written = Spatial.toWkb(blob, output);
+        Assertions.assertEquals(9 + 5 * 21, written);
+        Assertions.assertEquals(1 + written, output.position());
+        Assertions.assertEquals(ByteOrder.BIG_ENDIAN, output.order());
+
+        var wkb = output.order(ByteOrder.LITTLE_ENDIAN);
+        Assertions.assertEquals(4, wkb.getInt(2));
+        Assertions.assertEquals(5, wkb.getInt(6));
+        Assertions.assertEquals(1, wkb.getInt(11));
+        Assertions.assertEquals(-113.730469, wkb.getDouble(15));
+    }
+
+    @Test
+    public void TestWkbBufferTooSmall() throws IOException {
+        var blob = readSpatial("src/test/resources/multi-poly.yxdb");
+        var output = ByteBuffer.allocate(Spatial.wkbLength(blob) - 1);
+        Assertions.assertThrows(BufferOverflowException.class, () -> Spatial.toWkb(blob, output));
+        Assertions.assertEquals(0, output.position());
+    }
+
+    @Test
+    public void TestWkbSmallerThanGeoJson() throws IOException {
+        var blob = readSpatial("src/test/resources/multi-poly.yxdb");
+        Assertions.assertTrue(Spatial.toWkb(blob).length < Spatial.toGeoJson(blob).length());
+    }
+
+    private static byte[] readSpatial(String path) throws IOException {
+        try (var reader = new YxdbReader(path)) {
+            Assertions.assertTrue(reader.next());
+            return reader.readBlob(1);
+        }
+    }
+
     private void TestSpatial(String path, String expected) throws IOException {
         expected = expected.replace(" ", "");
         try (var reader = new YxdbReader(path)) {
@@ -0,0 +1,184 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+public class YxdbAggregationTest {
+    @TempDir
+    Path directory;
+
+    private Path generate() throws IOException {
+        var path = directory.resolve("sales.yxdb");
+        new YxdbGenerator().rows(150000).compressibility(0.9)
+                .columns(YxdbGenerator.Column.V_STRING, YxdbGenerator.Column.INT32, YxdbGenerator.Column.DOUBLE, YxdbGenerator.Column.DECIMAL,
+                        YxdbGenerator.Column.BOOL, YxdbGenerator.Column.INT16, YxdbGenerator.Column.DATE)
+                .write(path);
+        return path;
+    }
+
+    // count, non-null count, long sum, double sum, decimal sum, int min, int max
+    private static HashMap<Object, Object[]> expected(Path path, int keyIndex) throws IOException {
+        var groups = new HashMap<Object, Object[]>();
+        try (var reader = new YxdbReader(path.toString())) {
+            while (reader.next()) {
+                var key = keyIndex < 0 ? null : reader.read(keyIndex);
+                var group = groups.computeIfAbsent(key, k -> new Object[]{0L, 0L, 0L, 0.0, BigDecimal.ZERO.setScale(6), null, null});
+                group[0] = (long) group[0] + 1;
+                var value = reader.readLong(1);
+                if (value != null) {
+                    group[1] = (long) group[1] + 1;
+                    group[2] = (long) group[2] + value;
+                    group[5] = group[5] == null ? value : Math.min((long) group[5], value);
+                    group[6] = group[6] == null ? value : Math.max((long) group[6], value);
+                }
+                var number = reader.readDouble(2);
+                if (number != null) {
+                    group[3] = (double) group[3] + number;
+                }
+                var decimal = reader.readDecimal(3);
+                if (decimal != null) {
+                    group[4] = ((BigDecimal) group[4]).add(decimal);
+                }
+            }
+        }
+        return groups;
+    }
+
+    private static void assertGroups(HashMap<Object, Object[]> expected, AggregateResult result) {
+        Assertions.assertEquals(expected.size(), result.numGroups());
+        for (var g = 0; g < result.numGroups(); g++) {
+            var group = expected.get(result.key(g));
+            Assertions.assertNotNull(group, "unexpected key " + result.key(g));
+            Assertions.assertEquals(group[0], result.get(g, "Count"));
+            Assertions.assertEquals(group[0], result.rows(g));
+            Assertions.assertEquals(group[1], result.get(g, "Count_INT32_1"));
+            Assertions.assertEquals((long) group[1] == 0 ? null : group[2], result.get(g, "Sum_INT32_1"));
+            Assertions.assertEquals(group[5], result.get(g, "Min_INT32_1"));
+            Assertions.assertEquals(group[6], result.get(g, "Max_INT32_1"));
+            if ((long) group[1] > 0) {
+                Assertions.assertEquals((double) (long) group[2] / (long) group[1], (Double) result.get(g, "Avg_INT32_1"), 1e-9);
+            }
+            var sum = (Double) result.get(g, "Sum_DOUBLE_2");
+            if (sum != null) {
+                Assertions.assertEquals((double) group[3], sum, Math.abs(sum) * 1e-9 + 1e-9);
+            }
+            var decimal = (BigDecimal) result.get(g, "Sum_DECIMAL_3");
+            if (decimal != null) {
+                Assertions.assertEquals(0, ((BigDecimal) group[4]).compareTo(decimal));
+            }
+        }
+    }
+
+    private static YxdbAggregation aggregation(Path path) {
+        return YxdbAggregation.of(path.toString())
+                .count()
+                .count("INT32_1").sum("INT32_1").min("INT32_1").max("INT32_1").avg("INT32_1")
+                .sum("DOUBLE_2")
+                .sum("DECIMAL_3");
+    }
+
+    @Test
+    public void AggregatesWithoutGrouping() throws IOException {
+        var path = generate();
+        var result = aggregation(path).threads(4).run();
+        Assertions.assertEquals(1, result.numGroups());
+        Assertions.assertNull(result.key(0));
+        Assertions.assertNull(result.keyName());
+        assertGroups(expected(path, -1), result);
+    }
+
+    @Test
+    public void GroupsByStringKeys() throws IOException {
+        var path = generate();
+        var result = aggregation(path).groupBy("V_STRING_0").threads(3).run();
+        Assertions.assertEquals("V_STRING_0", result.keyName());
+        assertGroups(expected(path, 0), result);
+    }
+
+    @Test
+    public void GroupsByBooleanNumericAndDateKeys() throws IOException {
+        var path = generate();
+        assertGroups(expected(path, 4), aggregation(path).groupBy("BOOL_4").run());
+        assertGroups(expected(path, 5), aggregation(path).groupBy("INT16_5").threads(1).run());
+        assertGroups(expected(path, 6), aggregation(path).groupBy("DATE_6").run());
+    }
+
+    @Test
+    public void AggregatesAmpFiles() throws IOException {
+        var result = YxdbAggregation.of("src/test/resources/ampdata.yxdb").count().sum("invoice_amount").run();
+        Assertions.assertEquals(2020L, result.get(0, 0));
+        var sum = 0.0;
+        try (var reader = AmpFile.open("src/test/resources/ampdata.yxdb").reader()) {
+            while (reader.next()) {
+                var value = reader.readDouble("invoice_amount");
+                sum += value == null ? 0 : value;
+            }
+        }
+        Assertions.assertEquals(sum, (Double) result.get(0, "Sum_invoice_amount"), Math.abs(sum) * 1e-9);
+    }
+
+    @Test
+    public void SumsTooLargeForALongAreExact() throws IOException {
+        var path = directory.resolve("large.yxdb");
+        var rows = 150000;
+        var sums = new BigInteger[]{BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO};
+        try (var writer = new YxdbTestWriter(path,
+                YxdbTestWriter.field("Key", YxdbType.INT32),
+                YxdbTestWriter.field("Value", YxdbType.INT64),
+                YxdbTestWriter.field("Amount", YxdbType.DECIMAL, 22, 2))) {
+            for (var r = 0; r < rows; r++) {
+                var key = r % 3;
+                var value = switch (key) {
+                    case 0 -> Long.MAX_VALUE - r;
+                    case 1 -> Long.MIN_VALUE + r;
+                    default -> r % 2 == 0 ? r : -r;
+                };
+                writer.setLong(0, key);
+                writer.setLong(1, value);
+                writer.setString(2, "90000000000000000.00");
+                writer.writeRecord();
+                sums[key] = sums[key].add(BigInteger.valueOf(value));
+            }
+        }
+
+        var amount = new BigDecimal("90000000000000000.00").multiply(BigDecimal.valueOf(rows));
+        var total = YxdbAggregation.of(path.toString()).sum("Value").avg("Value").sum("Amount").threads(4).run();
+        var sum = sums[0].add(sums[1]).add(sums[2]);
+        // the positive and negative overflows cancel out, so the total fits in a long again
+        Assertions.assertEquals(sum.longValueExact(), total.get(0, "Sum_Value"));
+        Assertions.assertEquals(new BigDecimal(sum).divide(BigDecimal.valueOf(rows), MathContext.DECIMAL64).doubleValue(), total.get(0, "Avg_Value"));
+        Assertions.assertEquals(amount, total.get(0, "Sum_Amount"));
+
+        var grouped = YxdbAggregation.of(path.toString()).groupBy("Key").sum("Value").avg("Value").threads(3).run();
+        Assertions.assertEquals(3, grouped.numGroups());
+        for (var g = 0; g < 3; g++) {
+            var key = (int) (long) (Long) grouped.key(g);
+            var expected = sums[key].bitLength() < 64 ? (Object) sums[key].longValueExact() : sums[key];
+            Assertions.assertEquals(expected, grouped.get(g, "Sum_Value"), "key " + key);
+            Assertions.assertEquals(new BigDecimal(sums[key]).divide(BigDecimal.valueOf(rows / 3), MathContext.DECIMAL64).doubleValue(),
+                    grouped.get(g, "Avg_Value"), "key " + key);
+        }
+    }
+
+    @Test
+    public void InvalidAggregationsAreRejected() throws IOException {
+        var path = generate();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbAggregation.of(path.toString()).run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbAggregation.of(path.toString()).sum("V_STRING_0").run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbAggregation.of(path.toString()).sum("missing").run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbAggregation.of(path.toString()).count().groupBy("DECIMAL_3").run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbAggregation.of(path.toString()).threads(0));
+
+        var result = aggregation(path).run();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> result.get(0, "Sum_missing"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> result.get(1, 0));
+    }
+}
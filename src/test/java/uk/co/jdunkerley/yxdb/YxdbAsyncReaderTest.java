@@ -0,0 +1,143 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+public class YxdbAsyncReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void ReadBlockDecodesBlocksInAnyOrder() throws Exception {
+        var path = directory.resolve("blocks.yxdb");
+        var generator = new YxdbGenerator().rows(150000).columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.DECIMAL);
+        generator.write(path);
+
+        try (var reader = YxdbAsyncReader.open(path.toString())) {
+            Assertions.assertEquals(150000, reader.numRecords());
+            Assertions.assertEquals(3, reader.blockCount());
+            Assertions.assertEquals(3, reader.fields().length);
+
+            var last = reader.readBlock(2);
+            var first = reader.readBlock(0);
+            assertBlock(generator, 2, last.get());
+            assertBlock(generator, 0, first.get());
+            assertBlock(generator, 1, reader.readBlock(1).get());
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> reader.readBlock(3));
+        }
+    }
+
+    private static void assertBlock(YxdbGenerator generator, int block, YxdbReader records) throws IOException {
+        var row = block * 65536L;
+        var expectedCount = Math.min(65536, 150000 - row);
+        Assertions.assertEquals(expectedCount, records.numRecords());
+        while (records.next()) {
+            var expected = generator.row(row++);
+            Assertions.assertEquals(expected[0], records.readLong(0));
+            Assertions.assertEquals(expected[1], records.readString(1));
+            Assertions.assertEquals(expected[2], records.readDecimal(2));
+        }
+        Assertions.assertEquals(block * 65536L + expectedCount, row);
+    }
+
+    @Test
+    public void ForEachBlockVisitsBlocksInOrder() throws Exception {
+        var path = directory.resolve("order.yxdb");
+        new YxdbGenerator().rows(200000).columns(YxdbGenerator.Column.INT64).write(path);
+
+        var pool = Executors.newFixedThreadPool(2);
+        try (var reader = YxdbAsyncReader.open(path.toString()).decodeOn(pool)) {
+            var blocks = new ArrayList<Integer>();
+            var records = reader.forEachBlock(2, (block, batch) -> {
+                blocks.add(block);
+                Assertions.assertTrue(Thread.currentThread().getName().startsWith("pool-"));
+            }).get();
+
+            Assertions.assertEquals(200000L, records);
+            Assertions.assertEquals(List.of(0, 1, 2, 3), blocks);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void ConsumerErrorsCompleteTheFutureExceptionally() throws IOException {
+        try (var reader = YxdbAsyncReader.open("src/test/resources/TutorialData.yxdb")) {
+            var future = reader.forEachBlock(1, (block, batch) -> {
+                throw new IOException("stop");
+            });
+            var ex = Assertions.assertThrows(ExecutionException.class, future::get);
+            Assertions.assertTrue(ex.getCause() instanceof IOException);
+            Assertions.assertEquals("stop", ex.getCause().getMessage());
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> reader.forEachBlock(0, (block, batch) -> { }));
+        }
+    }
+
+    @Test
+    public void AmpFilesReadAsynchronously() throws Exception {
+        try (var reader = YxdbAsyncReader.open("src/test/resources/ampdata.yxdb")) {
+            var count = new long[1];
+            var records = reader.forEachBlock(4, (block, batch) -> {
+                while (batch.next()) {
+                    Assertions.assertNotNull(batch.readString("EIN"));
+                    Assertions.assertNotNull(batch.readDouble("invoice_amount"));
+                    count[0]++;
+                }
+            }).get();
+            Assertions.assertEquals(2020L, records);
+            Assertions.assertEquals(2020L, count[0]);
+        }
+    }
+
+    @Test
+    public void OpenAsyncReportsInvalidFiles() {
+        var missing = Assertions.assertThrows(ExecutionException.class, () -> YxdbAsyncReader.openAsync("src/test/resources/missing.yxdb").get());
+        Assertions.assertTrue(missing.getCause() instanceof IOException);
+
+        var invalid = Assertions.assertThrows(ExecutionException.class, () -> YxdbAsyncReader.openAsync("src/test/resources/invalid.txt").get());
+        Assertions.assertTrue(invalid.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void ManyFilesScanConcurrently() throws Exception {
+        var scans = new ArrayList<CompletableFuture<Long>>();
+        var readers = new ArrayList<YxdbAsyncReader>();
+        try {
+            for (var i = 0; i < 200; i++) {
+                scans.add(YxdbAsyncReader.openAsync("src/test/resources/TutorialData.yxdb").thenCompose(reader -> {
+                    synchronized (readers) {
+                        readers.add(reader);
+                    }
+                    return reader.forEachBlock(1, (block, batch) -> {
+                        while (batch.next()) {
+                            batch.readString("Prefix");
+                        }
+                    });
+                }));
+            }
+
+            long expected;
+            try (var reader = new YxdbReader("src/test/resources/TutorialData.yxdb")) {
+                expected = reader.numRecords();
+            }
+            for (var scan : scans) {
+                Assertions.assertEquals(expected, scan.get());
+            }
+        } finally {
+            for (var reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class YxdbDatasetTest {
+    private static final YxdbGenerator.Column[] COLUMNS = {
+            YxdbGenerator.Column.INT64, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.DOUBLE
+    };
+
+    @TempDir
+    Path directory;
+
+    private List<YxdbGenerator> writeShards(long... rows) throws IOException {
+        var generators = new ArrayList<YxdbGenerator>();
+        for (var i = 0; i < rows.length; i++) {
+            var generator = new YxdbGenerator().rows(rows[i]).seed(i).nullRatio(0.1).columns(COLUMNS);
+            generator.write(directory.resolve("part-" + i + ".yxdb"));
+            generators.add(generator);
+        }
+        return generators;
+    }
+
+    @Test
+    public void OrderedReaderReturnsEveryShardInOrder() throws IOException {
+        var rows = new long[]{70000, 10, 0, 2000};
+        var generators = writeShards(rows);
+        Files.writeString(directory.resolve("notes.txt"), "not a shard");
+
+        try (var dataset = YxdbDataset.open(directory.toString()).threads(4)) {
+            Assertions.assertEquals(4, dataset.shards().size());
+            Assertions.assertEquals(72010, dataset.numRecords());
+            Assertions.assertEquals("INT64_0", dataset.fields()[0].name());
+
+            try (var reader = dataset.reader()) {
+                Assertions.assertEquals(72010, reader.numRecords());
+                for (var shard = 0; shard < rows.length; shard++) {
+                    for (var row = 0L; row < rows[shard]; row++) {
+                        Assertions.assertTrue(reader.next());
+                        var expected = generators.get(shard).row(row);
+                        Assertions.assertEquals(expected[0], reader.readLong(0));
+                        Assertions.assertEquals(expected[1], reader.readString("V_WSTRING_1"));
+                        Assertions.assertEquals(expected[2], reader.readDouble(2));
+                    }
+                }
+                Assertions.assertFalse(reader.next());
+            }
+        }
+    }
+
+    @Test
+    public void UnorderedReaderReturnsTheSameRecords() throws IOException {
+        var rows = new long[]{70000, 70000, 500};
+        var generators = writeShards(rows);
+        var expected = new HashMap<String, Integer>();
+        for (var shard = 0; shard < rows.length; shard++) {
+            for (var row = 0L; row < rows[shard]; row++) {
+                expected.merge(key(generators.get(shard).row(row)), 1, Integer::sum);
+            }
+        }
+
+        try (var dataset = YxdbDataset.open(directory.resolve("part-*.yxdb").toString()).ordered(false).threads(3);
+             var reader = dataset.reader()) {
+            var actual = new HashMap<String, Integer>();
+            while (reader.next()) {
+                actual.merge(key(new Object[]{reader.readLong(0), reader.readString(1), reader.readDouble(2)}), 1, Integer::sum);
+            }
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+
+    private static String key(Object[] row) {
+        return row[0] + "|" + row[1] + "|" + row[2];
+    }
+
+    @Test
+    public void ForEachBatchPassesEachBlockWithItsShard() throws IOException {
+        writeShards(70000, 100);
+
+        try (var dataset = YxdbDataset.open(List.of(directory.resolve("part-1.yxdb"), directory.resolve("part-0.yxdb")))) {
+            var shards = new ArrayList<String>();
+            var counts = new ArrayList<Long>();
+            var records = dataset.forEachBatch((shard, batch) -> {
+                shards.add(shard.getFileName().toString());
+                var count = 0L;
+                while (batch.next()) {
+                    count++;
+                }
+                counts.add(count);
+                Assertions.assertEquals(count, batch.numRecords());
+            });
+
+            Assertions.assertEquals(70100, records);
+            Assertions.assertEquals(List.of("part-1.yxdb", "part-0.yxdb", "part-0.yxdb"), shards);
+            Assertions.assertEquals(List.of(100L, 65536L, 4464L), counts);
+        }
+    }
+
+    @Test
+    public void ClosingTheReaderEarlyLeavesTheDatasetUsable() throws IOException {
+        writeShards(70000, 70000);
+
+        try (var dataset = YxdbDataset.open(directory.toString()).threads(2)) {
+            try (var reader = dataset.reader()) {
+                Assertions.assertTrue(reader.next());
+            }
+            try (var reader = dataset.reader()) {
+                var count = 0L;
+                while (reader.next()) {
+                    count++;
+                }
+                Assertions.assertEquals(140000, count);
+            }
+        }
+    }
+
+    @Test
+    public void SingleThreadReadsOnTheCallingThread() throws IOException {
+        writeShards(100, 200);
+
+        try (var dataset = YxdbDataset.open(directory.toString()).threads(1)) {
+            Assertions.assertEquals(300, dataset.forEachBatch((shard, batch) -> {
+                Assertions.assertFalse(Thread.currentThread().getName().startsWith("yxdb-dataset-worker"));
+                while (batch.next()) {
+                    batch.readString(1);
+                }
+            }));
+        }
+    }
+
+    @Test
+    public void MismatchedSchemasThrow() throws IOException {
+        writeShards(10);
+        new YxdbGenerator().rows(10).columns(YxdbGenerator.Column.INT64, YxdbGenerator.Column.V_STRING, YxdbGenerator.Column.DOUBLE)
+                .write(directory.resolve("part-9.yxdb"));
+
+        var ex = Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDataset.open(directory.toString()));
+        Assertions.assertTrue(ex.getMessage().contains("part-9.yxdb"), ex.getMessage());
+        Assertions.assertTrue(ex.getMessage().contains("Field 1"), ex.getMessage());
+    }
+
+    @Test
+    public void InvalidShardsAndMissingPathsThrow() throws IOException {
+        writeShards(10);
+        Files.writeString(directory.resolve("part-5.yxdb"), "not a yxdb file");
+
+        var ex = Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDataset.open(directory.toString()));
+        Assertions.assertTrue(ex.getMessage().contains("part-5.yxdb"), ex.getMessage());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDataset.open(directory.resolve("missing").toString()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDataset.open(directory.resolve("other-*.yxdb").toString()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDataset.open(List.of()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDataset.open(directory.resolve("part-0.yxdb").toString()).threads(0));
+    }
+
+    @Test
+    public void GlobsCanSpanDirectories() throws IOException {
+        writeShards(5, 6);
+        var nested = Files.createDirectory(directory.resolve("nested"));
+        new YxdbGenerator().rows(7).columns(COLUMNS).write(nested.resolve("part-2.yxdb"));
+
+        try (var dataset = YxdbDataset.open(directory + "/*.yxdb")) {
+            Assertions.assertEquals(11, dataset.numRecords());
+        }
+        try (var dataset = YxdbDataset.open(directory + "/**.yxdb")) {
+            Assertions.assertEquals(18, dataset.numRecords());
+            Assertions.assertEquals(3, dataset.shards().size());
+        }
+    }
+
+    @Test
+    public void AmpFilesFormADataset() throws IOException {
+        var source = Path.of("src/test/resources/ampdata.yxdb");
+        Files.copy(source, directory.resolve("a.yxdb"));
+        Files.copy(source, directory.resolve("b.yxdb"));
+
+        try (var dataset = YxdbDataset.open(directory.toString()); var reader = dataset.reader()) {
+            Assertions.assertEquals(4040, dataset.numRecords());
+            var count = 0;
+            while (reader.next()) {
+                Assertions.assertNotNull(reader.readString("EIN"));
+                count++;
+            }
+            Assertions.assertEquals(4040, count);
+        }
+
+        writeShards(5);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDataset.open(directory.toString()));
+    }
+}
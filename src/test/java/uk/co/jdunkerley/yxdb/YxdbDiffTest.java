@@ -0,0 +1,136 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+public class YxdbDiffTest {
+    private static final int ROWS = 150000;
+
+    @TempDir
+    Path directory;
+
+    // IDs 0 to ROWS - 1 in order, plus a record with a null ID
+    private Path before() throws IOException {
+        var path = directory.resolve("before.yxdb");
+        try (var writer = new YxdbTestWriter(path, YxdbTestWriter.field("ID", YxdbType.INT32),
+                YxdbTestWriter.field("Name", YxdbType.V_STRING, 100), YxdbTestWriter.field("Amount", YxdbType.DOUBLE))) {
+            for (var id = 0; id < ROWS; id++) {
+                write(writer, id, id * 1.5);
+            }
+            writer.setNull(0);
+            writer.setString(1, "nobody");
+            writer.setNull(2);
+            writer.writeRecord();
+        }
+        return path;
+    }
+
+    // The same records stored with other types and in reverse order, without IDs 5 and 17, with changed amounts for
+    // IDs 3, 400 and ROWS - 1, and with two new IDs.
+    private Path after() throws IOException {
+        var path = directory.resolve("after.yxdb");
+        try (var writer = new YxdbTestWriter(path, YxdbTestWriter.field("ID", YxdbType.INT64),
+                YxdbTestWriter.field("Name", YxdbType.WSTRING, 20), YxdbTestWriter.field("Amount", YxdbType.DOUBLE))) {
+            writer.setNull(0);
+            writer.setString(1, "nobody");
+            writer.setNull(2);
+            writer.writeRecord();
+            for (var id = ROWS + 1; id >= 0; id--) {
+                if (id == 5 || id == 17) {
+                    continue;
+                }
+                var changed = id == 3 || id == 400 || id == ROWS - 1;
+                write(writer, id, id * 1.5 + (changed ? 1 : 0));
+            }
+        }
+        return path;
+    }
+
+    private static void write(YxdbTestWriter writer, long id, double amount) throws IOException {
+        writer.setLong(0, id);
+        writer.setString(1, "name " + id);
+        writer.setDouble(2, amount);
+        writer.writeRecord();
+    }
+
+    @Test
+    public void XxHash64MatchesReferenceValues() {
+        var inputs = List.of("", "a", "abc", "Nobody inspects the spammish repetition");
+        var expected = List.of(0xEF46DB3751D8E999L, 0xD24EC4F1A98C6E5BL, 0x44BC2CF5AD770999L, 0xFBCEA83C8A378BF1L);
+        for (var i = 0; i < inputs.size(); i++) {
+            var bytes = inputs.get(i).getBytes(StandardCharsets.US_ASCII);
+            var buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            Assertions.assertEquals(expected.get(i), RowHash.xxh64(buffer, 0, bytes.length, 0), inputs.get(i));
+        }
+    }
+
+    @Test
+    public void RowHashDependsOnlyOnValues() throws IOException {
+        var hashes = new HashMap<Long, Long>();
+        try (var reader = new YxdbReader(before().toString())) {
+            while (reader.next()) {
+                hashes.put(reader.readLong(0), reader.rowHash());
+            }
+        }
+
+        var matched = 0;
+        try (var reader = new YxdbReader(after().toString())) {
+            while (reader.next()) {
+                var id = reader.readLong(0);
+                if (!hashes.containsKey(id)) {
+                    continue;
+                }
+                var changed = id != null && (id == 3 || id == 400 || id == ROWS - 1);
+                Assertions.assertEquals(!changed, hashes.get(id) == reader.rowHash(), "ID " + id);
+                matched++;
+            }
+        }
+        Assertions.assertEquals(ROWS - 1, matched);
+    }
+
+    @Test
+    public void ReportsAddedRemovedAndChangedKeys() throws IOException {
+        var before = before().toString();
+        var after = after().toString();
+        for (var threads : new int[]{1, 4}) {
+            var diff = YxdbDiff.of(before, after).key("ID").threads(threads).run();
+            Assertions.assertFalse(diff.identical());
+            Assertions.assertEquals(List.of((long) ROWS + 1, (long) ROWS), diff.added());
+            Assertions.assertEquals(List.of(5L, 17L), diff.removed());
+            Assertions.assertEquals(List.of((long) ROWS - 1, 400L, 3L), diff.changed());
+            Assertions.assertEquals(ROWS - 5 + 1, diff.unchanged());
+        }
+    }
+
+    @Test
+    public void ComparesRecordsSharingAKeyAsAGroup() throws IOException {
+        var before = before();
+        var diff = YxdbDiff.of(before.toString(), before.toString()).key("Amount").run();
+        Assertions.assertTrue(diff.identical());
+
+        var swapped = YxdbDiff.of(before.toString(), after().toString()).key("Name").run();
+        Assertions.assertEquals(Set.of("name 150000", "name 150001"), Set.copyOf(swapped.added()));
+        Assertions.assertEquals(Set.of("name 5", "name 17"), Set.copyOf(swapped.removed()));
+    }
+
+    @Test
+    public void InvalidComparisonsAreRejected() throws IOException {
+        var path = directory.resolve("blobs.yxdb");
+        new YxdbGenerator().rows(10).columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.BLOB).write(path);
+        var file = path.toString();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDiff.of(file, file).run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDiff.of(file, file).key("BLOB_1").run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDiff.of(file, file).key("missing").run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbDiff.of(file, file).threads(0));
+    }
+}
@@ -0,0 +1,114 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class YxdbGeneratorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void TestAllColumnsRoundTrip() throws IOException {
+        var path = directory.resolve("all.yxdb");
+        var generator = new YxdbGenerator().rows(5000).nullRatio(0.2).stringLengths(0, 40);
+        generator.write(path);
+
+        var columns = generator.columns();
+        try (var reader = new YxdbReader(path.toString())) {
+            Assertions.assertEquals(5000, reader.numRecords());
+            Assertions.assertEquals(columns.length, reader.fields().length);
+            Assertions.assertEquals("INT32_3", reader.fields()[3].name());
+
+            var row = 0L;
+            while (reader.next()) {
+                var expected = generator.row(row);
+                for (var i = 0; i < columns.length; i++) {
+                    var message = "row " + row + " column " + i;
+                    switch (columns[i]) {
+                        case BLOB, SPATIAL -> Assertions.assertArrayEquals((byte[]) expected[i], reader.readBlob(i), message);
+                        default -> Assertions.assertEquals(expected[i], reader.read(i), message);
+                    }
+                }
+                row++;
+            }
+            Assertions.assertEquals(5000, row);
+        }
+    }
+
+    @Test
+    public void TestSameSettingsProduceSameFile() throws IOException {
+        var first = directory.resolve("first.yxdb");
+        var second = directory.resolve("second.yxdb");
+        var third = directory.resolve("third.yxdb");
+        new YxdbGenerator().rows(2000).write(first);
+        new YxdbGenerator().rows(2000).write(second);
+        new YxdbGenerator().rows(2000).seed(7).write(third);
+
+        Assertions.assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        Assertions.assertFalse(Arrays.equals(Files.readAllBytes(first), Files.readAllBytes(third)));
+    }
+
+    @Test
+    public void TestIncompressibleBlocksAreStoredRaw() throws IOException {
+        var path = directory.resolve("random.yxdb");
+        var generator = new YxdbGenerator()
+                .rows(1000)
+                .columns(YxdbGenerator.Column.INT64, YxdbGenerator.Column.BLOB)
+                .blobLengths(500, 1500)
+                .nullRatio(0)
+                .compressibility(0);
+        generator.write(path);
+
+        var blocks = YxdbTestWriter.blockLengths(path);
+        Assertions.assertTrue(blocks.size() > 1);
+        for (var length : blocks) {
+            Assertions.assertTrue(length < 0, "expected every block to be stored uncompressed");
+        }
+        assertMatches(generator, path);
+
+        var compressible = directory.resolve("repetitive.yxdb");
+        generator.compressibility(1).write(compressible);
+        for (var length : YxdbTestWriter.blockLengths(compressible)) {
+            Assertions.assertTrue(length > 0, "expected every block to be compressed");
+        }
+        assertMatches(generator, compressible);
+    }
+
+    @Test
+    public void TestLargeVariableRecords() throws IOException {
+        var path = directory.resolve("large.yxdb");
+        var generator = new YxdbGenerator()
+                .rows(6)
+                .columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.BLOB, YxdbGenerator.Column.V_WSTRING)
+                .blobLengths(1 << 20, 3 << 20)
+                .stringLengths(100000, 200000)
+                .nullRatio(0);
+        generator.write(path);
+
+        assertMatches(generator, path);
+    }
+
+    private static void assertMatches(YxdbGenerator generator, Path path) throws IOException {
+        var columns = generator.columns();
+        try (var reader = new YxdbReader(path.toString())) {
+            var row = 0L;
+            while (reader.next()) {
+                var expected = generator.row(row++);
+                for (var i = 0; i < columns.length; i++) {
+                    if (columns[i] == YxdbGenerator.Column.BLOB) {
+                        Assertions.assertArrayEquals((byte[]) expected[i], reader.readBlob(i));
+                    } else {
+                        Assertions.assertEquals(expected[i], reader.read(i));
+                    }
+                }
+            }
+            Assertions.assertEquals(reader.numRecords(), row);
+        }
+    }
+}
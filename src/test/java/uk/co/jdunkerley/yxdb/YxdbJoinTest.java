@@ -0,0 +1,151 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+public class YxdbJoinTest {
+    @TempDir
+    Path directory;
+
+    private Path generate(String name, long rows, long seed, YxdbGenerator.Column... columns) throws IOException {
+        var path = directory.resolve(name);
+        new YxdbGenerator().rows(rows).seed(seed).compressibility(0.9).columns(columns).write(path);
+        return path;
+    }
+
+    // every value of every record, with blobs as text so rows can be compared
+    private static List<List<Object>> rows(YxdbReader reader) throws IOException {
+        var rows = new ArrayList<List<Object>>();
+        try (reader) {
+            var count = reader.fields().length;
+            while (reader.next()) {
+                var row = new ArrayList<>();
+                for (var i = 0; i < count; i++) {
+                    var value = reader.read(i);
+                    row.add(value instanceof byte[] bytes ? Arrays.toString(bytes) : value);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static List<List<Object>> expected(Path left, int leftKey, Path right, int rightKey) throws IOException {
+        var byKey = new HashMap<Object, List<List<Object>>>();
+        for (var row : rows(new YxdbReader(right.toString()))) {
+            var key = row.get(rightKey);
+            if (key != null) {
+                byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+            }
+        }
+
+        var joined = new ArrayList<List<Object>>();
+        for (var row : rows(new YxdbReader(left.toString()))) {
+            for (var match : byKey.getOrDefault(row.get(leftKey), List.of())) {
+                var result = new ArrayList<>(row);
+                result.addAll(match);
+                joined.add(result);
+            }
+        }
+        return joined;
+    }
+
+    @Test
+    public void JoinsInMemoryInProbeOrder() throws IOException {
+        var fact = generate("fact.yxdb", 50000, 1, YxdbGenerator.Column.INT64, YxdbGenerator.Column.V_STRING,
+                YxdbGenerator.Column.DOUBLE, YxdbGenerator.Column.BLOB);
+        var dimension = generate("dimension.yxdb", 500, 2, YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_WSTRING,
+                YxdbGenerator.Column.DATE, YxdbGenerator.Column.V_STRING);
+        var expected = expected(fact, 0, dimension, 0);
+        Assertions.assertFalse(expected.isEmpty());
+
+        for (var threads : new int[]{1, 4}) {
+            var reader = YxdbJoin.of(fact.toString(), dimension.toString()).on("INT64_0", "INT32_0").threads(threads).run();
+            Assertions.assertEquals(-1, reader.numRecords());
+            Assertions.assertEquals(8, reader.fields().length);
+            Assertions.assertEquals("V_STRING_3", reader.fields()[7].name());
+            Assertions.assertEquals(expected, rows(reader));
+        }
+    }
+
+    @Test
+    public void PartitionsWhenTheBuildSideExceedsTheBudget() throws IOException {
+        var left = generate("left.yxdb", 60000, 3, YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_STRING, YxdbGenerator.Column.INT16);
+        var right = generate("right.yxdb", 40000, 4, YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.DOUBLE);
+        Comparator<List<Object>> order = Comparator.comparing(Object::toString);
+        var expected = expected(left, 0, right, 0);
+        expected.sort(order);
+
+        var spills = directory.resolve("spills");
+        Files.createDirectory(spills);
+        var reader = YxdbJoin.of(left.toString(), right.toString()).on("INT32_0").memory(1 << 20).tempDirectory(spills).run();
+        try (var files = Files.list(spills)) {
+            Assertions.assertTrue(files.count() > 0);
+        }
+        var actual = rows(reader);
+        actual.sort(order);
+        Assertions.assertEquals(expected, actual);
+        try (var files = Files.list(spills)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void RenamesDuplicateFieldNames() throws IOException {
+        var path = generate("self.yxdb", 1000, 5, YxdbGenerator.Column.INT16, YxdbGenerator.Column.V_STRING);
+        var reader = YxdbJoin.of(path.toString(), path.toString()).on("INT16_0").run();
+        var names = Arrays.stream(reader.fields()).map(YxdbField::name).toList();
+        Assertions.assertEquals(List.of("INT16_0", "V_STRING_1", "Right_INT16_0", "Right_V_STRING_1"), names);
+        Assertions.assertEquals(expected(path, 0, path, 0), rows(reader));
+    }
+
+    @Test
+    public void JoinsAmpFiles() throws IOException {
+        var path = Path.of("src/test/resources/ampdata.yxdb");
+        var left = new ArrayList<Object[]>();
+        try (var reader = AmpFile.open(path).reader()) {
+            while (reader.next()) {
+                left.add(new Object[]{reader.readString("EIN"), reader.readDouble("invoice_amount")});
+            }
+        }
+        var expected = new ArrayList<List<Object>>();
+        for (var x : left) {
+            for (var y : left) {
+                if (x[0] != null && x[0].equals(y[0])) {
+                    expected.add(Arrays.asList(x[0], x[1], y[1]));
+                }
+            }
+        }
+        Assertions.assertFalse(expected.isEmpty());
+
+        var actual = new ArrayList<List<Object>>();
+        try (var reader = YxdbJoin.of(path.toString(), path.toString()).on("EIN").run()) {
+            while (reader.next()) {
+                actual.add(Arrays.asList(reader.readString("EIN"), reader.readDouble("invoice_amount"), reader.readDouble("Right_invoice_amount")));
+            }
+        }
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void InvalidJoinsAreRejected() throws IOException {
+        var path = generate("types.yxdb", 10, 6, YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_STRING, YxdbGenerator.Column.BLOB);
+        var file = path.toString();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbJoin.of(file, file).run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbJoin.of(file, file).on("BLOB_2").run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbJoin.of(file, file).on("INT32_0", "V_STRING_1").run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbJoin.of(file, file).on("missing").run());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbJoin.of(file, file).memory(1024));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbJoin.of(file, file).threads(0));
+    }
+}
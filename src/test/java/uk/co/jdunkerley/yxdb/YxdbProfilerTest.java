@@ -0,0 +1,149 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.HashSet;
+
+public class YxdbProfilerTest {
+    @TempDir
+    Path directory;
+
+    private Path generate() throws IOException {
+        var path = directory.resolve("sales.yxdb");
+        new YxdbGenerator().rows(150000).stringLengths(0, 40).blobLengths(0, 100)
+                .columns(YxdbGenerator.Column.BOOL, YxdbGenerator.Column.BYTE, YxdbGenerator.Column.INT32,
+                        YxdbGenerator.Column.INT64, YxdbGenerator.Column.FLOAT, YxdbGenerator.Column.DOUBLE,
+                        YxdbGenerator.Column.DECIMAL, YxdbGenerator.Column.STRING, YxdbGenerator.Column.WSTRING,
+                        YxdbGenerator.Column.V_STRING, YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.DATE,
+                        YxdbGenerator.Column.TIME, YxdbGenerator.Column.DATETIME, YxdbGenerator.Column.BLOB)
+                .write(path);
+        return path;
+    }
+
+    // Checks the profile of each field against values read one by one.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void assertMatchesScan(String path, ProfileReport report) throws IOException {
+        try (var reader = AmpFile.isAmp(path) ? AmpFile.open(path).reader() : new YxdbReader(path)) {
+            var fields = reader.fields();
+            var nulls = new long[fields.length];
+            var mins = new Comparable[fields.length];
+            var maxes = new Comparable[fields.length];
+            var maxLengths = new int[fields.length];
+            var distinct = new HashSet[fields.length];
+            for (var i = 0; i < fields.length; i++) {
+                distinct[i] = new HashSet<>();
+                maxLengths[i] = -1;
+            }
+            while (reader.next()) {
+                for (var i = 0; i < fields.length; i++) {
+                    var value = reader.read(i);
+                    if (value == null) {
+                        nulls[i]++;
+                        continue;
+                    }
+                    if (value instanceof byte[] bytes) {
+                        distinct[i].add(ByteBuffer.wrap(bytes));
+                        maxLengths[i] = Math.max(maxLengths[i], bytes.length);
+                        continue;
+                    }
+                    distinct[i].add(value instanceof java.math.BigDecimal decimal ? decimal.stripTrailingZeros() : value);
+                    if (value instanceof String text) {
+                        maxLengths[i] = Math.max(maxLengths[i], text.length());
+                    }
+                    var comparable = (Comparable) value;
+                    if (mins[i] == null || comparable.compareTo(mins[i]) < 0) {
+                        mins[i] = comparable;
+                    }
+                    if (maxes[i] == null || comparable.compareTo(maxes[i]) > 0) {
+                        maxes[i] = comparable;
+                    }
+                }
+            }
+
+            Assertions.assertEquals(reader.numRecords(), report.records());
+            for (var i = 0; i < fields.length; i++) {
+                var column = report.columns().get(i);
+                var name = fields[i].name();
+                Assertions.assertEquals(name, column.field().name());
+                Assertions.assertEquals(nulls[i], column.nulls(), name);
+                Assertions.assertEquals(reader.numRecords() - nulls[i], column.values(), name);
+                Assertions.assertEquals(maxLengths[i], column.maxLength(), name);
+                if (mins[i] != null) {
+                    Assertions.assertEquals(0, mins[i].compareTo(column.min()), name + " min " + column.min());
+                    Assertions.assertEquals(0, maxes[i].compareTo(column.max()), name + " max " + column.max());
+                }
+                var exact = distinct[i].size();
+                Assertions.assertTrue(Math.abs(column.distinct() - exact) <= Math.max(2, exact * 0.05), name + " distinct " + column.distinct() + " vs " + exact);
+            }
+        }
+    }
+
+    @Test
+    public void ProfileMatchesAFullScan() throws IOException {
+        var path = generate().toString();
+        for (var threads : new int[]{1, 4}) {
+            var report = YxdbProfiler.of(path).threads(threads).run();
+            Assertions.assertFalse(report.sampled());
+            Assertions.assertEquals(3, report.blocks());
+            assertMatchesScan(path, report);
+        }
+    }
+
+    @Test
+    public void ProfileMatchesAFullScanOfResourceFiles() throws IOException {
+        for (var file : new String[]{"AllNormalFields.yxdb", "TutorialData.yxdb", "ampdata.yxdb", "TestNewYxdb.yxdb"}) {
+            var path = "src/test/resources/" + file;
+            assertMatchesScan(path, YxdbProfiler.of(path).run());
+        }
+    }
+
+    @Test
+    public void LengthHistogramUsesPowerOfTwoBuckets() throws IOException {
+        var path = directory.resolve("lengths.yxdb");
+        try (var writer = new YxdbTestWriter(path, YxdbTestWriter.field("Text", YxdbType.V_WSTRING, 100))) {
+            for (var text : new String[]{"", "a", "ab", "abc", "abcd", "abcdefgh"}) {
+                writer.setString(0, text);
+                writer.writeRecord();
+            }
+            writer.setNull(0);
+            writer.writeRecord();
+        }
+
+        var column = YxdbProfiler.of(path.toString()).run().column("Text");
+        var histogram = column.lengthHistogram();
+        Assertions.assertEquals(32, histogram.length);
+        Assertions.assertEquals(1, histogram[0]);
+        Assertions.assertEquals(1, histogram[1]);
+        Assertions.assertEquals(2, histogram[2]);
+        Assertions.assertEquals(1, histogram[3]);
+        Assertions.assertEquals(1, histogram[4]);
+        Assertions.assertEquals(1, column.nulls());
+        Assertions.assertEquals(6, column.distinct());
+        Assertions.assertEquals("", column.min());
+        Assertions.assertEquals("abcdefgh", column.max());
+    }
+
+    @Test
+    public void SampleReadsSomeBlocks() throws IOException {
+        var path = generate().toString();
+        var report = YxdbProfiler.of(path).sample(0.5).run();
+        Assertions.assertTrue(report.sampled());
+        Assertions.assertEquals(2, report.blocksRead());
+        Assertions.assertEquals(2 * 65536, report.records());
+        Assertions.assertEquals(150000, report.totalRecords());
+        Assertions.assertEquals(report.records(), report.column("INT32_2").nulls() + report.column("INT32_2").values());
+    }
+
+    @Test
+    public void InvalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbProfiler.of("x.yxdb").threads(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbProfiler.of("x.yxdb").sample(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbProfiler.of("x.yxdb").sample(1.5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbProfiler.of("src/test/resources/AllNormalFields.yxdb").run().column("missing"));
+    }
+}
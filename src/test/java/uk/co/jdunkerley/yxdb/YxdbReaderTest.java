@@ -4,11 +4,18 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 
 public class YxdbReaderTest {
     @Test
@@ -221,6 +228,25 @@ public class YxdbReaderTest {
         }
     }
 
+    @Test
+    public void TestIntersectsBox() throws IOException {
+        try (var yxdb = new YxdbReader("src/test/resources/multi-poly.yxdb")) {
+            Assertions.assertTrue(yxdb.next());
+            Assertions.assertTrue(yxdb.intersectsBox(1, -100, 30, -90, 40));
+            Assertions.assertTrue(yxdb.intersectsBox("Spatial", -70, 56, -60, 60));
+            Assertions.assertFalse(yxdb.intersectsBox(1, 0, 0, 10, 10));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> yxdb.intersectsBox(0, 0, 0, 10, 10));
+        }
+    }
+
+    @Test
+    public void TestIntersectsBoxNullSpatial() throws IOException {
+        try (var yxdb = new YxdbReader("src/test/resources/null-spatial.yxdb")) {
+            Assertions.assertTrue(yxdb.next());
+            Assertions.assertFalse(yxdb.intersectsBox(1, -180, -90, 180, 90));
+        }
+    }
+
     @Test
     public void TestInvalidFile() {
         try (var ignored = new YxdbReader("src/test/resources/invalid.txt")) {
@@ -242,12 +268,162 @@ public class YxdbReaderTest {
     }
 
     @Test
-    public void TestE2File() {
-        try (var ignored = new YxdbReader("src/test/resources/ampdata.yxdb")) {
-            Assertions.fail("Expected exception not thrown");
-        } catch (Exception ex) {
-            var msg = ex.getMessage();
-            Assertions.assertEquals("Reading AMP YXDB files is not supported.", msg);
+    public void TestE2File() throws IOException {
+        try (var yxdb = AmpFile.open("src/test/resources/ampdata.yxdb").reader()) {
+            Assertions.assertEquals(2020, yxdb.numRecords());
+            Assertions.assertEquals(6, yxdb.fields().length);
+            Assertions.assertEquals("EIN", yxdb.fields()[0].name());
+            Assertions.assertEquals(YxdbType.V_STRING, yxdb.fields()[0].yxdbType());
+            Assertions.assertEquals(YxdbType.DOUBLE, yxdb.fields()[1].yxdbType());
+
+            Assertions.assertTrue(yxdb.next());
+            Assertions.assertEquals("731304999", yxdb.readString("EIN"));
+            Assertions.assertEquals(8562.35, yxdb.readDouble("invoice_amount"));
+            Assertions.assertEquals("Jensen Ltd", yxdb.readString(2));
+            Assertions.assertEquals("Nathaniel Thompson", yxdb.read(3));
+            Assertions.assertEquals("05 October, 2023", yxdb.readString("invoice_date"));
+            Assertions.assertEquals("149-996-9413", yxdb.readString("phone_number"));
+
+            var count = 1;
+            while (yxdb.next()) {
+                Assertions.assertNotNull(yxdb.readString(0));
+                Assertions.assertNotNull(yxdb.readDouble(1));
+                count++;
+            }
+            Assertions.assertEquals(2020, count);
+        }
+    }
+
+    @Test
+    public void TestE2FileIsRejectedByTheConstructors() {
+        var path = "src/test/resources/ampdata.yxdb";
+        var fromPath = Assertions.assertThrows(IllegalArgumentException.class, () -> new YxdbReader(path));
+        Assertions.assertEquals("Reading AMP YXDB files is not supported.", fromPath.getMessage());
+        var fromStream = Assertions.assertThrows(IllegalArgumentException.class, () -> new YxdbReader(new BufferedInputStream(new FileInputStream(path))));
+        Assertions.assertEquals("Reading AMP YXDB files is not supported.", fromStream.getMessage());
+    }
+
+    @Test
+    public void TestE2StringsAreTranscoded() throws IOException {
+        var row = new ByteArrayOutputStream();
+        var text = "é中\uD83D\uDE00a".getBytes(StandardCharsets.UTF_8);
+        row.write(0x80 | text.length);
+        row.writeBytes(text);
+        row.writeBytes(new byte[]{0x0c, 0, 0, 0, 0, 0, 0, (byte) 0xf0, 0x3f});
+        row.write(0x80 | 100);
+        row.writeBytes("x".repeat(100).getBytes(StandardCharsets.UTF_8));
+        // a stray continuation byte, then a truncated three byte sequence
+        row.writeBytes(new byte[]{(byte) 0x83, (byte) 0xbf, (byte) 0xe4, (byte) 0xb8});
+        // an overlong encoding of '/', then an encoded surrogate
+        row.writeBytes(new byte[]{(byte) 0x85, (byte) 0xc0, (byte) 0xaf, (byte) 0xed, (byte) 0xa0, (byte) 0x80});
+        row.write(0x80);
+
+        var path = ampFile(row.toByteArray());
+        try (var yxdb = AmpFile.open(path).reader()) {
+            Assertions.assertTrue(yxdb.next());
+            Assertions.assertEquals("é中\uD83D\uDE00a", yxdb.readString(0));
+            Assertions.assertEquals(1.0, yxdb.readDouble(1));
+            Assertions.assertEquals("x".repeat(100), yxdb.readString(2));
+            Assertions.assertEquals("\uFFFD\uFFFD\uFFFD", yxdb.readString(3));
+            Assertions.assertEquals("\uFFFD".repeat(5), yxdb.readString(4));
+            Assertions.assertEquals("", yxdb.readString(5));
+            Assertions.assertFalse(yxdb.next());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void TestE2UnsupportedValuesAreRejected() throws IOException {
+        // a null or other undecoded value in the Double field
+        var path = ampFile(new byte[]{(byte) 0x81, '1', 0x0c, 0, 0, 0, 0, 0, 0, (byte) 0xf0, 0x3f, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80},
+                new byte[]{(byte) 0x81, '2', 0x00, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80});
+        try (var yxdb = AmpFile.open(path).reader()) {
+            Assertions.assertTrue(yxdb.next());
+            Assertions.assertEquals("1", yxdb.readString("EIN"));
+            Assertions.assertEquals(1.0, yxdb.readDouble("invoice_amount"));
+            var ex = Assertions.assertThrows(IllegalArgumentException.class, yxdb::next);
+            Assertions.assertEquals("AMP value tag 0x00 in field invoice_amount is not supported - only strings of up to 127 bytes and non-null doubles can be read.", ex.getMessage());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    // Writes an AMP file with the header and fields of ampdata.yxdb and the given rows in one block.
+    private static Path ampFile(byte[]... rows) throws IOException {
+        var source = Files.readAllBytes(Path.of("src/test/resources/ampdata.yxdb"));
+        var dataStart = 100 + ByteBuffer.wrap(source, 96, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+
+        var block = new ByteArrayOutputStream();
+        block.writeBytes(new byte[8]);
+        for (var row : rows) {
+            block.writeBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(row.length).array());
+            block.writeBytes(row);
+        }
+        var decompressed = block.toByteArray();
+        ByteBuffer.wrap(decompressed).order(ByteOrder.LITTLE_ENDIAN).putInt(decompressed.length - 8).putInt(rows.length);
+
+        // Snappy stream of literals of up to 60 bytes
+        var snappy = new ByteArrayOutputStream();
+        snappy.write(0x0a);
+        for (var length = decompressed.length; ; length >>>= 7) {
+            if (length < 0x80) {
+                snappy.write(length);
+                break;
+            }
+            snappy.write((length & 0x7f) | 0x80);
+        }
+        for (var offset = 0; offset < decompressed.length; offset += 60) {
+            var length = Math.min(60, decompressed.length - offset);
+            snappy.write((length - 1) << 2);
+            snappy.write(decompressed, offset, length);
+        }
+        var compressed = snappy.toByteArray();
+
+        var footer = Arrays.copyOfRange(source, source.length - 32, source.length);
+        ByteBuffer.wrap(footer).order(ByteOrder.LITTLE_ENDIAN).putLong(20, rows.length);
+
+        var file = new ByteArrayOutputStream();
+        file.write(source, 0, dataStart);
+        file.write(0x02);
+        file.writeBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(compressed.length).array());
+        file.writeBytes(compressed);
+        file.writeBytes(new byte[5]);
+        file.writeBytes(footer);
+
+        var path = Files.createTempFile("yxdb-amp", ".yxdb");
+        Files.write(path, file.toByteArray());
+        return path;
+    }
+
+    @Test
+    public void PrimitiveAccessorsReturnTheNullValue() throws IOException {
+        var path = Files.createTempFile("yxdb-primitives", ".yxdb");
+        try {
+            var generator = new YxdbGenerator()
+                    .rows(2000)
+                    .nullRatio(0.3)
+                    .columns(YxdbGenerator.Column.INT16, YxdbGenerator.Column.INT64, YxdbGenerator.Column.FLOAT, YxdbGenerator.Column.V_STRING);
+            generator.write(path);
+
+            try (var yxdb = new YxdbReader(path.toString())) {
+                var row = 0L;
+                while (yxdb.next()) {
+                    var expected = generator.row(row++);
+                    for (var i = 0; i < expected.length; i++) {
+                        Assertions.assertEquals(expected[i] == null, yxdb.isNull(i));
+                    }
+                    Assertions.assertEquals(expected[0] == null ? -1L : expected[0], yxdb.readLong(0, -1));
+                    Assertions.assertEquals(expected[1] == null ? -1L : expected[1], yxdb.readLong("INT64_1", -1));
+                    Assertions.assertEquals(expected[2] == null ? Double.NaN : expected[2], yxdb.readDouble(2, Double.NaN));
+                    Assertions.assertEquals(expected[3] == null, yxdb.isNull("V_STRING_3"));
+                }
+                Assertions.assertEquals(2000, row);
+                Assertions.assertThrows(IllegalArgumentException.class, () -> yxdb.readLong(3, 0));
+                Assertions.assertThrows(IllegalArgumentException.class, () -> yxdb.readDouble(0, 0));
+            }
+        } finally {
+            Files.delete(path);
         }
     }
 }
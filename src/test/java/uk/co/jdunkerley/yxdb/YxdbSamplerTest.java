@@ -0,0 +1,148 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class YxdbSamplerTest {
+    private static final int ROWS = 300000;
+
+    @TempDir
+    Path directory;
+
+    // IDs 0 to ROWS - 1 in order, so five record blocks
+    private String generate() throws IOException {
+        var path = directory.resolve("events.yxdb");
+        try (var writer = new YxdbTestWriter(path, YxdbTestWriter.field("ID", YxdbType.INT64),
+                YxdbTestWriter.field("Name", YxdbType.V_STRING, 100))) {
+            for (var id = 0; id < ROWS; id++) {
+                writer.setLong(0, id);
+                writer.setString(1, "name " + id);
+                writer.writeRecord();
+            }
+        }
+        return path.toString();
+    }
+
+    // The IDs of the sampled records, checking each record is intact and that they come in file order.
+    private static List<Long> ids(YxdbReader reader) throws IOException {
+        var ids = new ArrayList<Long>();
+        try (reader) {
+            while (reader.next()) {
+                var id = reader.readLong("ID");
+                Assertions.assertEquals("name " + id, reader.readString("Name"));
+                if (!ids.isEmpty()) {
+                    Assertions.assertTrue(id > ids.get(ids.size() - 1));
+                }
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static int blocksOf(List<Long> ids) {
+        var blocks = new HashSet<Long>();
+        for (var id : ids) {
+            blocks.add(id / YxdbFile.RECORDS_PER_BLOCK);
+        }
+        return blocks.size();
+    }
+
+    @Test
+    public void FractionReadsOnlyTheChosenBlocks() throws IOException {
+        var path = generate();
+        var whole = ids(YxdbSampler.of(path).fraction(0.4).seed(1).open());
+        Assertions.assertEquals(2, blocksOf(whole));
+        var expected = 0;
+        for (var block : new HashSet<>(whole.stream().map(id -> id / YxdbFile.RECORDS_PER_BLOCK).toList())) {
+            expected += (int) Math.min(YxdbFile.RECORDS_PER_BLOCK, ROWS - block * YxdbFile.RECORDS_PER_BLOCK);
+        }
+        Assertions.assertEquals(expected, whole.size());
+
+        var small = ids(YxdbSampler.of(path).fraction(0.01).seed(1).open());
+        Assertions.assertEquals(1, blocksOf(small));
+        Assertions.assertTrue(small.size() > 500 && small.size() < 6000, "sampled " + small.size());
+    }
+
+    @Test
+    public void SameSeedGivesTheSameSample() throws IOException {
+        var path = generate();
+        var first = ids(YxdbSampler.of(path).fraction(0.01).seed(7).open());
+        var second = ids(YxdbSampler.of(path).fraction(0.01).seed(7).open());
+        var other = ids(YxdbSampler.of(path).fraction(0.01).seed(8).open());
+        Assertions.assertEquals(first, second);
+        Assertions.assertNotEquals(first, other);
+        Assertions.assertEquals(ids(YxdbSampler.of(path).rows(100).seed(7).open()), ids(YxdbSampler.of(path).rows(100).seed(7).threads(1).open()));
+    }
+
+    @Test
+    public void RowsSamplesAnExactNumberOfRecords() throws IOException {
+        var path = generate();
+        try (var reader = YxdbSampler.of(path).rows(1000).seed(3).open()) {
+            Assertions.assertEquals(1000, reader.numRecords());
+        }
+        var sample = ids(YxdbSampler.of(path).rows(1000).seed(3).open());
+        Assertions.assertEquals(1000, sample.size());
+        Assertions.assertEquals(1, blocksOf(sample));
+
+        var spanning = ids(YxdbSampler.of(path).rows(100000).seed(3).open());
+        Assertions.assertEquals(100000, spanning.size());
+        Assertions.assertEquals(2, blocksOf(spanning));
+
+        Assertions.assertEquals(ROWS, ids(YxdbSampler.of(path).rows(ROWS * 2L).open()).size());
+        Assertions.assertEquals(0, ids(YxdbSampler.of(path).rows(0).open()).size());
+    }
+
+    @Test
+    public void SamplesAmpFiles() throws IOException {
+        var path = "src/test/resources/ampdata.yxdb";
+        var all = new ArrayList<String>();
+        try (var reader = AmpFile.open(path).reader()) {
+            while (reader.next()) {
+                all.add(row(reader));
+            }
+        }
+
+        try (var reader = YxdbSampler.of(path).rows(5).seed(11).open()) {
+            var count = 0;
+            while (reader.next()) {
+                Assertions.assertTrue(all.contains(row(reader)));
+                count++;
+            }
+            Assertions.assertEquals(Math.min(5, all.size()), count);
+        }
+        try (var reader = YxdbSampler.of(path).fraction(1).open()) {
+            var sampled = new ArrayList<String>();
+            while (reader.next()) {
+                sampled.add(row(reader));
+            }
+            Assertions.assertEquals(all, sampled);
+        }
+    }
+
+    private static String row(YxdbReader reader) {
+        var values = new ArrayList<String>();
+        for (var i = 0; i < reader.fields().length; i++) {
+            var value = reader.read(i);
+            values.add(value instanceof byte[] bytes ? Arrays.toString(bytes) : String.valueOf(value));
+        }
+        return values.toString();
+    }
+
+    @Test
+    public void InvalidSamplesAreRejected() {
+        var path = "src/test/resources/AllNormalFields.yxdb";
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSampler.of(path).open());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSampler.of(path).fraction(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSampler.of(path).fraction(1.5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSampler.of(path).rows(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSampler.of(path).threads(0));
+    }
+}
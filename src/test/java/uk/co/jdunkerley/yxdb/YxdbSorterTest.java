@@ -0,0 +1,136 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public class YxdbSorterTest {
+    private static final int COLUMNS = 6;
+
+    @TempDir
+    Path directory;
+
+    private Path generate() throws IOException {
+        var path = directory.resolve("sales.yxdb");
+        new YxdbGenerator().rows(150000).compressibility(0.9).stringLengths(10, 40)
+                .columns(YxdbGenerator.Column.V_STRING, YxdbGenerator.Column.INT32, YxdbGenerator.Column.DOUBLE,
+                        YxdbGenerator.Column.DATE, YxdbGenerator.Column.INT16, YxdbGenerator.Column.DATETIME)
+                .write(path);
+        return path;
+    }
+
+    private static List<Object[]> rows(YxdbReader reader) throws IOException {
+        var rows = new ArrayList<Object[]>();
+        try (reader) {
+            while (reader.next()) {
+                var row = new Object[COLUMNS];
+                for (var i = 0; i < COLUMNS; i++) {
+                    row[i] = reader.read(i);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Object[]> by(int column, boolean descending) {
+        Comparator<Comparable> values = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        Comparator<Comparable> nulls = descending ? Comparator.nullsLast(values) : Comparator.nullsFirst(values);
+        return (x, y) -> nulls.compare((Comparable) x[column], (Comparable) y[column]);
+    }
+
+    private static void assertRows(List<Object[]> expected, List<Object[]> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (var i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(Arrays.asList(expected.get(i)), Arrays.asList(actual.get(i)));
+        }
+    }
+
+    @Test
+    public void SortsInMemoryByEachType() throws IOException {
+        var path = generate();
+        var original = rows(new YxdbReader(path.toString()));
+        String[] names = {"V_STRING_0", "INT32_1", "DOUBLE_2", "DATE_3", "INT16_4", "DATETIME_5"};
+        for (var column = 0; column < COLUMNS; column++) {
+            var expected = new ArrayList<>(original);
+            expected.sort(by(column, false));
+            assertRows(expected, rows(YxdbSorter.of(path.toString()).by(names[column]).sort()));
+        }
+    }
+
+    @Test
+    public void SpillsAndMergesRunsWithinTheMemoryBudget() throws IOException {
+        var path = generate();
+        var expected = rows(new YxdbReader(path.toString()));
+        expected.sort(by(4, false).thenComparing(by(0, true)));
+
+        var spills = directory.resolve("spills");
+        Files.createDirectory(spills);
+        for (var threads : new int[]{1, 4}) {
+            var reader = YxdbSorter.of(path.toString()).by("INT16_4").byDescending("V_STRING_0")
+                    .memory(1 << 20).threads(threads).tempDirectory(spills).sort();
+            try (var files = Files.list(spills)) {
+                Assertions.assertTrue(files.count() > 1);
+            }
+            assertRows(expected, rows(reader));
+            try (var files = Files.list(spills)) {
+                Assertions.assertEquals(0, files.count());
+            }
+        }
+    }
+
+    @Test
+    public void SortsToAFile() throws IOException {
+        var path = generate();
+        var expected = rows(new YxdbReader(path.toString()));
+        expected.sort(by(2, true));
+
+        var output = directory.resolve("sorted.yxdb");
+        var written = YxdbSorter.of(path.toString()).byDescending("DOUBLE_2").memory(4 << 20).sortTo(output.toString());
+        Assertions.assertEquals(expected.size(), written);
+        var reader = new YxdbReader(output.toString());
+        Assertions.assertEquals(expected.size(), reader.numRecords());
+        assertRows(expected, rows(reader));
+    }
+
+    @Test
+    public void SortsAmpFiles() throws IOException {
+        var file = "src/test/resources/ampdata.yxdb";
+        var expected = new ArrayList<Object[]>();
+        try (var reader = AmpFile.open(file).reader()) {
+            while (reader.next()) {
+                expected.add(new Object[]{reader.readDouble("invoice_amount"), reader.readString("EIN")});
+            }
+        }
+        expected.sort(by(0, false));
+
+        var actual = new ArrayList<Object[]>();
+        try (var reader = YxdbSorter.of(file).by("invoice_amount").sort()) {
+            while (reader.next()) {
+                actual.add(new Object[]{reader.readDouble("invoice_amount"), reader.readString("EIN")});
+            }
+        }
+        assertRows(expected, actual);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSorter.of(file).by("invoice_amount").sortTo(directory.resolve("amp.yxdb").toString()));
+    }
+
+    @Test
+    public void InvalidSortsAreRejected() throws IOException {
+        var path = directory.resolve("blobs.yxdb");
+        new YxdbGenerator().rows(10).columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.BLOB).write(path);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSorter.of(path.toString()).sort());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSorter.of(path.toString()).by("BLOB_1").sort());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSorter.of(path.toString()).by("missing").sort());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSorter.of(path.toString()).memory(1024));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbSorter.of(path.toString()).threads(0));
+    }
+}
@@ -0,0 +1,121 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+public class YxdbTableTest {
+    @TempDir
+    Path directory;
+
+    private static void assertMatchesReader(String path, YxdbTable table) throws IOException {
+        try (var reader = AmpFile.isAmp(path) ? AmpFile.open(path).reader() : new YxdbReader(path)) {
+            Assertions.assertEquals(reader.numRecords(), table.numRows());
+            Assertions.assertEquals(reader.fields().length, table.fields().length);
+            var row = 0;
+            while (reader.next()) {
+                for (var column = 0; column < table.fields().length; column++) {
+                    Assertions.assertEquals(reader.isNull(column), table.isNull(column, row));
+                    var expected = reader.read(column);
+                    if (reader.isNull(column)) {
+                        Assertions.assertNull(table.get(column, row));
+                    } else if (expected instanceof byte[] bytes) {
+                        Assertions.assertArrayEquals(bytes, (byte[]) table.get(column, row));
+                    } else {
+                        Assertions.assertEquals(expected, table.get(column, row));
+                    }
+                }
+                row++;
+            }
+            Assertions.assertEquals(table.numRows(), row);
+        }
+    }
+
+    @Test
+    public void LoadsEveryTypeInParallel() throws IOException {
+        var path = directory.resolve("types.yxdb");
+        new YxdbGenerator().rows(150000).write(path);
+
+        var table = YxdbTable.load(path.toString(), 4);
+        assertMatchesReader(path.toString(), table);
+        Assertions.assertEquals(Files.size(path), table.fileBytes());
+        Assertions.assertTrue(table.memoryBytes() > 0);
+    }
+
+    @Test
+    public void SingleThreadedLoadGivesTheSameTable() throws IOException {
+        var path = directory.resolve("single.yxdb");
+        new YxdbGenerator().rows(70000).columns(YxdbGenerator.Column.V_WSTRING, YxdbGenerator.Column.DATETIME).write(path);
+
+        var parallel = YxdbTable.load(path.toString(), 3);
+        var single = YxdbTable.load(path.toString(), 1);
+        Assertions.assertEquals(parallel.numRows(), single.numRows());
+        Assertions.assertArrayEquals(parallel.dictionary(0), single.dictionary(0));
+        for (var row = 0; row < single.numRows(); row++) {
+            Assertions.assertEquals(parallel.getCode(0, row), single.getCode(0, row));
+            Assertions.assertEquals(parallel.getDateTime(1, row), single.getDateTime(1, row));
+        }
+    }
+
+    @Test
+    public void ColumnsUseCompactEncodings() throws IOException {
+        var path = directory.resolve("compact.yxdb");
+        new YxdbGenerator().rows(5000).nullRatio(0.2)
+                .columns(YxdbGenerator.Column.STRING, YxdbGenerator.Column.DATE, YxdbGenerator.Column.DATETIME, YxdbGenerator.Column.DECIMAL, YxdbGenerator.Column.TIME)
+                .write(path);
+
+        var table = YxdbTable.load(path.toString());
+        var nulls = 0;
+        for (var row = 0; row < table.numRows(); row++) {
+            if (table.isNull(0, row)) {
+                nulls++;
+                Assertions.assertEquals(-1, table.getCode(0, row));
+                Assertions.assertNull(table.getString(0, row));
+            } else {
+                Assertions.assertEquals(table.dictionary(0)[table.getCode(0, row)], table.getString(0, row));
+            }
+            if (!table.isNull(1, row)) {
+                Assertions.assertEquals(table.getDate(1, row), LocalDate.ofEpochDay(table.getLong(1, row)));
+            }
+            if (!table.isNull(2, row)) {
+                Assertions.assertEquals(table.getDateTime(2, row), LocalDateTime.ofEpochSecond(table.getLong(2, row), 0, java.time.ZoneOffset.UTC));
+            }
+            if (!table.isNull(3, row)) {
+                Assertions.assertEquals(table.getDecimal(3, row), BigDecimal.valueOf(table.getLong(3, row), 6));
+            }
+            if (!table.isNull(4, row)) {
+                Assertions.assertEquals(table.getTime(4, row), LocalTime.ofSecondOfDay(table.getLong(4, row)));
+            }
+        }
+        Assertions.assertTrue(nulls > 0);
+        Assertions.assertEquals(table.columnIndex("STRING_0"), 0);
+    }
+
+    @Test
+    public void LoadsSampleFiles() throws IOException {
+        for (var path : new String[]{"src/test/resources/TutorialData.yxdb", "src/test/resources/ampdata.yxdb"}) {
+            var table = YxdbTable.load(path);
+            assertMatchesReader(path, table);
+            Assertions.assertTrue(table.memoryBytes() < table.fileBytes() * 10);
+        }
+    }
+
+    @Test
+    public void InvalidAccessIsRejected() throws IOException {
+        var table = YxdbTable.load("src/test/resources/TutorialData.yxdb");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> table.isNull(-1, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> table.isNull(0, table.numRows()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> table.columnIndex("missing"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbTable.load("src/test/resources/TutorialData.yxdb", 0));
+        var text = table.columnIndex("First");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> table.getDouble(text, 0));
+    }
+}
@@ -0,0 +1,133 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+public class YxdbVerifierTest {
+    @TempDir
+    Path directory;
+
+    private Path generate() throws IOException {
+        var path = directory.resolve("sales.yxdb");
+        new YxdbGenerator().rows(150000).compressibility(0.7).stringLengths(0, 300)
+                .columns(YxdbGenerator.Column.INT32, YxdbGenerator.Column.V_STRING, YxdbGenerator.Column.V_WSTRING,
+                        YxdbGenerator.Column.DOUBLE, YxdbGenerator.Column.BLOB)
+                .write(path);
+        return path;
+    }
+
+    private static void overwrite(Path path, long position, int value) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value), position);
+        }
+    }
+
+    @Test
+    public void ResourceFilesAreValid() throws IOException {
+        try (var files = Files.list(Path.of("src/test/resources"))) {
+            for (var path : files.filter(p -> p.toString().endsWith(".yxdb")).toList()) {
+                var result = YxdbVerifier.of(path.toString()).threads(1).run();
+                Assertions.assertTrue(result.valid(), path + ": " + result.problem());
+                Assertions.assertEquals(-1, result.block());
+                Assertions.assertEquals(0, result.badBlocks());
+                try (var reader = AmpFile.isAmp(path.toString()) ? AmpFile.open(path).reader() : new YxdbReader(path.toString())) {
+                    Assertions.assertEquals(reader.numRecords(), result.records(), path.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void ChecksumIsTheSameOnAnyNumberOfThreads() throws IOException {
+        var path = generate();
+        var single = YxdbVerifier.of(path.toString()).threads(1).run();
+        var parallel = YxdbVerifier.of(path.toString()).threads(4).run();
+        Assertions.assertTrue(parallel.valid(), parallel.problem());
+        Assertions.assertEquals(3, parallel.blocks());
+        Assertions.assertEquals(150000, parallel.records());
+        Assertions.assertEquals(single.checksum(), parallel.checksum());
+    }
+
+    @Test
+    public void ReportsTheFirstBadBlock() throws IOException {
+        var path = generate();
+        var before = YxdbVerifier.of(path.toString()).run().checksum();
+        long[] blocks;
+        try (var file = YxdbFile.open(path)) {
+            blocks = file.recordBlocks;
+        }
+        overwrite(path, blocks[2], 0x7fff0000);
+        overwrite(path, blocks[1], 0);
+
+        var result = YxdbVerifier.of(path.toString()).threads(4).run();
+        Assertions.assertFalse(result.valid());
+        Assertions.assertEquals(1, result.block());
+        Assertions.assertEquals(blocks[1], result.position());
+        Assertions.assertEquals(2, result.badBlocks());
+        Assertions.assertEquals(65536, result.records());
+        Assertions.assertNotEquals(before, result.checksum());
+    }
+
+    @Test
+    public void ReportsVariableDataOutsideItsRecord() throws IOException {
+        // random text does not compress, so the record is stored as is
+        var path = directory.resolve("raw.yxdb");
+        var random = new Random(7);
+        try (var writer = new YxdbTestWriter(path, YxdbTestWriter.field("Text", YxdbType.V_STRING, 2000))) {
+            for (var i = 0; i < 2; i++) {
+                var text = new StringBuilder();
+                for (var c = 0; c < 2000; c++) {
+                    text.append((char) (' ' + random.nextInt(95)));
+                }
+                writer.setString(0, text.toString());
+                writer.writeRecord();
+            }
+        }
+        Assertions.assertTrue(YxdbVerifier.of(path.toString()).run().valid());
+
+        long dataStart;
+        int firstVarLength;
+        try (var file = YxdbFile.open(path)) {
+            dataStart = file.dataStart;
+            var length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            file.channel.read(length, dataStart + 8);
+            firstVarLength = length.getInt(0);
+        }
+        // the fixed portion of the second record's field, after the LZF block length and the first record
+        overwrite(path, dataStart + 4 + 8 + firstVarLength, 0x00100000);
+        var result = YxdbVerifier.of(path.toString()).run();
+        Assertions.assertFalse(result.valid());
+        Assertions.assertEquals(0, result.block());
+        Assertions.assertEquals(1, result.record());
+        Assertions.assertEquals(dataStart, result.position());
+        Assertions.assertTrue(result.problem().contains("field Text"), result.problem());
+    }
+
+    @Test
+    public void ReportsTruncatedAndInvalidFiles() throws IOException {
+        var path = generate();
+        var truncated = directory.resolve("truncated.yxdb");
+        var bytes = Files.readAllBytes(path);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 5000));
+        var result = YxdbVerifier.of(truncated.toString()).run();
+        Assertions.assertFalse(result.valid());
+        Assertions.assertNotNull(result.problem());
+
+        var invalid = YxdbVerifier.of("src/test/resources/invalid.txt").run();
+        Assertions.assertFalse(invalid.valid());
+        Assertions.assertEquals(-1, invalid.block());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> YxdbVerifier.of(path.toString()).threads(0));
+    }
+}
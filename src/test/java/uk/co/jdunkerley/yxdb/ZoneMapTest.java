@@ -0,0 +1,185 @@
+package uk.co.jdunkerley.yxdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class ZoneMapTest {
+    private static final int ROWS = 200000;
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @TempDir
+    Path directory;
+    private Path events;
+
+    @BeforeEach
+    public void CreateFile() throws IOException {
+        events = directory.resolve("events.yxdb");
+        // IDs and dates in order, amounts repeating, and a name to spread the records over many LZF blocks
+        try (var writer = new YxdbTestWriter(events, YxdbTestWriter.field("ID", YxdbType.INT64),
+                YxdbTestWriter.field("Day", YxdbType.DATE), YxdbTestWriter.field("Amount", YxdbType.DOUBLE),
+                YxdbTestWriter.field("At", YxdbType.DATETIME), YxdbTestWriter.field("Name", YxdbType.V_STRING, 100))) {
+            for (var id = 0; id < ROWS; id++) {
+                writer.setLong(0, id);
+                writer.setString(1, START.plusDays(id / 1000).toString());
+                if (id % 7 == 0) {
+                    writer.setNull(2);
+                } else {
+                    writer.setDouble(2, (id % 200) - 100.5);
+                }
+                writer.setString(3, START.atStartOfDay().plusSeconds(id * 30L).format(FORMAT));
+                writer.setString(4, "name " + (id * 7919L % 100003));
+                writer.writeRecord();
+            }
+        }
+    }
+
+    private List<Long> scan(Predicate<YxdbReader> filter) throws IOException {
+        var ids = new ArrayList<Long>();
+        try (var reader = new YxdbReader(events.toString())) {
+            while (reader.next()) {
+                if (filter.test(reader)) {
+                    ids.add(reader.readLong("ID"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(YxdbReader reader) throws IOException {
+        var ids = new ArrayList<Long>();
+        try (reader) {
+            while (reader.next()) {
+                ids.add(reader.readLong("ID"));
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void RangeQueryMatchesAFullScan() throws IOException {
+        var zoneMap = ZoneMap.build(events.toString(), "ID", "Day", "Amount");
+        Assertions.assertEquals(List.of("ID", "Day", "Amount"), zoneMap.fieldNames());
+        Assertions.assertTrue(zoneMap.size() > 10, "zones " + zoneMap.size());
+
+        Assertions.assertEquals(scan(r -> r.readLong("ID") >= 70000 && r.readLong("ID") <= 70500),
+                ids(zoneMap.query("ID", 70000, 70500L)));
+        Assertions.assertEquals(scan(r -> r.readLong("ID") <= 12),
+                ids(zoneMap.query("ID", null, 12)));
+        Assertions.assertEquals(scan(r -> !r.readDate("Day").isBefore(LocalDate.of(2020, 3, 1))),
+                ids(zoneMap.query("Day", LocalDate.of(2020, 3, 1), null)));
+        Assertions.assertEquals(scan(r -> r.readLong("ID") >= 131000 && r.readDouble("Amount") != null && r.readDouble("Amount") > 98),
+                ids(zoneMap.query(new ZoneMap.Range("ID", 131000, null), new ZoneMap.Range("Amount", 98, null))));
+        Assertions.assertEquals(scan(r -> r.readDouble("Amount") != null),
+                ids(zoneMap.query("Amount", null, null)));
+        Assertions.assertEquals(scan(r -> r.readLong("ID") >= 5 && r.readLong("ID") <= 6),
+                ids(zoneMap.query("ID", 4.5, 6.9)));
+        Assertions.assertEquals(List.of(), ids(zoneMap.query("ID", 10, 5)));
+        Assertions.assertEquals(List.of(), ids(zoneMap.query("ID", ROWS, null)));
+    }
+
+    @Test
+    public void QuerySkipsZonesOutsideTheRange() throws IOException {
+        var zoneMap = ZoneMap.build(events.toString(), "ID", "Amount");
+        long all;
+        try (var reader = new YxdbReader(events.toString())) {
+            reader.enableStats();
+            while (reader.next()) {
+                reader.readLong("ID");
+            }
+            all = reader.stats().blocksDecompressed();
+        }
+
+        Assertions.assertEquals(1, zoneMap.zonesMatching(new ZoneMap.Range("ID", 150000, 150000)));
+        Assertions.assertEquals(zoneMap.size(), zoneMap.zonesMatching(new ZoneMap.Range("Amount", 0, null)));
+        try (var reader = zoneMap.query("ID", 150000, 150100)) {
+            reader.enableStats();
+            var count = 0;
+            while (reader.next()) {
+                Assertions.assertEquals(150000 + count, reader.readLong("ID"));
+                count++;
+            }
+            Assertions.assertEquals(101, count);
+            Assertions.assertTrue(reader.stats().blocksDecompressed() <= 2, "decompressed " + reader.stats().blocksDecompressed() + " of " + all);
+        }
+    }
+
+    @Test
+    public void NullsAreCountedAndNeverMatch() throws IOException {
+        var zoneMap = ZoneMap.build(events.toString(), "Amount");
+        Assertions.assertEquals((ROWS + 6) / 7, zoneMap.nullCount("Amount"));
+        try (var reader = zoneMap.query("Amount", -1000, 1000)) {
+            while (reader.next()) {
+                Assertions.assertNotNull(reader.readDouble("Amount"));
+            }
+        }
+    }
+
+    @Test
+    public void DateTimeBoundsRoundInwards() throws IOException {
+        var zoneMap = ZoneMap.build(events.toString(), "At");
+        var from = START.atStartOfDay().plusSeconds(300).plusNanos(1);
+        var to = START.atStartOfDay().plusSeconds(600);
+        Assertions.assertEquals(scan(r -> r.readDateTime("At").isAfter(from) && !r.readDateTime("At").isAfter(to)),
+                ids(zoneMap.query("At", from, to)));
+        Assertions.assertEquals(List.of(11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L), ids(zoneMap.query("At", from, to)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> zoneMap.query("At", LocalDate.of(2020, 1, 1), null));
+    }
+
+    @Test
+    public void OpenReadsTheSavedZoneMap() throws IOException {
+        var built = ZoneMap.build(events.toString(), "ID", "Day");
+        var opened = ZoneMap.open(events.toString());
+        Assertions.assertEquals(built.fieldNames(), opened.fieldNames());
+        Assertions.assertEquals(built.size(), opened.size());
+        Assertions.assertEquals(ids(built.query("Day", LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 3))),
+                ids(opened.query("Day", LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 3))));
+        Assertions.assertEquals(3000, ids(opened.query("Day", LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 3))).size());
+        Assertions.assertEquals(opened.size(), ZoneMap.openOrBuild(events.toString(), "ID", "Day").size());
+    }
+
+    @Test
+    public void StaleZoneMapIsRejected() throws IOException {
+        var zoneMap = ZoneMap.build(events.toString(), "ID");
+        Files.setLastModifiedTime(events, FileTime.fromMillis(Files.getLastModifiedTime(events).toMillis() + 60000));
+
+        Assertions.assertThrows(IOException.class, () -> ZoneMap.open(events.toString()));
+        Assertions.assertThrows(IOException.class, () -> zoneMap.query("ID", 0, 10));
+
+        var rebuilt = ZoneMap.openOrBuild(events.toString(), "ID");
+        Assertions.assertEquals(11, ids(rebuilt.query("ID", 0, 10)).size());
+        Assertions.assertEquals(rebuilt.size(), ZoneMap.open(events.toString()).size());
+
+        var other = ZoneMap.openOrBuild(events.toString(), "Day");
+        Assertions.assertEquals(List.of("Day"), other.fieldNames());
+        Assertions.assertEquals(List.of("Day"), ZoneMap.open(events.toString()).fieldNames());
+    }
+
+    @Test
+    public void InvalidFieldsAndFilesAreRejected() throws IOException {
+        Assertions.assertThrows(IOException.class, () -> ZoneMap.open(events.toString()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ZoneMap.build(events.toString()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ZoneMap.build(events.toString(), "Name"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ZoneMap.build(events.toString(), "Missing"));
+
+        var zoneMap = ZoneMap.build(events.toString(), "ID");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> zoneMap.query("Day", null, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> zoneMap.query("ID", "10", null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> zoneMap.query("ID", Double.NaN, null));
+
+        Files.write(ZoneMap.sidecarPath(events), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ZoneMap.open(events.toString()));
+    }
+}
@@ -0,0 +1,150 @@
+package uk.co.jdunkerley.yxdb.jdbc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+
+public class YxdbDriverTest {
+    private static final String URL = "jdbc:yxdb:src/test/resources";
+
+    @Test
+    public void DriverManagerFindsTheDriver() throws SQLException {
+        Assertions.assertTrue(DriverManager.getDriver(URL) instanceof YxdbDriver);
+        Assertions.assertNull(new YxdbDriver().connect("jdbc:other:db", null));
+        Assertions.assertThrows(SQLException.class, () -> DriverManager.getConnection("jdbc:yxdb:src/test/missing"));
+    }
+
+    @Test
+    public void SelectColumnsReadsPrimitives() throws SQLException {
+        try (var connection = DriverManager.getConnection(URL);
+             var statement = connection.createStatement();
+             var rs = statement.executeQuery("SELECT Int64Field, DoubleField, \"FloatField\", FixedDecimalField, DateTimeField FROM AllNormalFields")) {
+            var metaData = rs.getMetaData();
+            Assertions.assertEquals(5, metaData.getColumnCount());
+            Assertions.assertEquals("Int64Field", metaData.getColumnName(1));
+            Assertions.assertEquals(Types.BIGINT, metaData.getColumnType(1));
+            Assertions.assertEquals(Types.REAL, metaData.getColumnType(3));
+            Assertions.assertEquals("AllNormalFields", metaData.getTableName(1));
+
+            Assertions.assertTrue(rs.next());
+            Assertions.assertEquals(64L, rs.getLong(1));
+            Assertions.assertFalse(rs.wasNull());
+            Assertions.assertEquals(64, rs.getInt("int64field"));
+            Assertions.assertEquals(0.12345, rs.getDouble("DoubleField"));
+            Assertions.assertEquals(678.9f, rs.getFloat(3));
+            Assertions.assertEquals(678.9f, rs.getObject(3));
+            Assertions.assertEquals(new BigDecimal("123.450000"), rs.getBigDecimal(4));
+            Assertions.assertEquals("123.450000", rs.getString(4));
+            Assertions.assertEquals(Timestamp.valueOf("2020-02-03 04:05:06"), rs.getTimestamp(5));
+            Assertions.assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void WhereFiltersRowsBeforeTheyAreReturned() throws SQLException {
+        try (var connection = DriverManager.getConnection(URL);
+             var statement = connection.createStatement();
+             var rs = statement.executeQuery("SELECT Prefix FROM TutorialData WHERE Prefix = 'Mr'")) {
+            var count = 0;
+            while (rs.next()) {
+                Assertions.assertEquals("Mr", rs.getString(1));
+                count++;
+            }
+            Assertions.assertEquals(4068, count);
+        }
+    }
+
+    @Test
+    public void LimitAndMaxRowsStopReading() throws SQLException {
+        try (var connection = DriverManager.getConnection(URL);
+             var statement = connection.createStatement()) {
+            try (var rs = statement.executeQuery("SELECT * FROM TutorialData LIMIT 5")) {
+                Assertions.assertEquals(5, count(rs));
+            }
+
+            statement.setMaxRows(3);
+            try (var rs = statement.executeQuery("SELECT * FROM \"TutorialData.yxdb\" LIMIT 5")) {
+                Assertions.assertEquals(3, count(rs));
+            }
+        }
+    }
+
+    @Test
+    public void AmpFilesAreRejected() throws SQLException {
+        try (var connection = DriverManager.getConnection(URL);
+             var statement = connection.createStatement()) {
+            var ex = Assertions.assertThrows(SQLException.class, () -> statement.executeQuery("SELECT EIN FROM ampdata"));
+            Assertions.assertTrue(ex.getMessage().endsWith("Reading AMP YXDB files is not supported."), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void InvalidQueriesThrow() throws SQLException {
+        try (var connection = DriverManager.getConnection(URL);
+             var statement = connection.createStatement()) {
+            Assertions.assertThrows(SQLSyntaxErrorException.class, () -> statement.executeQuery("DELETE FROM TutorialData"));
+            Assertions.assertThrows(SQLSyntaxErrorException.class, () -> statement.executeQuery("SELECT FROM TutorialData"));
+            Assertions.assertThrows(SQLSyntaxErrorException.class, () -> statement.executeQuery("SELECT * FROM TutorialData LIMIT x"));
+
+            var missingColumn = Assertions.assertThrows(SQLException.class, () -> statement.executeQuery("SELECT Missing FROM TutorialData"));
+            Assertions.assertEquals("42S22", missingColumn.getSQLState());
+            var missingTable = Assertions.assertThrows(SQLException.class, () -> statement.executeQuery("SELECT * FROM Missing"));
+            Assertions.assertEquals("42S02", missingTable.getSQLState());
+            Assertions.assertThrows(SQLException.class, () -> statement.executeQuery("SELECT * FROM \"../TutorialData\""));
+            Assertions.assertThrows(SQLException.class, () -> statement.executeUpdate("SELECT * FROM TutorialData"));
+        }
+    }
+
+    @Test
+    public void DatabaseMetaDataListsFilesAndFields() throws SQLException {
+        try (var connection = DriverManager.getConnection(URL)) {
+            var metaData = connection.getMetaData();
+            Assertions.assertTrue(metaData.isReadOnly());
+
+            var tables = new ArrayList<String>();
+            try (var rs = metaData.getTables(null, null, "%", null)) {
+                while (rs.next()) {
+                    tables.add(rs.getString("TABLE_NAME"));
+                    Assertions.assertEquals("TABLE", rs.getString("TABLE_TYPE"));
+                }
+            }
+            Assertions.assertTrue(tables.contains("AllNormalFields"));
+            Assertions.assertTrue(tables.contains("ampdata"));
+
+            try (var rs = metaData.getColumns(null, null, "AllNormal%", null)) {
+                var count = 0;
+                while (rs.next()) {
+                    count++;
+                    Assertions.assertEquals(count, rs.getInt("ORDINAL_POSITION"));
+                    if (rs.getString("COLUMN_NAME").equals("Int64Field")) {
+                        Assertions.assertEquals(Types.BIGINT, rs.getInt("DATA_TYPE"));
+                        Assertions.assertEquals("Int64", rs.getString("TYPE_NAME"));
+                    }
+                }
+                Assertions.assertEquals(16, count);
+            }
+
+            try (var rs = metaData.getColumns(null, null, "AllNormalFields", "V\\_String%")) {
+                Assertions.assertEquals(2, count(rs));
+            }
+            try (var rs = metaData.getPrimaryKeys(null, null, "AllNormalFields")) {
+                Assertions.assertFalse(rs.next());
+            }
+        }
+    }
+
+    private static int count(java.sql.ResultSet rs) throws SQLException {
+        var count = 0;
+        while (rs.next()) {
+            count++;
+        }
+        return count;
+    }
+}
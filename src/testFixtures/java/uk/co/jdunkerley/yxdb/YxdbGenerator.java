@@ -0,0 +1,227 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Generates synthetic .yxdb files for scale tests and benchmarks.
+ * <p>
+ * Every value is derived from the seed and the row number alone, so the same settings always produce the same file,
+ * and row(n) returns the values a reader should see for any row without reading the file.
+ * <p>
+ * Compressibility is the share of values drawn from a small vocabulary (or a small range of numbers); the rest are random.
+ * At 0 the LZF blocks do not compress and are stored raw, exercising the uncompressed block path.
+ */
+final class YxdbGenerator {
+    enum Column {
+        BOOL, BYTE, INT16, INT32, INT64, FLOAT, DOUBLE, DECIMAL, STRING, WSTRING, V_STRING, V_WSTRING, DATE, TIME, DATETIME, BLOB, SPATIAL
+    }
+
+    private static final String[] WORDS = {
+            "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliet",
+            "kilo", "lima", "mike", "november", "oscar", "papa", "quebec", "romeo", "sierra", "tango"
+    };
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DATETIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private long rows = 1000;
+    private Column[] columns = Column.values();
+    private int minStringLength = 0;
+    private int maxStringLength = 32;
+    private int minBlobLength = 0;
+    private int maxBlobLength = 256;
+    private double nullRatio = 0.1;
+    private double compressibility = 0.5;
+    private long seed = 42;
+    private int blockSize = BufferedRecordReader.lzfBufferSize;
+
+    YxdbGenerator rows(long rows) {
+        this.rows = rows;
+        return this;
+    }
+
+    YxdbGenerator columns(Column... columns) {
+        this.columns = columns.clone();
+        return this;
+    }
+
+    YxdbGenerator stringLengths(int min, int max) {
+        if (min < 0 || max < Math.max(min, 1)) {
+            throw new IllegalArgumentException("string lengths must satisfy 0 <= min <= max and max >= 1");
+        }
+        this.minStringLength = min;
+        this.maxStringLength = max;
+        return this;
+    }
+
+    YxdbGenerator blobLengths(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("blob lengths must satisfy 0 <= min <= max");
+        }
+        this.minBlobLength = min;
+        this.maxBlobLength = max;
+        return this;
+    }
+
+    YxdbGenerator nullRatio(double nullRatio) {
+        this.nullRatio = nullRatio;
+        return this;
+    }
+
+    YxdbGenerator compressibility(double compressibility) {
+        this.compressibility = compressibility;
+        return this;
+    }
+
+    YxdbGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    YxdbGenerator blockSize(int blockSize) {
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    Column[] columns() {
+        return columns.clone();
+    }
+
+    // The field definitions, named after their column type and position (e.g. Int32_3).
+    String[] fieldXml() {
+        var xml = new String[columns.length];
+        for (var i = 0; i < columns.length; i++) {
+            var name = columns[i].name() + "_" + i;
+            xml[i] = switch (columns[i]) {
+                case BOOL -> YxdbTestWriter.field(name, YxdbType.BOOLEAN);
+                case BYTE -> YxdbTestWriter.field(name, YxdbType.BYTE);
+                case INT16 -> YxdbTestWriter.field(name, YxdbType.INT16);
+                case INT32 -> YxdbTestWriter.field(name, YxdbType.INT32);
+                case INT64 -> YxdbTestWriter.field(name, YxdbType.INT64);
+                case FLOAT -> YxdbTestWriter.field(name, YxdbType.FLOAT);
+                case DOUBLE -> YxdbTestWriter.field(name, YxdbType.DOUBLE);
+                case DECIMAL -> YxdbTestWriter.field(name, YxdbType.DECIMAL, 19, 6);
+                case STRING -> YxdbTestWriter.field(name, YxdbType.STRING, maxStringLength);
+                case WSTRING -> YxdbTestWriter.field(name, YxdbType.WSTRING, maxStringLength);
+                case V_STRING -> YxdbTestWriter.field(name, YxdbType.V_STRING, maxStringLength);
+                case V_WSTRING -> YxdbTestWriter.field(name, YxdbType.V_WSTRING, maxStringLength);
+                case DATE -> YxdbTestWriter.field(name, YxdbType.DATE);
+                case TIME -> YxdbTestWriter.field(name, YxdbType.TIME);
+                case DATETIME -> YxdbTestWriter.field(name, YxdbType.DATETIME);
+                case BLOB -> YxdbTestWriter.field(name, YxdbType.BLOB);
+                case SPATIAL -> YxdbTestWriter.field(name, YxdbType.SPATIAL_OBJ);
+            };
+        }
+        return xml;
+    }
+
+    void write(Path path) throws IOException {
+        try (var writer = new YxdbTestWriter(path, blockSize, fieldXml())) {
+            for (var row = 0L; row < rows; row++) {
+                var values = row(row);
+                for (var i = 0; i < columns.length; i++) {
+                    set(writer, i, columns[i], values[i]);
+                }
+                writer.writeRecord();
+            }
+        }
+    }
+
+    // The values of a row, as YxdbReader's typed read methods return them (SpatialObj fields as readBlob returns them).
+    Object[] row(long row) {
+        var random = new Random(seed * 0x9E3779B97F4A7C15L + row);
+        var values = new Object[columns.length];
+        for (var i = 0; i < columns.length; i++) {
+            var repetitive = random.nextDouble() < compressibility;
+            var value = value(columns[i], random, repetitive, row);
+            values[i] = random.nextDouble() < nullRatio ? null : value;
+        }
+        return values;
+    }
+
+    private Object value(Column column, Random random, boolean repetitive, long row) {
+        return switch (column) {
+            case BOOL -> random.nextBoolean();
+            case BYTE -> (byte) (repetitive ? random.nextInt(4) : random.nextInt());
+            case INT16 -> (long) (short) (repetitive ? random.nextInt(100) : random.nextInt());
+            case INT32 -> repetitive ? row : (long) random.nextInt();
+            case INT64 -> repetitive ? random.nextInt(100) : random.nextLong();
+            case FLOAT -> (double) (repetitive ? random.nextInt(100) : random.nextFloat() * 1e6f);
+            case DOUBLE -> repetitive ? random.nextInt(100) : random.nextGaussian() * 1e6;
+            case DECIMAL -> BigDecimal.valueOf(repetitive ? random.nextInt(100) * 1_000_000L : random.nextLong() % 1_000_000_000_000L, 6);
+            case STRING, V_STRING -> text(random, repetitive, 0x7e);
+            case WSTRING, V_WSTRING -> text(random, repetitive, 0x2fff);
+            case DATE -> EPOCH.toLocalDate().plusDays(random.nextInt(repetitive ? 30 : 20000));
+            case TIME -> LocalTime.ofSecondOfDay(repetitive ? random.nextInt(24) * 3600 : random.nextInt(86400));
+            case DATETIME -> EPOCH.plusSeconds(repetitive ? random.nextInt(30) * 86400L : random.nextInt(Integer.MAX_VALUE));
+            case BLOB -> blob(random, repetitive);
+            case SPATIAL -> point(repetitive ? random.nextInt(10) : random.nextDouble() * 360 - 180,
+                    repetitive ? random.nextInt(10) : random.nextDouble() * 180 - 90);
+        };
+    }
+
+    private String text(Random random, boolean repetitive, int maxChar) {
+        var length = minStringLength + random.nextInt(maxStringLength - minStringLength + 1);
+        var builder = new StringBuilder(length);
+        if (repetitive) {
+            while (builder.length() < length) {
+                builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+        } else {
+            while (builder.length() < length) {
+                builder.append((char) (0x21 + random.nextInt(maxChar - 0x20)));
+            }
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+
+    private byte[] blob(Random random, boolean repetitive) {
+        var blob = new byte[minBlobLength + random.nextInt(maxBlobLength - minBlobLength + 1)];
+        if (repetitive) {
+            for (var i = 0; i < blob.length; i++) {
+                blob[i] = (byte) (i % 16);
+            }
+        } else {
+            random.nextBytes(blob);
+        }
+        return blob;
+    }
+
+    static byte[] point(double x, double y) {
+        var buffer = ByteBuffer.allocate(56).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(8);
+        buffer.putDouble(x).putDouble(y).putDouble(x).putDouble(y);
+        buffer.putInt(1);
+        buffer.putDouble(x).putDouble(y);
+        return buffer.array();
+    }
+
+    private static void set(YxdbTestWriter writer, int index, Column column, Object value) {
+        if (value == null) {
+            writer.setNull(index);
+            return;
+        }
+
+        switch (column) {
+            case BOOL -> writer.setBoolean(index, (Boolean) value);
+            case BYTE -> writer.setByte(index, (Byte) value);
+            case INT16, INT32, INT64 -> writer.setLong(index, (Long) value);
+            case FLOAT, DOUBLE -> writer.setDouble(index, (Double) value);
+            case DECIMAL -> writer.setString(index, ((BigDecimal) value).toPlainString());
+            case STRING, WSTRING, V_STRING, V_WSTRING -> writer.setString(index, (String) value);
+            case DATE -> writer.setString(index, value.toString());
+            case TIME -> writer.setString(index, TIME_FORMAT.format((LocalTime) value));
+            case DATETIME -> writer.setString(index, DATETIME_FORMAT.format((LocalDateTime) value));
+            case BLOB, SPATIAL -> writer.setBlob(index, (byte[]) value);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package uk.co.jdunkerley.yxdb;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes .yxdb files for tests, using the same layout as Alteryx: LZF compressed blocks of up to 256 KB,
+ * a new block every 65536 records and a record block index at the end of the file.
+ */
+class YxdbTestWriter implements Closeable {
+    static final int RECORDS_PER_BLOCK = 65536;
+
+    private final Path path;
+    private final OutputStream stream;
+    private final YxdbField[] fields;
+    private final String metaInfo;
+    private final int fixedSize;
+    private final boolean hasVar;
+
+    private final ByteBuffer record;
+    private byte[] varData = new byte[1024];
+    private int varLength;
+
+    private final byte[] block;
+    private final byte[] compressed;
+    private int blockLength;
+    private final int blockSize;
+
+    private final List<Long> recordBlocks = new ArrayList<>();
+    private long position;
+    private long numRecords;
+
+    YxdbTestWriter(Path path, String... fieldXml) throws IOException {
+        this(path, BufferedRecordReader.lzfBufferSize, fieldXml);
+    }
+
+    YxdbTestWriter(Path path, int blockSize, String... fieldXml) throws IOException {
+        this.path = path;
+        this.blockSize = blockSize;
+        this.metaInfo = "<RecordInfo>\n" + String.join("\n", fieldXml) + "\n</RecordInfo>\n";
+
+        var header = ByteBuffer.allocate(512 + metaInfo.length() * 2).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("Alteryx Database File".getBytes(StandardCharsets.ISO_8859_1));
+        header.putInt(80, metaInfo.length() + 1);
+        var metaBytes = (metaInfo + "\0").getBytes(StandardCharsets.UTF_16LE);
+        this.fields = YxdbReader.readFields(header, new ByteArrayInputStream(metaBytes));
+
+        var yxdbRecord = new YxdbRecord(fields);
+        this.fixedSize = yxdbRecord.fixedSize;
+        this.hasVar = yxdbRecord.hasVar;
+        this.record = ByteBuffer.allocate(fixedSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        this.block = new byte[blockSize];
+        this.compressed = new byte[blockSize];
+
+        this.stream = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+        this.stream.write(new byte[512]);
+        this.stream.write(metaBytes);
+        this.position = 512 + metaBytes.length;
+    }
+
+    static String field(String name, String type) {
+        return "<Field name=\"" + name + "\" type=\"" + type + "\"/>";
+    }
+
+    static String field(String name, String type, int size) {
+        return "<Field name=\"" + name + "\" type=\"" + type + "\" size=\"" + size + "\"/>";
+    }
+
+    static String field(String name, String type, int size, int scale) {
+        return "<Field name=\"" + name + "\" type=\"" + type + "\" size=\"" + size + "\" scale=\"" + scale + "\"/>";
+    }
+
+    // The length word of every LZF block in a file; negative lengths are blocks stored uncompressed.
+    static List<Integer> blockLengths(Path path) throws IOException {
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        var position = YxdbReader.dataStart(bytes);
+        var end = bytes.getLong(96);
+        var lengths = new ArrayList<Integer>();
+        while (position < end) {
+            var length = bytes.getInt((int) position);
+            lengths.add(length);
+            position += 4 + (length & 0x7fffffff);
+        }
+        return lengths;
+    }
+
+    YxdbField[] fields() {
+        return fields;
+    }
+
+    void setNull(int index) {
+        var field = fields[index];
+        var start = field.startPosition();
+        switch (field.yxdbType()) {
+            case YxdbType.BOOLEAN -> record.put(start, (byte) 2);
+            case YxdbType.V_STRING, YxdbType.V_WSTRING, YxdbType.BLOB, YxdbType.SPATIAL_OBJ -> record.putInt(start, 1);
+            default -> {
+                Arrays.fill(record.array(), start, field.endPosition() - 1, (byte) 0);
+                record.put(field.endPosition() - 1, (byte) 1);
+            }
+        }
+    }
+
+    void setBoolean(int index, boolean value) {
+        record.put(fields[index].startPosition(), (byte) (value ? 1 : 0));
+    }
+
+    void setByte(int index, byte value) {
+        var start = fields[index].startPosition();
+        record.put(start, value);
+        record.put(start + 1, (byte) 0);
+    }
+
+    void setLong(int index, long value) {
+        var field = fields[index];
+        var start = field.startPosition();
+        switch (field.yxdbType()) {
+            case YxdbType.INT16 -> record.putShort(start, (short) value);
+            case YxdbType.INT32 -> record.putInt(start, (int) value);
+            case YxdbType.INT64 -> record.putLong(start, value);
+            default -> throw new IllegalArgumentException(field.name() + " is not an integer field");
+        }
+        record.put(field.endPosition() - 1, (byte) 0);
+    }
+
+    void setDouble(int index, double value) {
+        var field = fields[index];
+        var start = field.startPosition();
+        switch (field.yxdbType()) {
+            case YxdbType.FLOAT -> record.putFloat(start, (float) value);
+            case YxdbType.DOUBLE -> record.putDouble(start, value);
+            default -> throw new IllegalArgumentException(field.name() + " is not a floating point field");
+        }
+        record.put(field.endPosition() - 1, (byte) 0);
+    }
+
+    // Writes String, WString, FixedDecimal, Date, Time, DateTime, V_String and V_WString fields.
+    void setString(int index, String value) {
+        var field = fields[index];
+        switch (field.yxdbType()) {
+            case YxdbType.V_STRING -> setBlob(index, value.getBytes(StandardCharsets.ISO_8859_1));
+            case YxdbType.V_WSTRING -> setBlob(index, value.getBytes(StandardCharsets.UTF_16LE));
+            case YxdbType.WSTRING -> setFixed(field, value.getBytes(StandardCharsets.UTF_16LE));
+            default -> setFixed(field, value.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    void setBlob(int index, byte[] value) {
+        var start = fields[index].startPosition();
+        if (value.length == 0) {
+            record.putInt(start, 0);
+            return;
+        }
+
+        var header = value.length < 128 ? 1 : 4;
+        ensureVarCapacity(header + value.length);
+        record.putInt(start, fixedSize + 4 + varLength - start);
+        if (header == 1) {
+            varData[varLength] = (byte) ((value.length << 1) | 1);
+        } else {
+            ByteBuffer.wrap(varData, varLength, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(value.length * 2);
+        }
+        System.arraycopy(value, 0, varData, varLength + header, value.length);
+        varLength += header + value.length;
+    }
+
+    void writeRecord() throws IOException {
+        if (numRecords % RECORDS_PER_BLOCK == 0) {
+            flushBlock();
+            recordBlocks.add(position);
+        }
+
+        write(record.array(), fixedSize);
+        if (hasVar) {
+            var length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(varLength).array();
+            write(length, 4);
+            write(varData, varLength);
+        }
+
+        varLength = 0;
+        numRecords++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBlock();
+        if (recordBlocks.isEmpty()) {
+            recordBlocks.add(position);
+        }
+
+        var indexPosition = position;
+        var index = ByteBuffer.allocate(4 + recordBlocks.size() * 8).order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(recordBlocks.size());
+        for (var recordBlock : recordBlocks) {
+            index.putLong(recordBlock);
+        }
+        stream.write(index.array());
+        stream.close();
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            var header = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+            header.put("Alteryx Database File".getBytes(StandardCharsets.ISO_8859_1));
+            header.putInt(64, 0x00440204);
+            header.putInt(80, metaInfo.length() + 1);
+            header.putLong(96, indexPosition);
+            header.putLong(104, numRecords);
+            header.putInt(112, 1);
+            header.position(0);
+            channel.write(header, 0);
+        }
+    }
+
+    private void setFixed(YxdbField field, byte[] bytes) {
+        var start = field.startPosition();
+        var length = field.endPosition() - 1 - start;
+        Arrays.fill(record.array(), start, start + length, (byte) 0);
+        System.arraycopy(bytes, 0, record.array(), start, Math.min(bytes.length, length));
+        record.put(start + length, (byte) 0);
+    }
+
+    private void ensureVarCapacity(int extra) {
+        if (varLength + extra > varData.length) {
+            varData = Arrays.copyOf(varData, Math.max(varData.length * 2, varLength + extra));
+        }
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        var offset = 0;
+        while (offset < length) {
+            var toCopy = Math.min(length - offset, blockSize - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, toCopy);
+            blockLength += toCopy;
+            offset += toCopy;
+            if (blockLength == blockSize) {
+                flushBlock();
+            }
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockLength == 0) {
+            return;
+        }
+
+        var compressedLength = Lzf.compress(block, blockLength, compressed);
+        var lengthBytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        if (compressedLength > 0) {
+            stream.write(lengthBytes.putInt(compressedLength).array());
+            stream.write(compressed, 0, compressedLength);
+            position += 4 + compressedLength;
+        } else {
+            stream.write(lengthBytes.putInt(blockLength | 0x80000000).array());
+            stream.write(block, 0, blockLength);
+            position += 4 + blockLength;
+        }
+        blockLength = 0;
+    }
+}